@@ -5,13 +5,19 @@
 //
 package org.dogtagpki.acme.database;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.dogtagpki.acme.ACMEAccount;
 import org.dogtagpki.acme.ACMEAuthorization;
 import org.dogtagpki.acme.ACMECertificate;
+import org.dogtagpki.acme.ACMEChallenge;
 import org.dogtagpki.acme.ACMEIdentifier;
 import org.dogtagpki.acme.ACMENonce;
 import org.dogtagpki.acme.ACMEOrder;
@@ -21,6 +27,8 @@ import org.dogtagpki.acme.ACMEOrder;
  */
 public abstract class ACMEDatabase {
 
+    public static final int DEFAULT_RETENTION_BATCH_SIZE = 1000;
+
     protected ACMEDatabaseConfig config;
 
     public ACMEDatabaseConfig getConfig() {
@@ -31,6 +39,25 @@ public abstract class ACMEDatabase {
         this.config = config;
     }
 
+    /**
+     * Returns the maximum number of expired records removed at once
+     * (retentionBatchSize parameter).
+     */
+    public int getRetentionBatchSize() {
+
+        String value = config == null ? null : config.getParameter("retentionBatchSize");
+        if (value == null) {
+            return DEFAULT_RETENTION_BATCH_SIZE;
+        }
+
+        int batchSize = Integer.parseInt(value);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid retentionBatchSize: " + value);
+        }
+
+        return batchSize;
+    }
+
     public void init() throws Exception {
     }
 
@@ -39,7 +66,12 @@ public abstract class ACMEDatabase {
 
     public abstract void addNonce(ACMENonce nonce) throws Exception;
     public abstract ACMENonce removeNonce(String nonceID) throws Exception;
-    public abstract void removeExpiredNonces(Date currentTime) throws Exception;
+    /**
+     * Removes the nonces that have expired.
+     *
+     * @return The number of removed nonces.
+     */
+    public abstract int removeExpiredNonces(Date currentTime) throws Exception;
 
     public abstract ACMEAccount getAccount(String accountID) throws Exception;
     public abstract void addAccount(ACMEAccount account) throws Exception;
@@ -60,6 +92,34 @@ public abstract class ACMEDatabase {
         throw new NotImplementedException();
     }
 
+    /**
+     * This method returns a page of order records created by an account
+     * sorted by creation time.
+     *
+     * By default this method retrieves all order records of the account.
+     * Databases that can retrieve a range of records directly should
+     * override this method.
+     *
+     * @param accountID The ID of the account.
+     * @param start The index of the first order record.
+     * @param size The maximum number of order records.
+     * @return A page of order records created by the account.
+     * @throws Exception
+     */
+    public Collection<ACMEOrder> getOrdersByAccount(String accountID, int start, int size) throws Exception {
+
+        List<ACMEOrder> orders = new ArrayList<>(getOrdersByAccount(accountID));
+        orders.sort(Comparator
+                .comparing(ACMEOrder::getCreationTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(ACMEOrder::getID));
+
+        if (start >= orders.size()) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(orders.subList(start, Math.min(start + size, orders.size())));
+    }
+
     public abstract Collection<ACMEOrder> getOrdersByAuthorizationAndStatus(
             String authzID,
             String status)
@@ -85,13 +145,67 @@ public abstract class ACMEDatabase {
     public abstract void addOrder(ACMEOrder order) throws Exception;
     public abstract void updateOrder(ACMEOrder order) throws Exception;
 
-    public void removeExpiredOrders(Date currentTime) throws Exception {
+    /**
+     * Removes the orders that have expired together with their
+     * identifiers and authorization references.
+     *
+     * @return The number of removed orders.
+     */
+    public int removeExpiredOrders(Date currentTime) throws Exception {
         throw new NotImplementedException();
     }
 
     public abstract ACMEAuthorization getAuthorization(String authzID) throws Exception;
     public abstract ACMEAuthorization getAuthorizationByChallenge(String challengeID) throws Exception;
 
+    /**
+     * This method returns the authorization records with the given IDs
+     * including their challenges. Authorization records that do not exist
+     * are not included.
+     *
+     * By default this method retrieves the authorization records one by
+     * one. Databases that can retrieve multiple records in one request
+     * should override this method.
+     *
+     * @param authzIDs The IDs of the authorizations.
+     * @return The authorization records keyed by authorization ID.
+     * @throws Exception
+     */
+    public Map<String, ACMEAuthorization> getAuthorizations(Collection<String> authzIDs) throws Exception {
+
+        Map<String, ACMEAuthorization> authorizations = new LinkedHashMap<>();
+
+        for (String authzID : authzIDs) {
+            ACMEAuthorization authorization = getAuthorization(authzID);
+            if (authorization == null) continue;
+            authorizations.put(authzID, authorization);
+        }
+
+        return authorizations;
+    }
+
+    /**
+     * This method returns the challenges of the given authorizations.
+     * Authorizations without challenges are not included.
+     *
+     * @param authzIDs The IDs of the authorizations.
+     * @return The challenges keyed by authorization ID.
+     * @throws Exception
+     */
+    public Map<String, Collection<ACMEChallenge>> getChallengesByAuthorizations(
+            Collection<String> authzIDs) throws Exception {
+
+        Map<String, Collection<ACMEChallenge>> challenges = new LinkedHashMap<>();
+
+        for (ACMEAuthorization authorization : getAuthorizations(authzIDs).values()) {
+            Collection<ACMEChallenge> authzChallenges = authorization.getChallenges();
+            if (authzChallenges == null || authzChallenges.isEmpty()) continue;
+            challenges.put(authorization.getID(), authzChallenges);
+        }
+
+        return challenges;
+    }
+
     /**
      * This method returns all valid and non-expired authorization records
      * owned by the account which can be used to validate certificate
@@ -131,7 +245,13 @@ public abstract class ACMEDatabase {
     public abstract void addAuthorization(ACMEAuthorization authorization) throws Exception;
     public abstract void updateAuthorization(ACMEAuthorization authorization) throws Exception;
 
-    public void removeExpiredAuthorizations(Date currentTime) throws Exception {
+    /**
+     * Removes the authorizations that have expired together with
+     * their challenges.
+     *
+     * @return The number of removed authorizations.
+     */
+    public int removeExpiredAuthorizations(Date currentTime) throws Exception {
         throw new NotImplementedException();
     }
 
@@ -143,7 +263,12 @@ public abstract class ACMEDatabase {
         throw new NotImplementedException();
     }
 
-    public void removeExpiredCertificates(Date currentTime) throws Exception {
+    /**
+     * Removes the certificates that have expired.
+     *
+     * @return The number of removed certificates.
+     */
+    public int removeExpiredCertificates(Date currentTime) throws Exception {
         throw new NotImplementedException();
     }
 }
@@ -8,8 +8,10 @@ package org.dogtagpki.acme.database;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import org.dogtagpki.acme.ACMEAccount;
 import org.dogtagpki.acme.ACMEAuthorization;
@@ -43,8 +45,8 @@ public class InMemoryDatabase extends ACMEDatabase {
         return nonces.remove(nonceID);
     }
 
-    public void removeExpiredNonces(Date currentTime) throws Exception {
-        nonces.values().removeIf(n -> !currentTime.before(n.getExpirationTime()));
+    public int removeExpiredNonces(Date currentTime) throws Exception {
+        return removeIf(nonces, n -> !currentTime.before(n.getExpirationTime()));
     }
 
     public ACMEAccount getAccount(String accountID) throws Exception {
@@ -114,8 +116,8 @@ public class InMemoryDatabase extends ACMEDatabase {
         orders.put(order.getID(), order);
     }
 
-    public void removeExpiredOrders(Date currentTime) throws Exception {
-        orders.values().removeIf(
+    public int removeExpiredOrders(Date currentTime) throws Exception {
+        return removeIf(orders,
                 n -> n.getExpirationTime() != null && !currentTime.before(n.getExpirationTime()));
     }
 
@@ -216,8 +218,8 @@ public class InMemoryDatabase extends ACMEDatabase {
         authorizations.put(authorization.getID(), authorization);
     }
 
-    public void removeExpiredAuthorizations(Date currentTime) throws Exception {
-        authorizations.values().removeIf(
+    public int removeExpiredAuthorizations(Date currentTime) throws Exception {
+        return removeIf(authorizations,
                 n -> n.getExpirationTime() != null && !currentTime.before(n.getExpirationTime()));
     }
 
@@ -229,8 +231,22 @@ public class InMemoryDatabase extends ACMEDatabase {
         certificates.put(certID, certificate);
     }
 
-    public void removeExpiredCertificates(Date currentTime) throws Exception {
-        certificates.values().removeIf(
+    public int removeExpiredCertificates(Date currentTime) throws Exception {
+        return removeIf(certificates,
                 n -> n.getExpirationTime() != null && !currentTime.before(n.getExpirationTime()));
     }
+
+    private static <T> int removeIf(Map<String, T> map, Predicate<T> filter) {
+
+        int count = 0;
+
+        for (Iterator<T> i = map.values().iterator(); i.hasNext(); ) {
+            if (filter.test(i.next())) {
+                i.remove();
+                count++;
+            }
+        }
+
+        return count;
+    }
 }
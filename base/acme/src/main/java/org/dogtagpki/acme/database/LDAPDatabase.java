@@ -12,7 +12,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.stream.Collectors;
 
@@ -102,6 +104,9 @@ public class LDAPDatabase extends ACMEDatabase {
 
     static final String IDENTIFIER_TYPE_DNS = "dns";
 
+    // maximum number of values in an OR filter
+    static final int FILTER_BATCH_SIZE = 100;
+
     // The LDAP Generalized Time syntax
     static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMddHHmmssZ");
 
@@ -266,16 +271,30 @@ public class LDAPDatabase extends ACMEDatabase {
         return nonce;
     }
 
-    public void removeExpiredNonces(Date currentTime) throws Exception {
+    public int removeExpiredNonces(Date currentTime) throws Exception {
+        return removeExpiredEntries(RDN_NONCE, currentTime);
+    }
+
+    /**
+     * Remove the expired entries under the given RDN.  The entries
+     * are deleted in batches, each using a single connection.
+     */
+    private int removeExpiredEntries(String rdn, Date currentTime) throws Exception {
         String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
         List<LDAPEntry> entries = ldapSearch(
-            RDN_NONCE + "," + basedn,
+            rdn + "," + basedn,
             "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
             attrs
         );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
+
+        int batchSize = getRetentionBatchSize();
+        int count = 0;
+
+        for (int i = 0; i < entries.size(); i += batchSize) {
+            count += ldapDeleteAll(entries.subList(i, Math.min(i + batchSize, entries.size())));
         }
+
+        return count;
     }
 
     public ACMEAccount getAccount(String accountID) throws Exception {
@@ -526,16 +545,8 @@ public class LDAPDatabase extends ACMEDatabase {
         ldapModify(dn, mods);
     }
 
-    public void removeExpiredOrders(Date currentTime) throws Exception {
-        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
-        List<LDAPEntry> entries = ldapSearch(
-            RDN_ORDER + "," + basedn,
-            "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
-            attrs
-        );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
-        }
+    public int removeExpiredOrders(Date currentTime) throws Exception {
+        return removeExpiredEntries(RDN_ORDER, currentTime);
     }
 
     public ACMEAuthorization getAuthorization(String authzID) throws Exception {
@@ -548,10 +559,112 @@ public class LDAPDatabase extends ACMEDatabase {
         LDAPEntry entry = ldapGet(dn);
         if (entry == null) return null;
 
+        ACMEAuthorization authz = loadAuthorization(entry);
+
+        if (clc == LoadChallenges.DoLoad) {
+            List<ACMEChallenge> challenges = new ArrayList<>();
+            Collection<LDAPEntry> entries = ldapSearch(
+                RDN_CHALLENGE + "," + basedn,
+                "(&(" + ATTR_OBJECTCLASS + "=" + OBJ_CHALLENGE +
+                    ")(" + ATTR_AUTHORIZATION_ID + "=" + authzID + "))"
+            );
+            for (LDAPEntry challengeEntry : entries) {
+                challenges.add(loadChallenge(challengeEntry));
+            }
+            authz.setChallenges(challenges);
+        }
+
+        return authz;
+    }
+
+    /**
+     * Get multiple authorizations with one search per batch of IDs,
+     * plus one search per batch for their challenges.
+     */
+    public Map<String, ACMEAuthorization> getAuthorizations(Collection<String> authzIDs)
+            throws Exception {
+
+        Map<String, ACMEAuthorization> results = new LinkedHashMap<>();
+        List<String> ids = new ArrayList<>(authzIDs);
+
+        for (int i = 0; i < ids.size(); i += FILTER_BATCH_SIZE) {
+            List<LDAPEntry> entries = ldapSearch(
+                RDN_AUTHORIZATION + "," + basedn,
+                orFilter(OBJ_AUTHORIZATION, ATTR_AUTHORIZATION_ID,
+                    ids.subList(i, Math.min(i + FILTER_BATCH_SIZE, ids.size())))
+            );
+            for (LDAPEntry entry : entries) {
+                ACMEAuthorization authz = loadAuthorization(entry);
+                authz.setChallenges(new ArrayList<>());
+                results.put(authz.getID(), authz);
+            }
+        }
+
+        Map<String, Collection<ACMEChallenge>> challenges =
+                getChallengesByAuthorizations(results.keySet());
+
+        // return the authorizations in the requested order
+        Map<String, ACMEAuthorization> authorizations = new LinkedHashMap<>();
+        for (String authzID : ids) {
+            ACMEAuthorization authz = results.get(authzID);
+            if (authz == null) continue;
+
+            Collection<ACMEChallenge> authzChallenges = challenges.get(authzID);
+            if (authzChallenges != null) {
+                authz.setChallenges(authzChallenges);
+            }
+
+            authorizations.put(authzID, authz);
+        }
+
+        return authorizations;
+    }
+
+    public Map<String, Collection<ACMEChallenge>> getChallengesByAuthorizations(
+            Collection<String> authzIDs) throws Exception {
+
+        Map<String, Collection<ACMEChallenge>> challenges = new LinkedHashMap<>();
+        List<String> ids = new ArrayList<>(authzIDs);
+
+        for (int i = 0; i < ids.size(); i += FILTER_BATCH_SIZE) {
+            List<LDAPEntry> entries = ldapSearch(
+                RDN_CHALLENGE + "," + basedn,
+                orFilter(OBJ_CHALLENGE, ATTR_AUTHORIZATION_ID,
+                    ids.subList(i, Math.min(i + FILTER_BATCH_SIZE, ids.size())))
+            );
+            for (LDAPEntry entry : entries) {
+                ACMEChallenge challenge = loadChallenge(entry);
+                challenges
+                    .computeIfAbsent(challenge.getAuthzID(), k -> new ArrayList<>())
+                    .add(challenge);
+            }
+        }
+
+        return challenges;
+    }
+
+    /**
+     * Create a filter matching entries of an object class
+     * with any of the attribute values.
+     */
+    static String orFilter(String objectClass, String attrName, Collection<String> values) {
+        StringBuilder filter = new StringBuilder();
+        filter.append("(&(" + ATTR_OBJECTCLASS + "=" + objectClass + ")(|");
+        for (String value : values) {
+            filter.append("(" + attrName + "=" + value + ")");
+        }
+        filter.append("))");
+        return filter.toString();
+    }
+
+    private static ACMEAuthorization loadAuthorization(LDAPEntry entry) throws Exception {
+
         LDAPAttribute attr;
 
         ACMEAuthorization authz = new ACMEAuthorization();
-        authz.setID(authzID);
+
+        attr = entry.getAttribute(ATTR_AUTHORIZATION_ID);
+        authz.setID(attr.getStringValues().nextElement());
 
         attr = entry.getAttribute(ATTR_ACCOUNT_ID);
         authz.setAccountID(attr.getStringValues().nextElement());
@@ -587,19 +700,6 @@ public class LDAPDatabase extends ACMEDatabase {
             }
         }
 
-        if (clc == LoadChallenges.DoLoad) {
-            List<ACMEChallenge> challenges = new ArrayList<>();
-            Collection<LDAPEntry> entries = ldapSearch(
-                RDN_CHALLENGE + "," + basedn,
-                "(&(" + ATTR_OBJECTCLASS + "=" + OBJ_CHALLENGE +
-                    ")(" + ATTR_AUTHORIZATION_ID + "=" + authzID + "))"
-            );
-            for (LDAPEntry challengeEntry : entries) {
-                challenges.add(loadChallenge(challengeEntry));
-            }
-            authz.setChallenges(challenges);
-        }
-
         return authz;
     }
 
@@ -821,16 +921,41 @@ public class LDAPDatabase extends ACMEDatabase {
         return !entries.isEmpty();
     }
 
-    public void removeExpiredAuthorizations(Date currentTime) throws Exception {
-        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
+    /**
+     * Remove the expired authorizations and their challenges.  For each
+     * batch of authorizations the challenges are found with a single
+     * search and deleted before the authorizations.
+     */
+    public int removeExpiredAuthorizations(Date currentTime) throws Exception {
+        String[] attrs = {ATTR_AUTHORIZATION_ID};
         List<LDAPEntry> entries = ldapSearch(
             RDN_AUTHORIZATION + "," + basedn,
             "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
             attrs
         );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
+
+        int batchSize = getRetentionBatchSize();
+        int count = 0;
+
+        for (int i = 0; i < entries.size(); i += batchSize) {
+            List<LDAPEntry> batch = entries.subList(i, Math.min(i + batchSize, entries.size()));
+
+            List<String> authzIDs = new ArrayList<>();
+            for (LDAPEntry entry : batch) {
+                authzIDs.add(entry.getAttribute(ATTR_AUTHORIZATION_ID).getStringValues().nextElement());
+            }
+
+            List<LDAPEntry> challenges = ldapSearch(
+                RDN_CHALLENGE + "," + basedn,
+                orFilter(OBJ_CHALLENGE, ATTR_AUTHORIZATION_ID, authzIDs),
+                new String[] {"1.1"}
+            );
+
+            ldapDeleteAll(challenges);
+            count += ldapDeleteAll(batch);
         }
+
+        return count;
     }
 
     public ACMECertificate getCertificate(String certID) throws Exception {
@@ -877,16 +1002,8 @@ public class LDAPDatabase extends ACMEDatabase {
         ldapAdd(entry);
     }
 
-    public void removeExpiredCertificates(Date currentTime) throws Exception {
-        String[] attrs = {"1.1"};  // suppress attrs for performance; we only need DN
-        List<LDAPEntry> entries = ldapSearch(
-            RDN_CERTIFICATE + "," + basedn,
-            "(" + ATTR_EXPIRES + "<=" + dateFormat.format(currentTime) + ")",
-            attrs
-        );
-        for (LDAPEntry entry : entries) {
-            ldapDelete(entry.getDN(), OnNoSuchObject.Ignore);
-        }
+    public int removeExpiredCertificates(Date currentTime) throws Exception {
+        return removeExpiredEntries(RDN_CERTIFICATE, currentTime);
     }
 
 
@@ -939,6 +1056,34 @@ public class LDAPDatabase extends ACMEDatabase {
         }
     }
 
+    /** Delete the given entries using a single connection.  Entries
+     * that no longer exist are ignored.  Return the number of deleted
+     * entries.
+     */
+    int ldapDeleteAll(Collection<LDAPEntry> entries) throws Exception {
+
+        int count = 0;
+
+        LDAPConnection conn = connFactory.getConn();
+        try {
+            for (LDAPEntry entry : entries) {
+                logger.info("LDAP: delete " + entry.getDN());
+                try {
+                    conn.delete(entry.getDN());
+                    count++;
+                } catch (LDAPException e) {
+                    if (e.getLDAPResultCode() != LDAPException.NO_SUCH_OBJECT) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            connFactory.returnConn(conn);
+        }
+
+        return count;
+    }
+
     /** Search for a single entry (SCOPE_BASE).  If it exists return it,
      * if it does not exist return null, and raise Exception on error
      */
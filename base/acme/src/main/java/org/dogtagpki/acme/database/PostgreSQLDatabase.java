@@ -8,6 +8,7 @@ package org.dogtagpki.acme.database;
 import java.io.FileReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -19,7 +20,10 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
 
@@ -63,6 +67,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
 
         url = (String) info.remove("url");
+        info.remove("retentionBatchSize");
 
         String statementsFilename = info.getProperty(
                 "statements",
@@ -240,10 +245,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    public void removeExpiredNonces(Date currentTime) throws Exception {
+    public int removeExpiredNonces(Date currentTime) throws Exception {
 
         connect();
 
+        if (statements.getProperty("removeExpiredNonces") != null) {
+            logger.info("Removing expired nonces");
+            return removeExpiredRecords("removeExpiredNonces", currentTime);
+        }
+
         logger.info("Getting expired nonces");
 
         Collection<String> nonceIDs = getExpiredNonceIDs(currentTime);
@@ -253,6 +263,43 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         for (String nonceID : nonceIDs) {
             deleteNonce(nonceID);
         }
+
+        return nonceIDs.size();
+    }
+
+    /**
+     * This method runs a statement that removes up to a batch of expired
+     * records (including their child records) until no expired records
+     * remain. Each batch is a single statement, so it is committed on its
+     * own and other requests can use the connection between batches.
+     *
+     * The statement takes the current time and the batch size as
+     * parameters.
+     *
+     * @return The number of removed records.
+     */
+    private int removeExpiredRecords(String name, Date currentTime) throws Exception {
+
+        String sql = statements.getProperty(name);
+        logger.info("SQL: " + sql);
+
+        int batchSize = getRetentionBatchSize();
+        int total = 0;
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            while (true) {
+                ps.setTimestamp(1, new Timestamp(currentTime.getTime()), UTC);
+                ps.setInt(2, batchSize);
+
+                int count = ps.executeUpdate();
+                total += count;
+
+                if (count < batchSize) break;
+            }
+        }
+
+        return total;
     }
 
     private Collection<String> getExpiredNonceIDs(Date currentTime) throws Exception {
@@ -491,37 +538,155 @@ public class PostgreSQLDatabase extends ACMEDatabase {
             try (ResultSet rs = ps.executeQuery()) {
 
                 while (rs.next()) {
-                    ACMEOrder order = new ACMEOrder();
-                    order.setID(rs.getString("id"));
-                    order.setAccountID(accountID);
+                    orders.add(getAccountOrder(rs, accountID));
+                }
+            }
+        }
 
-                    Timestamp created = rs.getTimestamp("created");
-                    order.setCreationTime(created == null ? null : new Date(created.getTime()));
+        getOrderDetails(orders);
 
-                    order.setStatus(rs.getString("status"));
+        return orders;
+    }
 
-                    Timestamp expires = rs.getTimestamp("expires");
-                    order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+    public Collection<ACMEOrder> getOrdersByAccount(String accountID, int start, int size) throws Exception {
 
-                    Timestamp notBefore = rs.getTimestamp("not_before");
-                    order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+        String sql = statements.getProperty("getOrdersByAccountPage");
+        if (sql == null) {
+            return super.getOrdersByAccount(accountID, start, size);
+        }
 
-                    Timestamp notAfter = rs.getTimestamp("not_after");
-                    order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+        connect();
 
-                    order.setCertID(rs.getString("cert_id"));
+        logger.info("Getting orders " + start + "-" + (start + size - 1) + " for account " + accountID);
+        logger.info("SQL: " + sql);
 
-                    getOrderIdentifiers(order);
-                    getOrderAuthorizations(order);
+        Collection<ACMEOrder> orders = new ArrayList<>();
 
-                    orders.add(order);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, accountID);
+            ps.setInt(2, size);
+            ps.setInt(3, start);
+
+            try (ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    orders.add(getAccountOrder(rs, accountID));
                 }
             }
         }
 
+        getOrderDetails(orders);
+
         return orders;
     }
 
+    private ACMEOrder getAccountOrder(ResultSet rs, String accountID) throws Exception {
+
+        ACMEOrder order = new ACMEOrder();
+        order.setID(rs.getString("id"));
+        order.setAccountID(accountID);
+
+        Timestamp created = rs.getTimestamp("created");
+        order.setCreationTime(created == null ? null : new Date(created.getTime()));
+
+        order.setStatus(rs.getString("status"));
+
+        Timestamp expires = rs.getTimestamp("expires");
+        order.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+
+        Timestamp notBefore = rs.getTimestamp("not_before");
+        order.setNotBeforeTime(notBefore == null ? null : new Date(notBefore.getTime()));
+
+        Timestamp notAfter = rs.getTimestamp("not_after");
+        order.setNotAfterTime(notAfter == null ? null : new Date(notAfter.getTime()));
+
+        order.setCertID(rs.getString("cert_id"));
+
+        return order;
+    }
+
+    /**
+     * Loads the identifiers and authorization IDs of multiple orders
+     * with one query each.
+     */
+    private void getOrderDetails(Collection<ACMEOrder> orders) throws Exception {
+
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        String identifiersSQL = statements.getProperty("getOrderIdentifiersByOrders");
+        String authorizationsSQL = statements.getProperty("getOrderAuthorizationsByOrders");
+
+        if (identifiersSQL == null || authorizationsSQL == null) {
+            for (ACMEOrder order : orders) {
+                getOrderIdentifiers(order);
+                getOrderAuthorizations(order);
+            }
+            return;
+        }
+
+        Map<String, ACMEOrder> ordersByID = new LinkedHashMap<>();
+        for (ACMEOrder order : orders) {
+            ordersByID.put(order.getID(), order);
+        }
+
+        logger.info("Getting identifiers and authorizations for " + ordersByID.size() + " order(s)");
+
+        Array orderIDs = connection.createArrayOf("varchar", ordersByID.keySet().toArray());
+
+        Map<String, List<ACMEIdentifier>> identifiers = new HashMap<>();
+
+        logger.info("SQL: " + identifiersSQL);
+        try (PreparedStatement ps = connection.prepareStatement(identifiersSQL)) {
+            ps.setArray(1, orderIDs);
+
+            try (ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("type"));
+                    identifier.setValue(rs.getString("value"));
+
+                    identifiers
+                        .computeIfAbsent(rs.getString("order_id"), k -> new ArrayList<>())
+                        .add(identifier);
+                }
+            }
+        }
+
+        Map<String, List<String>> authzIDs = new HashMap<>();
+
+        logger.info("SQL: " + authorizationsSQL);
+        try (PreparedStatement ps = connection.prepareStatement(authorizationsSQL)) {
+            ps.setArray(1, orderIDs);
+
+            try (ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    authzIDs
+                        .computeIfAbsent(rs.getString("order_id"), k -> new ArrayList<>())
+                        .add(rs.getString("authz_id"));
+                }
+            }
+        }
+
+        orderIDs.free();
+
+        for (ACMEOrder order : ordersByID.values()) {
+
+            List<ACMEIdentifier> orderIdentifiers = identifiers.get(order.getID());
+            if (orderIdentifiers != null) {
+                order.setIdentifiers(orderIdentifiers.toArray(new ACMEIdentifier[orderIdentifiers.size()]));
+            }
+
+            List<String> orderAuthzIDs = authzIDs.get(order.getID());
+            if (orderAuthzIDs != null) {
+                order.setAuthzIDs(orderAuthzIDs.toArray(new String[orderAuthzIDs.size()]));
+            }
+        }
+    }
+
     public Collection<ACMEOrder> getOrdersByAuthorizationAndStatus(String authzID, String status)
             throws Exception {
 
@@ -851,10 +1016,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    public void removeExpiredOrders(Date currentTime) throws Exception {
+    public int removeExpiredOrders(Date currentTime) throws Exception {
 
         connect();
 
+        if (statements.getProperty("removeExpiredOrders") != null) {
+            logger.info("Removing expired orders");
+            return removeExpiredRecords("removeExpiredOrders", currentTime);
+        }
+
         logger.info("Getting expired order IDs");
 
         Collection<String> orderIDs = getExpiredOrderIDs(currentTime);
@@ -864,6 +1034,8 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         for (String orderID : orderIDs) {
             removeOrder(orderID);
         }
+
+        return orderIDs.size();
     }
 
     public ACMEAuthorization getAuthorization(String authzID) throws Exception {
@@ -958,6 +1130,138 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         return authorization;
     }
 
+    public Map<String, ACMEAuthorization> getAuthorizations(Collection<String> authzIDs) throws Exception {
+
+        String sql = statements.getProperty("getAuthorizations");
+        if (sql == null) {
+            return super.getAuthorizations(authzIDs);
+        }
+
+        Map<String, ACMEAuthorization> authorizations = new LinkedHashMap<>();
+
+        if (authzIDs.isEmpty()) {
+            return authorizations;
+        }
+
+        connect();
+
+        logger.info("Getting authorizations " + authzIDs);
+        logger.info("SQL: " + sql);
+
+        Map<String, ACMEAuthorization> results = new HashMap<>();
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            Array ids = connection.createArrayOf("varchar", authzIDs.toArray());
+            ps.setArray(1, ids);
+
+            try (ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    ACMEAuthorization authorization = new ACMEAuthorization();
+                    authorization.setID(rs.getString("id"));
+                    authorization.setAccountID(rs.getString("account_id"));
+
+                    Timestamp created = rs.getTimestamp("created");
+                    authorization.setCreationTime(created == null ? null : new Date(created.getTime()));
+
+                    authorization.setStatus(rs.getString("status"));
+
+                    Timestamp expires = rs.getTimestamp("expires");
+                    authorization.setExpirationTime(expires == null ? null : new Date(expires.getTime()));
+
+                    ACMEIdentifier identifier = new ACMEIdentifier();
+                    identifier.setType(rs.getString("identifier_type"));
+                    identifier.setValue(rs.getString("identifier_value"));
+                    authorization.setIdentifier(identifier);
+
+                    boolean wildcard = rs.getBoolean("wildcard");
+                    authorization.setWildcard(wildcard ? true : null);
+
+                    results.put(authorization.getID(), authorization);
+                }
+            }
+
+            ids.free();
+        }
+
+        // return the authorizations in the requested order
+        for (String authzID : authzIDs) {
+            ACMEAuthorization authorization = results.get(authzID);
+            if (authorization == null) continue;
+            authorizations.put(authzID, authorization);
+        }
+
+        if (statements.getProperty("getChallengesByAuthorizations") == null) {
+            for (ACMEAuthorization authorization : authorizations.values()) {
+                getAuthorizationChallenges(authorization);
+            }
+            return authorizations;
+        }
+
+        Map<String, Collection<ACMEChallenge>> challenges =
+                getChallengesByAuthorizations(authorizations.keySet());
+
+        for (ACMEAuthorization authorization : authorizations.values()) {
+            Collection<ACMEChallenge> authzChallenges = challenges.get(authorization.getID());
+            if (authzChallenges != null) {
+                authorization.setChallenges(authzChallenges);
+            }
+        }
+
+        return authorizations;
+    }
+
+    public Map<String, Collection<ACMEChallenge>> getChallengesByAuthorizations(
+            Collection<String> authzIDs) throws Exception {
+
+        String sql = statements.getProperty("getChallengesByAuthorizations");
+        if (sql == null) {
+            return super.getChallengesByAuthorizations(authzIDs);
+        }
+
+        Map<String, Collection<ACMEChallenge>> challenges = new LinkedHashMap<>();
+
+        if (authzIDs.isEmpty()) {
+            return challenges;
+        }
+
+        connect();
+
+        logger.info("Getting challenges for authorizations " + authzIDs);
+        logger.info("SQL: " + sql);
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            Array ids = connection.createArrayOf("varchar", authzIDs.toArray());
+            ps.setArray(1, ids);
+
+            try (ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    ACMEChallenge challenge = new ACMEChallenge();
+
+                    challenge.setID(rs.getString("id"));
+                    challenge.setAuthzID(rs.getString("authz_id"));
+                    challenge.setType(rs.getString("type"));
+                    challenge.setToken(rs.getString("token"));
+                    challenge.setStatus(rs.getString("status"));
+
+                    Timestamp validated = rs.getTimestamp("validated");
+                    challenge.setValidationTime(validated == null ? null : new Date(validated.getTime()));
+
+                    challenges
+                        .computeIfAbsent(challenge.getAuthzID(), k -> new ArrayList<>())
+                        .add(challenge);
+                }
+            }
+
+            ids.free();
+        }
+
+        return challenges;
+    }
+
     private Collection<String> getExpiredAuthorizationIDs(Date currentTime) throws Exception {
 
         String sql = statements.getProperty("getExpiredAuthorizationIDs");
@@ -1186,10 +1490,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    public void removeExpiredAuthorizations(Date currentTime) throws Exception {
+    public int removeExpiredAuthorizations(Date currentTime) throws Exception {
 
         connect();
 
+        if (statements.getProperty("removeExpiredAuthorizations") != null) {
+            logger.info("Removing expired authorizations");
+            return removeExpiredRecords("removeExpiredAuthorizations", currentTime);
+        }
+
         logger.info("Getting expired authorization IDs");
 
         Collection<String> authzIDs = getExpiredAuthorizationIDs(currentTime);
@@ -1199,6 +1508,8 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         for (String authzID : authzIDs) {
             removeAuthorization(authzID);
         }
+
+        return authzIDs.size();
     }
 
     public ACMECertificate getCertificate(String certID) throws Exception {
@@ -1295,10 +1606,15 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         }
     }
 
-    public void removeExpiredCertificates(Date currentTime) throws Exception {
+    public int removeExpiredCertificates(Date currentTime) throws Exception {
 
         connect();
 
+        if (statements.getProperty("removeExpiredCertificates") != null) {
+            logger.info("Removing expired certificates");
+            return removeExpiredRecords("removeExpiredCertificates", currentTime);
+        }
+
         logger.info("Getting expired certificaate IDs");
 
         Collection<String> certIDs = getExpiredCertificateIDs(currentTime);
@@ -1308,5 +1624,7 @@ public class PostgreSQLDatabase extends ACMEDatabase {
         for (String certID : certIDs) {
             removeCertificate(certID);
         }
+
+        return certIDs.size();
     }
 }
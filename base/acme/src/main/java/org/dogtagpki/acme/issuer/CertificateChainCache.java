@@ -0,0 +1,135 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.issuer;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.codec.binary.Hex;
+import org.mozilla.jss.netscape.security.util.Cert;
+import org.mozilla.jss.netscape.security.util.Utils;
+
+/**
+ * Cache of CA certificate chains in PEM format.
+ *
+ * The chains are keyed by the issuer DN and the authority key identifier
+ * of the issued certificates, so certificates signed with a renewed CA key
+ * do not match the chain of the previous key. Chains are refreshed after
+ * the refresh interval or once any of the CA certificates has expired,
+ * which covers CA certificates renewed with the same key.
+ */
+public class CertificateChainCache {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CertificateChainCache.class);
+
+    public static final String AUTHORITY_KEY_IDENTIFIER_OID = "2.5.29.35";
+
+    public static final long DEFAULT_REFRESH_INTERVAL = 3600; // seconds
+
+    private long refreshInterval = DEFAULT_REFRESH_INTERVAL * 1000;
+
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    static class Entry {
+
+        String pem;
+        long expirationTime;
+
+        Entry(String pem, long expirationTime) {
+            this.pem = pem;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval * 1000;
+    }
+
+    /**
+     * Returns the PEM CA certificate chain of an issued certificate.
+     *
+     * @param cert issued certificate
+     * @return PEM chain, or null if the chain is not cached or is stale
+     */
+    public String get(X509Certificate cert) {
+
+        String key = getKey(cert);
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= entry.expirationTime) {
+            logger.info("CA certificate chain needs refresh: " + key);
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return entry.pem;
+    }
+
+    /**
+     * Stores the CA certificate chain of an issued certificate.
+     *
+     * @param cert issued certificate
+     * @param caCerts CA certificates sorted from the issuer to the root
+     * @return PEM chain
+     */
+    public String put(X509Certificate cert, X509Certificate[] caCerts) throws Exception {
+
+        long expirationTime = System.currentTimeMillis() + refreshInterval;
+
+        StringWriter sw = new StringWriter();
+
+        try (PrintWriter out = new PrintWriter(sw, true)) {
+            for (X509Certificate caCert : caCerts) {
+                out.print(toPEM(caCert));
+                expirationTime = Math.min(expirationTime, caCert.getNotAfter().getTime());
+            }
+        }
+
+        String pem = sw.toString();
+
+        String key = getKey(cert);
+        logger.info("Caching CA certificate chain: " + key);
+        entries.put(key, new Entry(pem, expirationTime));
+
+        return pem;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public static String toPEM(X509Certificate cert) throws Exception {
+
+        StringWriter sw = new StringWriter();
+
+        try (PrintWriter out = new PrintWriter(sw, true)) {
+            out.println(Cert.HEADER);
+            out.print(Utils.base64encode(cert.getEncoded(), true));
+            out.println(Cert.FOOTER);
+        }
+
+        return sw.toString();
+    }
+
+    private static String getKey(X509Certificate cert) {
+
+        String issuer = cert.getIssuerX500Principal().getName();
+
+        byte[] aki = cert.getExtensionValue(AUTHORITY_KEY_IDENTIFIER_OID);
+        if (aki == null) {
+            return issuer;
+        }
+
+        return issuer + ";" + Hex.encodeHexString(aki);
+    }
+}
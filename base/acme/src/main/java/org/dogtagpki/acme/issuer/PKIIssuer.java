@@ -12,10 +12,14 @@ import java.io.StringWriter;
 import java.math.BigInteger;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.Properties;
 
 import org.apache.commons.codec.binary.Base64;
+import org.dogtagpki.acme.ACMECertificate;
 import org.dogtagpki.acme.ACMERevocation;
+import org.dogtagpki.acme.database.ACMEDatabase;
+import org.dogtagpki.acme.server.ACMEEngine;
 import org.mozilla.jss.netscape.security.pkcs.PKCS10;
 import org.mozilla.jss.netscape.security.pkcs.PKCS7;
 import org.mozilla.jss.netscape.security.util.Cert;
@@ -54,6 +58,8 @@ public class PKIIssuer extends ACMEIssuer {
     private PKIClient pkiClient;
     private CAClient caClient;
 
+    private CertificateChainCache chainCache = new CertificateChainCache();
+
     public String getProfile() {
         return profile;
     }
@@ -113,6 +119,12 @@ public class PKIIssuer extends ACMEIssuer {
         profile = config.getParameter("profile");
         logger.info("- profile: " + profile);
 
+        String chainRefreshInterval = config.getParameter("chainRefreshInterval");
+        if (chainRefreshInterval != null) {
+            logger.info("- chain refresh interval: " + chainRefreshInterval);
+            chainCache.setRefreshInterval(Long.parseLong(chainRefreshInterval));
+        }
+
         pkiClient = new PKIClient(clientConfig);
         caClient = new CAClient(pkiClient);
     }
@@ -173,15 +185,47 @@ public class PKIIssuer extends ACMEIssuer {
 
         logger.info("Serial number: " + id.toHexString());
         BigInteger serialNumber = id.toBigInteger();
-        return Base64.encodeBase64URLSafeString(serialNumber.toByteArray());
+        String certID = Base64.encodeBase64URLSafeString(serialNumber.toByteArray());
+
+        // Store the certificate and refresh the CA chain now so that
+        // downloads can be served without contacting the CA.
+        try {
+            X509Certificate[] certs = retrieveCertificateChain(certClient, id);
+            addCertificate(certID, certs[0]);
+
+        } catch (Exception e) {
+            logger.warn("Unable to store certificate " + certID + ": " + e.getMessage(), e);
+        }
+
+        return certID;
     }
 
-    public String getCertificateChain(String certID) throws Exception {
+    public void addCertificate(String certID, X509Certificate cert) throws Exception {
 
-        CertId id = new CertId(new BigInteger(1, Base64.decodeBase64(certID)));
-        logger.info("Serial number: " + id.toHexString());
+        ACMEEngine engine = ACMEEngine.getInstance();
+        ACMEDatabase acmeDatabase = engine.getDatabase();
+
+        ACMECertificate certificate = new ACMECertificate();
+        certificate.setID(certID);
+        certificate.setCreationTime(new Date());
+        certificate.setData(cert.getEncoded());
+
+        Date expirationTime = engine.getPolicy().getCertificateExpirationTime(cert.getNotAfter());
+        certificate.setExpirationTime(expirationTime);
+
+        acmeDatabase.addCertificate(certID, certificate);
+    }
+
+    /**
+     * Retrieves the certificate chain from the CA and caches
+     * the CA certificates.
+     *
+     * @return Certificates sorted from leaf to root.
+     */
+    public X509Certificate[] retrieveCertificateChain(CACertClient certClient, CertId id) throws Exception {
+
+        logger.info("Retrieving certificate chain for " + id.toHexString());
 
-        CACertClient certClient = new CACertClient(caClient);
         CertData certData = certClient.getCert(id);
 
         String pkcs7Chain = certData.getPkcs7CertChain();
@@ -197,13 +241,53 @@ public class PKIIssuer extends ACMEIssuer {
         // sort certs from leaf to root
         certs = CryptoUtil.sortCertificateChain(certs, true);
 
+        chainCache.put(certs[0], Arrays.copyOfRange(certs, 1, certs.length));
+
+        return certs;
+    }
+
+    public String getCertificateChain(String certID) throws Exception {
+
+        ACMEEngine engine = ACMEEngine.getInstance();
+        ACMEDatabase acmeDatabase = engine.getDatabase();
+
+        ACMECertificate certificate = null;
+        try {
+            certificate = acmeDatabase.getCertificate(certID);
+        } catch (Exception e) {
+            logger.warn("Unable to get certificate " + certID + " from database: " + e.getMessage(), e);
+        }
+
+        if (certificate != null) {
+            X509Certificate cert = new X509CertImpl(certificate.getData());
+            String caCertChain = chainCache.get(cert);
+
+            if (caCertChain != null) {
+                logger.info("Using cached certificate chain for " + certID);
+                return CertificateChainCache.toPEM(cert) + caCertChain;
+            }
+        }
+
+        CertId id = new CertId(new BigInteger(1, Base64.decodeBase64(certID)));
+        logger.info("Serial number: " + id.toHexString());
+
+        CACertClient certClient = new CACertClient(caClient);
+        X509Certificate[] certs = retrieveCertificateChain(certClient, id);
+
+        if (certificate == null) {
+            // certificate issued before it was stored at finalization
+            try {
+                addCertificate(certID, certs[0]);
+            } catch (Exception e) {
+                logger.warn("Unable to store certificate " + certID + ": " + e.getMessage(), e);
+            }
+        }
+
         StringWriter sw = new StringWriter();
 
         try (PrintWriter out = new PrintWriter(sw, true)) {
             for (X509Certificate cert : certs) {
-                out.println(Cert.HEADER);
-                out.print(Utils.base64encode(cert.getEncoded(), true));
-                out.println(Cert.FOOTER);
+                out.print(CertificateChainCache.toPEM(cert));
             }
         }
 
@@ -271,4 +355,10 @@ public class PKIIssuer extends ACMEIssuer {
             throw new Exception("Unable to revoke certificate: " + error);
         }
     }
+
+    public void close() throws Exception {
+        if (pkiClient != null) {
+            pkiClient.close();
+        }
+    }
 }
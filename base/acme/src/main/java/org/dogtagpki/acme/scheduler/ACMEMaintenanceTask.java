@@ -26,9 +26,14 @@ public class ACMEMaintenanceTask extends ACMETask {
         ACMEEngine engine = ACMEEngine.getInstance();
         ACMEDatabase database = engine.getDatabase();
 
-        database.removeExpiredNonces(currentTime);
-        database.removeExpiredAuthorizations(currentTime);
-        database.removeExpiredOrders(currentTime);
-        database.removeExpiredCertificates(currentTime);
+        int nonces = database.removeExpiredNonces(currentTime);
+        int authorizations = database.removeExpiredAuthorizations(currentTime);
+        int orders = database.removeExpiredOrders(currentTime);
+        int certificates = database.removeExpiredCertificates(currentTime);
+
+        logger.info("Removed " + nonces + " nonce(s), "
+                + authorizations + " authorization(s), "
+                + orders + " order(s), "
+                + certificates + " certificate(s)");
     }
 }
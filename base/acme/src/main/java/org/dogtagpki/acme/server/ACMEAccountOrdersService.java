@@ -13,6 +13,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -54,14 +55,20 @@ public class ACMEAccountOrdersService {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEAccountOrdersService.class);
 
+    public static final int PAGE_SIZE = 100;
+
     @Context
     UriInfo uriInfo;
 
     @POST
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAccountOrders(@PathParam("id") String accountID) throws Exception {
+    public Response getAccountOrders(
+            @PathParam("id") String accountID,
+            @QueryParam("cursor") Integer cursor) throws Exception {
+
+        int page = cursor == null || cursor < 0 ? 0 : cursor;
 
-        logger.info("Retrieving orders for account " + accountID);
+        logger.info("Retrieving orders page " + page + " for account " + accountID);
 
         ACMEEngine engine = ACMEEngine.getInstance();
         ACMEAccount account = engine.getAccount(accountID);
@@ -71,7 +78,7 @@ public class ACMEAccountOrdersService {
         // The server SHOULD include pending orders and SHOULD NOT
         // include orders that are invalid in the array of URLs.
 
-        Collection<ACMEOrder> orders = engine.getOrdersByAccount(account);
+        Collection<ACMEOrder> orders = engine.getOrdersByAccount(account, page * PAGE_SIZE, PAGE_SIZE);
 
         Collection<URI> orderURLs = new ArrayList<>();
         for (ACMEOrder order : orders) {
@@ -95,6 +102,15 @@ public class ACMEAccountOrdersService {
         URI indexURL = uriInfo.getBaseUriBuilder().path("directory").build();
         builder.link(indexURL, "index");
 
+        // a full page may be followed by more orders
+        if (orders.size() == PAGE_SIZE) {
+            URI nextURL = uriInfo.getBaseUriBuilder()
+                    .path("acct").path(accountID).path("orders")
+                    .queryParam("cursor", page + 1)
+                    .build();
+            builder.link(nextURL, "next");
+        }
+
         builder.entity(accountOrders);
 
         return builder.build();
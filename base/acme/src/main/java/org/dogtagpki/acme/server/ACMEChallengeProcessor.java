@@ -6,8 +6,12 @@
 package org.dogtagpki.acme.server;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.dogtagpki.acme.ACMEAccount;
 import org.dogtagpki.acme.ACMEAuthorization;
@@ -105,12 +109,15 @@ public class ACMEChallengeProcessor implements Runnable {
         Collection<ACMEOrder> orders =
             engine.getOrdersByAuthorizationAndStatus(account, authzID, "pending");
 
+        Map<String, ACMEAuthorization> authorizations = getOrderAuthorizations(engine, orders);
+
         for (ACMEOrder order : orders) {
             boolean allAuthorizationsValid = true;
 
             for (String orderAuthzID : order.getAuthzIDs()) {
 
-                ACMEAuthorization authz = engine.getAuthorization(account, orderAuthzID);
+                ACMEAuthorization authz = authorizations.get(orderAuthzID);
+                engine.validateAuthorization(account, authz);
                 if (authz.getStatus().equals("valid")) continue;
 
                 allAuthorizationsValid = false;
@@ -185,12 +192,15 @@ public class ACMEChallengeProcessor implements Runnable {
         Collection<ACMEOrder> orders =
             engine.getOrdersByAuthorizationAndStatus(account, authzID, "pending");
 
+        Map<String, ACMEAuthorization> authorizations = getOrderAuthorizations(engine, orders);
+
         for (ACMEOrder order : orders) {
             boolean allAuthorizationsValid = true;
 
             for (String orderAuthzID : order.getAuthzIDs()) {
 
-                ACMEAuthorization authz = engine.getAuthorization(account, orderAuthzID);
+                ACMEAuthorization authz = authorizations.get(orderAuthzID);
+                engine.validateAuthorization(account, authz);
                 if (authz.getStatus().equals("valid")) continue;
 
                 allAuthorizationsValid = false;
@@ -208,4 +218,19 @@ public class ACMEChallengeProcessor implements Runnable {
             engine.updateOrder(account, order);
         }
     }
+
+    /**
+     * Retrieves the authorizations of all orders at once.
+     */
+    Map<String, ACMEAuthorization> getOrderAuthorizations(
+            ACMEEngine engine,
+            Collection<ACMEOrder> orders) throws Exception {
+
+        Set<String> authzIDs = new LinkedHashSet<>();
+        for (ACMEOrder order : orders) {
+            authzIDs.addAll(Arrays.asList(order.getAuthzIDs()));
+        }
+
+        return engine.getDatabase().getAuthorizations(authzIDs);
+    }
 }
@@ -17,6 +17,7 @@ import java.security.Signature;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.security.spec.RSAPublicKeySpec;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
@@ -86,6 +87,7 @@ public class ACMEEngine implements ServletContextListener {
 
     private ACMEEngineConfig config;
     private ACMEPolicy policy;
+    private ACMEStatelessNonces statelessNonces;
 
     private Properties monitorsConfig;
     private ACMEEngineConfigSource engineConfigSource = null;
@@ -217,8 +219,14 @@ public class ACMEEngine implements ServletContextListener {
         logger.info("  - processing: " + policyConfig.getRetention().getProcessingOrders());
         logger.info("  - valid: " + policyConfig.getRetention().getValidOrders());
         logger.info("- certificate retention: " + policyConfig.getRetention().getCertificates());
+        logger.info("- stateless nonces: " + policyConfig.getStatelessNonces());
 
         policy = new ACMEPolicy(policyConfig);
+
+        if (policyConfig.getStatelessNonces()) {
+            statelessNonces = new ACMEStatelessNonces(policy, policyConfig.getNonceWindow());
+            statelessNonces.init();
+        }
     }
 
     public void initMetadata(String filename) throws Exception {
@@ -475,6 +483,12 @@ public class ACMEEngine implements ServletContextListener {
 
     public ACMENonce createNonce() throws Exception {
 
+        if (statelessNonces != null) {
+            ACMENonce nonce = statelessNonces.createNonce();
+            logger.info("Created nonce: " + nonce);
+            return nonce;
+        }
+
         Date currentTime = new Date();
         ACMENonce nonce = new ACMENonce();
 
@@ -500,7 +514,12 @@ public class ACMEEngine implements ServletContextListener {
 
     public void validateNonce(String value) throws Exception {
 
-        ACMENonce nonce = database.removeNonce(value);
+        ACMENonce nonce;
+        if (statelessNonces != null) {
+            nonce = statelessNonces.removeNonce(value);
+        } else {
+            nonce = database.removeNonce(value);
+        }
 
         if (nonce == null) {
             // TODO: generate proper exception
@@ -732,6 +751,10 @@ public class ACMEEngine implements ServletContextListener {
         return database.getOrdersByAccount(account.getID());
     }
 
+    public Collection<ACMEOrder> getOrdersByAccount(ACMEAccount account, int start, int size) throws Exception {
+        return database.getOrdersByAccount(account.getID(), start, size);
+    }
+
     public Collection<ACMEOrder> getOrdersByAuthorizationAndStatus(
             ACMEAccount account, String authzID, String status)
             throws Exception {
@@ -751,8 +774,11 @@ public class ACMEEngine implements ServletContextListener {
         logger.info("Getting authorized identifiers");
         Set<String> authorizedDNSNames = new HashSet<>();
 
+        Map<String, ACMEAuthorization> authorizations =
+                database.getAuthorizations(Arrays.asList(order.getAuthzIDs()));
+
         for (String authzID : order.getAuthzIDs()) {
-            ACMEAuthorization authz = database.getAuthorization(authzID);
+            ACMEAuthorization authz = authorizations.get(authzID);
 
             // authz is guaranteed to be valid at this point
 
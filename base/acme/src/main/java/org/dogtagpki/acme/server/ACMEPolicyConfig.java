@@ -29,6 +29,12 @@ public class ACMEPolicyConfig {
     @JsonProperty("retention")
     private ACMERetentionConfig retention = new ACMERetentionConfig();
 
+    @JsonProperty("statelessNonces")
+    private Boolean statelessNonces = false;
+
+    @JsonProperty("nonceWindow")
+    private Integer nonceWindow = ACMEStatelessNonces.DEFAULT_WINDOW_SIZE;
+
     public ACMEPolicyConfig() {}
 
     @JsonIgnore
@@ -48,6 +54,24 @@ public class ACMEPolicyConfig {
         this.retention = retentionPolicy;
     }
 
+    @JsonIgnore
+    public boolean getStatelessNonces() {
+        return statelessNonces;
+    }
+
+    public void setStatelessNonces(boolean statelessNonces) {
+        this.statelessNonces = statelessNonces;
+    }
+
+    @JsonIgnore
+    public int getNonceWindow() {
+        return nonceWindow;
+    }
+
+    public void setNonceWindow(int nonceWindow) {
+        this.nonceWindow = nonceWindow;
+    }
+
     public void setProperty(String key, String value) throws Exception {
 
         if (key.equals("wildcard")) {
@@ -55,6 +79,16 @@ public class ACMEPolicyConfig {
             return;
         }
 
+        if (key.equals("statelessNonces")) {
+            statelessNonces = new Boolean(value);
+            return;
+        }
+
+        if (key.equals("nonceWindow")) {
+            nonceWindow = new Integer(value);
+            return;
+        }
+
         if (key.startsWith("retention.")) {
             String retentionKey = key.substring(10);
             retention.setProperty(retentionKey, value);
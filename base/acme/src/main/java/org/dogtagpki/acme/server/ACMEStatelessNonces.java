@@ -0,0 +1,173 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package org.dogtagpki.acme.server;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.BitSet;
+import java.util.Date;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.dogtagpki.acme.ACMENonce;
+
+/**
+ * Nonces that are not stored in the database.
+ *
+ * Each nonce contains a counter and its creation time, authenticated
+ * with an HMAC whose key is generated when the engine starts.
+ *
+ * To detect replays the counters of the used nonces are recorded in a
+ * sliding window covering the most recently issued counters. Nonces
+ * older than the window are rejected like expired nonces, so the window
+ * should hold more nonces than are issued during the nonce retention
+ * period.
+ *
+ * Since the key and the window only exist in memory, the nonces are not
+ * valid after a restart or on other ACME servers sharing the database.
+ */
+public class ACMEStatelessNonces {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ACMEStatelessNonces.class);
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 20;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    // counter + creation time
+    private static final int DATA_LENGTH = 16;
+
+    // HMAC truncated to 128 bits
+    private static final int MAC_LENGTH = 16;
+
+    private ACMEPolicy policy;
+    private int windowSize;
+
+    private SecretKeySpec key;
+    private ThreadLocal<Mac> macs = new ThreadLocal<>();
+
+    // last issued counter and used counters, guarded by this
+    private long counter;
+    private BitSet used;
+
+    public ACMEStatelessNonces(ACMEPolicy policy, int windowSize) {
+        this.policy = policy;
+        this.windowSize = windowSize;
+    }
+
+    public void init() throws Exception {
+
+        if (windowSize < 1) {
+            throw new Exception("Invalid nonce window: " + windowSize);
+        }
+
+        byte[] bytes = new byte[32];
+        SecureRandom random = SecureRandom.getInstance("pkcs11prng", "Mozilla-JSS");
+        random.nextBytes(bytes);
+        key = new SecretKeySpec(bytes, MAC_ALGORITHM);
+
+        used = new BitSet(windowSize);
+
+        logger.info("Stateless nonces enabled with window size " + windowSize);
+    }
+
+    public ACMENonce createNonce() throws Exception {
+
+        long count;
+        synchronized (this) {
+            count = ++counter;
+            // the slot now belongs to the new counter
+            used.clear(getSlot(count));
+        }
+
+        Date currentTime = new Date();
+
+        ByteBuffer buffer = ByteBuffer.allocate(DATA_LENGTH + MAC_LENGTH);
+        buffer.putLong(count);
+        buffer.putLong(currentTime.getTime());
+        buffer.put(sign(buffer.array(), DATA_LENGTH), 0, MAC_LENGTH);
+
+        ACMENonce nonce = new ACMENonce();
+        nonce.setID(Base64.encodeBase64URLSafeString(buffer.array()));
+        nonce.setCreationTime(currentTime);
+        nonce.setExpirationTime(policy.getNonceExpirationTime(currentTime));
+
+        return nonce;
+    }
+
+    /**
+     * Validates a nonce and marks it as used.
+     *
+     * @return the nonce, or null if the nonce is invalid or has been used
+     */
+    public ACMENonce removeNonce(String value) throws Exception {
+
+        if (value == null) {
+            return null;
+        }
+
+        byte[] bytes = Base64.decodeBase64(value);
+        if (bytes.length != DATA_LENGTH + MAC_LENGTH) {
+            return null;
+        }
+
+        byte[] mac = new byte[MAC_LENGTH];
+        System.arraycopy(sign(bytes, DATA_LENGTH), 0, mac, 0, MAC_LENGTH);
+
+        byte[] expectedMAC = new byte[MAC_LENGTH];
+        System.arraycopy(bytes, DATA_LENGTH, expectedMAC, 0, MAC_LENGTH);
+
+        if (!MessageDigest.isEqual(mac, expectedMAC)) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long count = buffer.getLong();
+        Date creationTime = new Date(buffer.getLong());
+
+        synchronized (this) {
+
+            if (count > counter || count <= counter - windowSize) {
+                logger.info("Nonce outside of replay window: " + value);
+                return null;
+            }
+
+            int slot = getSlot(count);
+            if (used.get(slot)) {
+                return null;
+            }
+
+            used.set(slot);
+        }
+
+        ACMENonce nonce = new ACMENonce();
+        nonce.setID(value);
+        nonce.setCreationTime(creationTime);
+        nonce.setExpirationTime(policy.getNonceExpirationTime(creationTime));
+
+        return nonce;
+    }
+
+    private int getSlot(long count) {
+        return (int) (count % windowSize);
+    }
+
+    private byte[] sign(byte[] data, int length) throws Exception {
+
+        Mac mac = macs.get();
+        if (mac == null) {
+            mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            macs.set(mac);
+        }
+
+        mac.update(data, 0, length);
+        return mac.doFinal();
+    }
+}
@@ -26,9 +26,13 @@ import java.security.Principal;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import org.dogtagpki.ct.CTEngine;
@@ -77,6 +81,8 @@ import com.netscape.certsrv.dbs.Modification;
 import com.netscape.certsrv.dbs.ModificationSet;
 import com.netscape.certsrv.dbs.certdb.ICertRecord;
 import com.netscape.certsrv.dbs.certdb.ICertRecordList;
+import com.netscape.certsrv.dbs.certdb.ICertificateRepository;
+import com.netscape.certsrv.dbs.certdb.IRevocationInfo;
 import com.netscape.certsrv.dbs.crldb.ICRLIssuingPointRecord;
 import com.netscape.certsrv.logging.ILogger;
 import com.netscape.certsrv.logging.event.SecurityDataArchivalRequestEvent;
@@ -96,6 +102,7 @@ import com.netscape.cmscore.connector.RemoteAuthority;
 import com.netscape.cmscore.crmf.CRMFParser;
 import com.netscape.cmscore.crmf.PKIArchiveOptionsContainer;
 import com.netscape.cmscore.dbs.CertRecord;
+import com.netscape.cmscore.dbs.CertStatusIndex;
 import com.netscape.cmscore.dbs.CertificateRepository;
 import com.netscape.cmscore.dbs.RevocationInfo;
 import com.netscape.cmscore.profile.ProfileSubsystem;
@@ -985,6 +992,17 @@ public class CAService implements ICAService, IService {
         revokeCert(crlentry, null);
     }
 
+    private static RevocationReason getRevocationReason(RevokedCertImpl crlentry) {
+        Enumeration<Extension> enum1 = crlentry.getExtensions().getElements();
+        while (enum1.hasMoreElements()) {
+            Extension ext = enum1.nextElement();
+            if (ext instanceof CRLReasonExtension) {
+                return ((CRLReasonExtension) ext).getReason();
+            }
+        }
+        return null;
+    }
+
     public void revokeCert(RevokedCertImpl crlentry, String requestId)
             throws EBaseException {
 
@@ -997,15 +1015,7 @@ public class CAService implements ICAService, IService {
         logger.debug(method + ": begins: serial:" + serialno.toString());
 
         // Get the revocation reason
-        Enumeration<Extension> enum1 = crlentryexts.getElements();
-        RevocationReason revReason = null;
-        while (enum1.hasMoreElements()) {
-            Extension ext = enum1.nextElement();
-            if (ext instanceof CRLReasonExtension) {
-                revReason = ((CRLReasonExtension) ext).getReason();
-                break;
-            }
-        }
+        RevocationReason revReason = getRevocationReason(crlentry);
         if (revReason == null) {
             logger.error(method + ":" + CMS.getLogMessage("CMSCORE_CA_MISSING_REV_REASON", serialno.toString(16)));
             throw new ECAException(
@@ -1112,6 +1122,148 @@ public class CAService implements ICAService, IService {
         return;
     }
 
+    /**
+     * Revokes multiple certificates.
+     *
+     * The certificate records are read with searches on groups of serial
+     * numbers. Certificates that are not revoked yet are marked as revoked
+     * with pipelined LDAP modifications and then added to each CRL issuing
+     * point in a single CRL cache update. Certificates that are already
+     * revoked (e.g. on hold) are processed individually by revokeCert().
+     *
+     * @return errors indexed like the CRL entries, or null if all
+     * certificates were revoked
+     */
+    public String[] revokeCerts(RevokedCertImpl crlentries[], String requestId)
+            throws EBaseException {
+
+        final String method = "CAService.revokeCerts";
+        logger.debug(method + ": revoking " + crlentries.length + " certs");
+
+        ICertificateRepository repository = mCA.getCertificateRepository();
+
+        String errors[] = new String[crlentries.length];
+        boolean failed = false;
+
+        Map<BigInteger, Integer> indexes = new LinkedHashMap<BigInteger, Integer>();
+        Map<BigInteger, CertRecord> certRecs = new LinkedHashMap<BigInteger, CertRecord>();
+        Map<BigInteger, IRevocationInfo> infos = new LinkedHashMap<BigInteger, IRevocationInfo>();
+
+        List<BigInteger> serialnos = new ArrayList<BigInteger>();
+        for (RevokedCertImpl crlentry : crlentries) {
+            serialnos.add(crlentry.getSerialNumber());
+        }
+
+        Map<BigInteger, ICertRecord> records = repository.readCertificateRecords(serialnos);
+
+        for (int i = 0; i < crlentries.length; i++) {
+
+            RevokedCertImpl crlentry = crlentries[i];
+            BigInteger serialno = crlentry.getSerialNumber();
+
+            CertRecord certRec = (CertRecord) records.get(serialno);
+            String certStatus = certRec == null ? null : certRec.getStatus();
+
+            if (certStatus != null &&
+                    !certStatus.equals(ICertRecord.STATUS_REVOKED) &&
+                    !certStatus.equals(ICertRecord.STATUS_REVOKED_EXPIRED) &&
+                    !indexes.containsKey(serialno) &&
+                    getRevocationReason(crlentry) != null) {
+
+                indexes.put(serialno, i);
+                certRecs.put(serialno, certRec);
+                infos.put(serialno, new RevocationInfo(crlentry.getRevocationDate(), crlentry.getExtensions()));
+                continue;
+            }
+
+            // let revokeCert() handle the special cases
+            try {
+                revokeCert(crlentry, requestId);
+
+            } catch (ECAException e) {
+                logger.error(CMS.getLogMessage("CMSCORE_CA_CANNOT_REVOKE", Integer.toString(i),
+                        requestId, e.toString()), e);
+                errors[i] = e.toString();
+                failed = true;
+            }
+        }
+
+        if (infos.isEmpty()) {
+            return failed ? errors : null;
+        }
+
+        Map<BigInteger, EBaseException> markErrors;
+        try {
+            markErrors = repository.markAsRevoked(infos);
+
+        } catch (EBaseException e) {
+            String message = CMS.getLogMessage("CMSCORE_CA_ERROR_REVOCATION", infos.size() + " certs", e.toString());
+            logger.error(method + ": " + message, e);
+            throw e;
+        }
+
+        Map<BigInteger, RevokedCertImpl> revokedCerts = new LinkedHashMap<BigInteger, RevokedCertImpl>();
+
+        for (Map.Entry<BigInteger, Integer> entry : indexes.entrySet()) {
+            BigInteger serialno = entry.getKey();
+            int i = entry.getValue();
+
+            EBaseException e = markErrors.get(serialno);
+            if (e != null) {
+                logger.error(CMS.getLogMessage("CMSCORE_CA_CANNOT_REVOKE", Integer.toString(i),
+                        requestId, e.toString()), e);
+                errors[i] = e.toString();
+                failed = true;
+                continue;
+            }
+
+            logger.info(CMS.getLogMessage("CMSCORE_CA_CERT_REVOKED", serialno.toString(16)));
+            revokedCerts.put(serialno, crlentries[i]);
+        }
+
+        // inform all CRLIssuingPoints about revoked certificates
+        Enumeration<ICRLIssuingPoint> eIPs = mCRLIssuingPoints.elements();
+
+        while (eIPs.hasMoreElements()) {
+            ICRLIssuingPoint ip = eIPs.nextElement();
+
+            if (ip == null) {
+                continue;
+            }
+
+            Map<BigInteger, RevokedCertImpl> ipRevokedCerts = new LinkedHashMap<BigInteger, RevokedCertImpl>();
+
+            for (Map.Entry<BigInteger, RevokedCertImpl> entry : revokedCerts.entrySet()) {
+                CertRecord certRec = certRecs.get(entry.getKey());
+                boolean b = true;
+
+                if (ip.isCACertsOnly()) {
+                    X509CertImpl cert = certRec.getCertificate();
+
+                    if (cert != null)
+                        b = cert.getBasicConstraintsIsCA();
+                }
+                if (ip.isProfileCertsOnly()) {
+                    MetaInfo metaInfo = certRec.getMetaInfo();
+                    if (metaInfo != null) {
+                        String profileId = (String) metaInfo.get("profileId");
+                        if (profileId != null) {
+                            b = ip.checkCurrentProfile(profileId);
+                        }
+                    }
+                }
+                if (b)
+                    ipRevokedCerts.put(entry.getKey(), entry.getValue());
+            }
+
+            if (!ipRevokedCerts.isEmpty()) {
+                ip.addRevokedCerts(ipRevokedCerts, requestId);
+            }
+        }
+
+        return failed ? errors : null;
+    }
+
     /**
      * unrevoke cert, check serial number, etc.
      */
@@ -1581,10 +1733,10 @@ class getCertStatus implements IServant {
         String status = null;
 
         if (serialno != null) {
-            CertRecord record = null;
+            CertStatusIndex.Entry record = null;
 
             try {
-                record = (CertRecord) certDB.readCertificateRecord(serialno);
+                record = certDB.readCertificateStatus(serialno);
             } catch (EBaseException ee) {
                 logger.warn(ee.toString());
             }
@@ -1756,18 +1908,39 @@ class serviceRevoke implements IServant {
                 new RevokedCertImpl[crlentries.length];
         String svcerrors[] = null;
 
-        for (int i = 0; i < crlentries.length; i++) {
-            try {
-                mService.revokeCert(crlentries[i], request.getRequestId().toString());
-                revokedCerts[i] = crlentries[i];
-            } catch (ECAException e) {
-                logger.error(CMS.getLogMessage("CMSCORE_CA_CANNOT_REVOKE", Integer.toString(i), request
-                        .getRequestId().toString(), e.toString()), e);
-                revokedCerts[i] = null;
-                if (svcerrors == null) {
-                    svcerrors = new String[revokedCerts.length];
+        if (crlentries.length > 1) {
+            // revoke multiple certs in a batch
+            svcerrors = mService.revokeCerts(crlentries, request.getRequestId().toString());
+            for (int i = 0; i < crlentries.length; i++) {
+                revokedCerts[i] = svcerrors == null || svcerrors[i] == null ? crlentries[i] : null;
+            }
+
+        } else {
+            for (int i = 0; i < crlentries.length; i++) {
+                try {
+                    mService.revokeCert(crlentries[i], request.getRequestId().toString());
+                    revokedCerts[i] = crlentries[i];
+                } catch (ECAException e) {
+                    logger.error(CMS.getLogMessage("CMSCORE_CA_CANNOT_REVOKE", Integer.toString(i), request
+                            .getRequestId().toString(), e.toString()), e);
+                    revokedCerts[i] = null;
+                    if (svcerrors == null) {
+                        svcerrors = new String[revokedCerts.length];
+                    }
+                    svcerrors[i] = e.toString();
+                }
+            }
+        }
+
+        // schedule an immediate CRL update if requested
+        boolean updateCRL = request.getExtDataInBoolean(IRequest.REVOKED_UPDATE_CRL, false);
+        if (updateCRL && CAService.mCLAConnector == null) {
+            Enumeration<ICRLIssuingPoint> eIPs = mService.getCRLIssuingPoints().elements();
+            while (eIPs.hasMoreElements()) {
+                ICRLIssuingPoint ip = eIPs.nextElement();
+                if (ip != null && ip.isCRLIssuingPointEnabled()) {
+                    ip.setManualUpdate(null);
                 }
-                svcerrors[i] = e.toString();
             }
         }
 
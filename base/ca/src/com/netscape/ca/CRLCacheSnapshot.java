@@ -0,0 +1,302 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CRLException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+/**
+ * Local snapshot of a CRL cache, tied to the number and thisUpdate
+ * of the CRL it was taken from.
+ *
+ * The snapshot file is memory-mapped on startup. It consists of a
+ * header, an index of record offsets sorted by serial number, and the
+ * records (serial number and DER-encoded CRL entry):
+ *
+ * <pre>
+ * magic, version, CRL number, thisUpdate, nextUpdate, count,
+ * offset[count],
+ * (serial length, serial, entry length, entry)[count],
+ * checksum
+ * </pre>
+ *
+ * The checksum (CRC-32 of everything before it) is verified when the
+ * snapshot is opened, so a truncated or corrupted file is rejected
+ * instead of being partially decoded.
+ */
+public class CRLCacheSnapshot {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CRLCacheSnapshot.class);
+
+    public static final int MAGIC = 0x43524c53; // CRLS
+    public static final int VERSION = 2;
+
+    private static final int CHECKSUM_LENGTH = 8;
+
+    private ByteBuffer buffer;
+
+    private BigInteger crlNumber;
+    private Date thisUpdate;
+    private Date nextUpdate;
+
+    private int size;
+    private int indexOffset;
+
+    private CRLCacheSnapshot(ByteBuffer buffer) throws IOException {
+
+        this.buffer = buffer;
+
+        if (buffer.limit() < 8 + CHECKSUM_LENGTH) {
+            throw new IOException("Invalid CRL cache snapshot");
+        }
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Invalid CRL cache snapshot");
+        }
+
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported CRL cache snapshot version: " + version);
+        }
+
+        int dataLength = buffer.limit() - CHECKSUM_LENGTH;
+
+        ByteBuffer data = buffer.duplicate();
+        data.position(0);
+        data.limit(dataLength);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        if (crc.getValue() != buffer.getLong(dataLength)) {
+            throw new IOException("Invalid CRL cache snapshot checksum");
+        }
+
+        crlNumber = new BigInteger(readBytes(buffer, buffer.getShort()));
+
+        thisUpdate = readDate(buffer.getLong());
+        nextUpdate = readDate(buffer.getLong());
+
+        size = buffer.getInt();
+        indexOffset = buffer.position();
+
+        if (size < 0 || indexOffset + size * 4L > dataLength) {
+            throw new IOException("Invalid CRL cache snapshot size: " + size);
+        }
+    }
+
+    public BigInteger getCRLNumber() {
+        return crlNumber;
+    }
+
+    public Date getThisUpdate() {
+        return thisUpdate;
+    }
+
+    public Date getNextUpdate() {
+        return nextUpdate;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the snapshot was taken from the specified CRL.
+     * The thisUpdate is compared in seconds since the CRL issuing point
+     * record does not store milliseconds.
+     */
+    public boolean isCurrent(BigInteger crlNumber, Date thisUpdate) {
+        return this.crlNumber.equals(crlNumber) &&
+                thisUpdate != null &&
+                this.thisUpdate != null &&
+                this.thisUpdate.getTime() / 1000 == thisUpdate.getTime() / 1000;
+    }
+
+    private int getRecordOffset(int index) {
+        return buffer.getInt(indexOffset + index * 4);
+    }
+
+    private BigInteger getSerialNumber(int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+        return new BigInteger(readBytes(record, record.getShort()));
+    }
+
+    private RevokedCertificate getRevokedCertificate(int offset) throws CRLException {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+        record.position(offset + 2 + record.getShort());
+        return new RevokedCertImpl(readBytes(record, record.getInt()));
+    }
+
+    /**
+     * Looks up a CRL entry using binary search on the sorted index.
+     */
+    public RevokedCertificate getRevokedCertificate(BigInteger serialNumber) throws CRLException {
+
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = getRecordOffset(mid);
+            int c = getSerialNumber(offset).compareTo(serialNumber);
+
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return getRevokedCertificate(offset);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns all CRL entries in a table that can be used as CRL cache.
+     */
+    public Hashtable<BigInteger, RevokedCertificate> getRevokedCertificates() throws CRLException {
+
+        Hashtable<BigInteger, RevokedCertificate> certs = new Hashtable<>(Math.max(size * 4 / 3 + 1, 11));
+
+        for (int i = 0; i < size; i++) {
+            RevokedCertificate cert = getRevokedCertificate(getRecordOffset(i));
+            certs.put(cert.getSerialNumber(), cert);
+        }
+
+        return certs;
+    }
+
+    /**
+     * Maps a snapshot file.
+     *
+     * @return the snapshot, or null if the file does not exist
+     */
+    public static CRLCacheSnapshot open(File file) throws IOException {
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CRLCacheSnapshot(buffer);
+        }
+    }
+
+    /**
+     * Writes a snapshot of a CRL cache. The file is replaced atomically
+     * so a crash while writing leaves the previous snapshot intact.
+     */
+    public static void write(
+            File file,
+            BigInteger crlNumber,
+            Date thisUpdate,
+            Date nextUpdate,
+            Map<BigInteger, RevokedCertificate> crlCerts) throws IOException, CRLException {
+
+        BigInteger[] serialNumbers = crlCerts.keySet().toArray(new BigInteger[0]);
+        Arrays.sort(serialNumbers);
+
+        byte[][] serials = new byte[serialNumbers.length][];
+        byte[][] entries = new byte[serialNumbers.length][];
+
+        for (int i = 0; i < serialNumbers.length; i++) {
+            serials[i] = serialNumbers[i].toByteArray();
+            entries[i] = crlCerts.get(serialNumbers[i]).getEncoded();
+        }
+
+        byte[] number = crlNumber.toByteArray();
+
+        long length = 4 + 4 + 2 + number.length + 8 + 8 + 4 + serials.length * 4L;
+        for (int i = 0; i < serials.length; i++) {
+            length += 2 + serials[i].length + 4 + entries[i].length;
+        }
+
+        length += CHECKSUM_LENGTH;
+
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("CRL cache too large for snapshot: " + length + " bytes");
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        File tmpFile = new File(dir, file.getName() + ".tmp");
+
+        try (FileOutputStream fos = new FileOutputStream(tmpFile);
+                CheckedOutputStream cos = new CheckedOutputStream(new BufferedOutputStream(fos), new CRC32());
+                DataOutputStream out = new DataOutputStream(cos)) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeShort(number.length);
+            out.write(number);
+            out.writeLong(thisUpdate == null ? -1 : thisUpdate.getTime());
+            out.writeLong(nextUpdate == null ? -1 : nextUpdate.getTime());
+            out.writeInt(serials.length);
+
+            int offset = 4 + 4 + 2 + number.length + 8 + 8 + 4 + serials.length * 4;
+            for (int i = 0; i < serials.length; i++) {
+                out.writeInt(offset);
+                offset += 2 + serials[i].length + 4 + entries[i].length;
+            }
+
+            for (int i = 0; i < serials.length; i++) {
+                out.writeShort(serials[i].length);
+                out.write(serials[i]);
+                out.writeInt(entries[i].length);
+                out.write(entries[i]);
+            }
+
+            out.writeLong(cos.getChecksum().getValue());
+
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        logger.info("CRLCacheSnapshot: stored " + serials.length + " entries of CRL " + crlNumber + " in " + file);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static Date readDate(long time) {
+        return time < 0 ? null : new Date(time);
+    }
+}
@@ -17,6 +17,7 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.ca;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Date;
@@ -187,6 +188,12 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
     private String mFirstUnsaved = null;
     private boolean mEnableCacheTesting = false;
 
+    /**
+     * Local snapshot of the CRL cache used for fast startup.
+     */
+    private boolean mEnableCacheSnapshot = true;
+    private File mCacheSnapshotFile = null;
+
     /**
      * Last CRL cache update
      */
@@ -746,6 +753,14 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
         mEnableCacheRecovery = config.getEnableCacheRecovery();
         mEnableCacheTesting = config.getEnableCacheTesting();
 
+        mEnableCacheSnapshot = config.getEnableCacheSnapshot();
+        String cacheSnapshotDir = config.getCacheSnapshotDir();
+        if (cacheSnapshotDir == null) {
+            CMSEngine engine = CMS.getCMSEngine();
+            cacheSnapshotDir = engine.getConfig().getInstanceDir() + File.separator + "ca" + File.separator + "crl";
+        }
+        mCacheSnapshotFile = new File(cacheSnapshotDir, mId + ".cache");
+
         // check if CRL generation is enabled
         mEnableCRLUpdates = config.getEnableCRLUpdates();
 
@@ -924,8 +939,13 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
 
                 if (crl != null) {
                     X509CRLImpl x509crl = null;
+                    CRLCacheSnapshot snapshot = null;
 
-                    if (mEnableCRLCache || mPublishOnStart) {
+                    if (mEnableCRLCache && mEnableCacheSnapshot && !mPublishOnStart) {
+                        snapshot = loadCacheSnapshot(crlRecord);
+                    }
+
+                    if (snapshot == null && (mEnableCRLCache || mPublishOnStart)) {
                         try {
                             x509crl = new X509CRLImpl(crl);
 
@@ -940,8 +960,8 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
                             return;
                         }
                     }
-                    if (x509crl != null) {
-                        mLastFullUpdate = x509crl.getThisUpdate();
+                    if (x509crl != null || snapshot != null) {
+                        mLastFullUpdate = snapshot != null ? snapshot.getThisUpdate() : x509crl.getThisUpdate();
                         if (mEnableCRLCache) {
                             if (mCRLCacheIsCleared && mUpdatingCRL == CRL_UPDATE_DONE) {
                                 mRevokedCerts = crlRecord.getRevokedCerts();
@@ -957,9 +977,16 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
                                     mExpiredCerts = new Hashtable<BigInteger, RevokedCertificate>();
                                 }
                                 if (isDeltaCRLEnabled()) {
-                                    mNextUpdate = x509crl.getNextUpdate();
+                                    mNextUpdate = snapshot != null ? snapshot.getNextUpdate() : x509crl.getNextUpdate();
+                                }
+                                if (snapshot != null) {
+                                    // serve lookups from the snapshot, fall back to
+                                    // the stored CRL if the entries cannot be decoded
+                                    mCRLCerts = new SnapshotCRLCache(snapshot,
+                                            () -> new X509CRLImpl(crl).getListOfRevokedCertificates());
+                                } else {
+                                    mCRLCerts = x509crl.getListOfRevokedCertificates();
                                 }
-                                mCRLCerts = x509crl.getListOfRevokedCertificates();
                             }
                             if (mFirstUnsaved != null && !mFirstUnsaved.equals(ICRLIssuingPointRecord.CLEAN_CACHE)) {
                                 recoverCRLCache();
@@ -967,8 +994,9 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
                                 mCRLCacheIsCleared = false;
                             }
                             mInitialized = CRLIssuingPointStatus.Initialized;
+                            loadCRLCacheInBackground();
                         }
-                        if (mPublishOnStart) {
+                        if (mPublishOnStart && x509crl != null) {
                             try {
                                 publishCRL(x509crl);
                                 x509crl = null;
@@ -2131,6 +2159,81 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
         mSchemaCounter = 0;
     }
 
+    /**
+     * Loads the local CRL cache snapshot if it was taken from the CRL
+     * stored in the CRL issuing point record.
+     *
+     * @return the snapshot, or null if it is missing, stale, or invalid
+     */
+    private CRLCacheSnapshot loadCacheSnapshot(ICRLIssuingPointRecord crlRecord) {
+
+        try {
+            long startTime = System.currentTimeMillis();
+            CRLCacheSnapshot snapshot = CRLCacheSnapshot.open(mCacheSnapshotFile);
+
+            if (snapshot == null) {
+                logger.info("CRLIssuingPoint: no CRL cache snapshot for " + mId);
+                return null;
+            }
+
+            if (!snapshot.isCurrent(crlRecord.getCRLNumber(), crlRecord.getThisUpdate())) {
+                logger.info("CRLIssuingPoint: CRL cache snapshot for " + mId + " is stale: CRL " +
+                        snapshot.getCRLNumber() + " vs " + crlRecord.getCRLNumber());
+                return null;
+            }
+
+            logger.info("CRLIssuingPoint: mapped CRL cache snapshot for " + mId + " with " +
+                    snapshot.size() + " entries in " + (System.currentTimeMillis() - startTime) + " ms");
+            return snapshot;
+
+        } catch (Exception e) {
+            logger.warn("CRLIssuingPoint: unable to load CRL cache snapshot for " + mId + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Loads a CRL cache backed by a snapshot in the background so that
+     * the next CRL update or revocation does not have to wait for it.
+     */
+    private void loadCRLCacheInBackground() {
+
+        if (!(mCRLCerts instanceof SnapshotCRLCache)) {
+            return;
+        }
+
+        SnapshotCRLCache cache = (SnapshotCRLCache) mCRLCerts;
+        if (cache.isLoaded()) {
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                cache.load();
+            } catch (Exception e) {
+                logger.warn("CRLIssuingPoint: unable to load CRL cache for " + mId + ": " + e.getMessage(), e);
+            }
+        }, "CRLCacheLoader-" + mId);
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stores a local snapshot of the CRL cache for the newly generated CRL.
+     * Failures are not fatal since the cache can be rebuilt from the CRL.
+     */
+    private void storeCacheSnapshot(BigInteger crlNumber, Date thisUpdate, Date nextUpdate) {
+
+        try {
+            CRLCacheSnapshot.write(mCacheSnapshotFile, crlNumber, thisUpdate, nextUpdate, mCRLCerts);
+
+        } catch (Exception e) {
+            logger.warn("CRLIssuingPoint: unable to store CRL cache snapshot for " + mId + ": " + e.getMessage(), e);
+            mCacheSnapshotFile.delete();
+        }
+    }
+
     /**
      * recovers CRL cache
      * @throws EBaseException
@@ -2386,6 +2489,42 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
         }
     }
 
+    /**
+     * registers multiple revoked certificates and stores the
+     * CRL cache once for all of them
+     */
+    public void addRevokedCerts(Map<BigInteger, RevokedCertImpl> revokedCerts, String requestId) {
+
+        if (!mEnable || !mEnableCRLCache) {
+            return;
+        }
+
+        CertRecProcessor cp = new CertRecProcessor(mCRLCerts, this, mAllowExtensions);
+        int count = 0;
+
+        for (Map.Entry<BigInteger, RevokedCertImpl> entry : revokedCerts.entrySet()) {
+            RevokedCertImpl revokedCert = entry.getValue();
+
+            if (!cp.checkRevokedCertExtensions(revokedCert.getExtensions())) {
+                continue;
+            }
+
+            updateRevokedCert(REVOKED_CERT, entry.getKey(), revokedCert, requestId);
+            count++;
+        }
+
+        logger.debug("CRLIssuingPoint: added " + count + " revoked certs to " + mId + " CRL cache");
+
+        if (count > 0 && mCacheUpdateInterval == 0) {
+            try {
+                mCRLRepository.updateRevokedCerts(mId, mRevokedCerts, mUnrevokedCerts);
+                mFirstUnsaved = ICRLIssuingPointRecord.CLEAN_CACHE;
+            } catch (EBaseException e) {
+                logger.warn(CMS.getLogMessage("CMSCORE_CA_ISSUING_STORE_REVOKED_CERT", mId, e.toString()), e);
+            }
+        }
+    }
+
     /**
      * registers unrevoked certificates
      */
@@ -3019,6 +3158,10 @@ public class CRLIssuingPoint implements ICRLIssuingPoint, Runnable {
                 mFirstUnsaved = ICRLIssuingPointRecord.CLEAN_CACHE;
             }
 
+            if (mEnableCRLCache && mEnableCacheSnapshot) {
+                storeCacheSnapshot(mNextCRLNumber, thisUpdate, newX509CRL.getNextUpdate());
+            }
+
             mSplits[8] += System.currentTimeMillis();
 
             mCRLSize = mCRLCerts.size();
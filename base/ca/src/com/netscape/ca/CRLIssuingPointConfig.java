@@ -110,6 +110,22 @@ public class CRLIssuingPointConfig extends PropConfigStore {
         putBoolean("enableCRLUpdates", enableCRLUpdates);
     }
 
+    public boolean getEnableCacheSnapshot() throws EBaseException {
+        return getBoolean("enableCacheSnapshot", true);
+    }
+
+    public void setEnableCacheSnapshot(boolean enableCacheSnapshot) {
+        putBoolean("enableCacheSnapshot", enableCacheSnapshot);
+    }
+
+    public String getCacheSnapshotDir() throws EBaseException {
+        return getString("cacheSnapshotDir", null);
+    }
+
+    public void setCacheSnapshotDir(String cacheSnapshotDir) {
+        putString("cacheSnapshotDir", cacheSnapshotDir);
+    }
+
     public boolean getEnableCacheTesting() throws EBaseException {
         return getBoolean("enableCacheTesting", false);
     }
@@ -41,6 +41,7 @@ import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
@@ -143,7 +144,10 @@ import com.netscape.cms.servlet.processors.CAProcessor;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.base.ArgBlock;
+import com.netscape.cmscore.base.ConfigListener;
+import com.netscape.cmscore.base.ConfigSnapshot;
 import com.netscape.cmscore.dbs.CertRecord;
+import com.netscape.cmscore.dbs.CertStatusIndex;
 import com.netscape.cmscore.dbs.CertificateRepository;
 import com.netscape.cmscore.ldap.PublisherProcessor;
 import com.netscape.cmscore.listeners.ListenerPlugin;
@@ -200,6 +204,10 @@ public class CertificateAuthority
 
     protected CAConfig mConfig;
 
+    // committed CA configuration used while processing OCSP requests
+    protected volatile ConfigSnapshot mConfigSnapshot;
+    private ConfigListener mConfigListener = snapshot -> mConfigSnapshot = snapshot;
+
     protected Hashtable<String, ICRLIssuingPoint> mCRLIssuePoints = new Hashtable<String, ICRLIssuingPoint>();
     protected CRLIssuingPoint mMasterCRLIssuePoint = null; // the complete crl.
     protected SigningUnit mSigningUnit;
@@ -218,6 +226,12 @@ public class CertificateAuthority
 
     protected String[] mAllowedSignAlgors = null;
 
+    // digests precomputed for OCSP CertID issuer hashes
+    public final static String[] OCSP_DIGESTS = { "SHA-1", "SHA-256" };
+
+    // issuer name and key hashes of this authority by digest name
+    protected Map<String, byte[][]> mIssuerHashes = new ConcurrentHashMap<String, byte[][]>();
+
     protected CertificateChain mCACertChain = null;
     protected CertificateChain mOCSPCertChain = null;
     protected X509CertImpl mCRLCert = null;
@@ -447,6 +461,8 @@ public class CertificateAuthority
         CAEngineConfig cs = engine.getConfig();
 
         mConfig = cs.getCAConfig();
+        mConfigSnapshot = mConfig.getSnapshot();
+        mConfig.addConfigListener(mConfigListener);
 
         // init signing unit & CA cert.
         boolean initSigUnitSucceeded = false;
@@ -511,6 +527,10 @@ public class CertificateAuthority
 
             RequestQueue requestQueue = engine.getRequestQueue();
             CertificateRepository certificateRepository = engine.getCertificateRepository();
+            certificateRepository.getCertStatusIndex().init(
+                mConfig.getBoolean("certStatusIndex.enable", false),
+                mConfig.getInteger("certStatusIndex.pageSize", CertStatusIndex.DEFAULT_PAGE_SIZE),
+                mConfig.getInteger("certStatusIndex.maxSize", CertStatusIndex.DEFAULT_MAX_SIZE));
             certificateRepository.setCertStatusUpdateInterval(
                 requestQueue.getRequestRepository(),
                 mConfig.getInteger("certStatusUpdateInterval", 10 * 60),
@@ -863,6 +883,10 @@ public class CertificateAuthority
      * <P>
      */
     public void shutdown() {
+        if (mConfig != null) {
+            mConfig.removeConfigListener(mConfigListener);
+        }
+
         // lightweight authorities don't own these resources
         if (!isHostAuthority())
             return;
@@ -1600,6 +1624,7 @@ public class CertificateAuthority
         mName = (X500Name) mCaCert.getSubjectDN();
 
         mCACertChain = getCertChain(mCaX509Cert);
+        initIssuerHashes();
 
         getCASigningAlgorithms();
 
@@ -2059,6 +2084,73 @@ public class CertificateAuthority
         return new KeyHashID(new OCTET_STRING(digested));
     }
 
+    /**
+     * Precomputes the OCSP CertID issuer hashes of this authority.
+     */
+    protected void initIssuerHashes() {
+        mIssuerHashes.clear();
+        for (String digestName : OCSP_DIGESTS) {
+            getIssuerHashes(digestName);
+        }
+    }
+
+    /**
+     * Returns the hashes of the issuer name and the issuer public key
+     * of this authority as used in OCSP CertIDs. Digests other than
+     * the precomputed ones are computed on first use.
+     *
+     * @param digestName digest name
+     * @return name hash and key hash (null if the CA cert is not
+     *     available yet), or null if the digest is not supported
+     */
+    public byte[][] getIssuerHashes(String digestName) {
+        return mIssuerHashes.computeIfAbsent(digestName, this::computeIssuerHashes);
+    }
+
+    private byte[][] computeIssuerHashes(String digestName) {
+
+        if (mName == null) {
+            return null;
+        }
+
+        try {
+            MessageDigest md = MessageDigest.getInstance(digestName);
+            byte[] nameHash = md.digest(mName.getEncoded());
+
+            byte[] keyHash = null;
+            if (mCaCert != null) {
+                X509Key key = (X509Key) mCaCert.getPublicKey();
+                keyHash = md.digest(key.getKey());
+            }
+
+            return new byte[][] { nameHash, keyHash };
+
+        } catch (NoSuchAlgorithmException | IOException e) {
+            logger.warn("CertificateAuthority: Unable to compute issuer hashes with " + digestName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if the CertID issuer name and key hashes match
+     * this authority.
+     */
+    public boolean isIssuerOf(CertID cid) {
+
+        String digestName = cid.getDigestName();
+        if (digestName == null) {
+            return false;
+        }
+
+        byte[][] hashes = getIssuerHashes(digestName);
+        if (hashes == null || hashes[1] == null) {
+            return false;
+        }
+
+        return Arrays.equals(cid.getIssuerNameHash().toByteArray(), hashes[0]) &&
+                Arrays.equals(cid.getIssuerKeyHash().toByteArray(), hashes[1]);
+    }
+
     /**
      * Process OCSPRequest.
      */
@@ -2091,7 +2183,9 @@ public class CertificateAuthority
          *    straight to validation.
          *
          * 1. Find the issuer of the cert identified by the first
-         *    CertID in the request.
+         *    CertID in the request, by matching the CertID issuer
+         *    hashes against the authorities or, failing that, by
+         *    reading the cert from the database.
          *
          * 2. If this CA is *not* the issuer, look up the issuer
          *    by its DN in CAEngine.  If not found, fail.  If
@@ -2107,13 +2201,25 @@ public class CertificateAuthority
         CertificateAuthority ocspCA = this;
         if (engine.getCAs().size() > 0 && tbsReq.getRequestCount() > 0) {
             Request req = tbsReq.getRequestAt(0);
-            BigInteger serialNo = req.getCertID().getSerialNumber();
+            CertID cid = req.getCertID();
 
-            CertificateRepository certificateRepository = engine.getCertificateRepository();
-            X509CertImpl cert = certificateRepository.getX509Certificate(serialNo);
+            ocspCA = null;
+            for (CertificateAuthority ca : engine.getCAs()) {
+                if (ca.isIssuerOf(cid)) {
+                    ocspCA = ca;
+                    break;
+                }
+            }
 
-            X500Name certIssuerDN = (X500Name) cert.getIssuerDN();
-            ocspCA = engine.getCA(certIssuerDN);
+            if (ocspCA == null) {
+                BigInteger serialNo = cid.getSerialNumber();
+
+                CertificateRepository certificateRepository = engine.getCertificateRepository();
+                X509CertImpl cert = certificateRepository.getX509Certificate(serialNo);
+
+                X500Name certIssuerDN = (X500Name) cert.getIssuerDN();
+                ocspCA = engine.getCA(certIssuerDN);
+            }
         }
 
         if (ocspCA == null) {
@@ -2281,10 +2387,9 @@ public class CertificateAuthority
         byte[] nameHash = null;
         String digestName = cid.getDigestName();
         if (digestName != null) {
-            try {
-                MessageDigest md = MessageDigest.getInstance(digestName);
-                nameHash = md.digest(mName.getEncoded());
-            } catch (NoSuchAlgorithmException | IOException e) {
+            byte[][] hashes = getIssuerHashes(digestName);
+            if (hashes != null) {
+                nameHash = hashes[0];
             }
         }
         if (!Arrays.equals(cid.getIssuerNameHash().toByteArray(), nameHash)) {
@@ -2294,23 +2399,18 @@ public class CertificateAuthority
             return new SingleResponse(cid, new UnknownInfo(), thisUpdate, null);
         }
 
+        ConfigSnapshot config = mConfigSnapshot;
         boolean ocspUseCache = true;
 
         try {
             /* enable OCSP cache by default */
-            ocspUseCache = mConfig.getBoolean("ocspUseCache", false);
+            ocspUseCache = config.getBoolean("ocspUseCache", false);
         } catch (EBaseException e) {
         }
 
         if (ocspUseCache) {
-            String issuingPointId = PROP_MASTER_CRL;
-
-            try {
-                issuingPointId = mConfig.getString(
-                            "ocspUseCacheIssuingPointId", PROP_MASTER_CRL);
-
-            } catch (EBaseException e) {
-            }
+            String issuingPointId = config.getString(
+                    "ocspUseCacheIssuingPointId", PROP_MASTER_CRL);
             CRLIssuingPoint point = (CRLIssuingPoint)
                     getCRLIssuingPoint(issuingPointId);
 
@@ -2327,11 +2427,11 @@ public class CertificateAuthority
                 boolean includeExpiredCerts = false;
 
                 try {
-                    checkDeltaCache = mConfig.getBoolean("ocspUseCacheCheckDeltaCache", false);
+                    checkDeltaCache = config.getBoolean("ocspUseCacheCheckDeltaCache", false);
                 } catch (EBaseException e) {
                 }
                 try {
-                    includeExpiredCerts = mConfig.getBoolean("ocspUseCacheIncludeExpiredCerts", false);
+                    includeExpiredCerts = config.getBoolean("ocspUseCacheIncludeExpiredCerts", false);
                 } catch (EBaseException e) {
                 }
                 Date revokedOn = point.getRevocationDateFromCache(
@@ -2350,8 +2450,9 @@ public class CertificateAuthority
         CertificateRepository certificateRepository = engine.getCertificateRepository();
 
         try {
-            ICertRecord rec = certificateRepository.readCertificateRecord(serialNo);
-            String status = rec.getStatus();
+            CertStatusIndex.Entry entry = certificateRepository.readCertificateStatus(serialNo);
+            String status = entry.getStatus();
+            Date revokedOn = entry.getRevokedOn();
 
             if (status == null) {
                 certStatus = new UnknownInfo();
@@ -2361,11 +2462,11 @@ public class CertificateAuthority
                 // not yet valid
                 certStatus = new UnknownInfo();
             } else if (status.equals(CertRecord.STATUS_REVOKED)) {
-                certStatus = new RevokedInfo(new GeneralizedTime(rec.getRevokedOn()));
+                certStatus = new RevokedInfo(new GeneralizedTime(revokedOn));
             } else if (status.equals(CertRecord.STATUS_EXPIRED)) {
                 certStatus = new UnknownInfo();
             } else if (status.equals(CertRecord.STATUS_REVOKED_EXPIRED)) {
-                certStatus = new RevokedInfo(new GeneralizedTime(rec.getRevokedOn()));
+                certStatus = new RevokedInfo(new GeneralizedTime(revokedOn));
             } else {
                 certStatus = new UnknownInfo();
             }
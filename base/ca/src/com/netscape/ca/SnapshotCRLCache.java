@@ -0,0 +1,344 @@
+//
+// Copyright Red Hat, Inc.
+//
+// SPDX-License-Identifier: GPL-2.0-or-later
+//
+package com.netscape.ca;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
+
+/**
+ * CRL cache backed by a CRL cache snapshot until it is loaded.
+ *
+ * Lookups (get, containsKey, size, isEmpty) are served from the
+ * memory-mapped snapshot with a binary search, so the CRL issuing point
+ * can answer revocation checks right after startup. Any other operation
+ * (e.g. adding an entry or iterating over the cache when generating the
+ * next CRL) loads all entries into the table first. The table can also
+ * be loaded in the background with load().
+ *
+ * If the snapshot entries cannot be decoded the table is loaded with
+ * the fallback instead, which decodes the CRL stored in the database.
+ *
+ * Methods that load the table are not synchronized on the table so
+ * that lookups can still be served from the snapshot during a load.
+ */
+public class SnapshotCRLCache extends Hashtable<BigInteger, RevokedCertificate> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SnapshotCRLCache.class);
+
+    // null once the table is loaded, guarded by this
+    private transient CRLCacheSnapshot snapshot;
+
+    private transient Callable<Map<BigInteger, RevokedCertificate>> fallback;
+    private transient Object loadLock = new Object();
+
+    public SnapshotCRLCache(
+            CRLCacheSnapshot snapshot,
+            Callable<Map<BigInteger, RevokedCertificate>> fallback) {
+
+        super(Math.max(snapshot.size() * 4 / 3 + 1, 11));
+        this.snapshot = snapshot;
+        this.fallback = fallback;
+    }
+
+    public synchronized boolean isLoaded() {
+        return snapshot == null;
+    }
+
+    /**
+     * Loads all entries into the table.
+     */
+    public void load() {
+
+        if (isLoaded()) {
+            return;
+        }
+
+        synchronized (loadLock) {
+
+            CRLCacheSnapshot snapshot;
+            synchronized (this) {
+                snapshot = this.snapshot;
+            }
+
+            if (snapshot == null) {
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            Map<BigInteger, RevokedCertificate> entries;
+
+            try {
+                entries = snapshot.getRevokedCertificates();
+
+            } catch (Exception e) {
+                logger.warn("SnapshotCRLCache: unable to decode CRL cache snapshot: " + e.getMessage(), e);
+
+                try {
+                    entries = fallback.call();
+                } catch (Exception ex) {
+                    throw new RuntimeException("Unable to load CRL cache: " + ex.getMessage(), ex);
+                }
+
+                if (entries == null) {
+                    entries = new Hashtable<>();
+                }
+            }
+
+            synchronized (this) {
+                // mark as loaded first since putAll() calls put()
+                this.snapshot = null;
+                fallback = null;
+                super.putAll(entries);
+            }
+
+            logger.info("SnapshotCRLCache: loaded " + entries.size() + " entries in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        }
+    }
+
+    /**
+     * Looks up an entry in the snapshot.
+     *
+     * @return true if the lookup was served from the snapshot
+     */
+    private synchronized boolean lookup(Object key, RevokedCertificate[] result) {
+
+        if (snapshot == null) {
+            return false;
+        }
+
+        if (!(key instanceof BigInteger)) {
+            return true;
+        }
+
+        try {
+            result[0] = snapshot.getRevokedCertificate((BigInteger) key);
+            return true;
+
+        } catch (Exception e) {
+            logger.warn("SnapshotCRLCache: unable to read CRL cache snapshot: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public RevokedCertificate get(Object key) {
+        RevokedCertificate[] result = new RevokedCertificate[1];
+        if (lookup(key, result)) {
+            return result[0];
+        }
+        load();
+        return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        RevokedCertificate[] result = new RevokedCertificate[1];
+        if (lookup(key, result)) {
+            return result[0] != null;
+        }
+        load();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        synchronized (this) {
+            if (snapshot != null) {
+                return snapshot.size();
+            }
+        }
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public RevokedCertificate getOrDefault(Object key, RevokedCertificate defaultValue) {
+        RevokedCertificate value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public Enumeration<BigInteger> keys() {
+        load();
+        return super.keys();
+    }
+
+    @Override
+    public Enumeration<RevokedCertificate> elements() {
+        load();
+        return super.elements();
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        load();
+        return super.contains(value);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        load();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public RevokedCertificate put(BigInteger key, RevokedCertificate value) {
+        load();
+        return super.put(key, value);
+    }
+
+    @Override
+    public RevokedCertificate remove(Object key) {
+        load();
+        return super.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends BigInteger, ? extends RevokedCertificate> t) {
+        load();
+        super.putAll(t);
+    }
+
+    @Override
+    public void clear() {
+        // no need to load the entries
+        synchronized (loadLock) {
+            synchronized (this) {
+                snapshot = null;
+                fallback = null;
+                super.clear();
+            }
+        }
+    }
+
+    @Override
+    public Object clone() {
+        load();
+        return super.clone();
+    }
+
+    @Override
+    public String toString() {
+        load();
+        return super.toString();
+    }
+
+    @Override
+    public Set<BigInteger> keySet() {
+        load();
+        return super.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<BigInteger, RevokedCertificate>> entrySet() {
+        load();
+        return super.entrySet();
+    }
+
+    @Override
+    public Collection<RevokedCertificate> values() {
+        load();
+        return super.values();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        load();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        load();
+        return super.hashCode();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super BigInteger, ? super RevokedCertificate> action) {
+        load();
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super BigInteger, ? super RevokedCertificate, ? extends RevokedCertificate> function) {
+        load();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public RevokedCertificate putIfAbsent(BigInteger key, RevokedCertificate value) {
+        load();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        load();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(BigInteger key, RevokedCertificate oldValue, RevokedCertificate newValue) {
+        load();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public RevokedCertificate replace(BigInteger key, RevokedCertificate value) {
+        load();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public RevokedCertificate computeIfAbsent(
+            BigInteger key,
+            Function<? super BigInteger, ? extends RevokedCertificate> mappingFunction) {
+        load();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public RevokedCertificate computeIfPresent(
+            BigInteger key,
+            BiFunction<? super BigInteger, ? super RevokedCertificate, ? extends RevokedCertificate> remappingFunction) {
+        load();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public RevokedCertificate compute(
+            BigInteger key,
+            BiFunction<? super BigInteger, ? super RevokedCertificate, ? extends RevokedCertificate> remappingFunction) {
+        load();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public RevokedCertificate merge(
+            BigInteger key,
+            RevokedCertificate value,
+            BiFunction<? super RevokedCertificate, ? super RevokedCertificate, ? extends RevokedCertificate> remappingFunction) {
+        load();
+        return super.merge(key, value, remappingFunction);
+    }
+}
@@ -85,7 +85,8 @@ public class PublishCertsJob extends AJobBase
                     "summary.emailTemplate",
                     "summary.itemTemplate",
                     "summary.senderEmail",
-                    "summary.recipientEmail"
+                    "summary.recipientEmail",
+                    PROP_PAGE_SIZE
         };
 
     public String[] getExtendedPluginInfo(Locale locale) {
@@ -107,6 +108,9 @@ public class PublishCertsJob extends AJobBase
                         "template file of email to be sent",
                 "summary.itemTemplate;string;Fully qualified pathname of " +
                         "file containing template for each item",
+                PROP_PAGE_SIZE + ";number;Maximum number of certificates " +
+                        "processed in one run. Each run continues where the " +
+                        "previous run stopped. Default is 0 (no limit).",
                 IExtendedPluginInfo.HELP_TOKEN +
                         ";configuration-jobrules-unpublishexpiredjobs",
             };
@@ -179,7 +183,7 @@ public class PublishCertsJob extends AJobBase
         Enumeration<Object> unpublishedCerts = null;
 
         try {
-            unpublishedCerts = mRepository.findCertRecs(filter);
+            unpublishedCerts = findCertRecords(mRepository, filter);
             // bug 399150
             /*
              CertRecordList list = null;
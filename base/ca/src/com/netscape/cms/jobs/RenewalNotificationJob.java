@@ -176,6 +176,7 @@ public class RenewalNotificationJob
                     PROP_SUMMARY_SUBJECT,
                     PROP_SUMMARY_ITEMTEMPLATE,
                     PROP_SUMMARY_TEMPLATE,
+                    PROP_PAGE_SIZE,
         };
 
     protected ICertificateRepository mCertDB = null;
@@ -243,6 +244,9 @@ public class RenewalNotificationJob
                         "template file of email to be sent",
                 PROP_SUMMARY_ITEMTEMPLATE + ";string,required;Fully qualified pathname of " +
                         "file with template to be used for each summary item",
+                PROP_PAGE_SIZE + ";number;Maximum number of certificates " +
+                        "processed in one run. Each run continues where the " +
+                        "previous run stopped. Default is 0 (no limit).",
                 IExtendedPluginInfo.HELP_TOKEN +
                         ";configuration-jobrules-renewalnotification",
             };
@@ -415,7 +419,7 @@ public class RenewalNotificationJob
                 //CertRecordList list = mCertDB.findCertRecordsInList(filter, null, "serialno", 5);
                 //list.processCertRecords(0, list.getSize() - 1, cp);
 
-                Enumeration<Object> en = mCertDB.findCertRecs(filter);
+                Enumeration<Object> en = findCertRecords(mCertDB, filter);
 
                 while (en.hasMoreElements()) {
                     Object element = en.nextElement();
@@ -83,7 +83,8 @@ public class UnpublishExpiredJob extends AJobBase
                     "summary.emailTemplate",
                     "summary.itemTemplate",
                     "summary.senderEmail",
-                    "summary.recipientEmail"
+                    "summary.recipientEmail",
+                    PROP_PAGE_SIZE
         };
 
     public String[] getExtendedPluginInfo(Locale locale) {
@@ -105,6 +106,9 @@ public class UnpublishExpiredJob extends AJobBase
                         "template file of email to be sent",
                 "summary.itemTemplate;string;Fully qualified pathname of " +
                         "file containing template for each item",
+                PROP_PAGE_SIZE + ";number;Maximum number of certificates " +
+                        "processed in one run. Each run continues where the " +
+                        "previous run stopped. Default is 0 (no limit).",
                 IExtendedPluginInfo.HELP_TOKEN +
                         ";configuration-jobrules-unpublishexpiredjobs",
             };
@@ -182,7 +186,7 @@ public class UnpublishExpiredJob extends AJobBase
         Enumeration<Object> expired = null;
 
         try {
-            expired = mRepository.findCertRecs(filter);
+            expired = findCertRecords(mRepository, filter);
             // bug 399150
             /*
              CertRecordList list = null;
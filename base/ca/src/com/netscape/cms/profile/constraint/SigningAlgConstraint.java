@@ -84,7 +84,7 @@ public class SigningAlgConstraint extends EnrollConstraint {
                     }
                 }
             }
-            mConfig.getSubStore("params").putString(name, value);
+            super.setConfig(name, value);
         }
     }
 
@@ -63,6 +63,7 @@ import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.apps.EngineConfig;
 import com.netscape.cmscore.ldap.PublisherProcessor;
+import com.netscape.cmscore.ldap.PublisherQueue;
 import com.netscape.cmscore.ldapconn.LDAPAuthenticationConfig;
 import com.netscape.cmscore.ldapconn.LDAPConfig;
 import com.netscape.cmscore.ldapconn.LdapBoundConnFactory;
@@ -189,6 +190,9 @@ public class PublisherAdminServlet extends AdminServlet {
                     } else if (scope.equals(ScopeDef.SC_RULE_RULES)) {
                         getRuleInstConfig(req, resp);
                         return;
+                    } else if (scope.equals(ScopeDef.SC_PUBLISHER_QUEUE_STATS)) {
+                        getPublisherQueueStats(req, resp);
+                        return;
                     }
                 } else if (op.equals(OpDef.OP_MODIFY)) {
                     mOp = "modify";
@@ -432,6 +436,25 @@ public class PublisherAdminServlet extends AdminServlet {
         sendResponse(SUCCESS, null, params, resp);
     }
 
+    /**
+     * retrieve the publishing statistics of each rule
+     * used by the publishing queue
+     */
+    private void getPublisherQueueStats(HttpServletRequest req,
+            HttpServletResponse resp) throws ServletException,
+            IOException, EBaseException {
+        NameValuePairs params = new NameValuePairs();
+
+        PublisherQueue queue = mProcessor == null ? null : mProcessor.getPublisherQueue();
+        if (queue != null) {
+            for (PublisherQueue.RuleStats stats : queue.getRuleStats()) {
+                params.put(stats.getRule(), stats.toString());
+            }
+        }
+
+        sendResponse(SUCCESS, null, params, resp);
+    }
+
     private void getLDAPDest(HttpServletRequest req,
             HttpServletResponse resp) throws ServletException,
             IOException, EBaseException {
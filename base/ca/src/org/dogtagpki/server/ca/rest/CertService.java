@@ -28,8 +28,10 @@ import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -57,6 +59,8 @@ import com.netscape.certsrv.base.BadRequestException;
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.PKIException;
 import com.netscape.certsrv.base.UnauthorizedException;
+import com.netscape.certsrv.cert.CertBulkRevokeRequest;
+import com.netscape.certsrv.cert.CertBulkRevokeResponse;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertDataInfo;
 import com.netscape.certsrv.cert.CertDataInfos;
@@ -66,6 +70,9 @@ import com.netscape.certsrv.cert.CertResource;
 import com.netscape.certsrv.cert.CertRetrievalRequest;
 import com.netscape.certsrv.cert.CertRevokeRequest;
 import com.netscape.certsrv.cert.CertSearchRequest;
+import com.netscape.certsrv.cert.CertStatusInfo;
+import com.netscape.certsrv.cert.CertStatusInfos;
+import com.netscape.certsrv.cert.CertStatusRequest;
 import com.netscape.certsrv.dbs.EDBRecordNotFoundException;
 import com.netscape.certsrv.dbs.certdb.CertId;
 import com.netscape.certsrv.dbs.certdb.ICertRecord;
@@ -99,6 +106,9 @@ public class CertService extends PKIService implements CertResource {
     public static final int DEFAULT_MAXTIME = 0;
     public static final int DEFAULT_MAXRESULTS = 20;
 
+    // maximum number of certificates in bulk operations
+    public static final int MAX_BULK_SIZE = 10000;
+
     public CertService() {
 
         CAEngine engine = CAEngine.getInstance();
@@ -371,6 +381,246 @@ public class CertService extends PKIService implements CertResource {
         }
     }
 
+    @Override
+    public Response getCertStatuses(CertStatusRequest request) {
+
+        if (request == null) {
+            throw new BadRequestException("Unable to get certificate statuses: Missing request");
+        }
+
+        Collection<CertId> ids = request.getSerialNumbers();
+        logger.info("Getting status of " + ids.size() + " certificates");
+
+        if (ids.size() > MAX_BULK_SIZE) {
+            throw new BadRequestException("Unable to get certificate statuses: Too many certificates: "
+                    + ids.size() + " (max: " + MAX_BULK_SIZE + ")");
+        }
+
+        try {
+            Map<BigInteger, ICertRecord> records = readCertificateRecords(ids);
+
+            CertStatusInfos infos = new CertStatusInfos();
+            for (CertId id : ids) {
+                infos.addEntry(createCertStatusInfo(id, records.get(id.toBigInteger())));
+            }
+            infos.setTotal(ids.size());
+
+            return createOKResponse(infos);
+
+        } catch (EBaseException e) {
+            logger.error("Unable to get certificate statuses: " + e.getMessage(), e);
+            throw new PKIException("Unable to get certificate statuses: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Revokes multiple certificates in a single revocation request.
+     * Certificates that cannot be revoked are reported in the response
+     * without failing the whole request.
+     */
+    @Override
+    public Response revokeCerts(CertBulkRevokeRequest request) {
+
+        if (request == null) {
+            throw new BadRequestException("Unable to revoke certificates: Missing request");
+        }
+
+        RevocationReason revReason = request.getReason();
+        if (revReason == null) {
+            throw new BadRequestException("Unable to revoke certificates: Missing revocation reason");
+        }
+
+        if (revReason == RevocationReason.REMOVE_FROM_CRL) {
+            throw new BadRequestException("Unable to revoke certificates: Invalid revocation reason: " + revReason);
+        }
+
+        // TODO remove hardcoded role names and consult authzmgr
+        GenericPrincipal principal = (GenericPrincipal) servletRequest.getUserPrincipal();
+        if (principal == null || !principal.hasRole("Certificate Manager Agents")) {
+            throw new UnauthorizedException("Unable to revoke certificates: Bulk revocation requires an agent");
+        }
+
+        CertBulkRevokeResponse response = new CertBulkRevokeResponse();
+        Map<BigInteger, ICertRecord> records = new LinkedHashMap<BigInteger, ICertRecord>();
+
+        try {
+            Collection<CertId> ids = request.getSerialNumbers();
+            if (ids.size() > MAX_BULK_SIZE) {
+                throw new BadRequestException("Unable to revoke certificates: Too many certificates: "
+                        + ids.size() + " (max: " + MAX_BULK_SIZE + ")");
+            }
+
+            Map<BigInteger, ICertRecord> results = readCertificateRecords(ids);
+            for (CertId id : ids) {
+                ICertRecord record = results.get(id.toBigInteger());
+                if (record == null) {
+                    response.addEntry(createCertStatusInfo(id, null));
+                    continue;
+                }
+                records.put(record.getSerialNumber(), record);
+            }
+
+            CertSearchRequest searchRequest = request.getSearchRequest();
+            if (searchRequest != null) {
+                String filter = createSearchFilter(searchRequest);
+                logger.info("Search filter: " + filter);
+
+                Enumeration<ICertRecord> e = repo.searchCertificates(filter, MAX_BULK_SIZE + 1, DEFAULT_MAXTIME);
+                while (e != null && e.hasMoreElements()) {
+                    ICertRecord record = e.nextElement();
+                    if (record == null) continue;
+                    records.put(record.getSerialNumber(), record);
+                }
+            }
+
+        } catch (EBaseException e) {
+            logger.error("Unable to find certificates to revoke: " + e.getMessage(), e);
+            throw new PKIException("Unable to revoke certificates: " + e.getMessage(), e);
+        }
+
+        if (records.size() > MAX_BULK_SIZE) {
+            throw new BadRequestException("Unable to revoke certificates: Too many certificates (max: "
+                    + MAX_BULK_SIZE + ")");
+        }
+
+        logger.info("Revoking " + records.size() + " certificates");
+
+        RevocationProcessor processor;
+        try {
+            processor = new RevocationProcessor("caDoRevoke-agent", getLocale(headers));
+            processor.setStartTime(new Date().getTime());
+
+            // TODO: set initiative based on auth info
+            processor.setInitiative(AuditFormat.FROMAGENT);
+
+            processor.setRevocationReason(revReason);
+            processor.setRequestType(revReason == RevocationReason.CERTIFICATE_HOLD
+                    ? RevocationProcessor.ON_HOLD : RevocationProcessor.REVOKE);
+            processor.setInvalidityDate(request.getInvalidityDate());
+            processor.setComments(request.getComments());
+
+            processor.setAuthority(authority);
+
+            processor.createCRLExtension();
+
+        } catch (EBaseException | IOException e) {
+            logger.error("Unable to revoke certificates: " + e.getMessage(), e);
+            throw new PKIException("Unable to revoke certificates: " + e.getMessage(), e);
+        }
+
+        // certificates in the order they are added to the request
+        List<CertId> targets = new ArrayList<CertId>();
+
+        for (ICertRecord record : records.values()) {
+            CertId id = new CertId(record.getSerialNumber());
+            try {
+                processor.validateCertificateToRevoke(null, record, false);
+                processor.addCertificateToRevoke(record.getCertificate());
+                targets.add(id);
+
+            } catch (PKIException | EBaseException e) {
+                logger.warn("Unable to revoke certificate " + id.toHexString() + ": " + e.getMessage());
+                CertStatusInfo info = createCertStatusInfo(id, record);
+                info.setError(e.getMessage());
+                response.addEntry(info);
+            }
+        }
+
+        if (targets.isEmpty()) {
+            response.setTotal(response.getEntries().size());
+            return createOKResponse(response);
+        }
+
+        try {
+            processor.createRevocationRequest();
+
+            if (Boolean.TRUE.equals(request.getUpdateCRL())) {
+                processor.getRequest().setExtData(IRequest.REVOKED_UPDATE_CRL, "true");
+            }
+
+            processor.auditChangeRequest(ILogger.SUCCESS);
+
+        } catch (EBaseException e) {
+            logger.error("Unable to pre-process revocation request: " + e.getMessage(), e);
+            processor.auditChangeRequest(ILogger.FAILURE);
+            throw new PKIException("Unable to revoke certificates: " + e.getMessage(), e);
+        }
+
+        try {
+            processor.processRevocationRequest();
+            processor.auditChangeRequestProcessed(ILogger.SUCCESS);
+
+        } catch (EBaseException e) {
+            // some certificates might have been revoked, see errors below
+            logger.warn("Unable to process revocation request: " + e.getMessage());
+            processor.auditChangeRequestProcessed(ILogger.FAILURE);
+        }
+
+        IRequest revRequest = processor.getRequest();
+        response.setRequestID(revRequest.getRequestId().toString());
+        response.setRequestStatus(String.valueOf(processor.getRequestStatus()));
+
+        String[] svcErrors = revRequest.getExtDataInStringArray(IRequest.SVCERRORS);
+
+        for (int i = 0; i < targets.size(); i++) {
+            CertStatusInfo info = new CertStatusInfo();
+            info.setID(targets.get(i));
+
+            String error = svcErrors != null && i < svcErrors.length ? svcErrors[i] : null;
+            if (error != null) {
+                info.setError(error);
+            } else {
+                info.setStatus(ICertRecord.STATUS_REVOKED);
+                info.setRevocationReason(revReason);
+            }
+
+            response.addEntry(info);
+        }
+
+        response.setTotal(response.getEntries().size());
+        return createOKResponse(response);
+    }
+
+    private Map<BigInteger, ICertRecord> readCertificateRecords(Collection<CertId> ids) throws EBaseException {
+
+        List<BigInteger> serialNos = new ArrayList<BigInteger>();
+        for (CertId id : ids) {
+            serialNos.add(id.toBigInteger());
+        }
+
+        return repo.readCertificateRecords(serialNos);
+    }
+
+    private CertStatusInfo createCertStatusInfo(CertId id, ICertRecord record) {
+
+        CertStatusInfo info = new CertStatusInfo();
+        info.setID(id);
+
+        if (record == null) {
+            info.setError("Certificate not found");
+            return info;
+        }
+
+        info.setStatus(record.getStatus());
+        info.setRevokedOn(record.getRevokedOn());
+
+        IRevocationInfo revInfo = record.getRevocationInfo();
+        if (revInfo != null) {
+            CRLExtensions revExts = revInfo.getCRLEntryExtensions();
+            if (revExts != null) {
+                try {
+                    CRLReasonExtension ext = (CRLReasonExtension)
+                        revExts.get(CRLReasonExtension.NAME);
+                    if (ext != null) info.setRevocationReason(ext.getReason());
+                } catch (X509ExtensionException e) {
+                    // nothing to do
+                }
+            }
+        }
+
+        return info;
+    }
+
     private String createSearchFilter(String status) {
         String filter;
 
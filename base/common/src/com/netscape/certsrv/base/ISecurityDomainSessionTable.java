@@ -17,6 +17,8 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.certsrv.base;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Enumeration;
 
 /**
@@ -46,5 +48,27 @@ public interface ISecurityDomainSessionTable {
 
     public Enumeration<String> getSessionIDs() throws Exception;
 
+    /**
+     * Removes the sessions older than the time to live.
+     *
+     * @return IDs of the removed sessions
+     */
+    public default Collection<String> removeExpiredEntries() throws Exception {
+
+        Collection<String> removed = new ArrayList<String>();
+        long now = System.currentTimeMillis();
+
+        Enumeration<String> sessionIDs = getSessionIDs();
+        while (sessionIDs.hasMoreElements()) {
+            String sessionID = sessionIDs.nextElement();
+            if (now - getBeginTime(sessionID) > getTimeToLive()) {
+                removeEntry(sessionID);
+                removed.add(sessionID);
+            }
+        }
+
+        return removed;
+    }
+
     public void shutdown();
 }
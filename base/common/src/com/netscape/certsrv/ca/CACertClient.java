@@ -19,11 +19,14 @@ package com.netscape.certsrv.ca;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.core.Response;
 
 import org.mozilla.jss.netscape.security.x509.X500Name;
 
+import com.netscape.certsrv.cert.CertBulkRevokeRequest;
+import com.netscape.certsrv.cert.CertBulkRevokeResponse;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertDataInfos;
 import com.netscape.certsrv.cert.CertEnrollmentRequest;
@@ -34,6 +37,8 @@ import com.netscape.certsrv.cert.CertResource;
 import com.netscape.certsrv.cert.CertReviewResponse;
 import com.netscape.certsrv.cert.CertRevokeRequest;
 import com.netscape.certsrv.cert.CertSearchRequest;
+import com.netscape.certsrv.cert.CertStatusInfos;
+import com.netscape.certsrv.cert.CertStatusRequest;
 import com.netscape.certsrv.client.Client;
 import com.netscape.certsrv.client.PKIClient;
 import com.netscape.certsrv.client.SubsystemClient;
@@ -68,6 +73,10 @@ public class CACertClient extends Client {
         return client.getEntity(response, CertData.class);
     }
 
+    public CompletableFuture<CertData> getCertAsync(CertId id) {
+        return submit(() -> getCert(id));
+    }
+
     public CertData reviewCert(CertId id) throws Exception {
         Response response = certClient.reviewCert(id);
         return client.getEntity(response, CertData.class);
@@ -83,11 +92,29 @@ public class CACertClient extends Client {
         return client.getEntity(response, CertDataInfos.class);
     }
 
+    public CompletableFuture<CertDataInfos> findCertsAsync(CertSearchRequest data, Integer start, Integer size) {
+        return submit(() -> findCerts(data, start, size));
+    }
+
     public CertRequestInfo revokeCert(CertId id, CertRevokeRequest request) throws Exception {
         Response response = certClient.revokeCert(id, request);
         return client.getEntity(response, CertRequestInfo.class);
     }
 
+    public CompletableFuture<CertRequestInfo> revokeCertAsync(CertId id, CertRevokeRequest request) {
+        return submit(() -> revokeCert(id, request));
+    }
+
+    public CertBulkRevokeResponse revokeCerts(CertBulkRevokeRequest request) throws Exception {
+        Response response = certClient.revokeCerts(request);
+        return client.getEntity(response, CertBulkRevokeResponse.class);
+    }
+
+    public CertStatusInfos getCertStatuses(CertStatusRequest request) throws Exception {
+        Response response = certClient.getCertStatuses(request);
+        return client.getEntity(response, CertStatusInfos.class);
+    }
+
     public CertRequestInfo revokeCACert(CertId id, CertRevokeRequest request) throws Exception {
         Response response = certClient.revokeCACert(id, request);
         return client.getEntity(response, CertRequestInfo.class);
@@ -98,6 +125,10 @@ public class CACertClient extends Client {
         return client.getEntity(response, CertRequestInfo.class);
     }
 
+    public CompletableFuture<CertRequestInfo> unrevokeCertAsync(CertId id) {
+        return submit(() -> unrevokeCert(id));
+    }
+
     public CertRequestInfos enrollRequest(
             CertEnrollmentRequest data, AuthorityID aid, X500Name adn) throws Exception {
         String aidString = aid != null ? aid.toString() : null;
@@ -112,11 +143,20 @@ public class CACertClient extends Client {
         return client.getEntity(response, CertRequestInfos.class);
     }
 
+    public CompletableFuture<CertRequestInfos> enrollRequestAsync(
+            CertEnrollmentRequest data, AuthorityID aid, X500Name adn) {
+        return submit(() -> enrollRequest(data, aid, adn));
+    }
+
     public CertRequestInfo getRequest(RequestId id) throws Exception {
         Response response = certRequestClient.getRequestInfo(id);
         return client.getEntity(response, CertRequestInfo.class);
     }
 
+    public CompletableFuture<CertRequestInfo> getRequestAsync(RequestId id) {
+        return submit(() -> getRequest(id));
+    }
+
     public CertReviewResponse reviewRequest(RequestId id) throws Exception {
         Response response = certRequestClient.reviewRequest(id);
         return client.getEntity(response, CertReviewResponse.class);
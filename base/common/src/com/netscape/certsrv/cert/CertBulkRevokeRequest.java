@@ -0,0 +1,208 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.certsrv.cert;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevocationReasonAdapter;
+
+import com.netscape.certsrv.dbs.certdb.CertId;
+import com.netscape.certsrv.dbs.certdb.CertIdAdapter;
+import com.netscape.certsrv.util.DateAdapter;
+
+/**
+ * Revocation of multiple certificates in a single request.
+ *
+ * The certificates can be specified by serial numbers and/or by
+ * a search request. All certificates are revoked with the same
+ * reason. If updateCRL is true the CRL issuing points will be
+ * updated immediately after the revocation.
+ */
+@XmlRootElement(name="CertBulkRevokeRequest")
+public class CertBulkRevokeRequest {
+
+    public static Marshaller marshaller;
+    public static Unmarshaller unmarshaller;
+
+    static {
+        try {
+            JAXBContext context = JAXBContext.newInstance(CertBulkRevokeRequest.class);
+            marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            unmarshaller = context.createUnmarshaller();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    Collection<CertId> serialNumbers = new ArrayList<CertId>();
+    CertSearchRequest searchRequest;
+    RevocationReason reason;
+    Date invalidityDate;
+    String comments;
+    Boolean updateCRL;
+
+    @XmlElement(name="SerialNumber")
+    @XmlJavaTypeAdapter(CertIdAdapter.class)
+    public Collection<CertId> getSerialNumbers() {
+        return serialNumbers;
+    }
+
+    public void setSerialNumbers(Collection<CertId> serialNumbers) {
+        this.serialNumbers.clear();
+        if (serialNumbers == null) return;
+        this.serialNumbers.addAll(serialNumbers);
+    }
+
+    public void addSerialNumber(CertId serialNumber) {
+        serialNumbers.add(serialNumber);
+    }
+
+    @XmlElement(name="SearchRequest")
+    public CertSearchRequest getSearchRequest() {
+        return searchRequest;
+    }
+
+    public void setSearchRequest(CertSearchRequest searchRequest) {
+        this.searchRequest = searchRequest;
+    }
+
+    @XmlElement(name="Reason")
+    @XmlJavaTypeAdapter(RevocationReasonAdapter.class)
+    public RevocationReason getReason() {
+        return reason;
+    }
+
+    public void setReason(RevocationReason reason) {
+        this.reason = reason;
+    }
+
+    @XmlElement(name="InvalidityDate")
+    @XmlJavaTypeAdapter(DateAdapter.class)
+    public Date getInvalidityDate() {
+        return invalidityDate;
+    }
+
+    public void setInvalidityDate(Date invalidityDate) {
+        this.invalidityDate = invalidityDate;
+    }
+
+    @XmlElement(name="Comments")
+    public String getComments() {
+        return comments;
+    }
+
+    public void setComments(String comments) {
+        this.comments = comments;
+    }
+
+    @XmlElement(name="UpdateCRL")
+    public Boolean getUpdateCRL() {
+        return updateCRL;
+    }
+
+    public void setUpdateCRL(Boolean updateCRL) {
+        this.updateCRL = updateCRL;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((comments == null) ? 0 : comments.hashCode());
+        result = prime * result + ((invalidityDate == null) ? 0 : invalidityDate.hashCode());
+        result = prime * result + ((reason == null) ? 0 : reason.hashCode());
+        result = prime * result + ((searchRequest == null) ? 0 : searchRequest.hashCode());
+        result = prime * result + ((serialNumbers == null) ? 0 : serialNumbers.hashCode());
+        result = prime * result + ((updateCRL == null) ? 0 : updateCRL.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        CertBulkRevokeRequest other = (CertBulkRevokeRequest) obj;
+        if (comments == null) {
+            if (other.comments != null)
+                return false;
+        } else if (!comments.equals(other.comments))
+            return false;
+        if (invalidityDate == null) {
+            if (other.invalidityDate != null)
+                return false;
+        } else if (!invalidityDate.equals(other.invalidityDate))
+            return false;
+        if (reason == null) {
+            if (other.reason != null)
+                return false;
+        } else if (!reason.equals(other.reason))
+            return false;
+        if (searchRequest == null) {
+            if (other.searchRequest != null)
+                return false;
+        } else if (!searchRequest.equals(other.searchRequest))
+            return false;
+        if (serialNumbers == null) {
+            if (other.serialNumbers != null)
+                return false;
+        } else if (!serialNumbers.equals(other.serialNumbers))
+            return false;
+        if (updateCRL == null) {
+            if (other.updateCRL != null)
+                return false;
+        } else if (!updateCRL.equals(other.updateCRL))
+            return false;
+        return true;
+    }
+
+    public String toString() {
+        try {
+            StringWriter sw = new StringWriter();
+            marshaller.marshal(this, sw);
+            return sw.toString();
+
+        } catch (Exception e) {
+            return super.toString();
+        }
+    }
+
+    public static CertBulkRevokeRequest valueOf(String string) throws Exception {
+        try {
+            return (CertBulkRevokeRequest)unmarshaller.unmarshal(new StringReader(string));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
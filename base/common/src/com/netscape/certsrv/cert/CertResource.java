@@ -34,6 +34,10 @@ public interface CertResource {
     @Path("certs/{id}")
     public Response getCert(@PathParam("id") CertId id);
 
+    @POST
+    @Path("certs/status")
+    public Response getCertStatuses(CertStatusRequest request);
+
     @GET
     @Path("agent/certs/{id}")
     @ACLMapping("certs")
@@ -52,6 +56,12 @@ public interface CertResource {
     @AuthMethodMapping("certs")
     public Response revokeCert(@PathParam("id") CertId id, CertRevokeRequest request);
 
+    @POST
+    @Path("agent/certs/revoke")
+    @ACLMapping("certs")
+    @AuthMethodMapping("certs")
+    public Response revokeCerts(CertBulkRevokeRequest request);
+
     @POST
     @Path("agent/certs/{id}/unrevoke")
     @ACLMapping("certs")
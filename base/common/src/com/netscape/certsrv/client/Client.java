@@ -19,6 +19,8 @@ package com.netscape.certsrv.client;
 
 import java.net.URISyntaxException;
 import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Endi S. Dewata
@@ -70,4 +72,8 @@ public class Client {
     public <T> T createProxy(Class<T> clazz) throws URISyntaxException {
         return client.createProxy(subsystem, clazz);
     }
+
+    public <T> CompletableFuture<T> submit(Callable<T> request) {
+        return client.submit(request);
+    }
 }
@@ -72,6 +72,10 @@ public class ClientConfig {
 
     String messageFormat;
 
+    Integer maxConnections;
+    Integer maxConnectionsPerRoute;
+    Integer keepAliveTimeout;
+
     public ClientConfig() {
     }
 
@@ -91,6 +95,10 @@ public class ClientConfig {
         password = config.password;
 
         messageFormat = config.messageFormat;
+
+        maxConnections = config.maxConnections;
+        maxConnectionsPerRoute = config.maxConnectionsPerRoute;
+        keepAliveTimeout = config.keepAliveTimeout;
     }
 
     public void setServerURI(URI serverUri) {
@@ -266,11 +274,51 @@ public class ClientConfig {
         this.messageFormat = messageFormat;
     }
 
+    /**
+     * Maximum number of pooled connections, or null for default.
+     */
+    @XmlElement(name="MaxConnections")
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Maximum number of pooled connections per server, or null for default.
+     */
+    @XmlElement(name="MaxConnectionsPerRoute")
+    public Integer getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Keep-alive timeout in seconds for idle connections if the server
+     * does not specify one, or null for default.
+     */
+    @XmlElement(name="KeepAliveTimeout")
+    public Integer getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(Integer keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result + ((certNickname == null) ? 0 : certNickname.hashCode());
+        result = prime * result + ((keepAliveTimeout == null) ? 0 : keepAliveTimeout.hashCode());
+        result = prime * result + ((maxConnections == null) ? 0 : maxConnections.hashCode());
+        result = prime * result + ((maxConnectionsPerRoute == null) ? 0 : maxConnectionsPerRoute.hashCode());
         result = prime * result + ((messageFormat == null) ? 0 : messageFormat.hashCode());
         result = prime * result + ((nssDatabase == null) ? 0 : nssDatabase.hashCode());
         result = prime * result + ((nssPassword == null) ? 0 : nssPassword.hashCode());
@@ -296,6 +344,21 @@ public class ClientConfig {
                 return false;
         } else if (!certNickname.equals(other.certNickname))
             return false;
+        if (keepAliveTimeout == null) {
+            if (other.keepAliveTimeout != null)
+                return false;
+        } else if (!keepAliveTimeout.equals(other.keepAliveTimeout))
+            return false;
+        if (maxConnections == null) {
+            if (other.maxConnections != null)
+                return false;
+        } else if (!maxConnections.equals(other.maxConnections))
+            return false;
+        if (maxConnectionsPerRoute == null) {
+            if (other.maxConnectionsPerRoute != null)
+                return false;
+        } else if (!maxConnectionsPerRoute.equals(other.maxConnectionsPerRoute))
+            return false;
         if (messageFormat == null) {
             if (other.messageFormat != null)
                 return false;
@@ -22,6 +22,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -51,7 +58,11 @@ public class PKIClient {
     Collection<Integer> ignoredCertStatuses = new HashSet<Integer>();
 
     // List to prevent displaying the same warnings/errors again.
-    Collection<Integer> statuses = new HashSet<Integer>();
+    // The list may be updated by concurrent SSL handshakes.
+    Collection<Integer> statuses = ConcurrentHashMap.newKeySet();
+
+    // Executor for asynchronous requests.
+    ExecutorService executorService;
 
     public PKIClient(ClientConfig config) throws URISyntaxException {
         this(config, null, null);
@@ -134,7 +145,7 @@ public class PKIClient {
         return connection.post(path, content);
     }
 
-    public Info getInfo() throws Exception {
+    public synchronized Info getInfo() throws Exception {
         if (infoClient == null) {
             infoClient = new InfoClient(this);
             info = infoClient.getInfo();
@@ -142,6 +153,68 @@ public class PKIClient {
         return info;
     }
 
+    /**
+     * Returns the executor for asynchronous requests. The number of
+     * threads matches the maximum number of connections per server,
+     * so queued requests will reuse the pooled connections.
+     */
+    public synchronized ExecutorService getExecutorService() {
+
+        if (executorService == null) {
+            final AtomicInteger counter = new AtomicInteger();
+            executorService = Executors.newFixedThreadPool(
+                    connection.getMaxConnectionsPerRoute(),
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "PKIClient-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+
+        return executorService;
+    }
+
+    /**
+     * Executes a request asynchronously.
+     *
+     * @return future that completes with the result of the request,
+     * or exceptionally with the exception thrown by the request
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> request) {
+
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        getExecutorService().execute(new Runnable() {
+            public void run() {
+                try {
+                    future.complete(request.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Stops the executor for asynchronous requests and closes
+     * the pooled connections.
+     */
+    public void close() {
+
+        synchronized (this) {
+            if (executorService != null) {
+                executorService.shutdown();
+                executorService = null;
+            }
+        }
+
+        connection.close();
+    }
+
     public void addRejectedCertStatus(Integer rejectedCertStatus) {
         rejectedCertStatuses.add(rejectedCertStatus);
     }
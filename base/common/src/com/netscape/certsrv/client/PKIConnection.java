@@ -32,6 +32,8 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.GenericType;
@@ -57,16 +59,21 @@ import org.apache.http.auth.params.AuthPNames;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.params.AuthPolicy;
 import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.scheme.SchemeLayeredSocketFactory;
 import org.apache.http.conn.scheme.SchemeSocketFactory;
 import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.impl.client.ClientParamsStack;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
 import org.apache.http.impl.client.EntityEnclosingRequestWrapper;
 import org.apache.http.impl.client.RequestWrapper;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
@@ -87,20 +94,34 @@ import org.mozilla.jss.ssl.SSLSocketListener;
 
 import com.netscape.certsrv.base.PKIException;
 
+/**
+ * HTTP connection to a PKI server.
+ *
+ * The connection uses a pool of persistent connections so it can be
+ * shared by multiple threads. The pool size can be configured with
+ * ClientConfig.setMaxConnections() and setMaxConnectionsPerRoute().
+ * Idle connections are kept alive for the duration specified by the
+ * server, or ClientConfig.getKeepAliveTimeout() if not specified.
+ */
 public class PKIConnection {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PKIConnection.class);
 
+    public final static int DEFAULT_MAX_CONNECTIONS = 20;
+    public final static int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+    public final static int DEFAULT_KEEP_ALIVE_TIMEOUT = 30; // seconds
+
     ClientConfig config;
 
-    DefaultHttpClient httpClient = new DefaultHttpClient();
-    SSLCertificateApprovalCallback callback;
+    PoolingClientConnectionManager connectionManager;
+    DefaultHttpClient httpClient;
+    volatile SSLCertificateApprovalCallback callback;
 
     ApacheHttpClient4Engine engine;
     ResteasyClient resteasyClient;
 
-    int requestCounter;
-    int responseCounter;
+    AtomicInteger requestCounter = new AtomicInteger();
+    AtomicInteger responseCounter = new AtomicInteger();
 
     File output;
 
@@ -109,8 +130,30 @@ public class PKIConnection {
         this.config = config;
 
         // Register https scheme.
+        SchemeRegistry schemeRegistry = SchemeRegistryFactory.createDefault();
         Scheme scheme = new Scheme("https", 443, new JSSProtocolSocketFactory());
-        httpClient.getConnectionManager().getSchemeRegistry().register(scheme);
+        schemeRegistry.register(scheme);
+
+        // Share connections between threads. Connections to the same
+        // server are reused so the SSL handshake is done only once
+        // per pooled connection.
+        connectionManager = new PoolingClientConnectionManager(schemeRegistry);
+        connectionManager.setMaxTotal(getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(getMaxConnectionsPerRoute());
+
+        httpClient = new DefaultHttpClient(connectionManager);
+
+        final long keepAliveTimeout = getKeepAliveTimeout() * 1000L;
+        httpClient.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+            ConnectionKeepAliveStrategy defaultStrategy = new DefaultConnectionKeepAliveStrategy();
+
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                // use the duration specified by the server if available
+                long duration = defaultStrategy.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAliveTimeout;
+            }
+        });
 
         // Don't retry operations.
         httpClient.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
@@ -129,7 +172,7 @@ public class PKIConnection {
             @Override
             public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
 
-                requestCounter++;
+                int requestCounter = PKIConnection.this.requestCounter.incrementAndGet();
 
                 logger.info("HTTP request: " + request.getRequestLine());
                 for (Header header : request.getAllHeaders()) {
@@ -162,7 +205,7 @@ public class PKIConnection {
             @Override
             public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
 
-                responseCounter++;
+                int responseCounter = PKIConnection.this.responseCounter.incrementAndGet();
 
                 logger.info("HTTP response: " + response.getStatusLine());
                 for (Header header : response.getAllHeaders()) {
@@ -214,10 +257,43 @@ public class PKIConnection {
         resteasyClient.register(PKIRESTProvider.class);
     }
 
+    public int getMaxConnections() {
+        Integer maxConnections = config.getMaxConnections();
+        return maxConnections == null ? DEFAULT_MAX_CONNECTIONS : maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        Integer maxConnectionsPerRoute = config.getMaxConnectionsPerRoute();
+        return maxConnectionsPerRoute == null ? DEFAULT_MAX_CONNECTIONS_PER_ROUTE : maxConnectionsPerRoute;
+    }
+
+    public int getKeepAliveTimeout() {
+        Integer keepAliveTimeout = config.getKeepAliveTimeout();
+        return keepAliveTimeout == null ? DEFAULT_KEEP_ALIVE_TIMEOUT : keepAliveTimeout;
+    }
+
     public void setCallback(SSLCertificateApprovalCallback callback) {
         this.callback = callback;
     }
 
+    /**
+     * Closes connections that have been idle longer than the
+     * specified time.
+     */
+    public void closeIdleConnections(long idleTime, TimeUnit unit) {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTime, unit);
+    }
+
+    /**
+     * Closes all pooled connections. The connection cannot be used
+     * afterwards.
+     */
+    public void close() {
+        resteasyClient.close();
+        connectionManager.shutdown();
+    }
+
     public void storeRequest(File file, HttpRequest request) throws IOException {
 
         try (PrintStream out = new PrintStream(file)) {
@@ -68,6 +68,7 @@ public interface ScopeDef {
     public final static String SC_MAPPER_IMPLS = "mapperImpls";
     public final static String SC_RULE_RULES = "ruleRules";
     public final static String SC_RULE_IMPLS = "ruleImpls";
+    public final static String SC_PUBLISHER_QUEUE_STATS = "publisherQueueStats";
 
     // self tests
     public final static String SC_SELFTESTS = "selftests";
@@ -138,6 +139,7 @@ public interface ScopeDef {
     public final static String SC_JOBS_IMPLS = "impl";
     public final static String SC_JOBS_INSTANCE = "job";
     public final static String SC_JOBS_RULES = "rules";
+    public final static String SC_JOBS_STATS = "jobStats";
 
     //notification
     public final static String SC_NOTIFICATION_REQ_COMP = "notificationREQC";
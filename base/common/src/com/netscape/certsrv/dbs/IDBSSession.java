@@ -17,6 +17,8 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.certsrv.dbs;
 
+import java.util.Map;
+
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.ISubsystem;
 
@@ -100,6 +102,17 @@ public interface IDBSSession extends AutoCloseable {
     public void modify(String name, ModificationSet mods)
             throws EBaseException;
 
+    /**
+     * Modifies multiple objects. The modifications are pipelined
+     * so a failure does not stop the remaining modifications.
+     *
+     * @param mods modifications by object name
+     * @return errors by object name for failed modifications
+     * @exception EBaseException failed to send modifications
+     */
+    public Map<String, EBaseException> modify(Map<String, ModificationSet> mods)
+            throws EBaseException;
+
     /**
      * Searchs for a list of objects that match the
      * filter.
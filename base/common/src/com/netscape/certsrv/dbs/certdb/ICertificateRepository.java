@@ -19,9 +19,11 @@ package com.netscape.certsrv.dbs.certdb;
 
 import java.math.BigInteger;
 import java.security.cert.Certificate;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Map;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.MetaInfo;
@@ -83,6 +85,17 @@ public interface ICertificateRepository extends IRepository {
     public ICertRecord readCertificateRecord(BigInteger serialNo)
             throws EBaseException;
 
+    /**
+     * Reads multiple certificate records with searches on
+     * groups of serial numbers instead of one read per record.
+     *
+     * @param serialNos serial numbers of certificates
+     * @return certificate records by serial number; missing records are not included
+     * @exception EBaseException failed to retrieve certificates
+     */
+    public Map<BigInteger, ICertRecord> readCertificateRecords(Collection<BigInteger> serialNos)
+            throws EBaseException;
+
     /**
      * Sets certificate status update internal
      *
@@ -151,6 +164,16 @@ public interface ICertificateRepository extends IRepository {
     public void markAsRevoked(BigInteger id, IRevocationInfo info, boolean isAlreadyOnHold)
             throws EBaseException;
 
+    /**
+     * Marks multiple certificates that are not revoked yet as revoked.
+     *
+     * @param infos revocation information by serial number
+     * @return errors by serial number for certificates that could not be marked
+     * @exception EBaseException failed to mark
+     */
+    public Map<BigInteger, EBaseException> markAsRevoked(Map<BigInteger, IRevocationInfo> infos)
+            throws EBaseException;
+
     /**
      * Updates certificate status.
      *
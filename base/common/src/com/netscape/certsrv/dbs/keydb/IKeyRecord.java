@@ -39,6 +39,7 @@ public interface IKeyRecord extends IDBObj {
     public static final String ATTR_OWNER_NAME = "keyOwnerName";
     public static final String ATTR_PRIVATE_KEY_DATA = "privateKey";
     public static final String ATTR_PUBLIC_KEY_DATA = "publicKey";
+    public static final String ATTR_PUBLIC_KEY_FINGERPRINT = "publicKeyFingerprint";
     public static final String ATTR_DATE_OF_RECOVERY = "dateOfRecovery";
     public static final String ATTR_CREATE_TIME = "keyCreateTime";
     public static final String ATTR_MODIFY_TIME = "keyModifyTime";
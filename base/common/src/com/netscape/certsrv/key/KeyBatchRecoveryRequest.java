@@ -0,0 +1,178 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.certsrv.key;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import com.netscape.certsrv.dbs.keydb.KeyId;
+import com.netscape.certsrv.dbs.keydb.KeyIdAdapter;
+
+/**
+ * Request to retrieve multiple keys in a single recovery request.
+ * All keys are returned wrapped with the same session key.
+ */
+@XmlRootElement(name="KeyBatchRecoveryRequest")
+public class KeyBatchRecoveryRequest {
+
+    public static Marshaller marshaller;
+    public static Unmarshaller unmarshaller;
+
+    static {
+        try {
+            JAXBContext context = JAXBContext.newInstance(KeyBatchRecoveryRequest.class);
+            marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            unmarshaller = context.createUnmarshaller();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    Collection<KeyId> keyIds = new ArrayList<KeyId>();
+    String transWrappedSessionKey;
+    String payloadEncryptionOID;
+    String payloadWrappingName;
+
+    @XmlElement(name="KeyId")
+    @XmlJavaTypeAdapter(KeyIdAdapter.class)
+    public Collection<KeyId> getKeyIds() {
+        return keyIds;
+    }
+
+    public void setKeyIds(Collection<KeyId> keyIds) {
+        this.keyIds.clear();
+        if (keyIds == null) return;
+        this.keyIds.addAll(keyIds);
+    }
+
+    public void addKeyId(KeyId keyId) {
+        keyIds.add(keyId);
+    }
+
+    /**
+     * @return the session key wrapped with the transport certificate
+     */
+    @XmlElement
+    public String getTransWrappedSessionKey() {
+        return transWrappedSessionKey;
+    }
+
+    public void setTransWrappedSessionKey(String transWrappedSessionKey) {
+        this.transWrappedSessionKey = transWrappedSessionKey;
+    }
+
+    @XmlElement
+    public String getPayloadEncryptionOID() {
+        return payloadEncryptionOID;
+    }
+
+    public void setPayloadEncryptionOID(String payloadEncryptionOID) {
+        this.payloadEncryptionOID = payloadEncryptionOID;
+    }
+
+    @XmlElement
+    public String getPayloadWrappingName() {
+        return payloadWrappingName;
+    }
+
+    public void setPayloadWrappingName(String payloadWrappingName) {
+        this.payloadWrappingName = payloadWrappingName;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((keyIds == null) ? 0 : keyIds.hashCode());
+        result = prime * result + ((payloadEncryptionOID == null) ? 0 : payloadEncryptionOID.hashCode());
+        result = prime * result + ((payloadWrappingName == null) ? 0 : payloadWrappingName.hashCode());
+        result = prime * result + ((transWrappedSessionKey == null) ? 0 : transWrappedSessionKey.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        KeyBatchRecoveryRequest other = (KeyBatchRecoveryRequest) obj;
+        if (keyIds == null) {
+            if (other.keyIds != null)
+                return false;
+        } else if (!keyIds.equals(other.keyIds))
+            return false;
+        if (payloadEncryptionOID == null) {
+            if (other.payloadEncryptionOID != null)
+                return false;
+        } else if (!payloadEncryptionOID.equals(other.payloadEncryptionOID))
+            return false;
+        if (payloadWrappingName == null) {
+            if (other.payloadWrappingName != null)
+                return false;
+        } else if (!payloadWrappingName.equals(other.payloadWrappingName))
+            return false;
+        if (transWrappedSessionKey == null) {
+            if (other.transWrappedSessionKey != null)
+                return false;
+        } else if (!transWrappedSessionKey.equals(other.transWrappedSessionKey))
+            return false;
+        return true;
+    }
+
+    public String toJSON() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setAnnotationIntrospector(new JaxbAnnotationIntrospector(mapper.getTypeFactory()));
+        mapper.setSerializationInclusion(Include.NON_NULL);
+        return mapper.writeValueAsString(this);
+    }
+
+    public String toString() {
+        try {
+            StringWriter sw = new StringWriter();
+            marshaller.marshal(this, sw);
+            return sw.toString();
+
+        } catch (Exception e) {
+            return super.toString();
+        }
+    }
+
+    public static KeyBatchRecoveryRequest valueOf(String string) throws Exception {
+        try {
+            return (KeyBatchRecoveryRequest)unmarshaller.unmarshal(new StringReader(string));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
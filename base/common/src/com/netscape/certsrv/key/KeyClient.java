@@ -22,7 +22,9 @@ import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.core.Response;
 
@@ -218,6 +220,13 @@ public class KeyClient extends Client {
         return client.getEntity(response, KeyRequestInfo.class);
     }
 
+    /**
+     * Asynchronous version of getRequestInfo().
+     */
+    public CompletableFuture<KeyRequestInfo> getRequestInfoAsync(RequestId id) {
+        return submit(() -> getRequestInfo(id));
+    }
+
     /**
      * Get the info in the KeyRecord for a specific secret in the DRM.
      *
@@ -232,6 +241,13 @@ public class KeyClient extends Client {
         return client.getEntity(response, KeyInfo.class);
     }
 
+    /**
+     * Asynchronous version of getKeyInfo().
+     */
+    public CompletableFuture<KeyInfo> getKeyInfoAsync(KeyId id) {
+        return submit(() -> getKeyInfo(id));
+    }
+
     /**
      * Get the info in the KeyRecord for the active secret in the DRM.
      *
@@ -245,6 +261,13 @@ public class KeyClient extends Client {
         return client.getEntity(response, KeyInfo.class);
     }
 
+    /**
+     * Asynchronous version of getActiveKeyInfo().
+     */
+    public CompletableFuture<KeyInfo> getActiveKeyInfoAsync(String clientKeyID) {
+        return submit(() -> getActiveKeyInfo(clientKeyID));
+    }
+
     /**
      * Modify the status of a key
      *
@@ -383,6 +406,13 @@ public class KeyClient extends Client {
         return client.getEntity(response, KeyData.class);
     }
 
+    /**
+     * Asynchronous version of retrieveKeyData().
+     */
+    public CompletableFuture<KeyData> retrieveKeyDataAsync(KeyRecoveryRequest data) {
+        return submit(() -> retrieveKeyData(data));
+    }
+
     public SymmetricKey generateSessionKey() throws Exception {
         return crypto.generateSessionKey(encryptAlgorithm);
     }
@@ -520,6 +550,65 @@ public class KeyClient extends Client {
         return retrieveKeyData(recoveryRequest);
     }
 
+    /**
+     * Asynchronous version of retrieveKey(). The same session key
+     * can be used to retrieve multiple keys.
+     */
+    public CompletableFuture<KeyData> retrieveKeyAsync(KeyId keyId, byte[] transWrappedSessionKey) {
+        return submit(() -> retrieveKey(keyId, transWrappedSessionKey));
+    }
+
+    /**
+     * Retrieve multiple secrets from the DRM in a single recovery request.
+     *
+     * All secrets are returned wrapped with the same session key, so the
+     * session key only needs to be wrapped with the transport certificate
+     * once. The KeyData objects are returned with the key ID set.
+     *
+     * @param keyIds -- key ids for the secrets
+     * @param transWrappedSessionKey -- session key wrapped by the transport cert.
+     * @return A collection of KeyData objects containing the wrapped secrets.
+     */
+    public KeyDataCollection retrieveKeys(Collection<KeyId> keyIds, byte[] transWrappedSessionKey) throws Exception {
+
+        logger.info("Retrieving " + keyIds.size() + " keys with session key wrapped by transport certificate");
+
+        if (keyIds.isEmpty()) {
+            throw new IllegalArgumentException("KeyIds must be specified.");
+        }
+
+        if (transWrappedSessionKey == null) {
+            throw new IllegalArgumentException("A transport cert wrapped session key cannot be null.");
+        }
+
+        KeyBatchRecoveryRequest recoveryRequest = new KeyBatchRecoveryRequest();
+        recoveryRequest.setKeyIds(keyIds);
+        recoveryRequest.setTransWrappedSessionKey(Utils.base64encode(transWrappedSessionKey, false));
+        recoveryRequest.setPayloadEncryptionOID(getEncryptAlgorithmOID());
+        recoveryRequest.setPayloadWrappingName(getWrapAlgorithmName());
+
+        return retrieveKeyData(recoveryRequest);
+    }
+
+    /**
+     * Retrieve multiple secrets from the DRM in a single recovery request.
+     *
+     * @param data -- a KeyBatchRecoveryRequest containing the key ids and
+     *            the wrapping mechanism.
+     * @return A collection of KeyData objects containing the wrapped secrets.
+     */
+    public KeyDataCollection retrieveKeyData(KeyBatchRecoveryRequest data) throws Exception {
+
+        if (data == null) {
+            throw new IllegalArgumentException("A KeyBatchRecoveryRequest object must be specified");
+        }
+
+        logger.info("Submitting batch key retrieval request to KRA");
+
+        Response response = keyClient.retrieveKeys(data);
+        return client.getEntity(response, KeyDataCollection.class);
+    }
+
     /**
      *
      * The secret is secured in transit by wrapping the secret with the passphrase using
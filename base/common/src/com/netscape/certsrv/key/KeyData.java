@@ -36,6 +36,8 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import com.netscape.certsrv.dbs.keydb.KeyId;
+import com.netscape.certsrv.dbs.keydb.KeyIdAdapter;
 import com.netscape.certsrv.request.RequestId;
 import com.netscape.certsrv.request.RequestIdAdapter;
 
@@ -84,6 +86,11 @@ public class KeyData {
     @XmlElement
     String publicKey;
 
+    // only set in batch retrievals
+    @XmlElement
+    @XmlJavaTypeAdapter(KeyIdAdapter.class)
+    KeyId keyID;
+
     public KeyData() {
         // required for JAXB (defaults)
     }
@@ -229,6 +236,18 @@ public class KeyData {
         this.publicKey = publicKey;
     }
 
+    /**
+     * ID of the retrieved key, only set in batch retrievals
+     * @return key id
+     */
+    public KeyId getKeyID() {
+        return keyID;
+    }
+
+    public void setKeyID(KeyId keyID) {
+        this.keyID = keyID;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -237,6 +256,7 @@ public class KeyData {
                 + ((additionalWrappedPrivateData == null) ? 0 : additionalWrappedPrivateData.hashCode());
         result = prime * result + ((algorithm == null) ? 0 : algorithm.hashCode());
         result = prime * result + ((encryptAlgorithmOID == null) ? 0 : encryptAlgorithmOID.hashCode());
+        result = prime * result + ((keyID == null) ? 0 : keyID.hashCode());
         result = prime * result + ((nonceData == null) ? 0 : nonceData.hashCode());
         result = prime * result + ((p12Data == null) ? 0 : p12Data.hashCode());
         result = prime * result + ((publicKey == null) ? 0 : publicKey.hashCode());
@@ -272,6 +292,11 @@ public class KeyData {
                 return false;
         } else if (!encryptAlgorithmOID.equals(other.encryptAlgorithmOID))
             return false;
+        if (keyID == null) {
+            if (other.keyID != null)
+                return false;
+        } else if (!keyID.equals(other.keyID))
+            return false;
         if (nonceData == null) {
             if (other.nonceData != null)
                 return false;
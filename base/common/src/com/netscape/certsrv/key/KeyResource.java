@@ -53,6 +53,14 @@ public interface KeyResource {
     @Path("retrieve")
     public Response retrieveKey(KeyRecoveryRequest data);
 
+    /**
+     * Used to retrieve multiple keys with a single session key
+     * @param data
+     */
+    @POST
+    @Path("retrieve-batch")
+    public Response retrieveKeys(KeyBatchRecoveryRequest data);
+
     // retrieval - used to test integration with a browser
     @POST
     @Path("retrieve")
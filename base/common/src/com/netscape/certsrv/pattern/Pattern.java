@@ -17,7 +17,9 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.certsrv.pattern;
 
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IAttrSet;
@@ -39,13 +41,62 @@ public class Pattern {
 
     private String mS = null;
 
+    // the pattern split into literals and $key.name$ tokens:
+    // mLiterals[0] mKeys[0].mNames[0] mLiterals[1] ... mLiterals[n],
+    // or null if the pattern is malformed
+    private String[] mLiterals;
+    private String[] mKeys;
+    private String[] mNames;
+
     /**
      * Constructs a pattern object with the given string.
+     * The pattern is parsed once so the object can be reused
+     * to substitute different attribute sets.
      *
      * @param s string with pattern (i.e. $request.requestor_email$)
      */
     public Pattern(String s) {
         mS = s;
+        compile();
+    }
+
+    private void compile() {
+
+        List<String> literals = new ArrayList<String>();
+        List<String> keys = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+
+        int startPos = 0;
+
+        while (true) {
+            int lastPos = mS.indexOf('$', startPos);
+
+            if (lastPos == -1) {
+                literals.add(mS.substring(startPos));
+                break;
+            }
+
+            int endPos = mS.indexOf('$', lastPos + 1);
+            if (endPos == -1) {
+                return; // unterminated token
+            }
+
+            String token = mS.substring(lastPos + 1, endPos);
+            int dotPos = token.indexOf('.');
+            if (dotPos == -1) {
+                return; // token without attribute set key
+            }
+
+            literals.add(mS.substring(startPos, lastPos));
+            keys.add(token.substring(0, dotPos));
+            names.add(token.substring(dotPos + 1));
+
+            startPos = endPos + 1;
+        }
+
+        mLiterals = literals.toArray(new String[literals.size()]);
+        mKeys = keys.toArray(new String[keys.size()]);
+        mNames = names.toArray(new String[names.size()]);
     }
 
     /**
@@ -96,6 +147,50 @@ public class Pattern {
      * @return substituted string
      */
     public String substitute2(String key, IAttrSet attrSet) {
+
+        if (mKeys == null) {
+            return substituteUncompiled(key, attrSet);
+        }
+
+        if (mKeys.length == 0) {
+            return mS;
+        }
+
+        StringBuilder sb = new StringBuilder(mS.length() + 32);
+
+        for (int i = 0; i < mKeys.length; i++) {
+            sb.append(mLiterals[i]);
+
+            String attrKey = mKeys[i];
+            String attrName = mNames[i];
+
+            if (!key.equals(attrKey)) {
+                sb.append('$').append(attrKey).append('.').append(attrName).append('$');
+                continue;
+            }
+
+            try {
+                Object o = attrSet.get(attrName);
+
+                if (!(o instanceof String)) {
+                    // if no such attrName, copy the token pattern over
+                    sb.append('$').append(attrKey).append('.').append(attrName).append('$');
+                    continue;
+                }
+                sb.append((String) o);
+            } catch (EBaseException e) {
+                sb.append('$').append(attrKey).append('.').append(attrName).append('$');
+            }
+        }
+
+        sb.append(mLiterals[mKeys.length]);
+        return sb.toString();
+    }
+
+    /**
+     * Subtitutes a pattern that could not be parsed in advance.
+     */
+    private String substituteUncompiled(String key, IAttrSet attrSet) {
         StringBuffer sb = new StringBuffer();
 
         int startPos = 0;
@@ -148,6 +148,7 @@ public interface IRequest extends Serializable {
     // revocation request attributes (internally set)
     public static final String REVOKED_CERTS = "revokedCerts";
     public static final String REVOKED_REASON = "revocationReason";
+    public static final String REVOKED_UPDATE_CRL = "revocationUpdateCRL";
     // CCA -> CLA request attributes
     public static final String REVOKED_CERT_RECORDS = "revokedCertRecs";
     // crl update status after a revocation.
@@ -173,6 +174,11 @@ public interface IRequest extends Serializable {
     //Security Data request attributes
     public static final String SECURITY_DATA_ENROLLMENT_REQUEST = "securityDataEnrollment";
     public static final String SECURITY_DATA_RECOVERY_REQUEST = "securityDataRecovery";
+    public static final String SECURITY_DATA_BATCH_RECOVERY_REQUEST = "securityDataBatchRecovery";
+    public static final String SECURITY_DATA_BATCH_KEY_IDS = "keyIds";
+    public static final String SECURITY_DATA_BATCH_RESULTS = "batchResults";
+    public static final String SECURITY_DATA_ERROR = "error";
+    public static final String SECURITY_DATA_PUBLIC_KEY = "publicKey";
     public static final String SECURITY_DATA_CLIENT_KEY_ID = "clientKeyID";
     public static final String SECURITY_DATA_STRENGTH = "strength";
     public static final String SECURITY_DATA_ALGORITHM = "algorithm";
@@ -102,7 +102,9 @@ public interface IRequestNotifier extends INotify {
      * Removes a notifier thread from the pool of publishing queue threads.
      *
      * @param notifierThread Thread
+     * @deprecated Publishing threads are managed by the request notifier.
      */
+    @Deprecated
     public void removeNotifierThread(Thread notifierThread);
 
     /**
@@ -0,0 +1,104 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.certsrv.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets.
+ *
+ * Values below 32 have their own bucket. Larger values are stored in
+ * 32 buckets per power of two, so recorded values are accurate within
+ * about 3%. Values up to 2^36 (about 19 hours in microseconds) are
+ * stored, larger values are stored in the last bucket.
+ *
+ * Buckets are updated independently, so a percentile computed during
+ * concurrent updates may not include the most recent values.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_BITS = 36;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private static final int BUCKETS = getIndex(MAX_VALUE) + 1;
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    static int getIndex(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest value stored in a bucket.
+     */
+    static long getValue(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long subBucket = index - (shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts.incrementAndGet(getIndex(value));
+    }
+
+    /**
+     * Returns the value at the given percentile.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return the value, or -1 if no values have been recorded
+     */
+    public long getPercentile(double percentile) {
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return -1;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += snapshot[i];
+            if (count >= rank) {
+                return getValue(i);
+            }
+        }
+
+        return MAX_VALUE;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+}
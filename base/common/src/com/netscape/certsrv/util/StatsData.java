@@ -0,0 +1,206 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.certsrv.util;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Statistics of an operation and its sub-operations.
+ *
+ * Times are in microseconds.
+ */
+@XmlRootElement(name="Stats")
+@XmlAccessorType(XmlAccessType.NONE)
+public class StatsData {
+
+    String name;
+    Date startTime;
+    Long operations;
+    Long totalTime;
+    Long minTime;
+    Long maxTime;
+    Long avgTime;
+    Long p50;
+    Long p99;
+    Long p999;
+    List<StatsData> events = new ArrayList<StatsData>();
+
+    @XmlAttribute(name="name")
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @XmlElement(name="StartTime")
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    @XmlElement(name="Operations")
+    public Long getOperations() {
+        return operations;
+    }
+
+    public void setOperations(Long operations) {
+        this.operations = operations;
+    }
+
+    @XmlElement(name="TotalTime")
+    public Long getTotalTime() {
+        return totalTime;
+    }
+
+    public void setTotalTime(Long totalTime) {
+        this.totalTime = totalTime;
+    }
+
+    @XmlElement(name="MinTime")
+    public Long getMinTime() {
+        return minTime;
+    }
+
+    public void setMinTime(Long minTime) {
+        this.minTime = minTime;
+    }
+
+    @XmlElement(name="MaxTime")
+    public Long getMaxTime() {
+        return maxTime;
+    }
+
+    public void setMaxTime(Long maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    @XmlElement(name="AvgTime")
+    public Long getAvgTime() {
+        return avgTime;
+    }
+
+    public void setAvgTime(Long avgTime) {
+        this.avgTime = avgTime;
+    }
+
+    @XmlElement(name="P50")
+    public Long getP50() {
+        return p50;
+    }
+
+    public void setP50(Long p50) {
+        this.p50 = p50;
+    }
+
+    @XmlElement(name="P99")
+    public Long getP99() {
+        return p99;
+    }
+
+    public void setP99(Long p99) {
+        this.p99 = p99;
+    }
+
+    @XmlElement(name="P999")
+    public Long getP999() {
+        return p999;
+    }
+
+    public void setP999(Long p999) {
+        this.p999 = p999;
+    }
+
+    @XmlElement(name="Event")
+    public List<StatsData> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<StatsData> events) {
+        this.events = events;
+    }
+
+    public void addEvent(StatsData event) {
+        events.add(event);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, startTime, operations, totalTime, minTime, maxTime, avgTime,
+                p50, p99, p999, events);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        StatsData other = (StatsData) obj;
+        return Objects.equals(name, other.name)
+                && Objects.equals(startTime, other.startTime)
+                && Objects.equals(operations, other.operations)
+                && Objects.equals(totalTime, other.totalTime)
+                && Objects.equals(minTime, other.minTime)
+                && Objects.equals(maxTime, other.maxTime)
+                && Objects.equals(avgTime, other.avgTime)
+                && Objects.equals(p50, other.p50)
+                && Objects.equals(p99, other.p99)
+                && Objects.equals(p999, other.p999)
+                && Objects.equals(events, other.events);
+    }
+
+    public String toString() {
+        try {
+            Marshaller marshaller = JAXBContext.newInstance(StatsData.class).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+
+            StringWriter sw = new StringWriter();
+            marshaller.marshal(this, sw);
+            return sw.toString();
+
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static StatsData valueOf(String string) throws Exception {
+        Unmarshaller unmarshaller = JAXBContext.newInstance(StatsData.class).createUnmarshaller();
+        return (StatsData)unmarshaller.unmarshal(new StringReader(string));
+    }
+}
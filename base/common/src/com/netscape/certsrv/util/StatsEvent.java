@@ -18,25 +18,36 @@
 package com.netscape.certsrv.util;
 
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A statistics transaction.
  * <P>
+ * The counters are striped lock-free accumulators, so timings can be
+ * recorded concurrently without blocking. Times are stored in
+ * microseconds and are also recorded in a latency histogram. The
+ * legacy getters return times in milliseconds.
+ * <P>
+ * Resetting the counters while timings are being recorded may leave
+ * the counters of those timings partially reset.
  *
  * @author thomask
  * @version $Revision$, $Date$
  */
 public class StatsEvent {
     private String mName = null;
-    private long mMin = -1;
-    private long mMax = -1;
-    private long mTimeTaken = 0;
-    private long mTimeTakenSqSum = 0;
-    private long mNoOfOperations = 0;
-    private Map<String,StatsEvent> mSubEvents = new HashMap<String,StatsEvent>();
+    private LongAccumulator mMin = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private LongAccumulator mMax = new LongAccumulator(Math::max, -1);
+    private LongAdder mTimeTaken = new LongAdder();
+    private DoubleAdder mTimeTakenSqSum = new DoubleAdder();
+    private LongAdder mNoOfOperations = new LongAdder();
+    private LatencyHistogram mHistogram = new LatencyHistogram();
+    private Map<String,StatsEvent> mSubEvents = new ConcurrentHashMap<String,StatsEvent>();
     private StatsEvent mParent = null;
 
     public StatsEvent(StatsEvent parent) {
@@ -58,6 +69,17 @@ public class StatsEvent {
         mSubEvents.put(st.getName(), st);
     }
 
+    /**
+     * Retrieves a sub transaction, creating it if it does not exist.
+     */
+    public StatsEvent getOrCreateSubEvent(String name) {
+        return mSubEvents.computeIfAbsent(name, n -> {
+            StatsEvent st = new StatsEvent(this);
+            st.setName(n);
+            return st;
+        });
+    }
+
     /**
      * Retrieves a list of sub transaction names.
      */
@@ -75,89 +97,143 @@ public class StatsEvent {
     }
 
     public void resetCounters() {
-        mMin = -1;
-        mMax = -1;
-        mNoOfOperations = 0;
-        mTimeTaken = 0;
-        mTimeTakenSqSum = 0;
+        mMin.reset();
+        mMax.reset();
+        mNoOfOperations.reset();
+        mTimeTaken.reset();
+        mTimeTakenSqSum.reset();
+        mHistogram.reset();
         for (StatsEvent c : mSubEvents.values()) {
                 c.resetCounters();
         }
     }
 
     public long getMax() {
-        return mMax;
+        long max = getMaxMicros();
+        return max < 0 ? -1 : max / 1000;
     }
 
     public long getMin() {
-        return mMin;
+        long min = getMinMicros();
+        return min < 0 ? -1 : min / 1000;
+    }
+
+    /**
+     * Retrieves the longest time in microseconds, or -1 if there
+     * are no timings.
+     */
+    public long getMaxMicros() {
+        return mMax.get();
+    }
+
+    /**
+     * Retrieves the shortest time in microseconds, or -1 if there
+     * are no timings.
+     */
+    public long getMinMicros() {
+        long min = mMin.get();
+        return min == Long.MAX_VALUE ? -1 : min;
     }
 
     public void incNoOfOperations(long c) {
-        mNoOfOperations += c;
+        mNoOfOperations.add(c);
     }
 
     public long getTimeTakenSqSum() {
-        return mTimeTakenSqSum;
+        return (long) (mTimeTakenSqSum.sum() / 1000000);
     }
 
     public long getPercentage() {
-        if (mParent == null || mParent.getTimeTaken() == 0) {
+        if (mParent == null || mParent.getTimeTakenMicros() == 0) {
             return 100;
         } else {
-            return (mTimeTaken * 100 / mParent.getTimeTaken());
+            return (getTimeTakenMicros() * 100 / mParent.getTimeTakenMicros());
         }
     }
 
     public long getStdDev() {
-        if (getNoOfOperations() == 0) {
+        long n = getNoOfOperations();
+        if (n == 0) {
             return 0;
         } else {
-            long a = getTimeTakenSqSum();
-            long b = (-2 * getAvg() * getTimeTaken());
-            long c = getAvg() * getAvg() * getNoOfOperations();
-            return (long) Math.sqrt(((double) (a + b + c)) / getNoOfOperations());
+            double avg = (double) getTimeTakenMicros() / n;
+            double variance = mTimeTakenSqSum.sum() / n - avg * avg;
+            return (long) (Math.sqrt(Math.max(0, variance)) / 1000);
         }
     }
 
     public long getAvg() {
-        if (mNoOfOperations == 0) {
+        long avg = getAvgMicros();
+        return avg < 0 ? -1 : avg / 1000;
+    }
+
+    /**
+     * Retrieves the average time in microseconds, or -1 if there
+     * are no operations.
+     */
+    public long getAvgMicros() {
+        long n = getNoOfOperations();
+        if (n == 0) {
             return -1;
         } else {
-            return mTimeTaken / mNoOfOperations;
+            return getTimeTakenMicros() / n;
         }
     }
 
+    /**
+     * Retrieves the time in microseconds below which the given
+     * percentage of the timings fall.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return the time, or -1 if there are no timings
+     */
+    public long getPercentile(double percentile) {
+        return mHistogram.getPercentile(percentile);
+    }
+
     /**
      * Retrieves number of operations performed.
      */
     public long getNoOfOperations() {
-        return mNoOfOperations;
+        return mNoOfOperations.sum();
     }
 
+    /**
+     * Records the time of an operation in milliseconds.
+     */
     public void incTimeTaken(long c) {
-        if (mMin == -1) {
-            mMin = c;
-        } else {
-            if (c < mMin) {
-                mMin = c;
-            }
-        }
-        if (mMax == -1) {
-            mMax = c;
-        } else {
-            if (c > mMax) {
-                mMax = c;
-            }
-        }
-        mTimeTaken += c;
-        mTimeTakenSqSum += (c * c);
+        recordTime(c * 1000);
+    }
+
+    /**
+     * Records a completed operation.
+     *
+     * @param micros time taken in microseconds
+     */
+    public void addTiming(long micros) {
+        mNoOfOperations.increment();
+        recordTime(micros);
+    }
+
+    private void recordTime(long micros) {
+        mMin.accumulate(micros);
+        mMax.accumulate(micros);
+        mTimeTaken.add(micros);
+        mTimeTakenSqSum.add((double) micros * micros);
+        mHistogram.record(micros);
     }
 
     /**
      * Retrieves total time token in msec.
      */
     public long getTimeTaken() {
-        return mTimeTaken;
+        return getTimeTakenMicros() / 1000;
+    }
+
+    /**
+     * Retrieves total time taken in microseconds.
+     */
+    public long getTimeTakenMicros() {
+        return mTimeTaken.sum();
     }
 }
@@ -28,6 +28,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
 import java.math.BigInteger;
 import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
@@ -35,11 +37,23 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.Calendar;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.PatternSyntaxException;
 
 import org.mozilla.jss.CertDatabaseException;
@@ -411,6 +425,8 @@ import com.netscape.cmsutil.crypto.CryptoUtil;
  *    [-source_kra_naming_context '&lt;original source KRA naming context&gt;']
  *    [-target_kra_naming_context '&lt;renamed target KRA naming context&gt;']
  *    [-process_requests_and_key_records_only]
+ *    [-rewrap_threads &lt;number of threads&gt;]
+ *    [-checkpoint_file &lt;path + checkpoint file&gt;]
  *
  *    where the following options are 'Mandatory':
  *
@@ -489,6 +505,17 @@ import com.netscape.cmsutil.crypto.CryptoUtil;
  *
  *        NOTE:  Options (b) and (c) are mutually exclusive!
  *
+ *    AND OPTIONALLY, with any of the above, convert LDIF records using
+ *    several threads (useful when rewrapping many keys):
+ *
+ *        [-rewrap_threads &lt;number of threads&gt;]
+ *
+ *    AND OPTIONALLY, save the progress of the conversion so that an
+ *    interrupted conversion can be resumed by running KRATool again
+ *    with the same arguments:
+ *
+ *        [-checkpoint_file &lt;path + checkpoint file&gt;]
+ *
  * </PRE>
  *
  * @author mharmsen
@@ -690,6 +717,18 @@ public class KRATool {
 
     private static final String KEY_UNWRAP_ALGORITHM_DESCRIPTION = "  <key unwrap algorithm> (default: DES3)";
 
+    // Constants:  Command-line Options (Pipeline)
+    private static final String REWRAP_THREADS = "-rewrap_threads";
+
+    private static final String REWRAP_THREADS_DESCRIPTION = "  <number of threads converting "
+                               + "LDIF records> (default: 1)";
+
+    private static final String CHECKPOINT_FILE = "-checkpoint_file";
+
+    private static final String CHECKPOINT_FILE_DESCRIPTION = "  <complete path to the checkpoint "
+                                + "file used to resume an interrupted "
+                                + "conversion>";
+
     // Constants:  KRATOOL Config File
     private static final String KRATOOL_CFG_PREFIX = "kratool.ldif";
     private static final String KRATOOL_CFG_ENROLLMENT = "caEnrollmentRequest";
@@ -931,6 +970,13 @@ public class KRATool {
     private static final String KRA_LDIF_TPS_KEY_RECORD = "TPS";
     private static final String KRA_LDIF_KEYRECOVERY = "netkeyKeyRecovery";
 
+    // Constants:  KRA LDIF Pipeline
+    private static final int PIPELINE_RECORDS_PER_THREAD = 16;
+    private static final int CHECKPOINT_INTERVAL = 1000; // records
+    private static final long PROGRESS_INTERVAL = 10000; // milliseconds
+    private static final String CHECKPOINT_RECORDS = "records";
+    private static final String CHECKPOINT_OFFSET = "offset";
+
     // Constants:  KRA LDIF Record Messages
     private static final String KRA_LDIF_REWRAP_MESSAGE = "REWRAPPED the '"
                                                          + "existing "
@@ -1002,9 +1048,21 @@ public class KRATool {
     // Variables:  KRATOOL Config File Parameters of Interest
     private static Hashtable<String, Boolean> kratoolCfg = null;
 
+    // Variables: Command-Line Values (Pipeline)
+    private static int mRewrapThreads = 1;
+    private static String mCheckpointFilename = null;
+    private static boolean mResumeFlag = false;
+
     // Variables:  KRATOOL LDIF File Parameters of Interest
-    private static Vector<String> record = null;
-    private static Iterator<String> ldif_record = null;
+    //             (the LDIF record being converted by each thread)
+    private static ThreadLocal<Iterator<String>> ldif_record =
+            new ThreadLocal<Iterator<String>>();
+
+    // Variables:  KRATOOL LDIF Conversion Progress
+    private static long mRecordsSkipped = 0;
+    private static long mRecordsWritten = 0;
+    private static long mConversionStartTime = 0;
+    private static long mLastProgressTime = 0;
 
     // Variables:  Logging
     private static boolean mDebug = false; // set 'true' for debug messages
@@ -1017,6 +1075,12 @@ public class KRATool {
     private static PrivateKey mUnwrapPrivateKey = null;
     private static PublicKey mWrapPublicKey = null;
     private static int mPublicKeySize = 0;
+
+    // Variables:  PKCS #11 Key Wrappers (one of each per converting thread)
+    private static ThreadLocal<KeyWrapper> mSourceRSAWrapper =
+            new ThreadLocal<KeyWrapper>();
+    private static ThreadLocal<KeyWrapper> mTargetRSAWrapper =
+            new ThreadLocal<KeyWrapper>();
     private static SymmetricKey.Type keyUnwrapAlgorithm = SymmetricKey.DES3;
 
     // Variables:  KRA LDIF Record Messages
@@ -1161,6 +1225,22 @@ public class KRATool {
                           + "["
                           + PROCESS_REQUESTS_AND_KEY_RECORDS_ONLY
                           + "]"
+                          + NEWLINE
+                          + "        "
+                          + "["
+                          + REWRAP_THREADS
+                          + NEWLINE
+                          + "        "
+                          + REWRAP_THREADS_DESCRIPTION
+                          + "]"
+                          + NEWLINE
+                          + "        "
+                          + "["
+                          + CHECKPOINT_FILE
+                          + NEWLINE
+                          + "        "
+                          + CHECKPOINT_FILE_DESCRIPTION
+                          + "]"
                           + NEWLINE);
 
         System.out.println("Example of 'Rewrap and Append ID Offset':"
@@ -1375,7 +1455,7 @@ public class KRATool {
         try {
             logger = new PrintWriter(
                          new BufferedWriter(
-                                 new FileWriter(logfile)));
+                                 new FileWriter(logfile, mResumeFlag)));
         } catch (IOException eFile) {
             System.err.println("ERROR:  Unable to open file '"
                               + logfile
@@ -1405,7 +1485,7 @@ public class KRATool {
      * @param msg string containing the message to be written to the log file
      * @param stderr boolean which also writes the message to 'stderr' if 'true'
      */
-    private static void log(String msg, boolean stderr) {
+    private static synchronized void log(String msg, boolean stderr) {
         current_date_and_time = now(LOGGING_DATE_PATTERN);
         if (stderr) {
             System.err.println(msg);
@@ -1888,8 +1968,7 @@ public class KRATool {
             source_session = dSession.getOctetString();
             dPri = in.getDerValue();
             pri = dPri.getOctetString();
-            source_rsaWrap = mSourceToken.getKeyWrapper(
-                                 KeyWrapAlgorithm.RSA);
+            source_rsaWrap = get_rsa_key_wrapper(mSourceRSAWrapper);
             source_rsaWrap.initUnwrap(mUnwrapPrivateKey, null);
             sk = source_rsaWrap.unwrapSymmetric(source_session,
                                                  keyUnwrapAlgorithm,
@@ -1958,8 +2037,7 @@ public class KRATool {
         // throws EBaseException
         try (DerOutputStream out = new DerOutputStream()) {
             // Use "mSourceToken" to get "KeyWrapAlgorithm.RSA"
-            target_rsaWrap = mSourceToken.getKeyWrapper(
-                                 KeyWrapAlgorithm.RSA);
+            target_rsaWrap = get_rsa_key_wrapper(mTargetRSAWrapper);
             target_rsaWrap.initWrap(mWrapPublicKey, null);
             target_session = target_rsaWrap.wrap(sk);
 
@@ -2017,6 +2095,27 @@ public class KRATool {
         return rewrappedKeyData;
     }
 
+    /**
+     * Helper method used to obtain the RSA key wrapper of the calling
+     * thread, since a key wrapper must not be shared between the threads
+     * converting LDIF records.
+     * <P>
+     *
+     * @param wrappers the key wrappers of each thread
+     * @return the RSA key wrapper of the calling thread
+     * @throws NoSuchAlgorithmException if RSA key wrapping is unsupported
+     */
+    private static KeyWrapper get_rsa_key_wrapper(
+            ThreadLocal<KeyWrapper> wrappers)
+            throws NoSuchAlgorithmException {
+        KeyWrapper wrapper = wrappers.get();
+        if (wrapper == null) {
+            wrapper = mSourceToken.getKeyWrapper(KeyWrapAlgorithm.RSA);
+            wrappers.set(wrapper);
+        }
+        return wrapper;
+    }
+
     /**
      * Helper method used to remove all EOLs ('\n' and '\r')
      * from the passed in string.
@@ -2924,7 +3023,7 @@ public class KRATool {
                     ).trim());
         }
 
-        while ((line = ldif_record.next()) != null) {
+        while ((line = ldif_record.get().next()) != null) {
             if (line.startsWith(SPACE)) {
                 // Do NOT use "trim()";
                 // remove single leading space and
@@ -4125,7 +4224,7 @@ public class KRATool {
                                 KRA_LDIF_PRIVATE_KEY_DATA.length() + 1
                                 ).trim());
 
-                        while ((line = ldif_record.next()) != null) {
+                        while ((line = ldif_record.get().next()) != null) {
                             if (line.startsWith(SPACE)) {
                                 data.append(line.trim());
                             } else {
@@ -4199,7 +4298,7 @@ public class KRATool {
                                    KRA_LDIF_PRIVATE_KEY_DATA.length() + 1
                                 ).trim());
 
-                        while ((line = ldif_record.next()) != null) {
+                        while ((line = ldif_record.get().next()) != null) {
                             if (line.startsWith(SPACE)) {
                                 data.append(line.trim());
                             } else {
@@ -4480,23 +4579,354 @@ public class KRATool {
         return output;
     }
 
+    /**
+     * This method converts a single LDIF record of the "source" LDIF file.
+     * It is called concurrently by the threads of the conversion pipeline,
+     * so it only writes to the returned string.
+     * <P>
+     *
+     * @param record the lines of the LDIF record including the empty line
+     *        which terminates it
+     * @param record_type the type of the LDIF record
+     * @return the converted LDIF record, or null if the conversion failed
+     */
+    private static String convert_ldif_record(Vector<String> record,
+                                              String record_type) {
+        StringWriter buffer = new StringWriter();
+        PrintWriter writer = new PrintWriter(buffer);
+        String line = null;
+        String previous_line = null;
+        String output = null;
+
+        ldif_record.set(record.iterator());
+
+        try {
+            // Process each line of the record:
+            //   * If LDIF Record Type for this line is 'valid'
+            //     * If KRATOOL Configuration File Parameter is 'true'
+            //       * Process this data
+            //     * Else If KRATOOL Configuration File Parameter is 'false'
+            //       * Pass through this data unchanged
+            //   * Else If LDIF Record Type for this line is 'invalid'
+            //     * Log error and leave method returning 'null'
+            while (ldif_record.get().hasNext()) {
+
+                line = ldif_record.get().next();
+
+                if (line.startsWith(KRA_LDIF_CN)) {
+                    output = output_cn(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_DATE_OF_MODIFY)) {
+                    output = output_date_of_modify(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_DN)) {
+                    output = output_dn(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_KEY_RECORD)) {
+                    output = output_extdata_key_record(record_type,
+                                                        line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_ID)) {
+                    output = output_extdata_request_id(record_type,
+                                                        line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_NOTES)) {
+                    output = output_extdata_request_notes(record_type,
+                                                           line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_TYPE)) {
+                    // if one is not already present,
+                    // compose and write out the missing
+                    // 'extdata_requestnotes' line
+                    if (previous_line != null) {
+                        create_extdata_request_notes(record_type,
+                                previous_line,
+                                writer);
+                    } else {
+                        return null;
+                    }
+
+                    // ALWAYS pass through the original
+                    // 'extdata-requesttype' line UNCHANGED
+                    // so that it is ALWAYS written
+                    output = line;
+                } else if (line.startsWith(KRA_LDIF_EXTDATA_SERIAL_NUMBER)) {
+                    output = output_extdata_serial_number(record_type,
+                                                           line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_PRIVATE_KEY_DATA)) {
+                    output = output_private_key_data(record_type,
+                                                      line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_REQUEST_ID)) {
+                    output = output_request_id(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (line.startsWith(KRA_LDIF_SERIAL_NO)) {
+                    output = output_serial_no(record_type, line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (previous_line != null &&
+                           previous_line.startsWith(
+                                   KRA_LDIF_EXTDATA_AUTH_TOKEN_USER)) {
+                    output = output_extdata_auth_token_user(record_type,
+                                                             line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else if (previous_line != null &&
+                           previous_line.startsWith(
+                                   KRA_LDIF_EXTDATA_AUTH_TOKEN_USER_DN)) {
+                    output = output_extdata_auth_token_user_dn(record_type,
+                                                                line);
+                    if (output == null) {
+                        return null;
+                    }
+                } else {
+                    // Pass through line unchanged
+                    output = line;
+                }
+
+                // Always save a copy of this line
+                previous_line = output;
+
+                // Always write out the output line
+                writer.write(output + NEWLINE);
+                System.out.print(".");
+            }
+            // Mark the end of the LDIF record
+            System.out.print("!");
+        } finally {
+            ldif_record.remove();
+        }
+
+        writer.flush();
+
+        return buffer.toString();
+    }
+
+    /**
+     * This method writes the next converted LDIF record to the "target"
+     * LDIF file, waiting for its conversion to complete if necessary,
+     * and saves a checkpoint every CHECKPOINT_INTERVAL records.
+     * <P>
+     *
+     * @param writer the "target" LDIF file
+     * @param converted_record the pending conversion of the LDIF record
+     * @return true if the LDIF record is successfully written
+     * @throws IOException if the checkpoint cannot be saved
+     */
+    private static boolean write_target_ldif_record(PrintWriter writer,
+            Future<String> converted_record) throws IOException {
+        String output = null;
+
+        try {
+            output = converted_record.get();
+        } catch (InterruptedException exInterrupted) {
+            Thread.currentThread().interrupt();
+            log("ERROR:  Interrupted while converting LDIF record!"
+                    + NEWLINE, true);
+            return FAILURE;
+        } catch (ExecutionException exExecution) {
+            log("ERROR:  Converting LDIF record - "
+                    + "Exception: '"
+                    + exExecution.getCause().toString()
+                    + "'"
+                    + NEWLINE, true);
+            return FAILURE;
+        }
+
+        if (output == null) {
+            return FAILURE;
+        }
+
+        writer.write(output);
+        mRecordsWritten++;
+
+        if (mCheckpointFilename != null &&
+                (mRecordsWritten % CHECKPOINT_INTERVAL) == 0) {
+            save_checkpoint(writer);
+        }
+
+        report_progress(false);
+
+        return SUCCESS;
+    }
+
+    /**
+     * This method logs the number of LDIF records converted so far and
+     * the conversion throughput, at most once every PROGRESS_INTERVAL
+     * milliseconds unless the conversion has finished.
+     * <P>
+     *
+     * @param finished true if the conversion has finished
+     */
+    private static void report_progress(boolean finished) {
+        long now = System.currentTimeMillis();
+        long converted = mRecordsWritten - mRecordsSkipped;
+        long elapsed = now - mConversionStartTime;
+
+        if (!finished && (now - mLastProgressTime) < PROGRESS_INTERVAL) {
+            return;
+        }
+        mLastProgressTime = now;
+
+        log("INFO:  Converted "
+                + converted
+                + " LDIF records in "
+                + (elapsed / 1000)
+                + " seconds ("
+                + (elapsed > 0 ? (converted * 1000 / elapsed) : converted)
+                + " records/second)"
+                + NEWLINE, finished);
+    }
+
+    /**
+     * This method saves the number of LDIF records written to the
+     * "target" LDIF file and the length of the "target" LDIF file,
+     * so that an interrupted conversion can be resumed.
+     * <P>
+     *
+     * @param writer the "target" LDIF file
+     * @throws IOException if the checkpoint cannot be saved
+     */
+    private static void save_checkpoint(PrintWriter writer)
+            throws IOException {
+        Properties checkpoint = new Properties();
+        Path checkpointFile = Paths.get(mCheckpointFilename);
+        Path tempFile = Paths.get(mCheckpointFilename + ".tmp");
+
+        writer.flush();
+        if (writer.checkError()) {
+            throw new IOException("Unable to write '"
+                                 + mTargetLdifFilename
+                                 + "'");
+        }
+
+        checkpoint.setProperty(CHECKPOINT_RECORDS,
+                               Long.toString(mRecordsWritten));
+        checkpoint.setProperty(CHECKPOINT_OFFSET,
+                               Long.toString(
+                                       new File(mTargetLdifFilename).length()));
+
+        // Replace the previous checkpoint atomically
+        try (PrintWriter out = new PrintWriter(
+                                   Files.newBufferedWriter(tempFile))) {
+            checkpoint.store(out, KRA_TOOL + " checkpoint");
+        }
+        Files.move(tempFile, checkpointFile,
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This method loads the checkpoint of an interrupted conversion and
+     * truncates the "target" LDIF file to the length it had when the
+     * checkpoint was saved, discarding any partially written records.
+     * <P>
+     *
+     * @return true if the checkpoint is successfully loaded
+     */
+    private static boolean load_checkpoint() {
+        Properties checkpoint = new Properties();
+        long offset = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(
+                                     Paths.get(mCheckpointFilename))) {
+            checkpoint.load(in);
+            mRecordsSkipped = Long.parseLong(
+                                  checkpoint.getProperty(CHECKPOINT_RECORDS));
+            offset = Long.parseLong(
+                         checkpoint.getProperty(CHECKPOINT_OFFSET));
+        } catch (IOException | RuntimeException exCheckpoint) {
+            log("ERROR:  Unable to load checkpoint file '"
+                    + mCheckpointFilename
+                    + "': '"
+                    + exCheckpoint.toString()
+                    + "'"
+                    + NEWLINE, true);
+            return FAILURE;
+        }
+
+        try (RandomAccessFile target = new RandomAccessFile(
+                                           mTargetLdifFilename, "rw")) {
+            if (target.length() < offset) {
+                log("ERROR:  '"
+                        + mTargetLdifFilename
+                        + "' is shorter than recorded in checkpoint file '"
+                        + mCheckpointFilename
+                        + "'!"
+                        + NEWLINE, true);
+                return FAILURE;
+            }
+            target.setLength(offset);
+        } catch (IOException exTarget) {
+            log("ERROR:  Unable to truncate '"
+                    + mTargetLdifFilename
+                    + "': '"
+                    + exTarget.toString()
+                    + "'"
+                    + NEWLINE, true);
+            return FAILURE;
+        }
+
+        log("INFO:  Resuming conversion after "
+                + mRecordsSkipped
+                + " LDIF records."
+                + NEWLINE, true);
+
+        return SUCCESS;
+    }
+
     /**
      * This method performs the actual parsing of the "source" LDIF file
      * and produces the "target" LDIF file.
      * <P>
      *
+     * The "source" LDIF file is read one LDIF record at a time.  Records
+     * are converted by a pool of REWRAP_THREADS threads, since rewrapping
+     * the private key data dominates the conversion time, and written to
+     * the "target" LDIF file in their original order.  At most
+     * PIPELINE_RECORDS_PER_THREAD records per thread are held in memory.
+     * <P>
+     *
+     * If a CHECKPOINT_FILE is specified, a checkpoint is saved periodically
+     * and when the conversion fails; if the checkpoint file exists when
+     * KRATool starts, the conversion resumes after the last checkpoint.
+     * <P>
+     *
      * @return true if the "target" LDIF file is successfully created
      */
     private static boolean convert_source_ldif_to_target_ldif() {
         boolean success = false;
         BufferedReader reader = null;
         PrintWriter writer = null;
+        ExecutorService executor = null;
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        Vector<String> record = null;
+        Future<String> converted_record = null;
         String input = null;
-        String line = null;
-        String previous_line = null;
-        String output = null;
         String data = null;
         String record_type = null;
+        long skipped = 0;
 
         if (mRewrapFlag) {
             success = obtain_RSA_rewrapping_keys();
@@ -4505,10 +4935,17 @@ public class KRATool {
             }
         }
 
+        if (mResumeFlag) {
+            success = load_checkpoint();
+            if (!success) {
+                return FAILURE;
+            }
+        }
+
         // Create a vector for LDIF input
         record = new Vector<String>(INITIAL_LDIF_RECORD_CAPACITY);
 
-        // Process each line in the source LDIF file
+        // Process each record in the source LDIF file
         // and store it in the target LDIF file
         try {
             // Open source LDIF file for reading
@@ -4518,16 +4955,49 @@ public class KRATool {
             // Open target LDIF file for writing
             writer = new PrintWriter(
                          new BufferedWriter(
-                                 new FileWriter(mTargetLdifFilename)));
+                                 new FileWriter(mTargetLdifFilename,
+                                                mResumeFlag)));
+
+            // Skip the LDIF records written before the checkpoint
+            while (skipped < mRecordsSkipped) {
+                input = reader.readLine();
+                if (input == null) {
+                    log("ERROR:  '"
+                            + mSourceLdifFilename
+                            + "' has fewer LDIF records than recorded in "
+                            + "checkpoint file '"
+                            + mCheckpointFilename
+                            + "'!"
+                            + NEWLINE, true);
+                    return FAILURE;
+                }
+                if (input.equals("")) {
+                    skipped++;
+                }
+            }
+            mRecordsWritten = mRecordsSkipped;
+
+            if (mRewrapThreads > 1) {
+                executor = Executors.newFixedThreadPool(mRewrapThreads,
+                        new ThreadFactory() {
+                            int count;
+                            public synchronized Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, "KRATool-" + count++);
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+            }
 
+            mConversionStartTime = System.currentTimeMillis();
+            mLastProgressTime = mConversionStartTime;
+
+            success = SUCCESS;
             System.out.print("PROCESSING: ");
-            while ((input = reader.readLine()) != null) {
+            while (success && (input = reader.readLine()) != null) {
                 // Read in a record from the source LDIF file and
                 // add this line of input into the record vector
-                success = record.add(input);
-                if (!success) {
-                    return FAILURE;
-                }
+                record.add(input);
 
                 // Check for the end of an LDIF record
                 if (!input.equals("")) {
@@ -4550,7 +5020,8 @@ public class KRATool {
                                     + record_type
                                     + "'!"
                                     + NEWLINE, true);
-                            return FAILURE;
+                            success = FAILURE;
+                            break;
                         }
                     } else if (input.startsWith(KRA_LDIF_ARCHIVED_BY)) {
                         // extract the data
@@ -4573,7 +5044,8 @@ public class KRATool {
                                     + data
                                     + "'!"
                                     + NEWLINE, true);
-                            return FAILURE;
+                            success = FAILURE;
+                            break;
                         }
                     }
 
@@ -4595,150 +5067,84 @@ public class KRATool {
                             + "neither a Request nor a Key Record!"
                             + NEWLINE, false);
 
-                    // clear this LDIF record from the record vector
-                    record.clear();
-
                     // NOTE:  there is no need to reset the record type
 
-                    // begin adding input lines into a new record
-                    continue;
-                } else if (record_type == null) {
-                    // Set record type to specify a "generic" LDIF record
-                    record_type = KRA_LDIF_RECORD;
-                }
-
-                ldif_record = record.iterator();
-
-                // Process each line of the record:
-                //   * If LDIF Record Type for this line is 'valid'
-                //     * If KRATOOL Configuration File Parameter is 'true'
-                //       * Process this data
-                //     * Else If KRATOOL Configuration File Parameter is 'false'
-                //       * Pass through this data unchanged
-                //   * Else If LDIF Record Type for this line is 'invalid'
-                //     * Log error and leave method returning 'false'
-                while (ldif_record.hasNext()) {
-
-                    line = ldif_record.next();
+                    // an empty record keeps the checkpoint in step
+                    // with the source LDIF file
+                    converted_record = CompletableFuture.completedFuture("");
+                } else {
+                    if (record_type == null) {
+                        // Set record type to specify a "generic" LDIF record
+                        record_type = KRA_LDIF_RECORD;
+                    }
 
-                    if (line.startsWith(KRA_LDIF_CN)) {
-                        output = output_cn(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_DATE_OF_MODIFY)) {
-                        output = output_date_of_modify(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_DN)) {
-                        output = output_dn(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_KEY_RECORD)) {
-                        output = output_extdata_key_record(record_type,
-                                                            line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_ID)) {
-                        output = output_extdata_request_id(record_type,
-                                                            line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_NOTES)) {
-                        output = output_extdata_request_notes(record_type,
-                                                               line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_REQUEST_TYPE)) {
-                        // if one is not already present,
-                        // compose and write out the missing
-                        // 'extdata_requestnotes' line
-                        if (previous_line != null) {
-                            create_extdata_request_notes(record_type,
-                                    previous_line,
-                                    writer);
-                        } else {
-                            return FAILURE;
-                        }
+                    final Vector<String> source_record = record;
+                    final String source_record_type = record_type;
 
-                        // ALWAYS pass through the original
-                        // 'extdata-requesttype' line UNCHANGED
-                        // so that it is ALWAYS written
-                        output = line;
-                    } else if (line.startsWith(KRA_LDIF_EXTDATA_SERIAL_NUMBER)) {
-                        output = output_extdata_serial_number(record_type,
-                                                               line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_PRIVATE_KEY_DATA)) {
-                        output = output_private_key_data(record_type,
-                                                          line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_REQUEST_ID)) {
-                        output = output_request_id(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (line.startsWith(KRA_LDIF_SERIAL_NO)) {
-                        output = output_serial_no(record_type, line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (previous_line != null &&
-                               previous_line.startsWith(
-                                       KRA_LDIF_EXTDATA_AUTH_TOKEN_USER)) {
-                        output = output_extdata_auth_token_user(record_type,
-                                                                 line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
-                    } else if (previous_line != null &&
-                               previous_line.startsWith(
-                                       KRA_LDIF_EXTDATA_AUTH_TOKEN_USER_DN)) {
-                        output = output_extdata_auth_token_user_dn(record_type,
-                                                                    line);
-                        if (output == null) {
-                            return FAILURE;
-                        }
+                    if (executor != null) {
+                        converted_record = executor.submit(
+                                () -> convert_ldif_record(source_record,
+                                                          source_record_type));
                     } else {
-                        // Pass through line unchanged
-                        output = line;
+                        converted_record = CompletableFuture.completedFuture(
+                                convert_ldif_record(source_record,
+                                                    source_record_type));
                     }
+                }
+                pending.add(converted_record);
 
-                    // Always save a copy of this line
-                    previous_line = output;
+                // begin adding input lines into a new record
+                record = new Vector<String>(INITIAL_LDIF_RECORD_CAPACITY);
 
-                    // Always write out the output line and flush the buffer
-                    writer.write(output + NEWLINE);
-                    writer.flush();
-                    System.out.print(".");
+                // Write out the oldest records once enough
+                // records are being converted
+                while (success && pending.size() >
+                        (mRewrapThreads * PIPELINE_RECORDS_PER_THREAD)) {
+                    success = write_target_ldif_record(writer,
+                                                       pending.poll());
                 }
-                // Mark the end of the LDIF record
-                System.out.print("!");
+            }
 
-                // clear this LDIF record from the record vector
-                record.clear();
+            // Write out the remaining records up to the first failure
+            while (success && !pending.isEmpty()) {
+                success = write_target_ldif_record(writer, pending.poll());
             }
+
+            if (!success) {
+                if (mCheckpointFilename != null) {
+                    save_checkpoint(writer);
+                }
+                return FAILURE;
+            }
+
+            writer.flush();
+            if (writer.checkError()) {
+                log("ERROR:  Unable to write '"
+                        + mTargetLdifFilename
+                        + "'!"
+                        + NEWLINE, true);
+                return FAILURE;
+            }
+
             System.out.println(" FINISHED." + NEWLINE);
+            report_progress(true);
+
+            // The conversion no longer needs to be resumed
+            if (mCheckpointFilename != null) {
+                Files.deleteIfExists(Paths.get(mCheckpointFilename));
+            }
         } catch (IOException exIO) {
             log("ERROR:  line='"
-                    + line
-                    + "' OR output='"
-                    + output
+                    + input
                     + "' IOException: '"
                     + exIO.toString()
                     + "'"
                     + NEWLINE, true);
             return FAILURE;
         } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
             if (reader != null) {
                 try {
                     reader.close();
@@ -4896,6 +5302,8 @@ public class KRATool {
         String process_requests_and_key_records_only = null;
         String use_PKI_security_database_pwdfile = null;
         String keyUnwrapAlgorithmName = null;
+        String rewrap_threads = null;
+        int pipeline_args = 0;
         File cfgFile = null;
         File sourceFile = null;
         File sourceDBPath = null;
@@ -4908,32 +5316,41 @@ public class KRATool {
         // Get current date and time
         mDateOfModify = now(DATE_OF_MODIFY_PATTERN);
 
+        // The OPTIONAL pipeline arguments may accompany
+        // any of the argument combinations below
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(REWRAP_THREADS) ||
+                    args[i].equals(CHECKPOINT_FILE)) {
+                pipeline_args += 2;
+            }
+        }
+
         // Check that the correct number of arguments were
         // submitted to the program
-        if ((args.length != ID_OFFSET_ARGS) &&
-                (args.length != (ID_OFFSET_ARGS + 1)) &&
-                (args.length != (ID_OFFSET_ARGS + 4)) &&
-                (args.length != (ID_OFFSET_ARGS + 5)) &&
-                (args.length != (ID_OFFSET_ARGS + 7)) &&
-                (args.length != REWRAP_ARGS) &&
-                (args.length != (REWRAP_ARGS + 1)) &&
-                (args.length != (REWRAP_ARGS + 2)) &&
-                (args.length != (REWRAP_ARGS + 3)) &&
-                (args.length != (REWRAP_ARGS + 4)) &&
-                (args.length != (REWRAP_ARGS + 5)) &&
-                (args.length != (REWRAP_ARGS + 6)) &&
-                (args.length != (REWRAP_ARGS + 7)) &&
-                (args.length != (REWRAP_ARGS + 9)) &&
-                (args.length != REWRAP_AND_ID_OFFSET_ARGS) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 1)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 2)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 3)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 4)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 5)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 6)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 7)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 8)) &&
-                (args.length != (REWRAP_AND_ID_OFFSET_ARGS + 9))) {
+        if (((args.length - pipeline_args) != ID_OFFSET_ARGS) &&
+                ((args.length - pipeline_args) != (ID_OFFSET_ARGS + 1)) &&
+                ((args.length - pipeline_args) != (ID_OFFSET_ARGS + 4)) &&
+                ((args.length - pipeline_args) != (ID_OFFSET_ARGS + 5)) &&
+                ((args.length - pipeline_args) != (ID_OFFSET_ARGS + 7)) &&
+                ((args.length - pipeline_args) != REWRAP_ARGS) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 1)) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 2)) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 3)) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 4)) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 5)) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 6)) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 7)) &&
+                ((args.length - pipeline_args) != (REWRAP_ARGS + 9)) &&
+                ((args.length - pipeline_args) != REWRAP_AND_ID_OFFSET_ARGS) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 1)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 2)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 3)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 4)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 5)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 6)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 7)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 8)) &&
+                ((args.length - pipeline_args) != (REWRAP_AND_ID_OFFSET_ARGS + 9))) {
             System.err.println("ERROR:  Incorrect number of arguments!"
                               + NEWLINE);
             printUsage();
@@ -4986,6 +5403,10 @@ public class KRATool {
                 i -= 1;
             } else if (args[i].contentEquals(KEY_UNWRAP_ALGORITHM)) {
                 keyUnwrapAlgorithmName = args[i + 1];
+            } else if (args[i].equals(REWRAP_THREADS)) {
+                rewrap_threads = args[i + 1];
+            } else if (args[i].equals(CHECKPOINT_FILE)) {
+                mCheckpointFilename = args[i + 1];
             } else {
                 System.err.println("ERROR:  Unknown argument '"
                                   + args[i]
@@ -5040,9 +5461,16 @@ public class KRATool {
                 System.exit(0);
             }
 
+            // Resume an interrupted conversion if its checkpoint exists
+            if (mCheckpointFilename != null &&
+                    new File(mCheckpointFilename).exists()) {
+                mResumeFlag = true;
+            }
+
             // Check that the target LDIF file does NOT exist
+            // (unless an interrupted conversion is resumed)
             targetFile = new File(mTargetLdifFilename);
-            if (targetFile.exists()) {
+            if (targetFile.exists() && !mResumeFlag) {
                 System.err.println("ERROR:  '"
                                   + mTargetLdifFilename
                                   + "' ALREADY exists!"
@@ -5052,8 +5480,9 @@ public class KRATool {
             }
 
             // Check that the log file does NOT exist
+            // (unless an interrupted conversion is resumed)
             logFile = new File(mLogFilename);
-            if (logFile.exists()) {
+            if (logFile.exists() && !mResumeFlag) {
                 System.err.println("ERROR:  '"
                                   + mLogFilename
                                   + "' ALREADY exists!"
@@ -5343,6 +5772,21 @@ public class KRATool {
             }
         }
 
+        // Check for OPTIONAL number of threads converting LDIF records
+        if (rewrap_threads != null) {
+            try {
+                mRewrapThreads = Integer.parseInt(rewrap_threads);
+            } catch (NumberFormatException exThreads) {
+                mRewrapThreads = 0;
+            }
+            if (mRewrapThreads < 1) {
+                System.err.println("ERROR:  Invalid number of threads '"
+                        + rewrap_threads + "'"
+                        + NEWLINE);
+                System.exit(1);
+            }
+        }
+
         // Check for OPTIONAL "Process Requests and Key Records ONLY" option
         if (mProcessRequestsAndKeyRecordsOnlyFlag) {
             process_requests_and_key_records_only = SPACE
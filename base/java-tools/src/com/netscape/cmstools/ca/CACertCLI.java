@@ -18,8 +18,12 @@
 
 package com.netscape.cmstools.ca;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.dogtagpki.cli.CLI;
 import org.jboss.resteasy.plugins.providers.atom.Link;
@@ -27,7 +31,9 @@ import org.jboss.resteasy.plugins.providers.atom.Link;
 import com.netscape.certsrv.ca.CACertClient;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertDataInfo;
+import com.netscape.certsrv.cert.CertStatusInfo;
 import com.netscape.certsrv.client.PKIClient;
+import com.netscape.certsrv.dbs.certdb.CertId;
 import com.netscape.cmstools.cli.MainCLI;
 import com.netscape.cmstools.cli.SubsystemCLI;
 
@@ -186,4 +192,47 @@ public class CACertCLI extends CLI {
             System.out.print(encoded);
         }
     }
+
+    /**
+     * Reads up to the specified number of serial numbers from a file
+     * with one serial number per line. Blank lines and lines starting
+     * with # are skipped.
+     *
+     * @return the serial numbers, or an empty list at the end of the file
+     */
+    public static List<CertId> readSerialNumbers(BufferedReader reader, int max) throws IOException {
+
+        List<CertId> serialNumbers = new ArrayList<>();
+        String line;
+
+        while (serialNumbers.size() < max && (line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            serialNumbers.add(new CertId(line));
+        }
+
+        return serialNumbers;
+    }
+
+    public static void printCertStatusInfo(CertStatusInfo info) {
+
+        System.out.println("  Serial Number: " + info.getID().toHexString());
+
+        if (info.getError() != null) {
+            System.out.println("  Error: " + info.getError());
+            return;
+        }
+
+        System.out.println("  Status: " + info.getStatus());
+
+        if (info.getRevokedOn() != null) {
+            System.out.println("  Revoked On: " + info.getRevokedOn());
+        }
+
+        if (info.getRevocationReason() != null) {
+            System.out.println("  Reason: " + info.getRevocationReason());
+        }
+    }
 }
@@ -19,7 +19,9 @@
 package com.netscape.cmstools.ca;
 
 import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.InputStreamReader;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
@@ -27,9 +29,12 @@ import org.dogtagpki.cli.CommandCLI;
 import org.mozilla.jss.netscape.security.x509.RevocationReason;
 
 import com.netscape.certsrv.ca.CACertClient;
+import com.netscape.certsrv.cert.CertBulkRevokeRequest;
+import com.netscape.certsrv.cert.CertBulkRevokeResponse;
 import com.netscape.certsrv.cert.CertData;
 import com.netscape.certsrv.cert.CertRequestInfo;
 import com.netscape.certsrv.cert.CertRevokeRequest;
+import com.netscape.certsrv.cert.CertStatusInfo;
 import com.netscape.certsrv.dbs.certdb.CertId;
 import com.netscape.certsrv.request.RequestStatus;
 import com.netscape.cmstools.cli.MainCLI;
@@ -41,6 +46,8 @@ public class CACertRevokeCLI extends CommandCLI {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CACertRevokeCLI.class);
 
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
     public CACertCLI certCLI;
 
     public CACertRevokeCLI(CACertCLI certCLI) {
@@ -49,7 +56,7 @@ public class CACertRevokeCLI extends CommandCLI {
     }
 
     public void printHelp() {
-        formatter.printHelp(getFullName() + " <Serial Number> [OPTIONS...]", options);
+        formatter.printHelp(getFullName() + " <Serial Number>|--input-file <file> [OPTIONS...]", options);
     }
 
     public void createOptions() {
@@ -75,18 +82,22 @@ public class CACertRevokeCLI extends CommandCLI {
 
         options.addOption(null, "ca", false, "CA signing certificate");
         options.addOption(null, "force", false, "Force");
+
+        option = new Option(null, "input-file", true, "File containing serial numbers to revoke, one per line");
+        option.setArgName("file");
+        options.addOption(option);
+
+        option = new Option(null, "batch-size", true, "Number of certificates per request (default: " + DEFAULT_BATCH_SIZE + ")");
+        option.setArgName("size");
+        options.addOption(option);
+
+        options.addOption(null, "update-crl", false, "Update CRL immediately after revocation");
     }
 
     public void execute(CommandLine cmd) throws Exception {
 
         String[] cmdArgs = cmd.getArgs();
 
-        if (cmdArgs.length != 1) {
-            throw new Exception("Missing Serial Number.");
-        }
-
-        CertId certID = new CertId(cmdArgs[0]);
-
         String string = cmd.getOptionValue("reason", RevocationReason.UNSPECIFIED.toString());
         RevocationReason reason = RevocationReason.valueOf(string);
 
@@ -94,6 +105,24 @@ public class CACertRevokeCLI extends CommandCLI {
             throw new Exception("Invalid revocation reason: " + string);
         }
 
+        String inputFile = cmd.getOptionValue("input-file");
+
+        if (inputFile != null) {
+
+            if (cmdArgs.length > 0) {
+                throw new Exception("Serial Number cannot be used with --input-file.");
+            }
+
+            executeBulk(cmd, inputFile, reason);
+            return;
+        }
+
+        if (cmdArgs.length != 1) {
+            throw new Exception("Missing Serial Number.");
+        }
+
+        CertId certID = new CertId(cmdArgs[0]);
+
         MainCLI mainCLI = (MainCLI) getRoot();
         mainCLI.init();
 
@@ -164,4 +193,77 @@ public class CACertRevokeCLI extends CommandCLI {
                     + certRequestInfo.getRequestStatus());
         }
     }
+
+    public void executeBulk(CommandLine cmd, String inputFile, RevocationReason reason) throws Exception {
+
+        if (reason == RevocationReason.REMOVE_FROM_CRL) {
+            throw new Exception("Invalid revocation reason for bulk revocation: " + reason);
+        }
+
+        if (cmd.hasOption("ca")) {
+            throw new Exception("CA signing certificates cannot be revoked with --input-file.");
+        }
+
+        int batchSize = DEFAULT_BATCH_SIZE;
+        String batchSizeStr = cmd.getOptionValue("batch-size");
+        if (batchSizeStr != null) {
+            batchSize = Integer.parseInt(batchSizeStr);
+            if (batchSize <= 0) {
+                throw new Exception("Invalid batch size: " + batchSizeStr);
+            }
+        }
+
+        if (!cmd.hasOption("force")) {
+
+            System.out.println("Revoking certificates listed in " + inputFile + " (reason: " + reason + ")");
+            System.out.print("Are you sure (Y/N)? ");
+            System.out.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+            String line = reader.readLine();
+            if (!line.equalsIgnoreCase("Y")) {
+                return;
+            }
+        }
+
+        MainCLI mainCLI = (MainCLI) getRoot();
+        mainCLI.init();
+
+        CACertClient certClient = certCLI.getCertClient();
+
+        int revoked = 0;
+        int failed = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+
+            List<CertId> serialNumbers;
+            while (!(serialNumbers = CACertCLI.readSerialNumbers(reader, batchSize)).isEmpty()) {
+
+                CertBulkRevokeRequest request = new CertBulkRevokeRequest();
+                request.setSerialNumbers(serialNumbers);
+                request.setReason(reason);
+                request.setComments(cmd.getOptionValue("comments"));
+                if (cmd.hasOption("update-crl")) {
+                    request.setUpdateCRL(true);
+                }
+
+                CertBulkRevokeResponse response = certClient.revokeCerts(request);
+                logger.info("Request " + response.getRequestID() + ": " + response.getRequestStatus());
+
+                // print the results of each batch as they arrive
+                for (CertStatusInfo info : response.getEntries()) {
+                    if (info.getError() == null) {
+                        revoked++;
+                    } else {
+                        failed++;
+                    }
+                    CACertCLI.printCertStatusInfo(info);
+                    System.out.println();
+                }
+                System.out.flush();
+            }
+        }
+
+        MainCLI.printMessage("Revoked " + revoked + " certificate(s), " + failed + " failed");
+    }
 }
@@ -18,7 +18,9 @@
 
 package com.netscape.cmstools.ca;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.FileReader;
 import java.math.BigInteger;
 import java.util.List;
 
@@ -36,6 +38,9 @@ import com.netscape.certsrv.authority.AuthorityData;
 import com.netscape.certsrv.ca.CACertClient;
 import com.netscape.certsrv.ca.CAClient;
 import com.netscape.certsrv.cert.CertData;
+import com.netscape.certsrv.cert.CertStatusInfo;
+import com.netscape.certsrv.cert.CertStatusInfos;
+import com.netscape.certsrv.cert.CertStatusRequest;
 import com.netscape.certsrv.client.ClientConfig;
 import com.netscape.certsrv.client.PKIClient;
 import com.netscape.certsrv.dbs.certdb.CertId;
@@ -58,6 +63,8 @@ public class CACertStatusCLI extends CommandCLI {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CACertStatusCLI.class);
 
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
     public CACertCLI certCLI;
 
     public CACertStatusCLI(CACertCLI certCLI) {
@@ -66,19 +73,39 @@ public class CACertStatusCLI extends CommandCLI {
     }
 
     public void printHelp() {
-        formatter.printHelp(getFullName() + " <serial number> [OPTIONS...]", options);
+        formatter.printHelp(getFullName() + " <serial number>|--input-file <file> [OPTIONS...]", options);
     }
 
     public void createOptions() {
         Option option = new Option(null, "ocsp", true, "OCSP URL");
         option.setArgName("URL");
         options.addOption(option);
+
+        option = new Option(null, "input-file", true, "File containing serial numbers to check, one per line");
+        option.setArgName("file");
+        options.addOption(option);
+
+        option = new Option(null, "batch-size", true, "Number of certificates per request (default: " + DEFAULT_BATCH_SIZE + ")");
+        option.setArgName("size");
+        options.addOption(option);
     }
 
     public void execute(CommandLine cmd) throws Exception {
 
         String[] cmdArgs = cmd.getArgs();
 
+        String inputFile = cmd.getOptionValue("input-file");
+
+        if (inputFile != null) {
+
+            if (cmdArgs.length > 0) {
+                throw new Exception("Serial number cannot be used with --input-file.");
+            }
+
+            executeBulk(cmd, inputFile);
+            return;
+        }
+
         if (cmdArgs.length < 1) {
             throw new Exception("Missing certificate serial number.");
         }
@@ -153,4 +180,43 @@ public class CACertStatusCLI extends CommandCLI {
             System.out.println("  Revoked On: " + info.getRevocationTime().toDate());
         }
     }
+
+    /**
+     * Retrieves the statuses from the certificate database in batches
+     * instead of sending an OCSP request for each certificate.
+     */
+    public void executeBulk(CommandLine cmd, String inputFile) throws Exception {
+
+        int batchSize = DEFAULT_BATCH_SIZE;
+        String batchSizeStr = cmd.getOptionValue("batch-size");
+        if (batchSizeStr != null) {
+            batchSize = Integer.parseInt(batchSizeStr);
+            if (batchSize <= 0) {
+                throw new Exception("Invalid batch size: " + batchSizeStr);
+            }
+        }
+
+        MainCLI mainCLI = (MainCLI) getRoot();
+        mainCLI.init();
+
+        CACertClient certClient = certCLI.getCertClient();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+
+            List<CertId> serialNumbers;
+            while (!(serialNumbers = CACertCLI.readSerialNumbers(reader, batchSize)).isEmpty()) {
+
+                CertStatusRequest request = new CertStatusRequest();
+                request.setSerialNumbers(serialNumbers);
+
+                CertStatusInfos infos = certClient.getCertStatuses(request);
+
+                for (CertStatusInfo info : infos.getEntries()) {
+                    CACertCLI.printCertStatusInfo(info);
+                    System.out.println();
+                }
+                System.out.flush();
+            }
+        }
+    }
 }
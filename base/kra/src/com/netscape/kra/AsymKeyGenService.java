@@ -185,15 +185,25 @@ public class AsymKeyGenService implements IService {
         // Generating the asymmetric keys
         KeyPair kp = null;
 
+        // pooled key pairs are generated with default usages
+        if (usageStr == null) {
+            kp = kra.getPooledKeyPair(algorithm, keySize, isEC ? keySizeStr : null);
+        }
+        boolean pooled = kp != null;
+
         try {
-            kp = kra.generateKeyPair(
-                    algorithm.toUpperCase(),
-                    keySize,
-                    isEC? keySizeStr:null, // keyCurve for ECC
-                    null, // PQG not yet supported
-                    usageList,
-                    true /* temporary */
-                 );
+            if (pooled) {
+                logger.debug("AsymKeyGenService: got key pair from key pair pool");
+            } else {
+                kp = kra.generateKeyPair(
+                        algorithm.toUpperCase(),
+                        keySize,
+                        isEC? keySizeStr:null, // keyCurve for ECC
+                        null, // PQG not yet supported
+                        usageList,
+                        true /* temporary */
+                     );
+            }
 
         } catch (EBaseException e) {
             errmsg = "Unable to generate asymmetric key: " + e.getMessage();
@@ -289,6 +299,12 @@ public class AsymKeyGenService implements IService {
                         clientKeyId, null, errmsg);
                 throw new EBaseException(errmsg, e);
             }
+        } finally {
+            // pooled private keys are temporary keys unwrapped for this
+            // request, remove them from the token once they are wrapped
+            if (pooled) {
+                KeyPairPool.destroyPrivateKey(kp.getPrivate());
+            }
         }
 
         if (owner == null)
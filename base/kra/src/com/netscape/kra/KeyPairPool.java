@@ -0,0 +1,361 @@
+//--- BEGIN COPYRIGHT BLOCK ---
+//This program is free software; you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation; version 2 of the License.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License along
+//with this program; if not, write to the Free Software Foundation, Inc.,
+//51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+//(C) 2026 Red Hat, Inc.
+//All rights reserved.
+//--- END COPYRIGHT BLOCK ---
+package com.netscape.kra;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mozilla.jss.crypto.CryptoToken;
+import org.mozilla.jss.netscape.security.util.WrappingParams;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.base.IConfigStore;
+import com.netscape.certsrv.security.IStorageKeyUnit;
+import com.netscape.cmsutil.crypto.CryptoUtil;
+
+/**
+ * Pool of pre-generated key pairs for server-side key generation.
+ *
+ * Key pairs are generated in the background for each configured
+ * key type, wrapped under the storage key, and kept until claimed.
+ * A pooled key pair is removed from the pool when it is claimed and
+ * its wrapped private key is discarded once it has been unwrapped,
+ * so each key pair is handed out at most once.
+ *
+ * Configuration (kra.keygen.pool):
+ * <pre>
+ * enable=false
+ * keyTypes=RSA:2048,EC:nistp256
+ * size=10
+ * refillInterval=60
+ * </pre>
+ */
+public class KeyPairPool implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(KeyPairPool.class);
+
+    public static final String PROP_ENABLE = "enable";
+    public static final String PROP_KEY_TYPES = "keyTypes";
+    public static final String PROP_SIZE = "size";
+    public static final String PROP_REFILL_INTERVAL = "refillInterval";
+
+    public static final String DEFAULT_KEY_TYPES = "RSA:2048";
+    public static final int DEFAULT_SIZE = 10;
+    public static final int DEFAULT_REFILL_INTERVAL = 60; // seconds
+
+    private KeyRecoveryAuthority kra;
+    private IStorageKeyUnit storageUnit;
+
+    private String tokenName;
+    private int size;
+    private int refillInterval;
+
+    // pooled key pairs per key type (algorithm:size-or-curve:token)
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    private volatile ScheduledExecutorService executorService;
+    private AtomicBoolean refilling = new AtomicBoolean();
+    private volatile boolean running;
+
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+
+    class PooledKeyPair {
+
+        PublicKey publicKey;
+        byte[] wrappedPrivateKey;
+        WrappingParams params;
+
+        PooledKeyPair(PublicKey publicKey, byte[] wrappedPrivateKey, WrappingParams params) {
+            this.publicKey = publicKey;
+            this.wrappedPrivateKey = wrappedPrivateKey;
+            this.params = params;
+        }
+    }
+
+    class Pool {
+
+        String algorithm;
+        int keySize;
+        String keyCurve;
+
+        ConcurrentLinkedQueue<PooledKeyPair> keyPairs = new ConcurrentLinkedQueue<>();
+
+        // the queue size is not constant-time
+        AtomicInteger count = new AtomicInteger();
+
+        Pool(String algorithm, int keySize, String keyCurve) {
+            this.algorithm = algorithm;
+            this.keySize = keySize;
+            this.keyCurve = keyCurve;
+        }
+    }
+
+    public KeyPairPool(KeyRecoveryAuthority kra) {
+        this.kra = kra;
+        this.storageUnit = kra.getStorageKeyUnit();
+    }
+
+    public void init(IConfigStore config) throws EBaseException {
+
+        size = config.getInteger(PROP_SIZE, DEFAULT_SIZE);
+        refillInterval = config.getInteger(PROP_REFILL_INTERVAL, DEFAULT_REFILL_INTERVAL);
+
+        try {
+            tokenName = kra.getKeygenToken().getName();
+        } catch (Exception e) {
+            throw new EBaseException("Unable to get keygen token: " + e.getMessage(), e);
+        }
+
+        for (String keyType : config.getString(PROP_KEY_TYPES, DEFAULT_KEY_TYPES).split(",")) {
+
+            keyType = keyType.trim();
+            if (keyType.isEmpty()) {
+                continue;
+            }
+
+            String[] parts = keyType.split(":");
+            if (parts.length != 2) {
+                throw new EBaseException("Invalid key type in kra.keygen.pool." + PROP_KEY_TYPES + ": " + keyType);
+            }
+
+            String algorithm = parts[0].toUpperCase();
+            Pool pool;
+
+            if (algorithm.equals("EC")) {
+                pool = new Pool(algorithm, 0, parts[1]);
+
+            } else if (algorithm.equals("RSA")) {
+                try {
+                    pool = new Pool(algorithm, Integer.parseInt(parts[1]), null);
+                } catch (NumberFormatException e) {
+                    throw new EBaseException("Invalid key size in kra.keygen.pool." + PROP_KEY_TYPES + ": " + keyType);
+                }
+
+            } else {
+                throw new EBaseException("Unsupported algorithm in kra.keygen.pool." + PROP_KEY_TYPES + ": " + keyType);
+            }
+
+            pools.put(getPoolID(algorithm, pool.keySize, pool.keyCurve, tokenName), pool);
+            logger.info("KeyPairPool: pooling " + size + " " + keyType + " key pairs on " + tokenName);
+        }
+    }
+
+    public void start() {
+
+        running = true;
+
+        executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "KeyPairPoolRefillTask");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executorService.scheduleWithFixedDelay(this, 0, refillInterval, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+
+        running = false;
+
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+
+        for (Pool pool : pools.values()) {
+            PooledKeyPair keyPair;
+            while ((keyPair = pool.keyPairs.poll()) != null) {
+                Arrays.fill(keyPair.wrappedPrivateKey, (byte) 0);
+            }
+            pool.count.set(0);
+        }
+
+        logger.info("KeyPairPool: hits: " + hits.get() + ", misses: " + misses.get());
+    }
+
+    private static String getPoolID(String algorithm, int keySize, String keyCurve, String tokenName) {
+        if (algorithm.equals("EC")) {
+            return algorithm + ":" + keyCurve + ":" + tokenName;
+        }
+        return algorithm + ":" + keySize + ":" + tokenName;
+    }
+
+    /**
+     * Claims a pre-generated key pair. The private key is unwrapped
+     * as a temporary key on the storage token.
+     *
+     * @return the key pair, or null if none is available
+     */
+    public KeyPair claim(String algorithm, int keySize, String keyCurve) {
+
+        String id = getPoolID(algorithm.toUpperCase(), keySize, keyCurve, tokenName);
+        Pool pool = pools.get(id);
+
+        PooledKeyPair keyPair = pool == null ? null : pool.keyPairs.poll();
+
+        if (keyPair == null) {
+            long count = misses.incrementAndGet();
+            logger.debug("KeyPairPool: miss for " + id + " (hits: " + hits.get() + ", misses: " + count + ")");
+            refill();
+            return null;
+        }
+
+        pool.count.decrementAndGet();
+        refill();
+
+        try {
+            PrivateKey privateKey = storageUnit.unwrap(
+                    keyPair.wrappedPrivateKey, keyPair.publicKey, true, keyPair.params);
+
+            long count = hits.incrementAndGet();
+            logger.debug("KeyPairPool: hit for " + id + " (hits: " + count + ", misses: " + misses.get() + ")");
+
+            return new KeyPair(keyPair.publicKey, privateKey);
+
+        } catch (Exception e) {
+            logger.warn("KeyPairPool: unable to unwrap pooled key pair: " + e.getMessage(), e);
+            misses.incrementAndGet();
+            return null;
+
+        } finally {
+            Arrays.fill(keyPair.wrappedPrivateKey, (byte) 0);
+            keyPair.wrappedPrivateKey = null;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Schedules a refill unless one is already in progress.
+     */
+    private void refill() {
+        ScheduledExecutorService executor = executorService;
+        if (executor != null && running && !refilling.get()) {
+            try {
+                executor.execute(this);
+            } catch (Exception e) {
+                // executor is shutting down
+            }
+        }
+    }
+
+    /**
+     * Refills the pools up to the configured size.
+     */
+    public void run() {
+
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            WrappingParams params = storageUnit.getWrappingParams(false);
+
+            for (Map.Entry<String, Pool> entry : pools.entrySet()) {
+                String id = entry.getKey();
+                Pool pool = entry.getValue();
+
+                while (running && pool.count.get() < size) {
+
+                    KeyPair keyPair = kra.generateKeyPair(
+                            pool.algorithm, pool.keySize, pool.keyCurve, null, null, true);
+
+                    if (keyPair == null) {
+                        logger.warn("KeyPairPool: unable to generate " + id + " key pair");
+                        break;
+                    }
+
+                    byte[] wrappedPrivateKey;
+                    try {
+                        wrappedPrivateKey = storageUnit.wrap(
+                                (org.mozilla.jss.crypto.PrivateKey) keyPair.getPrivate(), params);
+                    } finally {
+                        // only the wrapped copy is kept in the pool
+                        destroyPrivateKey(keyPair.getPrivate());
+                    }
+
+                    pool.keyPairs.add(new PooledKeyPair(keyPair.getPublic(), wrappedPrivateKey, params));
+                    int count = pool.count.incrementAndGet();
+
+                    logger.debug("KeyPairPool: " + id + " pool size: " + count);
+                }
+            }
+
+        } catch (Throwable e) {
+            logger.warn("KeyPairPool: unable to refill key pair pool: " + e.getMessage(), e);
+
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    /**
+     * Removes a temporary private key generated or unwrapped for the pool
+     * from the token. Failures are logged since the key is no longer used.
+     */
+    public static void destroyPrivateKey(PrivateKey privateKey) {
+
+        if (!(privateKey instanceof org.mozilla.jss.crypto.PrivateKey)) {
+            return;
+        }
+
+        try {
+            CryptoUtil.deletePrivateKey((org.mozilla.jss.crypto.PrivateKey) privateKey);
+        } catch (Exception e) {
+            logger.warn("KeyPairPool: unable to delete temporary private key: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The pool can only be used if key pairs are generated on the
+     * storage token since pooled private keys are unwrapped there.
+     */
+    public static boolean isSupported(KeyRecoveryAuthority kra) {
+        CryptoToken keygenToken = kra.getKeygenToken();
+        CryptoToken storageToken = kra.getStorageKeyUnit().getToken();
+        if (keygenToken == null || storageToken == null) {
+            return false;
+        }
+        try {
+            return keygenToken.getName().equals(storageToken.getName());
+        } catch (Exception e) {
+            logger.warn("KeyPairPool: unable to get token name: " + e.getMessage(), e);
+            return false;
+        }
+    }
+}
@@ -31,6 +31,12 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.dogtagpki.legacy.kra.KRAPolicy;
 import org.dogtagpki.legacy.policy.IPolicyProcessor;
@@ -115,13 +121,14 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
      * Internal Constants
      */
 
-    private static final String PARAM_CREDS = "creds";
-    private static final String PARAM_LOCK = "lock";
     private static final String PARAM_PK12 = "pk12";
     private static final String PARAM_ERROR = "error";
 
     private final static String KEY_RESP_NAME = "keyRepository";
     private static final String PROP_REPLICAID_DN = "dbs.replicadn";
+    private static final String PROP_KEY_FINGERPRINTS_COMPLETE = "keyFingerprintsComplete";
+    private static final String PROP_BATCH_RECOVERY_THREADS = "recovery.batchThreads";
+    private static final int DEFAULT_BATCH_RECOVERY_THREADS = 4;
 
     protected boolean mInitialized = false;
     protected KRAConfig mConfig;
@@ -138,11 +145,13 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
     protected ReplicaIDRepository mReplicaRepot = null;
     protected IRequestNotifier mNotify = null;
     protected IRequestNotifier mPNotify = null;
-    protected int mRecoveryIDCounter = 0;
-    protected Hashtable<String, Hashtable<String, Object>> mRecoveryParams =
-            new Hashtable<String, Hashtable<String, Object>>();
+    protected AtomicInteger mRecoveryIDCounter = new AtomicInteger();
+    protected RecoverySessions mRecoverySessions = new RecoverySessions();
+    protected int mBatchRecoveryThreads = DEFAULT_BATCH_RECOVERY_THREADS;
+    protected ExecutorService mBatchRecoveryExecutor = null;
     protected org.mozilla.jss.crypto.X509Certificate mJssCert = null;
     protected CryptoToken mKeygenToken = null;
+    protected KeyPairPool mKeyPairPool = null;
 
     // holds the number of bits of entropy to collect for each keygen
     private int mEntropyBitsPerKeyPair = 0;
@@ -374,6 +383,20 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
                 mRequestQueue.getRequestRepository(),
                 mConfig.getInteger("keyStatusUpdateInterval", 10 * 60));
 
+        // store public key fingerprints in existing key records
+        if (mConfig.getBoolean(PROP_KEY_FINGERPRINTS_COMPLETE, false)) {
+            mKeyDB.setKeyFingerprintsComplete(true);
+        } else {
+            mKeyDB.startKeyFingerprintBackfill(() -> {
+                try {
+                    mConfig.putBoolean(PROP_KEY_FINGERPRINTS_COMPLETE, true);
+                    mConfig.commit(false);
+                } catch (EBaseException e) {
+                    logger.warn("KeyRecoveryAuthority: unable to update " + PROP_KEY_FINGERPRINTS_COMPLETE + ": " + e.getMessage(), e);
+                }
+            });
+        }
+
         // init request scheduler if configured
         String schedulerClass =
                 mConfig.getString("requestSchedulerClass", null);
@@ -390,6 +413,13 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
         }
         initNotificationListeners();
 
+        mRecoverySessions.init(mConfig.getSubStore("recovery"));
+
+        mBatchRecoveryThreads = mConfig.getInteger(PROP_BATCH_RECOVERY_THREADS, DEFAULT_BATCH_RECOVERY_THREADS);
+        if (mBatchRecoveryThreads < 1) {
+            throw new EBaseException("Invalid kra." + PROP_BATCH_RECOVERY_THREADS + ": " + mBatchRecoveryThreads);
+        }
+
         String replicaReposDN = mConfig.getString(PROP_REPLICAID_DN, null);
         if (replicaReposDN == null) {
             replicaReposDN = "ou=Replica," + dbSubsystem.getBaseDN();
@@ -440,6 +470,9 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
 
             // register remote admin interface
             mInitialized = true;
+
+            startKeyPairPool();
+            mRecoverySessions.start();
         } else {
             logger.warn("KeyRecoveryAuthority: mRequestQueue is null, could be in preop mode");
         }
@@ -452,6 +485,20 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
         if (!mInitialized)
             return;
 
+        if (mKeyPairPool != null) {
+            mKeyPairPool.shutdown();
+            mKeyPairPool = null;
+        }
+
+        mRecoverySessions.shutdown();
+
+        synchronized (this) {
+            if (mBatchRecoveryExecutor != null) {
+                mBatchRecoveryExecutor.shutdownNow();
+                mBatchRecoveryExecutor = null;
+            }
+        }
+
         if (mTransportKeyUnit != null) {
             mTransportKeyUnit.shutdown();
         }
@@ -589,33 +636,43 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
      * Distributed recovery.
      */
     public String getRecoveryID() {
-        return Integer.toString(mRecoveryIDCounter++);
+        return Integer.toString(mRecoveryIDCounter.getAndIncrement());
     }
 
     public Hashtable<String, Object> createRecoveryParams(String recoveryID)
             throws EBaseException {
-        Hashtable<String, Object> h = new Hashtable<String, Object>();
-
-        h.put(PARAM_CREDS, new Vector<Credential>());
-        h.put(PARAM_LOCK, new Object());
-        mRecoveryParams.put(recoveryID, h);
-        return h;
+        return mRecoverySessions.create(recoveryID);
     }
 
     public void destroyRecoveryParams(String recoveryID)
             throws EBaseException {
-        mRecoveryParams.remove(recoveryID);
+        mRecoverySessions.remove(recoveryID);
     }
 
     public Hashtable<String, Object> getRecoveryParams(String recoveryID)
             throws EBaseException {
-        return mRecoveryParams.get(recoveryID);
+        return mRecoverySessions.getParams(recoveryID);
+    }
+
+    private RecoverySessions.Session getRecoverySession(String recoveryID)
+            throws EBaseException {
+        RecoverySessions.Session session = mRecoverySessions.get(recoveryID);
+
+        if (session == null) {
+            throw new EBaseException(CMS.getUserMessage("CMS_GW_NO_RECOVERY_TOKEN_FOUND", recoveryID));
+        }
+        return session;
     }
 
     public void createPk12(String recoveryID, byte[] pk12)
             throws EBaseException {
         Hashtable<String, Object> h = getRecoveryParams(recoveryID);
 
+        if (h == null) {
+            // session expired while recovering
+            logger.warn("KeyRecoveryAuthority: recovery session " + recoveryID + " no longer exists");
+            return;
+        }
         h.put(PARAM_PK12, pk12);
     }
 
@@ -628,6 +685,11 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
             throws EBaseException {
         Hashtable<String, Object> h = getRecoveryParams(recoveryID);
 
+        if (h == null) {
+            // session expired while recovering
+            logger.warn("KeyRecoveryAuthority: recovery session " + recoveryID + " no longer exists");
+            return;
+        }
         h.put(PARAM_ERROR, error);
     }
 
@@ -641,41 +703,52 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
      */
     public Vector<Credential> getAppAgents(
             String recoveryID) throws EBaseException {
-        Hashtable<String, Object> h = getRecoveryParams(recoveryID);
-        @SuppressWarnings("unchecked")
-        Vector<Credential> dc = (Vector<Credential>) h.get(PARAM_CREDS);
-
-        return dc;
+        return getRecoverySession(recoveryID).credentials;
     }
 
     /**
-     * Retrieves a list credentials. This puts KRA in a waiting
-     * mode, it never returns until all the necessary passwords
-     * are collected.
+     * Retrieves a list credentials. This puts the calling thread in
+     * a waiting mode, it never returns until all the necessary
+     * passwords are collected. Use whenApproved() instead to avoid
+     * holding a thread during the approval.
      */
     public Credential[] getDistributedCredentials(
             String recoveryID)
             throws EBaseException {
-        Hashtable<String, Object> h = getRecoveryParams(recoveryID);
-        @SuppressWarnings("unchecked")
-        Vector<Credential> dc = (Vector<Credential>) h.get(PARAM_CREDS);
-        Object lock = h.get(PARAM_LOCK);
-
-        synchronized (lock) {
-            while (dc.size() < getNoOfRequiredAgents()) {
-                logger.debug("KeyRecoveryAuthority: cfu in synchronized lock for getDistributedCredentials");
-                try {
-                    lock.wait();
-                } catch (InterruptedException e) {
-                }
-            }
-            Credential creds[] = new Credential[dc.size()];
+        RecoverySessions.Session session = getRecoverySession(recoveryID);
 
-            dc.copyInto(creds);
-            return creds;
+        try {
+            return session.approved.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EBaseException("Interrupted while waiting for recovery approvals", e);
+        } catch (ExecutionException e) {
+            throw new EBaseException(e.getCause().getMessage(), e.getCause());
         }
     }
 
+    /**
+     * Runs a recovery task on the recovery threads once all the
+     * necessary passwords are collected. If the approvals cannot be
+     * collected (e.g. the session expires) the error is stored in
+     * the recovery parameters instead.
+     */
+    public void whenApproved(String recoveryID, Consumer<Credential[]> task)
+            throws EBaseException {
+        RecoverySessions.Session session = getRecoverySession(recoveryID);
+
+        mRecoverySessions.whenApproved(session, task, e -> {
+            String error = "Failed to get required approvals for recovery id " + recoveryID + ": " + e.getMessage();
+            logger.warn("KeyRecoveryAuthority: " + error, e);
+
+            try {
+                createError(recoveryID, error);
+            } catch (EBaseException eb) {
+                logger.warn("KeyRecoveryAuthority: " + eb.getMessage(), eb);
+            }
+        });
+    }
+
     /**
      * Verifies credential.
      */
@@ -712,17 +785,24 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
      */
     public void addDistributedCredential(String recoveryID,
             String uid, String pwd) throws EBaseException {
-        Hashtable<String, Object> h = getRecoveryParams(recoveryID);
-        @SuppressWarnings("unchecked")
-        Vector<Credential> dc = (Vector<Credential>) h.get(PARAM_CREDS);
-        Object lock = h.get(PARAM_LOCK);
+        RecoverySessions.Session session = getRecoverySession(recoveryID);
+        Vector<Credential> dc = session.credentials;
+        Credential creds[] = null;
 
-        synchronized (lock) {
+        synchronized (session) {
             verifyCredential(dc, uid, pwd);
             // verify password
             dc.addElement(new Credential(uid, pwd));
-            // modify status object
-            lock.notify();
+
+            if (dc.size() >= getNoOfRequiredAgents()) {
+                creds = new Credential[dc.size()];
+                dc.copyInto(creds);
+            }
+        }
+
+        // run the recovery task outside of the session lock
+        if (creds != null) {
+            session.approved.complete(creds);
         }
     }
 
@@ -1216,11 +1296,33 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
             case IRequest.SECURITY_DATA_RECOVERY_REQUEST:
                 processor.recover(request);
                 break;
+            case IRequest.SECURITY_DATA_BATCH_RECOVERY_REQUEST:
+                processor.recoverBatch(request);
+                break;
             default:
                 throw new EBaseException("Unsupported synchronous request type: " + request.getRequestType());
         }
     }
 
+    /**
+     * Returns the executor used to recover the keys of batch recovery
+     * requests in parallel. The number of threads is configured in
+     * kra.recovery.batchThreads.
+     */
+    public synchronized ExecutorService getBatchRecoveryExecutor() {
+        if (mBatchRecoveryExecutor == null) {
+            mBatchRecoveryExecutor = Executors.newFixedThreadPool(mBatchRecoveryThreads, new ThreadFactory() {
+                int count;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "BatchKeyRecovery-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mBatchRecoveryExecutor;
+    }
+
     public boolean isEphemeral(String realm) {
         try {
             return mConfig.getBoolean("ephemeralRequests", false);
@@ -1703,6 +1805,33 @@ public class KeyRecoveryAuthority implements IAuthority, IKeyService, IKeyRecove
         return agents;
     }
 
+    /**
+     * Starts the key pair pool if enabled in kra.keygen.pool.
+     */
+    protected void startKeyPairPool() throws EBaseException {
+
+        IConfigStore poolConfig = mConfig.getSubStore("keygen.pool");
+        if (!poolConfig.getBoolean(KeyPairPool.PROP_ENABLE, false)) {
+            return;
+        }
+
+        if (!KeyPairPool.isSupported(this)) {
+            logger.warn("KeyRecoveryAuthority: key pair pool requires serverKeygenTokenName to be the storage token");
+            return;
+        }
+
+        KeyPairPool pool = new KeyPairPool(this);
+        pool.init(poolConfig);
+        pool.start();
+
+        mKeyPairPool = pool;
+    }
+
+    public KeyPair getPooledKeyPair(String alg, int keySize, String keyCurve) {
+        KeyPairPool pool = mKeyPairPool;
+        return pool == null ? null : pool.claim(alg, keySize, keyCurve);
+    }
+
    public KeyPair generateKeyPair(String alg, int keySize, String keyCurve,
             PQGParams pqg, KeyPairGeneratorSpi.Usage[] usageList) throws EBaseException {
         return generateKeyPair(alg, keySize, keyCurve, pqg, usageList, false);
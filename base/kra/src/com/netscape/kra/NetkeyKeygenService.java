@@ -263,11 +263,18 @@ public class NetkeyKeygenService implements IService {
 
             logger.debug("NetkeyKeygenService: about to generate key pair");
 
-            keypair = mKRA.generateKeyPair(rKeytype /* rKeytype: "RSA" or "EC" */,
-                keysize /*Integer.parseInt(len)*/,
-                rKeycurve /* for "EC" only */,
-                null /*pqgParams*/,
-                null /* usageList*/);
+            keypair = mKRA.getPooledKeyPair(rKeytype, keysize, rKeycurve);
+            boolean pooled = keypair != null;
+
+            if (pooled) {
+                logger.debug("NetkeyKeygenService: got key pair from key pair pool");
+            } else {
+                keypair = mKRA.generateKeyPair(rKeytype /* rKeytype: "RSA" or "EC" */,
+                    keysize /*Integer.parseInt(len)*/,
+                    rKeycurve /* for "EC" only */,
+                    null /*pqgParams*/,
+                    null /* usageList*/);
+            }
 
             if (keypair == null) {
                 logger.warn("NetkeyKeygenService: failed generating key pair for " + rCUID + ":" + rUserid);
@@ -285,256 +292,264 @@ public class NetkeyKeygenService implements IService {
 
             logger.debug("NetkeyKeygenService: finished generate key pair for " + rCUID + ":" + rUserid);
 
-            java.security.PrivateKey privKey;
             try {
-                publicKeyData = keypair.getPublic().getEncoded();
-                if (publicKeyData == null) {
-                    request.setExtData(IRequest.RESULT, Integer.valueOf(4));
-                    logger.warn("NetkeyKeygenService: failed getting publickey encoded");
-                    return false;
-                } else {
-                    //logger.debug("NetkeyKeygenService: public key binary length ="+ publicKeyData.length);
-                    if (rKeytype.equals("EC")) {
-                        /* url encode */
-                        PubKey = org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(publicKeyData);
-                        logger.debug("NetkeyKeygenService: EC PubKey special encoded");
+                java.security.PrivateKey privKey;
+                try {
+                    publicKeyData = keypair.getPublic().getEncoded();
+                    if (publicKeyData == null) {
+                        request.setExtData(IRequest.RESULT, Integer.valueOf(4));
+                        logger.warn("NetkeyKeygenService: failed getting publickey encoded");
+                        return false;
                     } else {
-                        PubKey = base64Encode(publicKeyData);
+                        //logger.debug("NetkeyKeygenService: public key binary length ="+ publicKeyData.length);
+                        if (rKeytype.equals("EC")) {
+                            /* url encode */
+                            PubKey = org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(publicKeyData);
+                            logger.debug("NetkeyKeygenService: EC PubKey special encoded");
+                        } else {
+                            PubKey = base64Encode(publicKeyData);
+                        }
+
+                        //logger.debug("NetkeyKeygenService: public key length =" + PubKey.length());
+                        request.setExtData("public_key", PubKey);
                     }
 
-                    //logger.debug("NetkeyKeygenService: public key length =" + PubKey.length());
-                    request.setExtData("public_key", PubKey);
-                }
+                    audit(new ServerSideKeyGenProcessedEvent(
+                            agentId,
+                            ILogger.SUCCESS,
+                            auditSubjectID,
+                            requestId,
+                            PubKey));
 
-                audit(new ServerSideKeyGenProcessedEvent(
-                        agentId,
-                        ILogger.SUCCESS,
-                        auditSubjectID,
-                        requestId,
-                        PubKey));
+                    //...extract the private key handle (not privatekeydata)
+                    privKey = keypair.getPrivate();
 
-                //...extract the private key handle (not privatekeydata)
-                privKey = keypair.getPrivate();
+                    if (privKey == null) {
+                        request.setExtData(IRequest.RESULT, Integer.valueOf(4));
+                        logger.warn("NetkeyKeygenService: failed getting private key");
+                        return false;
+                    } else {
+                        logger.debug("NetkeyKeygenService: got private key");
+                    }
 
-                if (privKey == null) {
-                    request.setExtData(IRequest.RESULT, Integer.valueOf(4));
-                    logger.warn("NetkeyKeygenService: failed getting private key");
-                    return false;
-                } else {
-                    logger.debug("NetkeyKeygenService: got private key");
-                }
+                    // unwrap the DES key
+                    PK11SymKey sk = null;
+                    try {
+                        sk = (PK11SymKey) mTransportUnit.unwrap_sym(wrapped_des_key, wrapParams);
+                        logger.debug("NetkeyKeygenService: received DES key");
+                    } catch (Exception e) {
+                        logger.warn("NetkeyKeygenService: no DES key: " + e);
+                        request.setExtData(IRequest.RESULT, Integer.valueOf(4));
+                        return false;
+                    }
 
-                // unwrap the DES key
-                PK11SymKey sk = null;
-                try {
-                    sk = (PK11SymKey) mTransportUnit.unwrap_sym(wrapped_des_key, wrapParams);
-                    logger.debug("NetkeyKeygenService: received DES key");
-                } catch (Exception e) {
-                    logger.warn("NetkeyKeygenService: no DES key: " + e);
-                    request.setExtData(IRequest.RESULT, Integer.valueOf(4));
-                    return false;
-                }
+                    // 3 wrapping should be done in HSM
+                    // wrap private key with DES
+                    logger.debug("NetkeyKeygenService: wrapper token=" + keygenToken.getName());
+                    logger.debug("NetkeyKeygenService: key transport key is on slot: " + sk.getOwningToken().getName());
+
+                    byte[] wrapped = CryptoUtil.wrapUsingSymmetricKey(
+                            keygenToken,
+                            sk,
+                            (PrivateKey) privKey,
+                            algParam,
+                            KeyWrapAlgorithm.DES3_CBC_PAD);
+
+                    /*
+                      logger.debug("NetkeyKeygenService: wrap called");
+                      logger.debug(wrapped);
+                    */
+                    /* This is for using with my decryption tool and ASN1
+                       decoder to see if the private key is indeed PKCS#8 format
+                       { // cfu debug
+                       String oFilePath = "/tmp/wrappedPrivKey.bin";
+                       File file = new File(oFilePath);
+                       FileOutputStream ostream = new FileOutputStream(oFilePath);
+                       ostream.write(wrapped);
+                       ostream.close();
+                       }
+                    */
+                    String wrappedPrivKeyString = /*base64Encode(wrapped);*/
+                    org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(wrapped);
+                    if (wrappedPrivKeyString == null) {
+                        request.setExtData(IRequest.RESULT, Integer.valueOf(4));
+                        logger.warn("NetkeyKeygenService: failed generating wrapped private key");
+                        audit(new SecurityDataExportEvent(
+                                agentId,
+                                ILogger.FAILURE,
+                                auditSubjectID,
+                                null,
+                                "NetkeyKeygenService: failed generating wrapped private key",
+                                PubKey));
+
+                        return false;
+                    } else {
+                        request.setExtData("wrappedUserPrivate", wrappedPrivKeyString);
+
+                        audit(new SecurityDataExportEvent(
+                                agentId,
+                                ILogger.SUCCESS,
+                                auditSubjectID,
+                                null,
+                                null,
+                                PubKey));
+                    }
 
-                // 3 wrapping should be done in HSM
-                // wrap private key with DES
-                logger.debug("NetkeyKeygenService: wrapper token=" + keygenToken.getName());
-                logger.debug("NetkeyKeygenService: key transport key is on slot: " + sk.getOwningToken().getName());
-
-                byte[] wrapped = CryptoUtil.wrapUsingSymmetricKey(
-                        keygenToken,
-                        sk,
-                        (PrivateKey) privKey,
-                        algParam,
-                        KeyWrapAlgorithm.DES3_CBC_PAD);
-
-                /*
-                  logger.debug("NetkeyKeygenService: wrap called");
-                  logger.debug(wrapped);
-                */
-                /* This is for using with my decryption tool and ASN1
-                   decoder to see if the private key is indeed PKCS#8 format
-                   { // cfu debug
-                   String oFilePath = "/tmp/wrappedPrivKey.bin";
-                   File file = new File(oFilePath);
-                   FileOutputStream ostream = new FileOutputStream(oFilePath);
-                   ostream.write(wrapped);
-                   ostream.close();
-                   }
-                */
-                String wrappedPrivKeyString = /*base64Encode(wrapped);*/
-                org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(wrapped);
-                if (wrappedPrivKeyString == null) {
-                    request.setExtData(IRequest.RESULT, Integer.valueOf(4));
-                    logger.warn("NetkeyKeygenService: failed generating wrapped private key");
-                    audit(new SecurityDataExportEvent(
-                            agentId,
-                            ILogger.FAILURE,
-                            auditSubjectID,
-                            null,
-                            "NetkeyKeygenService: failed generating wrapped private key",
-                            PubKey));
+                    iv_s = /*base64Encode(iv);*/org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(iv);
+                    request.setExtData("iv_s", iv_s);
 
+                } catch (Exception e) {
+                    logger.warn("NetkeyKeygenService: " + e.getMessage(), e);
+                    request.setExtData(IRequest.RESULT, Integer.valueOf(4));
                     return false;
-                } else {
-                    request.setExtData("wrappedUserPrivate", wrappedPrivKeyString);
-
-                    audit(new SecurityDataExportEvent(
-                            agentId,
-                            ILogger.SUCCESS,
-                            auditSubjectID,
-                            null,
-                            null,
-                            PubKey));
                 }
 
-                iv_s = /*base64Encode(iv);*/org.mozilla.jss.netscape.security.util.Utils.SpecialEncode(iv);
-                request.setExtData("iv_s", iv_s);
+                try {
+                    /*
+                     * archival - option flag "archive" controllable by the caller - TPS
+                     */
+                    if (archive) {
+                        //
+                        // privateKeyData ::= SEQUENCE {
+                        //                       sessionKey OCTET_STRING,
+                        //                       encKey OCTET_STRING,
+                        //                    }
+                        //
+                        //            logger.info("KRA encrypts internal private");
+
+                        audit(SecurityDataArchivalRequestEvent.createSuccessEvent(
+                                agentId,
+                                auditSubjectID,
+                                request.getRequestId(),
+                                null));
+
+                        logger.debug("KRA encrypts private key to put on internal ldap db");
+                        byte privateKeyData[] = null;
+                        WrappingParams params = null;
 
-            } catch (Exception e) {
-                logger.warn("NetkeyKeygenService: " + e.getMessage(), e);
-                request.setExtData(IRequest.RESULT, Integer.valueOf(4));
-                return false;
-            }
+                        try {
+                            params = mStorageUnit.getWrappingParams(allowEncDecrypt_archival);
 
-            try {
-                /*
-                 * archival - option flag "archive" controllable by the caller - TPS
-                 */
-                if (archive) {
-                    //
-                    // privateKeyData ::= SEQUENCE {
-                    //                       sessionKey OCTET_STRING,
-                    //                       encKey OCTET_STRING,
-                    //                    }
-                    //
-                    //            logger.info("KRA encrypts internal private");
-
-                    audit(SecurityDataArchivalRequestEvent.createSuccessEvent(
-                            agentId,
-                            auditSubjectID,
-                            request.getRequestId(),
-                            null));
+                            // In encrypt mode, the recovery side is doing a decrypt() using the
+                            // encryption IV.  To be sure this is successful, we will make sure'
+                            // the IVs are the same.
+                            params.setPayloadEncryptionIV(params.getPayloadWrappingIV());
 
-                    logger.debug("KRA encrypts private key to put on internal ldap db");
-                    byte privateKeyData[] = null;
-                    WrappingParams params = null;
+                            privateKeyData = mStorageUnit.wrap((org.mozilla.jss.crypto.PrivateKey) privKey, params);
 
-                    try {
-                        params = mStorageUnit.getWrappingParams(allowEncDecrypt_archival);
+                        } catch (Exception e) {
+                            request.setExtData(IRequest.RESULT, Integer.valueOf(4));
+                            throw new Exception("Unable to wrap private key with storage key", e);
+                        }
 
-                        // In encrypt mode, the recovery side is doing a decrypt() using the
-                        // encryption IV.  To be sure this is successful, we will make sure'
-                        // the IVs are the same.
-                        params.setPayloadEncryptionIV(params.getPayloadWrappingIV());
+                        logger.debug("NetkeyKeygenService: privatekey encryption by storage unit successful");
 
-                        privateKeyData = mStorageUnit.wrap((org.mozilla.jss.crypto.PrivateKey) privKey, params);
+                        // create key record
+                        KeyRecord rec = new KeyRecord(null, publicKeyData,
+                                privateKeyData, rCUID + ":" + rUserid,
+                                keypair.getPublic().getAlgorithm(),
+                                agentId);
 
-                    } catch (Exception e) {
-                        request.setExtData(IRequest.RESULT, Integer.valueOf(4));
-                        throw new Exception("Unable to wrap private key with storage key", e);
-                    }
+                        logger.debug("NetkeyKeygenService: got key record");
 
-                    logger.debug("NetkeyKeygenService: privatekey encryption by storage unit successful");
+                        if (rKeytype.equals("RSA")) {
+                            try {
+                                RSAPublicKey rsaPublicKey = new RSAPublicKey(publicKeyData);
+                                rec.setKeySize(Integer.valueOf(rsaPublicKey.getKeySize()));
 
-                    // create key record
-                    KeyRecord rec = new KeyRecord(null, publicKeyData,
-                            privateKeyData, rCUID + ":" + rUserid,
-                            keypair.getPublic().getAlgorithm(),
-                            agentId);
+                            } catch (InvalidKeyException e) {
+                                request.setExtData(IRequest.RESULT, Integer.valueOf(11));
+                                throw new Exception("Invalid RSA public key", e);
+                            }
 
-                    logger.debug("NetkeyKeygenService: got key record");
+                        } else if (rKeytype.equals("EC")) {
+                            logger.debug("NetkeyKeygenService: alg is EC");
+                            String oidDescription = "UNDETERMINED";
+                            // for KeyRecordParser
+                            MetaInfo metaInfo = new MetaInfo();
+
+                            try {
+                                byte curve[] =
+                                ASN1Util.getECCurveBytesByX509PublicKeyBytes(publicKeyData,
+                                    false /* without tag and size */);
+                                if (curve.length != 0) {
+                                    oidDescription = ASN1Util.getOIDdescription(curve);
+                                } else {
+                                    /* this is to be used by derdump */
+                                    byte curveTS[] =
+                                      ASN1Util.getECCurveBytesByX509PublicKeyBytes(publicKeyData,
+                                          true /* with tag and size */);
+                                    if (curveTS.length != 0) {
+                                        oidDescription = Utils.base64encode(curveTS, true);
+                                    }
+                                }
+                            } catch (Exception e) {
+                                logger.warn("NetkeyKeygenService: ASN1Util.getECCurveBytesByX509PublicKeyByte(): " + e.getMessage(), e);
+                                logger.warn("NetkeyKeygenService: exception allowed. continue");
+                            }
 
-                    if (rKeytype.equals("RSA")) {
-                        try {
-                            RSAPublicKey rsaPublicKey = new RSAPublicKey(publicKeyData);
-                            rec.setKeySize(Integer.valueOf(rsaPublicKey.getKeySize()));
+                            metaInfo.set(KeyRecordParser.OUT_KEY_EC_CURVE,
+                                oidDescription);
 
-                        } catch (InvalidKeyException e) {
-                            request.setExtData(IRequest.RESULT, Integer.valueOf(11));
-                            throw new Exception("Invalid RSA public key", e);
+                            rec.set(IKeyRecord.ATTR_META_INFO, metaInfo);
+                            // key size does not apply to EC;
+                            rec.setKeySize(-1);
                         }
 
-                    } else if (rKeytype.equals("EC")) {
-                        logger.debug("NetkeyKeygenService: alg is EC");
-                        String oidDescription = "UNDETERMINED";
-                        // for KeyRecordParser
-                        MetaInfo metaInfo = new MetaInfo();
+                        //??
+                        IKeyRepository storage = mKRA.getKeyRepository();
+                        BigInteger serialNo = storage.getNextSerialNumber();
 
-                        try {
-                            byte curve[] =
-                            ASN1Util.getECCurveBytesByX509PublicKeyBytes(publicKeyData,
-                                false /* without tag and size */);
-                            if (curve.length != 0) {
-                                oidDescription = ASN1Util.getOIDdescription(curve);
-                            } else {
-                                /* this is to be used by derdump */
-                                byte curveTS[] =
-                                  ASN1Util.getECCurveBytesByX509PublicKeyBytes(publicKeyData,
-                                      true /* with tag and size */);
-                                if (curveTS.length != 0) {
-                                    oidDescription = Utils.base64encode(curveTS, true);
-                                }
-                            }
-                        } catch (Exception e) {
-                            logger.warn("NetkeyKeygenService: ASN1Util.getECCurveBytesByX509PublicKeyByte(): " + e.getMessage(), e);
-                            logger.warn("NetkeyKeygenService: exception allowed. continue");
+                        if (serialNo == null) {
+                            request.setExtData(IRequest.RESULT, Integer.valueOf(11));
+                            throw new Exception("Unable to generate next serial number");
                         }
 
-                        metaInfo.set(KeyRecordParser.OUT_KEY_EC_CURVE,
-                            oidDescription);
+                        rec.setWrappingParams(params, allowEncDecrypt_archival);
 
-                        rec.set(IKeyRecord.ATTR_META_INFO, metaInfo);
-                        // key size does not apply to EC;
-                        rec.setKeySize(-1);
-                    }
+                        logger.debug("NetkeyKeygenService: before addKeyRecord");
+                        rec.set(KeyRecord.ATTR_ID, serialNo);
+                        request.setExtData(ATTR_KEY_RECORD, serialNo);
+                        storage.addKeyRecord(rec);
+                        logger.debug("NetkeyKeygenService: key archived for " + rCUID + ":" + rUserid);
 
-                    //??
-                    IKeyRepository storage = mKRA.getKeyRepository();
-                    BigInteger serialNo = storage.getNextSerialNumber();
+                        audit(SecurityDataArchivalProcessedEvent.createSuccessEvent(
+                                agentId,
+                                auditSubjectID,
+                                request.getRequestId(),
+                                null,
+                                new KeyId(serialNo),
+                                PubKey));
+                    } //if archive
 
-                    if (serialNo == null) {
-                        request.setExtData(IRequest.RESULT, Integer.valueOf(11));
-                        throw new Exception("Unable to generate next serial number");
-                    }
+                    request.setExtData(IRequest.RESULT, Integer.valueOf(1));
 
-                    rec.setWrappingParams(params, allowEncDecrypt_archival);
-
-                    logger.debug("NetkeyKeygenService: before addKeyRecord");
-                    rec.set(KeyRecord.ATTR_ID, serialNo);
-                    request.setExtData(ATTR_KEY_RECORD, serialNo);
-                    storage.addKeyRecord(rec);
-                    logger.debug("NetkeyKeygenService: key archived for " + rCUID + ":" + rUserid);
+                } catch (Exception e) {
+                    logger.warn("NetkeyKeygenService: " + e.getMessage(), e);
 
-                    audit(SecurityDataArchivalProcessedEvent.createSuccessEvent(
+                    audit(SecurityDataArchivalProcessedEvent.createFailureEvent(
                             agentId,
                             auditSubjectID,
                             request.getRequestId(),
                             null,
-                            new KeyId(serialNo),
+                            null,
+                            e.toString(),
                             PubKey));
-                } //if archive
-
-                request.setExtData(IRequest.RESULT, Integer.valueOf(1));
 
-            } catch (Exception e) {
-                logger.warn("NetkeyKeygenService: " + e.getMessage(), e);
+                    Integer result = request.getExtDataInInteger(IRequest.RESULT);
+                    if (result == null) {
+                        // set default RESULT code
+                        request.setExtData(IRequest.RESULT, Integer.valueOf(4));
+                    }
 
-                audit(SecurityDataArchivalProcessedEvent.createFailureEvent(
-                        agentId,
-                        auditSubjectID,
-                        request.getRequestId(),
-                        null,
-                        null,
-                        e.toString(),
-                        PubKey));
-
-                Integer result = request.getExtDataInInteger(IRequest.RESULT);
-                if (result == null) {
-                    // set default RESULT code
-                    request.setExtData(IRequest.RESULT, Integer.valueOf(4));
+                    return false;
+                }
+            } finally {
+                // pooled private keys are temporary keys unwrapped for this
+                // request, remove them from the token once they are wrapped
+                if (pooled) {
+                    KeyPairPool.destroyPrivateKey(keypair.getPrivate());
                 }
-
-                return false;
             }
 
         } else
@@ -0,0 +1,228 @@
+//--- BEGIN COPYRIGHT BLOCK ---
+//This program is free software; you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation; version 2 of the License.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License along
+//with this program; if not, write to the Free Software Foundation, Inc.,
+//51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+//(C) 2026 Red Hat, Inc.
+//All rights reserved.
+//--- END COPYRIGHT BLOCK ---
+package com.netscape.kra;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.base.IConfigStore;
+import com.netscape.certsrv.security.Credential;
+
+/**
+ * Sessions of distributed key recovery operations.
+ *
+ * Each session collects the credentials of the recovery agents. Once
+ * enough agents have approved the recovery, the session's credential
+ * future is completed and the recovery task registered for the session
+ * runs on a bounded pool of recovery threads, so no thread is parked
+ * while waiting for the approvals.
+ *
+ * Sessions are removed when the recovery result has been retrieved or
+ * once they are older than the session timeout.
+ *
+ * Configuration (kra.recovery):
+ * <pre>
+ * threads=2
+ * queueSize=100
+ * sessionTimeout=86400
+ * </pre>
+ */
+public class RecoverySessions {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RecoverySessions.class);
+
+    public static final String PROP_THREADS = "threads";
+    public static final String PROP_QUEUE_SIZE = "queueSize";
+    public static final String PROP_SESSION_TIMEOUT = "sessionTimeout";
+
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+    public static final int DEFAULT_SESSION_TIMEOUT = 86400; // seconds
+
+    private static final int SWEEP_INTERVAL = 60; // seconds
+
+    private int threads = DEFAULT_THREADS;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private long sessionTimeout = DEFAULT_SESSION_TIMEOUT * 1000L;
+
+    private Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor recoveryExecutor;
+    private ScheduledExecutorService sweepExecutor;
+
+    class Session {
+
+        String id;
+        long createTime = System.currentTimeMillis();
+
+        // request attributes and results, read by the servlets
+        Hashtable<String, Object> params = new Hashtable<>();
+
+        // approvals so far, guarded by the session
+        Vector<Credential> credentials = new Vector<>();
+
+        CompletableFuture<Credential[]> approved = new CompletableFuture<>();
+
+        Session(String id) {
+            this.id = id;
+        }
+    }
+
+    public void init(IConfigStore config) throws EBaseException {
+
+        threads = config.getInteger(PROP_THREADS, DEFAULT_THREADS);
+        queueSize = config.getInteger(PROP_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        sessionTimeout = config.getInteger(PROP_SESSION_TIMEOUT, DEFAULT_SESSION_TIMEOUT) * 1000L;
+
+        if (threads < 1) {
+            throw new EBaseException("Invalid kra.recovery." + PROP_THREADS + ": " + threads);
+        }
+
+        if (queueSize < 1) {
+            throw new EBaseException("Invalid kra.recovery." + PROP_QUEUE_SIZE + ": " + queueSize);
+        }
+
+        logger.debug("RecoverySessions: recovery threads: " + threads);
+        logger.debug("RecoverySessions: recovery queue size: " + queueSize);
+        logger.debug("RecoverySessions: session timeout: " + sessionTimeout + " ms");
+    }
+
+    public synchronized void start() {
+
+        recoveryExecutor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactory() {
+                    int count;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "KeyRecovery-" + count++);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        sweepExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "RecoverySessionsSweeper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        sweepExecutor.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    public synchronized void shutdown() {
+
+        if (sweepExecutor != null) {
+            sweepExecutor.shutdownNow();
+            sweepExecutor = null;
+        }
+
+        if (recoveryExecutor != null) {
+            recoveryExecutor.shutdownNow();
+            recoveryExecutor = null;
+        }
+
+        for (Session session : sessions.values()) {
+            session.approved.completeExceptionally(new EBaseException("Server is shutting down"));
+        }
+        sessions.clear();
+    }
+
+    public Hashtable<String, Object> create(String id) {
+        Session session = new Session(id);
+        sessions.put(id, session);
+        return session.params;
+    }
+
+    public void remove(String id) {
+        sessions.remove(id);
+    }
+
+    Session get(String id) {
+        return sessions.get(id);
+    }
+
+    public Hashtable<String, Object> getParams(String id) {
+        Session session = sessions.get(id);
+        return session == null ? null : session.params;
+    }
+
+    /**
+     * Removes sessions older than the session timeout. Recovery
+     * operations still waiting for approvals fail.
+     */
+    void sweep() {
+
+        long expiration = System.currentTimeMillis() - sessionTimeout;
+
+        for (Iterator<Session> i = sessions.values().iterator(); i.hasNext(); ) {
+            Session session = i.next();
+            if (session.createTime >= expiration) {
+                continue;
+            }
+
+            logger.info("RecoverySessions: recovery session " + session.id + " expired");
+            i.remove();
+            session.approved.completeExceptionally(
+                    new EBaseException("Recovery session " + session.id + " expired"));
+        }
+    }
+
+    /**
+     * Runs a task on the recovery threads once the session has been
+     * approved. If the session fails (e.g. expires) or the recovery
+     * queue is full, the error handler is called instead.
+     */
+    void whenApproved(Session session, Consumer<Credential[]> task, Consumer<Throwable> errorHandler) {
+
+        session.approved.whenComplete((creds, e) -> {
+
+            if (e != null) {
+                errorHandler.accept(e);
+                return;
+            }
+
+            ThreadPoolExecutor executor = recoveryExecutor;
+            if (executor == null) {
+                errorHandler.accept(new EBaseException("Key recovery is not available"));
+                return;
+            }
+
+            try {
+                executor.execute(() -> task.accept(creds));
+            } catch (RejectedExecutionException ree) {
+                logger.warn("RecoverySessions: recovery queue is full");
+                errorHandler.accept(new EBaseException("Too many pending key recoveries"));
+            }
+        });
+    }
+}
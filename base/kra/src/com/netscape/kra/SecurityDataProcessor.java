@@ -6,8 +6,15 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.crypto.spec.RC2ParameterSpec;
 
@@ -373,7 +380,6 @@ public class SecurityDataProcessor {
         logger.debug("SecurityDataService.recover(): start");
 
         CMSEngine engine = CMS.getCMSEngine();
-        JssSubsystem jssSubsystem = engine.getJSSSubsystem();
 
         EngineConfig config = null;
 
@@ -394,6 +400,138 @@ public class SecurityDataProcessor {
             throw new EBaseException("Can't obtain volatile params!");
         }
 
+        String transWrappedSessKeyStr = (String) params.get(IRequest.SECURITY_DATA_TRANS_SESS_KEY);
+        String sessWrappedPassPhraseStr = (String) params.get(IRequest.SECURITY_DATA_SESS_PASS_PHRASE);
+
+        if (transWrappedSessKeyStr == null && sessWrappedPassPhraseStr == null) {
+            //We may be in recovery case where no params were initially submitted.
+            logger.warn("SecurityDataProcessor.recover(): No params provided.");
+            return false;
+        }
+
+        recoverKey(keyId, params, null);
+
+        request.setExtData(IRequest.RESULT, IRequest.RES_SUCCESS);
+
+        return false; //return true ? TODO
+    }
+
+    /**
+     * Recovers multiple keys in a single request. The keys are
+     * recovered in parallel on the KRA's batch recovery threads and
+     * wrapped with the same session key, which is only unwrapped once.
+     *
+     * The results of each key are stored in a separate table in the
+     * SECURITY_DATA_BATCH_RESULTS volatile parameter. If a key cannot be
+     * recovered, its table only contains SECURITY_DATA_ERROR.
+     */
+    public boolean recoverBatch(IRequest request)
+            throws EBaseException {
+
+        logger.debug("SecurityDataProcessor.recoverBatch(): start");
+
+        CMSEngine engine = CMS.getCMSEngine();
+        EngineConfig config = engine.getConfig();
+        allowEncDecrypt_recovery = config.getBoolean("kra.allowEncDecrypt.recovery", false);
+
+        Hashtable<String, Object> params = kra.getVolatileRequest(
+                request.getRequestId());
+
+        if (params == null) {
+            logger.error("SecurityDataProcessor.recoverBatch(): Can't get volatile params.");
+            throw new EBaseException("Can't obtain volatile params!");
+        }
+
+        if (params.get(IRequest.SECURITY_DATA_TRANS_SESS_KEY) == null) {
+            throw new EBaseException("Batch recovery requires a wrapped session key");
+        }
+
+        String[] keyIds = request.getExtDataInStringArray(IRequest.SECURITY_DATA_BATCH_KEY_IDS);
+        if (keyIds == null) {
+            throw new EBaseException("Missing key IDs in batch recovery request");
+        }
+
+        Map<SymmetricKey.Usage, SymmetricKey> sessionKeys = new ConcurrentHashMap<>();
+        List<Future<Hashtable<String, Object>>> futures = new ArrayList<>();
+
+        ExecutorService executor = kra.getBatchRecoveryExecutor();
+
+        for (String keyId : keyIds) {
+
+            Hashtable<String, Object> keyParams = new Hashtable<>();
+            for (String name : new String[] {
+                    IRequest.SECURITY_DATA_TRANS_SESS_KEY,
+                    IRequest.SECURITY_DATA_PL_ENCRYPTION_OID,
+                    IRequest.SECURITY_DATA_PL_WRAPPING_NAME }) {
+                Object value = params.get(name);
+                if (value != null) {
+                    keyParams.put(name, value);
+                }
+            }
+
+            futures.add(executor.submit(() -> {
+                try {
+                    KeyRecord keyRecord = recoverKey(new KeyId(keyId), keyParams, sessionKeys);
+
+                    // key information returned with each key
+                    if (keyRecord.getAlgorithm() != null) {
+                        keyParams.put(IRequest.SECURITY_DATA_ALGORITHM, keyRecord.getAlgorithm());
+                    }
+                    if (keyRecord.getKeySize() != null) {
+                        keyParams.put(IRequest.SECURITY_DATA_STRENGTH, keyRecord.getKeySize());
+                    }
+                    if (keyRecord.getPublicKeyData() != null) {
+                        keyParams.put(IRequest.SECURITY_DATA_PUBLIC_KEY, keyRecord.getPublicKeyData());
+                    }
+
+                } catch (Exception e) {
+                    logger.warn("SecurityDataProcessor.recoverBatch(): Unable to recover key " + keyId
+                            + ": " + e.getMessage(), e);
+                    keyParams.clear();
+                    keyParams.put(IRequest.SECURITY_DATA_ERROR,
+                            e.getMessage() == null ? e.toString() : e.getMessage());
+                }
+                return keyParams;
+            }));
+        }
+
+        Hashtable<String, Hashtable<String, Object>> results = new Hashtable<>();
+
+        try {
+            for (int i = 0; i < keyIds.length; i++) {
+                results.put(keyIds[i], futures.get(i).get());
+            }
+
+        } catch (InterruptedException e) {
+            for (Future<Hashtable<String, Object>> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new EBaseException("Batch recovery interrupted", e);
+
+        } catch (ExecutionException e) {
+            throw new EBaseException("Batch recovery failed: " + e.getCause(), e.getCause());
+        }
+
+        params.put(IRequest.SECURITY_DATA_BATCH_RESULTS, results);
+        request.setExtData(IRequest.RESULT, IRequest.RES_SUCCESS);
+
+        return false;
+    }
+
+    /**
+     * Recovers a single key and stores the wrapped key in the params.
+     *
+     * @param sessionKeys unwrapped session keys shared by the keys of
+     *            a batch, or null to unwrap the session key
+     * @return the key record
+     */
+    private KeyRecord recoverKey(KeyId keyId, Hashtable<String, Object> params,
+            Map<SymmetricKey.Usage, SymmetricKey> sessionKeys) throws EBaseException {
+
+        CMSEngine engine = CMS.getCMSEngine();
+        JssSubsystem jssSubsystem = engine.getJSSSubsystem();
+
         String transWrappedSessKeyStr = (String) params.get(IRequest.SECURITY_DATA_TRANS_SESS_KEY);
         byte[] wrappedSessKey = null;
         if (transWrappedSessKeyStr != null) {
@@ -406,12 +544,6 @@ public class SecurityDataProcessor {
             wrappedPassPhrase = Utils.base64decode(sessWrappedPassPhraseStr);
         }
 
-        if (transWrappedSessKeyStr == null && sessWrappedPassPhraseStr == null) {
-            //We may be in recovery case where no params were initially submitted.
-            logger.warn("SecurityDataProcessor.recover(): No params provided.");
-            return false;
-        }
-
         KeyRecord keyRecord = (KeyRecord) keyRepository.readKeyRecord(keyId.toBigInteger());
 
         String dataType = (String) keyRecord.get(IKeyRecord.ATTR_DATA_TYPE);
@@ -527,8 +659,8 @@ public class SecurityDataProcessor {
             Password pass = null;
 
             try {
-                unwrappedSess = transportUnit.unwrap_session_key(ct, wrappedSessKey,
-                        SymmetricKey.Usage.DECRYPT, wrapParams);
+                unwrappedSess = unwrapSessionKey(ct, wrappedSessKey,
+                        SymmetricKey.Usage.DECRYPT, wrapParams, sessionKeys);
 
                 unwrappedPass = CryptoUtil.decryptUsingSymmetricKey(
                         ct,
@@ -589,8 +721,8 @@ public class SecurityDataProcessor {
                 try {
                     if (encrypted) {
                         logger.debug("SecurityDataProcessor.recover(): encrypt symmetric key with session key as per allowEncDecrypt_recovery: true.");
-                        unwrappedSess = transportUnit.unwrap_session_key(ct, wrappedSessKey,
-                                SymmetricKey.Usage.ENCRYPT, wrapParams);
+                        unwrappedSess = unwrapSessionKey(ct, wrappedSessKey,
+                                SymmetricKey.Usage.ENCRYPT, wrapParams, sessionKeys);
                         key_data = CryptoUtil.encryptUsingSymmetricKey(
                                 ct,
                                 unwrappedSess,
@@ -598,8 +730,8 @@ public class SecurityDataProcessor {
                                 wrapParams.getPayloadEncryptionAlgorithm(),
                                 wrapParams.getPayloadEncryptionIV());
                     } else {
-                        unwrappedSess = transportUnit.unwrap_session_key(ct, wrappedSessKey,
-                                SymmetricKey.Usage.WRAP, wrapParams);
+                        unwrappedSess = unwrapSessionKey(ct, wrappedSessKey,
+                                SymmetricKey.Usage.WRAP, wrapParams, sessionKeys);
                         key_data = CryptoUtil.wrapUsingSymmetricKey(
                                 ct,
                                 unwrappedSess,
@@ -616,8 +748,8 @@ public class SecurityDataProcessor {
             } else if (dataType.equals(KeyRequestResource.PASS_PHRASE_TYPE)) {
                 logger.debug("SecurityDataProcessor.recover(): encrypt stored passphrase with session key");
                 try {
-                    unwrappedSess = transportUnit.unwrap_session_key(ct, wrappedSessKey,
-                            SymmetricKey.Usage.ENCRYPT, wrapParams);
+                    unwrappedSess = unwrapSessionKey(ct, wrappedSessKey,
+                            SymmetricKey.Usage.ENCRYPT, wrapParams, sessionKeys);
 
                     key_data = CryptoUtil.encryptUsingSymmetricKey(
                             ct,
@@ -635,8 +767,8 @@ public class SecurityDataProcessor {
                 try {
                     if (encrypted) {
                         logger.debug("SecurityDataProcessor.recover(): encrypt symmetric key.");
-                        unwrappedSess = transportUnit.unwrap_session_key(ct, wrappedSessKey,
-                                SymmetricKey.Usage.ENCRYPT, wrapParams);
+                        unwrappedSess = unwrapSessionKey(ct, wrappedSessKey,
+                                SymmetricKey.Usage.ENCRYPT, wrapParams, sessionKeys);
 
                         key_data = CryptoUtil.encryptUsingSymmetricKey(
                                 ct,
@@ -646,8 +778,8 @@ public class SecurityDataProcessor {
                                 wrapParams.getPayloadEncryptionIV());
 
                     } else {
-                        unwrappedSess = transportUnit.unwrap_session_key(ct, wrappedSessKey,
-                                SymmetricKey.Usage.WRAP, wrapParams);
+                        unwrappedSess = unwrapSessionKey(ct, wrappedSessKey,
+                                SymmetricKey.Usage.WRAP, wrapParams, sessionKeys);
                         key_data = CryptoUtil.wrapUsingSymmetricKey(
                                 ct,
                                 unwrappedSess,
@@ -690,9 +822,24 @@ public class SecurityDataProcessor {
         jssSubsystem.obscureBytes(unwrappedSecData);
 
         params.put(IRequest.SECURITY_DATA_TYPE, dataType);
-        request.setExtData(IRequest.RESULT, IRequest.RES_SUCCESS);
 
-        return false; //return true ? TODO
+        return keyRecord;
+    }
+
+    private SymmetricKey unwrapSessionKey(CryptoToken ct, byte[] wrappedSessKey, SymmetricKey.Usage usage,
+            WrappingParams wrapParams, Map<SymmetricKey.Usage, SymmetricKey> sessionKeys) throws Exception {
+
+        if (sessionKeys == null) {
+            return transportUnit.unwrap_session_key(ct, wrappedSessKey, usage, wrapParams);
+        }
+
+        // the session key is the same for all keys in a batch
+        SymmetricKey sessionKey = sessionKeys.get(usage);
+        if (sessionKey == null) {
+            sessionKey = transportUnit.unwrap_session_key(ct, wrappedSessKey, usage, wrapParams);
+            sessionKeys.put(usage, sessionKey);
+        }
+        return sessionKey;
     }
 
     /***
@@ -17,6 +17,7 @@ import org.dogtagpki.server.rest.SecurityDomainHostService;
 import org.dogtagpki.server.rest.SecurityDomainService;
 import org.dogtagpki.server.rest.SelfTestService;
 import org.dogtagpki.server.rest.SessionContextInterceptor;
+import org.dogtagpki.server.rest.StatsService;
 import org.dogtagpki.server.rest.UserService;
 
 import com.netscape.certsrv.base.EBaseException;
@@ -63,6 +64,9 @@ public class KRAApplication extends Application {
         // selftests
         classes.add(SelfTestService.class);
 
+        // statistics
+        classes.add(StatsService.class);
+
         // user and group management
         classes.add(GroupService.class);
         classes.add(UserService.class);
@@ -28,6 +28,7 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 
 import javax.ws.rs.Path;
 import javax.ws.rs.core.MultivaluedMap;
@@ -52,7 +53,9 @@ import com.netscape.certsrv.dbs.ModificationSet;
 import com.netscape.certsrv.dbs.keydb.IKeyRecord;
 import com.netscape.certsrv.dbs.keydb.IKeyRepository;
 import com.netscape.certsrv.dbs.keydb.KeyId;
+import com.netscape.certsrv.key.KeyBatchRecoveryRequest;
 import com.netscape.certsrv.key.KeyData;
+import com.netscape.certsrv.key.KeyDataCollection;
 import com.netscape.certsrv.key.KeyInfo;
 import com.netscape.certsrv.key.KeyInfoCollection;
 import com.netscape.certsrv.key.KeyNotFoundException;
@@ -89,6 +92,9 @@ public class KeyService extends SubsystemService implements KeyResource {
     public static final int DEFAULT_MAXTIME = 10;
     public static final String ATTR_SERIALNO = "serialNumber";
 
+    // maximum number of keys in a batch recovery request
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private IKeyRepository repo;
     private IKeyRecoveryAuthority kra;
     private IRequestQueue queue;
@@ -428,6 +434,217 @@ public class KeyService extends SubsystemService implements KeyResource {
         return keyData;
     }
 
+    /**
+     * Used to retrieve multiple keys in a single request
+     *
+     * Only synchronous retrievals are supported. The keys are recovered
+     * in parallel and returned wrapped with the same session key.
+     * If any key cannot be recovered, no key is returned.
+     */
+    @Override
+    public Response retrieveKeys(KeyBatchRecoveryRequest data) {
+
+        logger.info("KeyService: Processing batch key recovery request");
+
+        try {
+            return retrieveKeysImpl(data);
+
+        } catch(RuntimeException e) {
+            logger.error("Unable to recover keys: " + e.getMessage(), e);
+            throw e;
+
+        } catch (Exception e) {
+            logger.error("Unable to recover keys: " + e.getMessage(), e);
+            throw new PKIException(e.getMessage(), e);
+        }
+    }
+
+    public Response retrieveKeysImpl(KeyBatchRecoveryRequest data) throws Exception {
+
+        if (data == null) {
+            auditRetrieveKeyError("KeyService: Missing batch key recovery request");
+            throw new BadRequestException("Missing batch key recovery request");
+        }
+
+        auditInfo = "KeyService.retrieveKeys";
+
+        Collection<KeyId> keyIds = data.getKeyIds();
+
+        if (keyIds == null || keyIds.isEmpty()) {
+            auditRetrieveKeyError("Missing key IDs");
+            throw new BadRequestException("Missing key IDs");
+        }
+
+        if (keyIds.size() > MAX_BATCH_SIZE) {
+            auditRetrieveKeyError("Too many keys: " + keyIds.size());
+            throw new BadRequestException("Too many keys: " + keyIds.size() + " (max: " + MAX_BATCH_SIZE + ")");
+        }
+
+        // synchronous and ephemeral retrievals are configured by realm,
+        // so all keys in the batch must be in the same realm
+        String realm = getBatchRealm(keyIds);
+        logger.info("KeyService: realm: " + realm);
+
+        if (!kra.isRetrievalSynchronous(realm)) {
+            auditRetrieveKeyError("Batch key recovery requires synchronous retrieval");
+            throw new BadRequestException("Batch key recovery requires synchronous retrieval");
+        }
+
+        boolean ephemeral = kra.isEphemeral(realm);
+
+        auditInfo += ";synchronous=true";
+        auditInfo += ";ephemeral=" + ephemeral;
+
+        logger.info("KeyService: Creating batch recovery request for " + keyIds.size() + " keys");
+
+        KeyRequestDAO reqDAO = new KeyRequestDAO();
+        IRequest request = null;
+        try {
+            request = reqDAO.createBatchRecoveryRequest(data, getRequestor(), getAuthToken(), ephemeral);
+        } catch (EBaseException e) {
+            auditRetrieveKeyError("Unable to create batch recovery request: " + e.getMessage());
+            throw new PKIException("Unable to create batch recovery request: " + e.getMessage(), e);
+        }
+
+        requestId = request.getRequestId();
+        logger.info("KeyService: Created request " + requestId);
+
+        auditInfo += ";requestID=" + requestId;
+
+        for (KeyId id : data.getKeyIds()) {
+            keyId = id;
+            auditRecoveryRequest(ILogger.SUCCESS);
+        }
+
+        request.setRequestStatus(RequestStatus.APPROVED);
+        approvers = request.getExtDataInString(IRequest.ATTR_APPROVE_AGENTS);
+
+        Hashtable<String, Object> requestParams = reqDAO.getTransientData(request);
+        Hashtable<String, Hashtable<String, Object>> results;
+
+        try {
+            kra.processSynchronousRequest(request);
+
+            @SuppressWarnings("unchecked")
+            Hashtable<String, Hashtable<String, Object>> batchResults =
+                    (Hashtable<String, Hashtable<String, Object>>) requestParams.get(IRequest.SECURITY_DATA_BATCH_RESULTS);
+            results = batchResults;
+
+        } catch (EBaseException e) {
+            for (KeyId id : data.getKeyIds()) {
+                keyId = id;
+                auditRecoveryRequestProcessed(ILogger.FAILURE, e.getMessage());
+                auditRetrieveKey(ILogger.FAILURE, e.getMessage());
+            }
+            throw new PKIException(e.getMessage(), e);
+
+        } finally {
+            kra.destroyVolatileRequest(request.getRequestId());
+        }
+
+        // audit the result of each key
+        List<String> failedKeys = new ArrayList<>();
+        for (KeyId id : data.getKeyIds()) {
+            keyId = id;
+            String error = (String) results.get(id.toString()).get(IRequest.SECURITY_DATA_ERROR);
+            if (error != null) {
+                failedKeys.add(id.toString());
+                auditRecoveryRequestProcessed(ILogger.FAILURE, error);
+            } else {
+                auditRecoveryRequestProcessed(ILogger.SUCCESS, null);
+            }
+        }
+
+        if (!failedKeys.isEmpty()) {
+            String message = "Unable to recover keys: " + String.join(", ", failedKeys);
+            for (KeyId id : data.getKeyIds()) {
+                keyId = id;
+                String error = (String) results.get(id.toString()).get(IRequest.SECURITY_DATA_ERROR);
+                auditRetrieveKey(ILogger.FAILURE, error != null ? error : message);
+            }
+            throw new PKIException(message);
+        }
+
+        KeyDataCollection collection = new KeyDataCollection();
+        for (KeyId id : data.getKeyIds()) {
+            keyId = id;
+            collection.addEntry(createKeyData(id, results.get(id.toString())));
+            auditRetrieveKey(ILogger.SUCCESS);
+        }
+        collection.setTotal(collection.getEntries().size());
+
+        request.setRequestStatus(RequestStatus.COMPLETE);
+        if (!ephemeral) {
+            // stores the request in LDAP
+            queue.updateRequest(request);
+        }
+
+        return createOKResponse(collection);
+    }
+
+    /**
+     * Returns the realm of the keys in a batch recovery request.
+     *
+     * @exception BadRequestException keys are in different realms
+     */
+    private String getBatchRealm(Collection<KeyId> keyIds) throws EBaseException {
+
+        String realm = null;
+        boolean first = true;
+
+        for (KeyId id : keyIds) {
+
+            IKeyRecord rec;
+            try {
+                rec = repo.readKeyRecord(id.toBigInteger());
+            } catch (EDBRecordNotFoundException e) {
+                auditRetrieveKeyError("Key not found: " + id);
+                throw new KeyNotFoundException(id, "key not found to recover", e);
+            }
+
+            if (first) {
+                realm = rec.getRealm();
+                first = false;
+
+            } else if (!Objects.equals(realm, rec.getRealm())) {
+                auditRetrieveKeyError("All keys must be in the same realm");
+                throw new BadRequestException("All keys must be in the same realm");
+            }
+        }
+
+        return realm;
+    }
+
+    private KeyData createKeyData(KeyId keyId, Hashtable<String, Object> result) {
+
+        KeyData keyData = new KeyData();
+        keyData.setKeyID(keyId);
+        keyData.setWrappedPrivateData((String) result.get(IRequest.SECURITY_DATA_SESS_WRAPPED_DATA));
+        keyData.setNonceData((String) result.get(IRequest.SECURITY_DATA_IV_STRING_OUT));
+        keyData.setType((String) result.get(IRequest.SECURITY_DATA_TYPE));
+
+        String payloadWrapped = (String) result.get(IRequest.SECURITY_DATA_PL_WRAPPED);
+        // either wrapAlgorithm or encryptAlgorithm will be set.  This will tell the
+        // client which mechanism was used to encrypt the secret
+        if (payloadWrapped.equalsIgnoreCase("true")) {
+            keyData.setWrapAlgorithm(
+                    (String) result.get(IRequest.SECURITY_DATA_PL_WRAPPING_NAME));
+        } else {
+            keyData.setEncryptAlgorithmOID(
+                    (String) result.get(IRequest.SECURITY_DATA_PL_ENCRYPTION_OID));
+        }
+
+        keyData.setAlgorithm((String) result.get(IRequest.SECURITY_DATA_ALGORITHM));
+        keyData.setSize((Integer) result.get(IRequest.SECURITY_DATA_STRENGTH));
+
+        byte[] pubKeyBytes = (byte[]) result.get(IRequest.SECURITY_DATA_PUBLIC_KEY);
+        if (pubKeyBytes != null) {
+            keyData.setPublicKey(Utils.base64encode(pubKeyBytes, true));
+        }
+
+        return keyData;
+    }
+
     private void validateRequest(KeyRecoveryRequest data, IRequest request) {
         String method = "KeyService.validateRequest: ";
         logger.debug(method + "begins.");
@@ -21,6 +21,7 @@ import java.security.KeyPair;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
 
 import org.dogtagpki.legacy.policy.IPolicyProcessor;
 import org.mozilla.jss.crypto.CryptoToken;
@@ -326,6 +327,12 @@ public interface IKeyRecoveryAuthority extends ISubsystem {
      */
     public void processSynchronousRequest(IRequest request) throws EBaseException;
 
+    /**
+     * Returns the executor used to recover the keys of a batch
+     * recovery request in parallel.
+     */
+    public ExecutorService getBatchRecoveryExecutor();
+
     /**
      * Are ephemeral requests enabled for SECURITY_DATA recovery and archival
      * @param realm authz realm
@@ -353,4 +360,14 @@ public interface IKeyRecoveryAuthority extends ISubsystem {
             PQGParams pqg, KeyPairGeneratorSpi.Usage[] usageList) throws EBaseException;
     public KeyPair generateKeyPair(String alg, int keySize, String keyCurve,
             PQGParams pqg, KeyPairGeneratorSpi.Usage[] usageList, boolean temporary) throws EBaseException;
+
+    /**
+     * Claims a pre-generated asymmetric key pair from the key pair pool.
+     *
+     * @param alg "RSA" or "EC"
+     * @param keySize key size (RSA only)
+     * @param keyCurve key curve (EC only)
+     * @return key pair, or null if the pool is disabled or empty
+     */
+    public KeyPair getPooledKeyPair(String alg, int keySize, String keyCurve);
 }
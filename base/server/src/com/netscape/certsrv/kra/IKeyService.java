@@ -19,6 +19,7 @@ package com.netscape.certsrv.kra;
 
 import java.math.BigInteger;
 import java.util.Hashtable;
+import java.util.function.Consumer;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.security.Credential;
@@ -178,4 +179,16 @@ public interface IKeyService {
      */
     public Credential[] getDistributedCredentials(String recoveryID)
             throws EBaseException;
+
+    /**
+     * Runs a task once all the credentials of the distributed
+     * recovery operation are collected. The task runs on a bounded
+     * pool of recovery threads; no thread waits for the approvals.
+     *
+     * @param recoveryID recovery id
+     * @param task task receiving the agents' credentials
+     * @exception EBaseException recovery operation not found
+     */
+    public void whenApproved(String recoveryID, Consumer<Credential[]> task)
+            throws EBaseException;
 }
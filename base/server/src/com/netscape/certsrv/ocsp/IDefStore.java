@@ -91,6 +91,20 @@ public interface IDefStore extends IOCSPStore {
      */
     public void updateCRL(X509CRL crl) throws EBaseException;
 
+    /**
+     * This method merges a delta CRL into the CRL of its issuer.
+     * The delta CRL can only be applied if it is based on the CRL
+     * currently stored (or on the last delta CRL applied to it);
+     * otherwise the full CRL has to be published again.
+     * <P>
+     *
+     * @param deltaCRL the delta CRL
+     * @return true if the delta CRL was applied (or already applied),
+     *         false if the full CRL is required
+     * @exception EBaseException occurs when the CRL cannot be updated
+     */
+    public boolean updateDeltaCRL(X509CRL deltaCRL) throws EBaseException;
+
     /**
      * This method attempts to read the CRL issuing point.
      * <P>
@@ -102,6 +116,19 @@ public interface IDefStore extends IOCSPStore {
     public ICRLIssuingPointRecord readCRLIssuingPoint(String name)
             throws EBaseException;
 
+    /**
+     * This method reads selected attributes of the CRL issuing point,
+     * e.g. to avoid loading the CRL cache.
+     * <P>
+     *
+     * @param name the name of the CRL to be read
+     * @param attrs the attributes to be read
+     * @return ICRLIssuingPointRecord the CRL issuing point
+     * @exception EBaseException occurs when the specified CRL cannot be located
+     */
+    public ICRLIssuingPointRecord readCRLIssuingPoint(String name, String attrs[])
+            throws EBaseException;
+
     /**
      * This method searches all CRL issuing points.
      * <P>
@@ -43,6 +43,7 @@ public interface IPublisherProcessor {
     public final static String PROP_PUBLISH_SUBSTORE = "publish";
     public final static String PROP_LDAP_PUBLISH_SUBSTORE = "ldappublish";
     public final static String PROP_QUEUE_PUBLISH_SUBSTORE = "queue";
+    public final static String PROP_OCSP_PUBLISHING_THREADS = "ocspPublishingThreads";
 
     public static final String PROP_LOCAL_CA = "cacert";
     public static final String PROP_LOCAL_CRL = "crl";
@@ -18,13 +18,18 @@
 package com.netscape.cms.jobs;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Vector;
 
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IConfigStore;
 import com.netscape.certsrv.base.ISubsystem;
+import com.netscape.certsrv.dbs.certdb.ICertRecord;
+import com.netscape.certsrv.dbs.certdb.ICertificateRepository;
 import com.netscape.certsrv.jobs.IJob;
 import com.netscape.certsrv.jobs.IJobCron;
 import com.netscape.certsrv.notification.ENotificationException;
@@ -54,6 +59,7 @@ public abstract class AJobBase implements IJob, Runnable {
     protected static final String PROP_ITEM_TEMPLATE = "itemTemplate";
     protected static final String PROP_SENDER_EMAIL = "senderEmail";
     protected static final String PROP_RECEIVER_EMAIL = "recipientEmail";
+    protected static final String PROP_PAGE_SIZE = "pageSize";
 
     protected static final String STATUS_FAILURE = "failed";
     protected static final String STATUS_SUCCESS = "succeeded";
@@ -76,6 +82,9 @@ public abstract class AJobBase implements IJob, Runnable {
     protected Hashtable<String, Object> mContentParams = new Hashtable<String, Object>();
     protected Hashtable<String, Object> mItemParams = new Hashtable<String, Object>();
 
+    // serial number where the next paged search starts, kept across runs
+    protected BigInteger mCheckpoint = BigInteger.ZERO;
+
     boolean stopped;
 
     public AJobBase() {
@@ -256,6 +265,55 @@ public abstract class AJobBase implements IJob, Runnable {
         }
     }
 
+    /**
+     * Finds the certificate records that satisfy the filter.
+     * <p>
+     * If the job has a page size (<b>pageSize</b> parameter) only one page
+     * of records sorted by serial number is returned, starting after the
+     * last record returned by the previous run. After the last page the
+     * next run starts from the beginning again. This way a large search
+     * is spread over multiple runs. Without a page size all records are
+     * returned.
+     *
+     * @param repository certificate repository
+     * @param filter search filter
+     * @return certificate records
+     * @exception EBaseException failed to search
+     */
+    protected Enumeration<Object> findCertRecords(ICertificateRepository repository, String filter)
+            throws EBaseException {
+
+        int pageSize = mConfig.getInteger(PROP_PAGE_SIZE, 0);
+        if (pageSize <= 0) {
+            return repository.findCertRecs(filter);
+        }
+
+        logger.info("AJobBase: " + mId + ": searching " + pageSize + " records from serial number " + mCheckpoint);
+
+        String pageFilter = "(&" + filter + "(" + ICertRecord.ATTR_ID + ">=" + mCheckpoint + "))";
+        Enumeration<Object> e = repository.searchCertificates(pageFilter, pageSize, "serialno");
+
+        Vector<Object> records = new Vector<Object>();
+        ICertRecord last = null;
+
+        while (e != null && e.hasMoreElements()) {
+            Object obj = e.nextElement();
+            if (obj instanceof ICertRecord) {
+                records.add(obj);
+                last = (ICertRecord) obj;
+            }
+        }
+
+        if (last == null || records.size() < pageSize) {
+            // last page, start over in the next run
+            mCheckpoint = BigInteger.ZERO;
+        } else {
+            mCheckpoint = last.getSerialNumber().add(BigInteger.ONE);
+        }
+
+        return records.elements();
+    }
+
     public void stop() {
         stopped = true;
     }
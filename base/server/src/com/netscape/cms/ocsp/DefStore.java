@@ -26,12 +26,17 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Vector;
 
 import org.mozilla.jss.asn1.ASN1Util;
 import org.mozilla.jss.asn1.GeneralizedTime;
 import org.mozilla.jss.asn1.INTEGER;
 import org.mozilla.jss.asn1.OCTET_STRING;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
+import org.mozilla.jss.netscape.security.x509.CRLReasonExtension;
+import org.mozilla.jss.netscape.security.x509.RevocationReason;
+import org.mozilla.jss.netscape.security.x509.RevokedCertImpl;
 import org.mozilla.jss.netscape.security.x509.RevokedCertificate;
 import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
 import org.mozilla.jss.netscape.security.x509.X509CertImpl;
@@ -55,6 +60,7 @@ import com.netscape.certsrv.ocsp.IOCSPAuthority;
 import com.netscape.certsrv.util.IStatsSubsystem;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
+import com.netscape.cmscore.cert.CertUtils;
 import com.netscape.cmscore.dbs.CRLIssuingPointRecord;
 import com.netscape.cmscore.dbs.DBSubsystem;
 import com.netscape.cmscore.dbs.RepositoryRecord;
@@ -109,6 +115,14 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
     protected boolean mByName = true;
     protected boolean mIncludeNextUpdate = false;
     protected Hashtable<String, CRLIPContainer> mCacheCRLIssuingPoints = new Hashtable<String, CRLIPContainer>();
+
+    // attributes needed to check whether a delta CRL can be applied
+    private final static String DELTA_CRL_ATTRS[] = {
+            "objectclass",
+            ICRLIssuingPointRecord.ATTR_ID,
+            ICRLIssuingPointRecord.ATTR_CRL_NUMBER,
+            ICRLIssuingPointRecord.ATTR_DELTA_NUMBER
+    };
     private IOCSPAuthority mOCSPAuthority;
     private IConfigStore mConfig = null;
     private String mId = null;
@@ -441,6 +455,7 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         // cache result to speed up the performance
         X509CertImpl theCert = null;
         X509CRLImpl theCRL = null;
+        X509CRLImpl theDeltaCRL = null;
         ICRLIssuingPointRecord theRec = null;
         byte keyhsh[] = cid.getIssuerKeyHash().toByteArray();
         CRLIPContainer matched = mCacheCRLIssuingPoints.get(new String(keyhsh));
@@ -493,7 +508,10 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                     logger.debug("DefStore: using crl cache");
                 }
 
-                mCacheCRLIssuingPoints.put(new String(digest), new CRLIPContainer(theRec, theCert, theCRL));
+                theDeltaCRL = getDeltaCRL(rec);
+
+                mCacheCRLIssuingPoints.put(new String(digest),
+                        new CRLIPContainer(theRec, theCert, theCRL, theDeltaCRL));
                 break;
             }
 
@@ -501,6 +519,7 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
             theCert = matched.getX509CertImpl();
             theRec = matched.getCRLIssuingPointRecord();
             theCRL = matched.getX509CRLImpl();
+            theDeltaCRL = matched.getDeltaCRL();
             incReqCount(theRec.getId());
         }
 
@@ -515,6 +534,10 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
 
         if (theRec == null) {
             thisUpdate = new GeneralizedTime(new Date());
+        } else if (theDeltaCRL != null) {
+            Date d = theDeltaCRL.getThisUpdate();
+            logger.debug("DefStore: delta CRL this update: " + d);
+            thisUpdate = new GeneralizedTime(d);
         } else {
             Date d = theRec.getThisUpdate();
             logger.debug("DefStore: CRL record this update: " + d);
@@ -532,6 +555,11 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         } else if (theRec == null) {
             nextUpdate = new GeneralizedTime(new Date());
 
+        } else if (theDeltaCRL != null && theDeltaCRL.getNextUpdate() != null) {
+            Date d = theDeltaCRL.getNextUpdate();
+            logger.debug("DefStore: delta CRL next update: " + d);
+            nextUpdate = new GeneralizedTime(d);
+
         } else {
             Date d = theRec.getNextUpdate();
             logger.debug("DefStore: CRL record next update: " + d);
@@ -542,6 +570,25 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
 
         CertStatus certStatus;
 
+        // changes in the delta CRL take precedence over the CRL
+        if (theDeltaCRL != null) {
+            X509CRLEntry deltaEntry = theDeltaCRL.getRevokedCertificate(new BigInteger(serialNo.toString()));
+
+            if (deltaEntry != null) {
+                logger.debug("DefStore: found certificate in delta CRL");
+
+                if (isRemovedFromCRL(deltaEntry)) {
+                    certStatus = new GoodInfo();
+                } else {
+                    certStatus = new RevokedInfo(new GeneralizedTime(
+                            deltaEntry.getRevocationDate()));
+                }
+
+                return new SingleResponse(cid, certStatus, thisUpdate,
+                        nextUpdate);
+            }
+        }
+
         if (theCRL == null) {
 
             certStatus = new UnknownInfo();
@@ -670,6 +717,28 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         return rec;
     }
 
+    /**
+     * Returns selected attributes of an issuing point.
+     */
+    public ICRLIssuingPointRecord readCRLIssuingPoint(String name, String attrs[])
+            throws EBaseException {
+        IDBSSession s = dbSubsystem.createSession();
+        ICRLIssuingPointRecord rec = null;
+
+        try {
+            String dn = "cn=" +
+                    transformDN(name) + "," + getBaseDN();
+
+            if (s != null) {
+                rec = (ICRLIssuingPointRecord) s.read(dn, attrs);
+            }
+        } finally {
+            if (s != null)
+                s.close();
+        }
+        return rec;
+    }
+
     public ICRLIssuingPointRecord createCRLIssuingPointRecord(
             String name, BigInteger crlNumber,
             Long crlSize, Date thisUpdate, Date nextUpdate) {
@@ -896,6 +965,10 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
                 mods.add(ICRLIssuingPointRecord.ATTR_CRL_NUMBER,
                         Modification.MOD_REPLACE, crlNumber);
             }
+
+            // delta CRLs applied so far are included in the new CRL
+            mods.add(ICRLIssuingPointRecord.ATTR_DELTA_NUMBER,
+                    Modification.MOD_REPLACE, new BigInteger("-1"));
             try {
                 mods.add(ICRLIssuingPointRecord.ATTR_CRL,
                         Modification.MOD_REPLACE, crl.getEncoded());
@@ -921,6 +994,176 @@ public class DefStore implements IDefStore, IExtendedPluginInfo {
         }
     }
 
+    /**
+     * Applies a delta CRL without transferring and storing the full CRL.
+     *
+     * The issuing point keeps the last full CRL (and its CRL cache) as
+     * the base, and the last delta CRL applied to it. Since delta CRLs
+     * are cumulative, a delta CRL based on the stored CRL simply replaces
+     * the previous delta CRL.
+     *
+     * Any other delta CRL, including one based on a newer full CRL,
+     * is rejected and the full CRL has to be published again. The
+     * issuing point record is not rebased onto a newer CRL number
+     * since the stored full CRL and its validity period would then
+     * no longer match the record.
+     */
+    public boolean updateDeltaCRL(X509CRL crl) throws EBaseException {
+        try {
+            mStateCount++;
+
+            X509CRLImpl deltaCRL = (X509CRLImpl) crl;
+            String name = crl.getIssuerDN().getName();
+
+            try {
+                if (!deltaCRL.areEntriesIncluded())
+                    deltaCRL = new X509CRLImpl(deltaCRL.getEncoded());
+            } catch (Exception e) {
+                logger.error("DefStore: unable to decode delta CRL: " + e.getMessage(), e);
+                throw new EBaseException("Unable to decode delta CRL: " + e.getMessage(), e);
+            }
+
+            BigInteger baseCRLNumber = CertUtils.getDeltaBaseCRLNumber(deltaCRL);
+            BigInteger deltaCRLNumber = deltaCRL.getCRLNumber();
+
+            if (baseCRLNumber == null || deltaCRLNumber == null) {
+                logger.warn("DefStore: delta CRL without CRL number or base CRL number");
+                return false;
+            }
+
+            logger.debug("DefStore: delta CRL " + deltaCRLNumber + " based on CRL " + baseCRLNumber);
+
+            ICRLIssuingPointRecord rec = readCRLIssuingPoint(name, DELTA_CRL_ATTRS);
+            if (rec == null || rec.getCRLNumber() == null) {
+                logger.warn("DefStore: no CRL for " + name + ", full CRL required");
+                return false;
+            }
+
+            BigInteger crlNumber = rec.getCRLNumber();
+            BigInteger lastDeltaCRLNumber = rec.getDeltaCRLNumber();
+            if (lastDeltaCRLNumber == null) {
+                lastDeltaCRLNumber = new BigInteger("-1");
+            }
+
+            if (!baseCRLNumber.equals(crlNumber)) {
+                logger.warn("DefStore: delta CRL " + deltaCRLNumber + " is based on CRL " + baseCRLNumber +
+                        " but current CRL is " + crlNumber + ", full CRL required");
+                return false;
+            }
+
+            if (deltaCRLNumber.compareTo(lastDeltaCRLNumber) <= 0) {
+                logger.info("DefStore: delta CRL " + deltaCRLNumber + " already applied");
+                return true;
+            }
+
+            ModificationSet mods = new ModificationSet();
+
+            int deltaCRLSize = deltaCRL.getNumberOfRevokedCertificates();
+            mods.add(ICRLIssuingPointRecord.ATTR_DELTA_NUMBER,
+                    Modification.MOD_REPLACE, deltaCRLNumber);
+            mods.add(ICRLIssuingPointRecord.ATTR_DELTA_SIZE,
+                    Modification.MOD_REPLACE, Long.valueOf(deltaCRLSize < 0 ? 0 : deltaCRLSize));
+            try {
+                mods.add(ICRLIssuingPointRecord.ATTR_DELTA_CRL,
+                        Modification.MOD_REPLACE, deltaCRL.getEncoded());
+            } catch (Exception e) {
+                throw new EBaseException("Unable to encode delta CRL: " + e.getMessage(), e);
+            }
+
+            logger.debug("DefStore: ready to delta CRL update " + name);
+            modifyCRLIssuingPointRecord(name, mods);
+            logger.debug("DefStore: done delta CRL update " + name);
+
+            // update cache: keep the loaded CRL (cache) and replace the delta CRL only
+            synchronized (mCacheCRLIssuingPoints) {
+                for (Map.Entry<String, CRLIPContainer> entry : mCacheCRLIssuingPoints.entrySet()) {
+                    CRLIPContainer container = entry.getValue();
+                    if (!name.equals(container.getCRLIssuingPointRecord().getId())) {
+                        continue;
+                    }
+                    entry.setValue(new CRLIPContainer(
+                            container.getCRLIssuingPointRecord(),
+                            container.getX509CertImpl(),
+                            container.getX509CRLImpl(),
+                            deltaCRL));
+                }
+            }
+
+            logger.info("DefStore: Finish Committing delta CRL." +
+                    " deltaCRLNumber=" + deltaCRLNumber +
+                    " thisUpdate=" + deltaCRL.getThisUpdate() +
+                    " nextUpdate=" + deltaCRL.getNextUpdate());
+
+            return true;
+
+        } catch (EBaseException e) {
+            throw e;
+
+        } catch (Exception e) {
+            logger.error("DefStore: unable to apply delta CRL: " + e.getMessage(), e);
+            throw new EBaseException("Unable to apply delta CRL: " + e.getMessage(), e);
+
+        } finally {
+            mStateCount--;
+        }
+    }
+
+    /**
+     * Returns the delta CRL applied to the issuing point, or null
+     * if there is none.
+     */
+    private X509CRLImpl getDeltaCRL(ICRLIssuingPointRecord rec) {
+
+        BigInteger deltaCRLNumber = rec.getDeltaCRLNumber();
+        if (deltaCRLNumber == null || deltaCRLNumber.signum() < 0) {
+            return null;
+        }
+
+        byte[] deltaCRLData = rec.getDeltaCRL();
+        if (deltaCRLData == null) {
+            return null;
+        }
+
+        try {
+            X509CRLImpl deltaCRL = new X509CRLImpl(deltaCRLData);
+            if (!deltaCRL.isDeltaCRL() ||
+                    !rec.getCRLNumber().equals(CertUtils.getDeltaBaseCRLNumber(deltaCRL))) {
+                return null;
+            }
+            return deltaCRL;
+
+        } catch (Exception e) {
+            logger.warn(CMS.getLogMessage("OCSP_DECODE_CRL", e.toString()), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if a delta CRL entry removes the certificate
+     * from the CRL (e.g. released from hold).
+     */
+    static boolean isRemovedFromCRL(X509CRLEntry entry) {
+
+        if (!(entry instanceof RevokedCertImpl)) {
+            return false;
+        }
+
+        CRLExtensions exts = ((RevokedCertImpl) entry).getExtensions();
+        if (exts == null) {
+            return false;
+        }
+
+        Enumeration<org.mozilla.jss.netscape.security.x509.Extension> e = exts.getElements();
+        while (e.hasMoreElements()) {
+            org.mozilla.jss.netscape.security.x509.Extension ext = e.nextElement();
+            if (ext instanceof CRLReasonExtension) {
+                return ((CRLReasonExtension) ext).getReason() == RevocationReason.REMOVE_FROM_CRL;
+            }
+        }
+
+        return false;
+    }
+
     public int getStateCount() {
         return mStateCount;
     }
@@ -946,6 +1189,7 @@ class CRLIPContainer {
     private ICRLIssuingPointRecord mRec = null;
     private X509CertImpl mCert = null;
     private X509CRLImpl mCRL = null;
+    private X509CRLImpl mDeltaCRL = null;
 
     public CRLIPContainer(ICRLIssuingPointRecord rec, X509CertImpl cert, X509CRLImpl crl) {
         mRec = rec;
@@ -953,6 +1197,12 @@ class CRLIPContainer {
         mCRL = crl;
     }
 
+    public CRLIPContainer(ICRLIssuingPointRecord rec, X509CertImpl cert, X509CRLImpl crl,
+            X509CRLImpl deltaCRL) {
+        this(rec, cert, crl);
+        mDeltaCRL = deltaCRL;
+    }
+
     public ICRLIssuingPointRecord getCRLIssuingPointRecord() {
         return mRec;
     }
@@ -964,6 +1214,10 @@ class CRLIPContainer {
     public X509CRLImpl getX509CRLImpl() {
         return mCRL;
     }
+
+    public X509CRLImpl getDeltaCRL() {
+        return mDeltaCRL;
+    }
 }
 
 class DefStoreCRLUpdater extends Thread {
@@ -408,11 +408,20 @@ public class LDAPStore implements IDefStore, IExtendedPluginInfo {
         throw new EBaseException("NOT SUPPORTED");
     }
 
+    public boolean updateDeltaCRL(X509CRL deltaCRL) throws EBaseException {
+        throw new EBaseException("NOT SUPPORTED");
+    }
+
     public ICRLIssuingPointRecord readCRLIssuingPoint(String name)
             throws EBaseException {
         throw new EBaseException("NOT SUPPORTED");
     }
 
+    public ICRLIssuingPointRecord readCRLIssuingPoint(String name, String attrs[])
+            throws EBaseException {
+        throw new EBaseException("NOT SUPPORTED");
+    }
+
     public Enumeration<ICRLIssuingPointRecord> searchAllCRLIssuingPointRecord(int maxSize)
             throws EBaseException {
         Vector<ICRLIssuingPointRecord> recs = new Vector<ICRLIssuingPointRecord>();
@@ -0,0 +1,136 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cms.profile.common;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.base.IConfigStore;
+import com.netscape.certsrv.pattern.Pattern;
+
+/**
+ * This class represents an immutable snapshot of the parameters
+ * of a profile default or constraint.
+ *
+ * The snapshot is taken when the policy is initialized so requests
+ * do not look up the configuration store. Patterns found in the
+ * parameter values are parsed in advance, and parsed integer and
+ * boolean values are cached on first use.
+ */
+public class PolicyParams {
+
+    public static final PolicyParams EMPTY = new PolicyParams(Collections.<String, String>emptyMap());
+
+    private Map<String, String> mValues;
+    private Map<String, Pattern> mPatterns = new HashMap<String, Pattern>();
+
+    private Map<String, Integer> mIntegers = new ConcurrentHashMap<String, Integer>();
+    private Map<String, Boolean> mBooleans = new ConcurrentHashMap<String, Boolean>();
+
+    private PolicyParams(Map<String, String> values) {
+        mValues = values;
+
+        for (String value : values.values()) {
+            if (value.indexOf('$') >= 0) {
+                mPatterns.put(value, new Pattern(value));
+            }
+        }
+    }
+
+    /**
+     * Creates a snapshot of the given parameters.
+     *
+     * @param params parameter store, may be null
+     * @return parameter snapshot
+     */
+    public static PolicyParams create(IConfigStore params) throws EBaseException {
+
+        if (params == null) {
+            return EMPTY;
+        }
+
+        // read the values like IConfigStore.getString() does
+        // so they are trimmed the same way
+        Map<String, String> values = new HashMap<String, String>();
+        for (String name : params.getProperties().keySet()) {
+            values.put(name, params.getString(name));
+        }
+
+        return new PolicyParams(Collections.unmodifiableMap(values));
+    }
+
+    /**
+     * Returns a parameter value.
+     *
+     * @param name parameter name
+     * @param defval default value
+     * @return parameter value, or defval if the parameter does not exist
+     */
+    public String getString(String name, String defval) {
+        String value = mValues.get(name);
+        return value == null ? defval : value;
+    }
+
+    /**
+     * Returns a parameter value as an integer.
+     *
+     * @param name parameter name
+     * @exception NumberFormatException parameter is not an integer
+     */
+    public int getInteger(String name) {
+        Integer value = mIntegers.get(name);
+        if (value == null) {
+            value = Integer.valueOf(getString(name, ""));
+            mIntegers.put(name, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns a parameter value as a boolean.
+     *
+     * @param name parameter name
+     */
+    public boolean getBoolean(String name) {
+        Boolean value = mBooleans.get(name);
+        if (value == null) {
+            value = Boolean.valueOf(getString(name, ""));
+            mBooleans.put(name, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns a parsed pattern. Patterns used in the parameter values
+     * are parsed in advance, other patterns are parsed on each call.
+     *
+     * @param pattern pattern string
+     * @return pattern
+     */
+    public Pattern getPattern(String pattern) {
+        Pattern p = mPatterns.get(pattern);
+        return p == null ? new Pattern(pattern) : p;
+    }
+
+    public Map<String, String> getValues() {
+        return mValues;
+    }
+}
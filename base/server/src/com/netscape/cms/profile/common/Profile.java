@@ -17,8 +17,10 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cms.profile.common;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Map;
@@ -117,6 +119,10 @@ public abstract class Profile {
 
     protected Hashtable<String, Vector<ProfilePolicy>> mPolicySet = new Hashtable<String, Vector<ProfilePolicy>>();
 
+    // immutable copy of the policy sets used to process requests,
+    // replaced as a whole whenever the policy sets change
+    protected volatile Map<String, ProfilePolicy[]> mPolicyPlan = Collections.emptyMap();
+
     public Profile() {
     }
 
@@ -387,6 +393,7 @@ public abstract class Profile {
                         constraintClassId, false);
             }
         }
+        compilePolicies();
         logger.debug("Profile: done init");
     }
 
@@ -558,6 +565,7 @@ public abstract class Profile {
         } catch (Exception e) {
         }
 
+        compilePolicies();
     }
 
     /**
@@ -574,6 +582,7 @@ public abstract class Profile {
         }
 
         mPolicySet.clear();
+        compilePolicies();
     }
 
     /**
@@ -1109,6 +1118,7 @@ public abstract class Profile {
             constraint.init(conStore);
             policy = new ProfilePolicy(id, def, constraint);
             policies.addElement(policy);
+            compilePolicies();
             logger.debug(method + " constraint class initialized.");
         }
 
@@ -1279,6 +1289,32 @@ public abstract class Profile {
         return mPolicySet.get(setId);
     }
 
+    /**
+     * Rebuilds the policy execution plan from the current policy sets.
+     * Requests in progress keep using the plan they started with.
+     */
+    protected synchronized void compilePolicies() {
+
+        Map<String, ProfilePolicy[]> plan = new HashMap<String, ProfilePolicy[]>();
+
+        for (Map.Entry<String, Vector<ProfilePolicy>> entry : mPolicySet.entrySet()) {
+            Vector<ProfilePolicy> policies = entry.getValue();
+            plan.put(entry.getKey(), policies.toArray(new ProfilePolicy[policies.size()]));
+        }
+
+        mPolicyPlan = Collections.unmodifiableMap(plan);
+    }
+
+    /**
+     * Returns the policies of a policy set in execution order.
+     *
+     * @param setId set id
+     * @return policies, or null if the set does not exist
+     */
+    public ProfilePolicy[] getPolicyPlan(String setId) {
+        return mPolicyPlan.get(setId);
+    }
+
     /**
      * Retrieves a default set id for the given request.
      * It is the profile's responsibility to return
@@ -1300,12 +1336,10 @@ public abstract class Profile {
             throws EProfileException {
         String method = "Profile: populate: ";
         String setId = getPolicySetId(request);
-        Vector<ProfilePolicy> policies = getPolicies(setId);
+        ProfilePolicy[] policies = getPolicyPlan(setId);
         logger.debug(method + "policy setid =" + setId);
 
-        for (int i = 0; i < policies.size(); i++) {
-            ProfilePolicy policy = policies.elementAt(i);
-
+        for (ProfilePolicy policy : policies) {
             policy.getDefault().populate(request);
         }
     }
@@ -1321,11 +1355,9 @@ public abstract class Profile {
             throws ERejectException {
         String setId = getPolicySetId(request);
         logger.debug("Profile: validate start on setId=" + setId);
-        Vector<ProfilePolicy> policies = getPolicies(setId);
-
-        for (int i = 0; i < policies.size(); i++) {
-            ProfilePolicy policy = policies.elementAt(i);
+        ProfilePolicy[] policies = getPolicyPlan(setId);
 
+        for (ProfilePolicy policy : policies) {
             policy.getConstraint().validate(request);
         }
         logger.debug("Profile: change to pending state");
@@ -62,7 +62,7 @@ public class AuthzRealmConstraint extends EnrollConstraint {
         logger.debug("AuthzRealmConstraint: setConfig name=" + name +
                 " value=" + value);
 
-        mConfig.getSubStore("params").putString(name, value);
+        super.setConfig(name, value);
     }
 
     public IDescriptor getConfigDescriptor(Locale locale, String name) {
@@ -209,7 +209,7 @@ public class BasicConstraintsExtConstraint extends EnrollConstraint {
                 }
 
             }
-            mConfig.getSubStore("params").putString(name, value);
+            super.setConfig(name, value);
         }
     }
 }
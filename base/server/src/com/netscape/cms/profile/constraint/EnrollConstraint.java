@@ -33,6 +33,7 @@ import com.netscape.certsrv.property.EPropertyException;
 import com.netscape.certsrv.property.IDescriptor;
 import com.netscape.certsrv.request.IRequest;
 import com.netscape.cms.profile.common.EnrollProfile;
+import com.netscape.cms.profile.common.PolicyParams;
 import com.netscape.cms.profile.def.PolicyDefault;
 
 /**
@@ -48,6 +49,8 @@ public abstract class EnrollConstraint extends PolicyConstraint {
     public static final String CONFIG_PARAMS = "params";
 
     protected IConfigStore mConfig = null;
+    // snapshot of the params substore used to process requests
+    protected volatile PolicyParams mParams = null;
     protected Vector<String> mConfigNames = new Vector<String>();
 
     public EnrollConstraint() {
@@ -85,9 +88,28 @@ public abstract class EnrollConstraint extends PolicyConstraint {
             //
         } else {
             mConfig.getSubStore(CONFIG_PARAMS).putString(name, value);
+            mParams = null;
         }
     }
 
+    /**
+     * Returns the snapshot of the constraint parameters, taking it
+     * if the parameters have not been read yet or have changed.
+     */
+    protected PolicyParams getParams() {
+        PolicyParams params = mParams;
+        if (params == null) {
+            try {
+                params = PolicyParams.create(mConfig.getSubStore(CONFIG_PARAMS));
+            } catch (EBaseException e) {
+                logger.warn("EnrollConstraint: " + e.getMessage(), e);
+                params = PolicyParams.EMPTY;
+            }
+            mParams = params;
+        }
+        return params;
+    }
+
     public String getConfig(String name) {
         return getConfig(name, "");
     }
@@ -106,23 +128,13 @@ public abstract class EnrollConstraint extends PolicyConstraint {
             return null;
         }
 
-        IConfigStore params = mConfig.getSubStore(CONFIG_PARAMS);
-        if (params == null) {
-            logger.warn("Error: Missing constraint parameters");
-            return null;
-        }
-
-        try {
-            return params.getString(name, defval);
-
-        } catch (EBaseException e) {
-            logger.warn("EnrollConstraint: " + e.getMessage(), e);
-            return null;
-        }
+        return getParams().getString(name, defval);
     }
 
     public void init(IConfigStore config) throws EProfileException {
         mConfig = config;
+        mParams = null;
+        getParams();
     }
 
     public IConfigStore getConfigStore() {
@@ -219,11 +231,17 @@ public abstract class EnrollConstraint extends PolicyConstraint {
     }
 
     protected boolean getConfigBoolean(String value) {
-        return getBoolean(getConfig(value));
+        if (mConfig == null) {
+            return getBoolean(getConfig(value));
+        }
+        return getParams().getBoolean(value);
     }
 
     protected int getConfigInt(String value) {
-        return getInt(getConfig(value));
+        if (mConfig == null) {
+            return getInt(getConfig(value));
+        }
+        return getParams().getInteger(value);
     }
 
     public boolean isApplicable(PolicyDefault def) {
@@ -71,7 +71,7 @@ public class ExtensionConstraint extends EnrollConstraint {
                             CMS.getUserMessage("CMS_PROFILE_PROPERTY_ERROR", value));
                 }
             }
-            mConfig.getSubStore("params").putString(name, value);
+            super.setConfig(name, value);
         }
     }
 
@@ -56,6 +56,7 @@ import com.netscape.certsrv.property.EPropertyException;
 import com.netscape.certsrv.property.IDescriptor;
 import com.netscape.certsrv.request.IRequest;
 import com.netscape.cms.profile.common.EnrollProfile;
+import com.netscape.cms.profile.common.PolicyParams;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.cert.PrettyPrintFormat;
 
@@ -80,6 +81,8 @@ public abstract class EnrollDefault extends PolicyDefault {
     public static final String GN_OID_NAME = "OIDName";
 
     protected IConfigStore mConfig = null;
+    // snapshot of the params substore used to process requests
+    protected volatile PolicyParams mParams = null;
     protected Vector<String> mConfigNames = new Vector<String>();
     protected Vector<String> mValueNames = new Vector<String>();
 
@@ -104,9 +107,28 @@ public abstract class EnrollDefault extends PolicyDefault {
             //
         } else {
             mConfig.getSubStore("params").putString(name, value);
+            mParams = null;
         }
     }
 
+    /**
+     * Returns the snapshot of the default parameters, taking it
+     * if the parameters have not been read yet or have changed.
+     */
+    protected PolicyParams getParams() {
+        PolicyParams params = mParams;
+        if (params == null) {
+            try {
+                params = PolicyParams.create(mConfig.getSubStore("params"));
+            } catch (EBaseException e) {
+                logger.warn("EnrollDefault: " + e.getMessage(), e);
+                params = PolicyParams.EMPTY;
+            }
+            mParams = params;
+        }
+        return params;
+    }
+
     public String getConfig(String name) {
         return getConfig(name, "");
     }
@@ -125,23 +147,13 @@ public abstract class EnrollDefault extends PolicyDefault {
             return null;
         }
 
-        IConfigStore params = mConfig.getSubStore("params");
-        if (params == null) {
-            logger.error("Missing constraint parameters");
-            return null;
-        }
-
-        try {
-            return params.getString(name, defval);
-
-        } catch (EBaseException e) {
-            logger.warn("EnrollDefault: " + e.getMessage(), e);
-            return null;
-        }
+        return getParams().getString(name, defval);
     }
 
     public void init(IConfigStore config) throws EProfileException {
         mConfig = config;
+        mParams = null;
+        getParams();
     }
 
     /**
@@ -438,11 +450,17 @@ public abstract class EnrollDefault extends PolicyDefault {
     }
 
     protected boolean getConfigBoolean(String value) {
-        return getBoolean(getConfig(value));
+        if (mConfig == null) {
+            return getBoolean(getConfig(value));
+        }
+        return getParams().getBoolean(value);
     }
 
     protected int getConfigInt(String value) {
-        return getInt(getConfig(value));
+        if (mConfig == null) {
+            return getInt(getConfig(value));
+        }
+        return getParams().getInteger(value);
     }
 
     protected boolean isGeneralNameValid(String name) {
@@ -830,7 +848,7 @@ public abstract class EnrollDefault extends PolicyDefault {
 
     protected String mapPattern(IRequest request, String pattern)
             throws IOException {
-        Pattern p = new Pattern(pattern);
+        Pattern p = getParams().getPattern(pattern);
         IAttrSet attrSet = null;
         if (request != null) {
             attrSet = request.asIAttrSet();
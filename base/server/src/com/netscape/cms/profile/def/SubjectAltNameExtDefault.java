@@ -484,7 +484,7 @@ public class SubjectAltNameExtDefault extends EnrollExtDefault {
 
     public String mapPattern(IRequest request, String pattern)
             throws IOException {
-        Pattern p = new Pattern(pattern);
+        Pattern p = getParams().getPattern(pattern);
         IAttrSet attrSet = null;
         if (request != null) {
             attrSet = request.asIAttrSet();
@@ -495,7 +495,7 @@ public class SubjectAltNameExtDefault extends EnrollExtDefault {
     // for server-side generated values
     public String mapPattern(String val, IRequest request, String pattern)
             throws IOException {
-        Pattern p = new Pattern(pattern);
+        Pattern p = getParams().getPattern(pattern);
         IAttrSet attrSet = null;
         if (request != null) {
             attrSet = request.asIAttrSet();
@@ -19,20 +19,24 @@ package com.netscape.cms.publish.publishers;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.net.Socket;
+import java.io.StringReader;
+import java.io.Writer;
+import java.math.BigInteger;
 import java.net.URLEncoder;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.dogtagpki.server.PKIClientSocketListener;
-import org.mozilla.jss.netscape.security.util.Utils;
+import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IConfigStore;
@@ -42,8 +46,13 @@ import com.netscape.certsrv.publish.ILdapPublisher;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.apps.EngineConfig;
+import com.netscape.cmscore.cert.CertUtils;
 import com.netscape.cmsutil.crypto.CryptoUtil;
+import com.netscape.cmsutil.http.Http;
+import com.netscape.cmsutil.http.HttpClient;
+import com.netscape.cmsutil.http.HttpClientPool;
 import com.netscape.cmsutil.http.HttpRequest;
+import com.netscape.cmsutil.http.HttpResponse;
 import com.netscape.cmsutil.http.JssSSLSocketFactory;
 
 import netscape.ldap.LDAPConnection;
@@ -63,6 +72,11 @@ public class OCSPPublisher implements ILdapPublisher, IExtendedPluginInfo {
     private static final String PROP_PATH = "path";
     private static final String PROP_NICK = "nickName";
     private static final String PROP_CLIENT_AUTH_ENABLE = "enableClientAuth";
+    private static final String PROP_INCREMENTAL = "incremental";
+
+    // status values returned by the OCSP responder (AddCRLServlet)
+    public static final int STATUS_SUCCESS = 0;
+    public static final int STATUS_FULL_CRL_REQUIRED = 2;
 
     private IConfigStore mConfig = null;
     private String mHost = null;
@@ -70,6 +84,23 @@ public class OCSPPublisher implements ILdapPublisher, IExtendedPluginInfo {
     private String mPath = null;
     private String mNickname = null;
     private boolean mClientAuthEnabled = true;
+    private boolean mIncremental = false;
+
+    // latest full CRL per issuer, used to resynchronize the responder
+    private Map<String, X509CRLImpl> mFullCRLs = new ConcurrentHashMap<String, X509CRLImpl>();
+
+    // number of the full CRL last accepted by the responder per issuer
+    private Map<String, BigInteger> mBaseCRLNumbers = new ConcurrentHashMap<String, BigInteger>();
+
+    // issuers for which the responder is current
+    private Set<String> mSyncedIssuers = ConcurrentHashMap.newKeySet();
+
+    // number of CRL bytes base-64 encoded at a time (multiple of 48,
+    // i.e. full 64-character lines)
+    private static final int ENCODING_BLOCK_SIZE = 48 * 128;
+
+    // keep-alive connections to the OCSP responder
+    private HttpClientPool mClientPool = null;
 
     /**
      * Returns the implementation name.
@@ -92,6 +123,7 @@ public class OCSPPublisher implements ILdapPublisher, IExtendedPluginInfo {
                 PROP_PATH + ";string;URI of CMS's OCSP Secure agent service",
                 PROP_NICK + ";string;Nickname of cert used for client authentication",
                 PROP_CLIENT_AUTH_ENABLE + ";boolean;Client Authentication enabled",
+                PROP_INCREMENTAL + ";boolean;Send delta CRLs between full CRLs and resend the full CRL when the responder needs it",
                 IExtendedPluginInfo.HELP_TOKEN +
                         ";configuration-ldappublish-publisher-ocsppublisher",
                 IExtendedPluginInfo.HELP_TEXT +
@@ -111,6 +143,7 @@ public class OCSPPublisher implements ILdapPublisher, IExtendedPluginInfo {
         String path = "";
         String nickname = "";
         String clientAuthEnabled = "";
+        String incremental = "";
 
         try {
             host = mConfig.getString(PROP_HOST);
@@ -137,6 +170,11 @@ public class OCSPPublisher implements ILdapPublisher, IExtendedPluginInfo {
         } catch (EBaseException e) {
         }
         v.addElement(PROP_CLIENT_AUTH_ENABLE + "=" + clientAuthEnabled);
+        try {
+            incremental = mConfig.getString(PROP_INCREMENTAL);
+        } catch (EBaseException e) {
+        }
+        v.addElement(PROP_INCREMENTAL + "=" + incremental);
         return v;
     }
 
@@ -164,6 +202,7 @@ public class OCSPPublisher implements ILdapPublisher, IExtendedPluginInfo {
         v.addElement(PROP_PATH + "=/ocsp/agent/ocsp/addCRL");
         v.addElement(PROP_CLIENT_AUTH_ENABLE + "=true");
         v.addElement(PROP_NICK + "=" + nickname);
+        v.addElement(PROP_INCREMENTAL + "=false");
         return v;
     }
 
@@ -178,154 +217,276 @@ public class OCSPPublisher implements ILdapPublisher, IExtendedPluginInfo {
             mPath = mConfig.getString(PROP_PATH, "");
             mNickname = mConfig.getString(PROP_NICK, "");
             mClientAuthEnabled = mConfig.getBoolean(PROP_CLIENT_AUTH_ENABLE, true);
+            mIncremental = mConfig.getBoolean(PROP_INCREMENTAL, false);
         } catch (EBaseException e) {
         }
+
+        mClientPool = new HttpClientPool(() -> {
+            JssSSLSocketFactory factory;
+            if (mClientAuthEnabled) {
+                factory = new JssSSLSocketFactory(mNickname);
+            } else {
+                factory = new JssSSLSocketFactory();
+            }
+            factory.addSocketListener(new PKIClientSocketListener());
+            return factory;
+        });
     }
 
     public IConfigStore getConfigStore() {
         return mConfig;
     }
 
-    protected Socket Connect(String host, boolean secure, JssSSLSocketFactory factory) {
-        Socket socket = null;
-        StringTokenizer st = new StringTokenizer(host, " ");
-        while (st.hasMoreTokens()) {
-            String hp = st.nextToken(); // host:port
-            StringTokenizer st1 = new StringTokenizer(hp, ":");
-            String h = st1.nextToken();
-            int p = Integer.parseInt(st1.nextToken());
-            try {
-                if (secure) {
-                    socket = factory.makeSocket(h, p);
-                } else {
-                    socket = new Socket(h, p);
+    /**
+     * Returns a pooled connection to the OCSP responder. If failover
+     * hosts are configured, e.g.
+     * "directory.knowledge.com:1050 people.catalog.com:1051 199.254.1.2:1052"
+     * the hosts are tried in order until one of them is reachable.
+     */
+    protected HttpClient connect() throws IOException {
+
+        if (mHost == null || mHost.indexOf(' ') == -1) {
+            return mClientPool.getClient(mHost, Integer.parseInt(mPort), 0);
+        }
+
+        // support failover hosts configuration
+        while (true) {
+            StringTokenizer st = new StringTokenizer(mHost, " ");
+            while (st.hasMoreTokens()) {
+                String hp = st.nextToken(); // host:port
+                StringTokenizer st1 = new StringTokenizer(hp, ":");
+                try {
+                    String h = st1.nextToken();
+                    int p = Integer.parseInt(st1.nextToken());
+                    return mClientPool.getClient(h, p, 0);
+                } catch (Exception e) {
+                    logger.warn("OCSPPublisher: unable to connect to " + hp + ": " + e.getMessage());
+                }
+                try {
+                    Thread.sleep(5000); // 5 seconds delay
+                } catch (InterruptedException e) {
+                    throw new IOException("Interrupted while connecting to " + mHost, e);
                 }
-                return socket;
-            } catch (Exception e) {
             }
-            try {
-                Thread.sleep(5000); // 5 seconds delay
-            } catch (Exception e) {
+        }
+    }
+
+    /**
+     * Streams the form body of the request: the CRL in PEM format,
+     * URL-encoded, followed by the noui parameter. The base-64 encoding
+     * is done in blocks so the whole form is never built in memory.
+     */
+    protected void writeCRL(Writer writer, byte[] crl) throws IOException {
+
+        writer.write("crl=");
+        writer.write(URLEncoder.encode("-----BEGIN CERTIFICATE REVOCATION LIST-----\n", "UTF-8"));
+
+        Base64.Encoder encoder = Base64.getMimeEncoder(64, new byte[] { '\n' });
+
+        for (int offset = 0; offset < crl.length; offset += ENCODING_BLOCK_SIZE) {
+            int length = Math.min(ENCODING_BLOCK_SIZE, crl.length - offset);
+            byte[] block = Arrays.copyOfRange(crl, offset, offset + length);
+            if (offset > 0) {
+                writer.write(URLEncoder.encode("\n", "UTF-8"));
             }
+            writer.write(URLEncoder.encode(encoder.encodeToString(block), "UTF-8"));
         }
-        return null;
+
+        writer.write(URLEncoder.encode("\n-----END CERTIFICATE REVOCATION LIST-----", "UTF-8"));
+        writer.write("&noui=true");
     }
 
     /**
-     * Publishs a object to the ldap directory.
+     * Sends a CRL or delta CRL to the OCSP responder.
      *
-     * @param conn a Ldap connection
-     *            (null if LDAP publishing is not enabled)
-     * @param dn dn of the ldap entry to publish cert
-     *            (null if LDAP publishing is not enabled)
-     * @param object object to publish
-     *            (java.security.cert.X509Certificate or,
-     *            java.security.cert.X509CRL)
+     * @return status returned by the responder: STATUS_SUCCESS,
+     *         STATUS_FULL_CRL_REQUIRED, or other values on failure
      */
-    public synchronized void publish(LDAPConnection conn, String dn, Object object)
-            throws ELdapException {
-        try {
-            if (!(object instanceof X509CRL))
-                return;
-            X509CRL crl = (X509CRL) object;
+    protected int sendCRL(X509CRL crl) throws Exception {
 
-            // talk to agent port of CMS
+        // talk to agent port of CMS
 
-            // open the connection and prepare it to POST
-            boolean secure = true;
+        logger.info("OCSPPublisher: " +
+                "Host='" + mHost + "' Port='" + mPort +
+                "' URL='" + mPath + "'");
 
-            String host = mHost;
-            int port = Integer.parseInt(mPort);
-            String path = mPath;
+        final byte[] encodedCRL = crl.getEncoded();
+        logger.info("OCSPPublisher: sending " + (isDeltaCRL(crl) ? "delta CRL" : "CRL"));
 
-            logger.info("OCSPPublisher: " +
-                    "Host='" + host + "' Port='" + port +
-                    "' URL='" + path + "'");
+        // use HttpRequest and POST
+        HttpRequest httpReq = new HttpRequest();
 
-            StringBuffer query = new StringBuffer();
-            query.append("crl=");
-            query.append(URLEncoder.encode("-----BEGIN CERTIFICATE REVOCATION LIST-----\n", "UTF-8"));
-            query.append(URLEncoder.encode(Utils.base64encode(crl.getEncoded(), true), "UTF-8"));
-            query.append(URLEncoder.encode("\n-----END CERTIFICATE REVOCATION LIST-----", "UTF-8"));
-            query.append("&noui=true");
+        httpReq.setMethod("POST");
+        httpReq.setURI(mPath);
+        httpReq.setHttpVers(Http.Vers1_1);
+        httpReq.setHeader("Connection", "Keep-Alive");
 
-            Socket socket = null;
-            JssSSLSocketFactory factory;
-            PKIClientSocketListener sockListener = new PKIClientSocketListener();
+        httpReq.setHeader("Content-Type",
+                "application/x-www-form-urlencoded");
+        httpReq.setHeader("Content-Transfer-Encoding", "7bit");
 
-            if (mClientAuthEnabled) {
-                factory = new JssSSLSocketFactory(mNickname);
-            } else {
-                factory = new JssSSLSocketFactory();
-            }
-            factory.addSocketListener(sockListener);
-
-            if (mHost != null && mHost.indexOf(' ') != -1) {
-                // support failover hosts configuration
-                // host parameter can be
-                // "directory.knowledge.com:1050 people.catalog.com 199.254.1.2"
-                do {
-                    socket = Connect(mHost, secure, factory);
-                } while (socket == null);
-            } else {
-                if (secure) {
-                    socket = factory.makeSocket(host, port);
-                } else {
-                    socket = new Socket(host, port);
+        httpReq.setContentWriter(writer -> writeCRL(writer, encodedCRL));
+
+        HttpResponse resp = null;
+        HttpClient client = null;
+
+        // a kept-alive connection may have been closed by the server,
+        // so retry once with a new connection
+        for (int attempt = 0; resp == null; attempt++) {
+            client = connect();
+            httpReq.setHeader("Host", client.getHost() + ":" + client.getPort());
+
+            try {
+                logger.info("OCSPPublisher: start sending CRL");
+                long startTime = new Date().getTime();
+                logger.debug("OCSPPublisher: start CRL sending startTime=" + startTime);
+                resp = client.send(httpReq);
+                long endTime = new Date().getTime();
+                logger.debug("OCSPPublisher: done CRL sending endTime=" + endTime + " diff=" + (endTime - startTime));
+
+            } catch (IOException e) {
+                mClientPool.invalidateClient(client);
+                if (attempt > 0) {
+                    throw e;
                 }
+                logger.warn("OCSPPublisher: resending CRL: " + e.getMessage());
             }
+        }
 
-            if (socket == null) {
-                logger.error("OCSPPublisher::publish() - socket is null!");
-                throw new ELdapException("socket is null");
-            }
+        mClientPool.returnClient(client);
+
+        // Read the response
+        logger.info("OCSPPublisher: start getting response");
+        String content = resp.getContent();
+        String error = "";
+        int status = -1;
+
+        if (!"200".equals(resp.getStatusCode())) {
+            error = resp.getStatusCode() + " " + resp.getReasonPhrase();
 
-            // use HttpRequest and POST
-            HttpRequest httpReq = new HttpRequest();
-
-            httpReq.setMethod("POST");
-            httpReq.setURI(path);
-            httpReq.setHeader("Connection", "Keep-Alive");
-
-            httpReq.setHeader("Content-Type",
-                    "application/x-www-form-urlencoded");
-            httpReq.setHeader("Content-Transfer-Encoding", "7bit");
-
-            httpReq.setHeader("Content-Length",
-                    Integer.toString(query.length()));
-            httpReq.setContent(query.toString());
-            OutputStream os = socket.getOutputStream();
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(os, "UTF8");
-
-            logger.info("OCSPPublisher: start sending CRL");
-            long startTime = new Date().getTime();
-            logger.debug("OCSPPublisher: start CRL sending startTime=" + startTime);
-            httpReq.write(outputStreamWriter);
-            long endTime = new Date().getTime();
-            logger.debug("OCSPPublisher: done CRL sending endTime=" + endTime + " diff=" + (endTime - startTime));
-
-            // Read the response
-            logger.info("OCSPPublisher: start getting response");
-            BufferedReader dis = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        } else if (content != null) {
+            BufferedReader dis = new BufferedReader(new StringReader(content));
             String nextline;
-            String error = "";
-            boolean status = false;
 
             while ((nextline = dis.readLine()) != null) {
                 if (nextline.startsWith("status=")) {
-                    if (nextline.substring(7, nextline.length()).equals("0")) {
-                        status = true;
+                    try {
+                        status = Integer.parseInt(nextline.substring(7, nextline.length()).trim());
+                    } catch (NumberFormatException e) {
+                        status = -1;
                     }
                 }
                 if (nextline.startsWith("error=")) {
                     error = nextline.substring(6, nextline.length());
                 }
             }
-            dis.close();
-            if (status) {
-                logger.info("OCSPPublisher: successful");
+        }
+
+        if (status == STATUS_SUCCESS) {
+            logger.info("OCSPPublisher: successful");
+        } else {
+            logger.warn("OCSPPublisher: failed - " + error);
+        }
+
+        return status;
+    }
+
+    protected boolean isDeltaCRL(X509CRL crl) {
+        return crl instanceof X509CRLImpl && ((X509CRLImpl) crl).isDeltaCRL();
+    }
+
+    /**
+     * Publishes a CRL in incremental mode: every new full CRL is sent to
+     * the responder, and between full CRLs the responder is kept current
+     * with delta CRLs. A full CRL is resent when the responder reports
+     * that it missed updates (e.g. a CRL number gap).
+     */
+    protected void publishIncremental(X509CRLImpl crl) throws Exception {
+
+        String issuer = crl.getIssuerDN().getName();
+
+        if (!crl.isDeltaCRL()) {
+
+            // keep the latest full CRL for resynchronization
+            mFullCRLs.put(issuer, crl);
+
+            // the responder only accepts delta CRLs based on its stored CRL,
+            // so a newer full CRL must always be sent
+            BigInteger baseCRLNumber = mBaseCRLNumbers.get(issuer);
+            if (mSyncedIssuers.contains(issuer) && baseCRLNumber != null
+                    && crl.getCRLNumber() != null
+                    && crl.getCRLNumber().compareTo(baseCRLNumber) <= 0) {
+                logger.info("OCSPPublisher: skipping CRL " + crl.getCRLNumber() +
+                        ", responder already has CRL " + baseCRLNumber);
+                return;
+            }
+
+            // until the responder confirms the full CRL
+            mSyncedIssuers.remove(issuer);
+            sendFullCRL(issuer, crl);
+            return;
+        }
+
+        // until the responder confirms the delta CRL
+        mSyncedIssuers.remove(issuer);
+
+        if (sendCRL(crl) == STATUS_SUCCESS) {
+            mSyncedIssuers.add(issuer);
+            return;
+        }
+
+        X509CRLImpl fullCRL = mFullCRLs.get(issuer);
+        if (fullCRL == null) {
+            logger.warn("OCSPPublisher: responder requires full CRL, will be sent with next CRL update");
+            return;
+        }
+
+        logger.info("OCSPPublisher: resynchronizing responder with CRL " + fullCRL.getCRLNumber());
+        if (!sendFullCRL(issuer, fullCRL)) {
+            return;
+        }
+
+        BigInteger baseCRLNumber = CertUtils.getDeltaBaseCRLNumber(crl);
+        if (baseCRLNumber != null && baseCRLNumber.equals(fullCRL.getCRLNumber())) {
+            sendCRL(crl);
+        }
+    }
+
+    private boolean sendFullCRL(String issuer, X509CRLImpl crl) throws Exception {
+
+        if (sendCRL(crl) != STATUS_SUCCESS) {
+            return false;
+        }
+
+        if (crl.getCRLNumber() != null) {
+            mBaseCRLNumbers.put(issuer, crl.getCRLNumber());
+        }
+        mSyncedIssuers.add(issuer);
+        return true;
+    }
+
+    /**
+     * Publishs a object to the ldap directory.
+     *
+     * @param conn a Ldap connection
+     *            (null if LDAP publishing is not enabled)
+     * @param dn dn of the ldap entry to publish cert
+     *            (null if LDAP publishing is not enabled)
+     * @param object object to publish
+     *            (java.security.cert.X509Certificate or,
+     *            java.security.cert.X509CRL)
+     */
+    public void publish(LDAPConnection conn, String dn, Object object)
+            throws ELdapException {
+        try {
+            if (!(object instanceof X509CRL))
+                return;
+            X509CRL crl = (X509CRL) object;
+
+            if (mIncremental && crl instanceof X509CRLImpl) {
+                publishIncremental((X509CRLImpl) crl);
             } else {
-                logger.warn("OCSPPublisher: failed - " + error);
+                sendCRL(crl);
             }
 
         } catch (IOException e) {
@@ -172,6 +172,8 @@ public class JobsAdminServlet extends AdminServlet {
                     getConfig(req, resp);
                 else if (scope.equals(ScopeDef.SC_JOBS_INSTANCE))
                     getInstConfig(req, resp);
+                else if (scope.equals(ScopeDef.SC_JOBS_STATS))
+                    getJobStats(req, resp);
                 else if (scope.equals(ScopeDef.SC_EXTENDED_PLUGIN_INFO)) {
                     try {
                         getExtendedPluginInfo(req, resp);
@@ -747,6 +749,48 @@ public class JobsAdminServlet extends AdminServlet {
         return;
     }
 
+    /**
+     * Retrieves the run statistics of a job plugin instance.
+     */
+    private void getJobStats(HttpServletRequest req,
+            HttpServletResponse resp) throws ServletException,
+            IOException, EBaseException {
+        String id = req.getParameter(Constants.RS_ID);
+
+        if (id == null) {
+            sendResponse(ERROR,
+                    CMS.getUserMessage(getLocale(req), "CMS_ADMIN_SRVLT_NULL_RS_ID"),
+                    null, resp);
+            return;
+        }
+
+        // does job plugin instance exist?
+        if (mJobsSched.getInstances().containsKey(id) == false) {
+            sendResponse(ERROR,
+                    new EJobsException(CMS.getUserMessage(getLocale(req), "CMS_JOB_SRVLT_JOB_NOT_FOUND",
+                            id)).toString(),
+                    null, resp);
+            return;
+        }
+
+        NameValuePairs params = new NameValuePairs();
+
+        // the job has no statistics until it is scheduled
+        JobsScheduler.JobStats stats = mJobsSched.getJobStats(id);
+        if (stats != null) {
+            params.put("running", String.valueOf(stats.isRunning()));
+            params.put("runs", String.valueOf(stats.getRuns()));
+            params.put("failures", String.valueOf(stats.getFailures()));
+            params.put("skipped", String.valueOf(stats.getSkipped()));
+            params.put("lastStartTime", String.valueOf(stats.getLastStartTime()));
+            params.put("lastDuration", String.valueOf(stats.getLastDuration()));
+            params.put("maxDuration", String.valueOf(stats.getMaxDuration()));
+            params.put("averageDuration", String.valueOf(stats.getAverageDuration()));
+        }
+
+        sendResponse(SUCCESS, null, params, resp);
+    }
+
     /**
      * Modify job plugin instance.
      * This will actually create a new instance with new configuration
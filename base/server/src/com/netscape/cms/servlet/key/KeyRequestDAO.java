@@ -19,6 +19,7 @@ package com.netscape.cms.servlet.key;
 
 import java.math.BigInteger;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
@@ -49,6 +50,7 @@ import com.netscape.certsrv.dbs.keydb.IKeyRepository;
 import com.netscape.certsrv.dbs.keydb.KeyId;
 import com.netscape.certsrv.key.AsymKeyGenerationRequest;
 import com.netscape.certsrv.key.KeyArchivalRequest;
+import com.netscape.certsrv.key.KeyBatchRecoveryRequest;
 import com.netscape.certsrv.key.KeyData;
 import com.netscape.certsrv.key.KeyNotFoundException;
 import com.netscape.certsrv.key.KeyRecoveryRequest;
@@ -290,6 +292,88 @@ public class KeyRequestDAO extends CMSRequestDAO {
         return request;
     }
 
+    /**
+     * Creates a single request to recover multiple keys. The requestor
+     * must be authorized to recover each key, and all keys must be in
+     * the same realm. The session key is stored in the transient data.
+     */
+    public IRequest createBatchRecoveryRequest(KeyBatchRecoveryRequest data, String requestor,
+            IAuthToken authToken, boolean ephemeral) throws EBaseException {
+
+        if (data == null || data.getKeyIds().isEmpty()) {
+            throw new BadRequestException("Invalid request.");
+        }
+
+        if (data.getTransWrappedSessionKey() == null) {
+            throw new BadRequestException("No wrapped session key.");
+        }
+
+        if (requestor == null) {
+            throw new UnauthorizedException("Recovery must be initiated by an agent");
+        }
+
+        String realm = null;
+        List<String> keyIds = new ArrayList<>();
+
+        for (KeyId keyId : data.getKeyIds()) {
+
+            IKeyRecord rec = null;
+            try {
+                rec = repo.readKeyRecord(keyId.toBigInteger());
+            } catch (EDBRecordNotFoundException e) {
+                throw new KeyNotFoundException(keyId, "key not found to recover", e);
+            }
+
+            try {
+                authz.checkRealm(rec.getRealm(), authToken, rec.getOwnerName(), "certServer.kra.key", "recover");
+            } catch (EAuthzUnknownRealm e) {
+                throw new UnauthorizedException("Invalid realm", e);
+            } catch (EBaseException e) {
+                throw new UnauthorizedException("Agent not authorized by realm", e);
+            }
+
+            if (keyIds.isEmpty()) {
+                realm = rec.getRealm();
+            } else if (!StringUtils.equals(realm, rec.getRealm())) {
+                throw new BadRequestException("All keys must be in the same realm");
+            }
+
+            keyIds.add(keyId.toString());
+        }
+
+        IRequest request = queue.newRequest(IRequest.SECURITY_DATA_BATCH_RECOVERY_REQUEST, ephemeral);
+
+        if (realm != null) {
+            request.setRealm(realm);
+        }
+
+        request.setExtData(IRequest.SECURITY_DATA_BATCH_KEY_IDS, keyIds.toArray(new String[keyIds.size()]));
+        request.setExtData(IRequest.ATTR_REQUEST_OWNER, requestor);
+        request.setExtData(IRequest.ATTR_APPROVE_AGENTS, requestor);
+
+        String encryptOID = data.getPayloadEncryptionOID();
+        String wrapName = data.getPayloadWrappingName();
+
+        if (encryptOID != null)
+            request.setExtData(IRequest.SECURITY_DATA_PL_ENCRYPTION_OID, encryptOID);
+
+        if (wrapName != null)
+            request.setExtData(IRequest.SECURITY_DATA_PL_WRAPPING_NAME, wrapName);
+
+        Hashtable<String, Object> requestParams = getTransientData(request);
+        requestParams.put(IRequest.SECURITY_DATA_TRANS_SESS_KEY, data.getTransWrappedSessionKey());
+
+        if (encryptOID != null) {
+            requestParams.put(IRequest.SECURITY_DATA_PL_ENCRYPTION_OID, encryptOID);
+        }
+
+        if (wrapName != null) {
+            requestParams.put(IRequest.SECURITY_DATA_PL_WRAPPING_NAME, wrapName);
+        }
+
+        return request;
+    }
+
     public void setTransientData(KeyRecoveryRequest data, IRequest request) throws EBaseException {
 
         Hashtable<String, Object> requestParams = getTransientData(request);
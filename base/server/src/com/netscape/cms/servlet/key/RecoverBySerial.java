@@ -22,6 +22,7 @@ import java.math.BigInteger;
 import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Vector;
+import java.util.function.Consumer;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -399,12 +400,10 @@ public class RecoverBySerial extends CMSServlet {
 
                     params.put("agent", agent);
 
-                    // new thread to wait for pk12
-                    Thread waitThread = new WaitApprovalThread(recoveryID,
+                    // recover the key once approved, without waiting for the approvals
+                    mService.whenApproved(recoveryID, new RecoveryTask(recoveryID,
                             seq, password, x509cert, delivery, nickname,
-                            SessionContext.getContext());
-
-                    waitThread.start();
+                            SessionContext.getContext()));
                     return null;
                 } else {
                     Vector<Credential> v = new Vector<Credential>();
@@ -458,12 +457,10 @@ public class RecoverBySerial extends CMSServlet {
 
                 params.put("agent", agent);
 
-                // new thread to wait for pk12
-                Thread waitThread = new WaitApprovalThread(recoveryID,
+                // recover the key once approved, without waiting for the approvals
+                mService.whenApproved(recoveryID, new RecoveryTask(recoveryID,
                         seq, password, x509cert, delivery, nickname,
-                        SessionContext.getContext());
-
-                waitThread.start();
+                        SessionContext.getContext()));
                 return null;
             }
         } catch (EBaseException e) {
@@ -475,10 +472,11 @@ public class RecoverBySerial extends CMSServlet {
     }
 
     /**
-     * Wait approval thread. Wait for recovery agents' approval
-     * exit when required number of approval received
+     * Recovery task. Runs on the recovery threads once the recovery
+     * agents have approved the recovery, and stores the PKCS12 or the
+     * error in the recovery parameters.
      */
-    final class WaitApprovalThread extends Thread {
+    final class RecoveryTask implements Consumer<Credential[]> {
         String theRecoveryID = null;
         String theSeq = null;
         String thePassword = null;
@@ -487,15 +485,9 @@ public class RecoverBySerial extends CMSServlet {
         String theNickname = null;
         SessionContext theSc = null;
 
-        /**
-         * Wait approval thread constructor including thread name
-         */
-        public WaitApprovalThread(String recoveryID, String seq,
+        public RecoveryTask(String recoveryID, String seq,
                 String password, X509CertImpl cert,
                 String delivery, String nickname, SessionContext sc) {
-            super();
-            super.setName("waitApproval." + recoveryID + "-" +
-                    (Thread.activeCount() + 1));
             theRecoveryID = recoveryID;
             theSeq = seq;
             thePassword = password;
@@ -505,47 +497,30 @@ public class RecoverBySerial extends CMSServlet {
             theSc = sc;
         }
 
-        public void run() {
+        public void accept(Credential creds[]) {
             SessionContext.setContext(theSc);
-            Credential creds[] = null;
-
-            try {
-                creds = mService.getDistributedCredentials(theRecoveryID);
-            } catch (EBaseException e) {
-                String error =
-                        "Failed to get required approvals for recovery id " + theRecoveryID + ": " + e.getMessage();
-                logger.warn("WaitApprovalThread: " + error, e);
-
-                try {
-                    ((IKeyRecoveryAuthority) mService).createError(theRecoveryID, error);
-                } catch (EBaseException eb) {
-                    logger.warn("WaitApprovalThread: " + eb.getMessage(), eb);
-                }
-                return;
-            }
-
-            SessionContext sContext = SessionContext.getContext();
 
             try {
                 byte pkcs12[] = mService.doKeyRecovery(
                         new BigInteger(theSeq),
                         creds, thePassword, theCert,
                         theDelivery, theNickname,
-                        (String) sContext.get(SessionContext.USER_ID));
+                        (String) theSc.get(SessionContext.USER_ID));
 
                 ((IKeyRecoveryAuthority) mService).createPk12(theRecoveryID, pkcs12);
             } catch (EBaseException e) {
                 String error =
                         "Failed to recover key for recovery id " + theRecoveryID + ": " + e.getMessage();
-                logger.warn("WaitApprovalThread: " + error, e);
+                logger.warn("RecoveryTask: " + error, e);
 
                 try {
                     ((IKeyRecoveryAuthority) mService).createError(theRecoveryID, error);
                 } catch (EBaseException eb) {
-                    logger.warn("WaitApprovalThread: " + eb.getMessage(), eb);
+                    logger.warn("RecoveryTask: " + eb.getMessage(), eb);
                 }
+            } finally {
+                SessionContext.releaseContext();
             }
-            return;
         }
     }
 
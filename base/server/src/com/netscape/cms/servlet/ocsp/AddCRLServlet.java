@@ -76,6 +76,16 @@ public class AddCRLServlet extends CMSServlet {
             "-----END CERTIFICATE REVOCATION LIST-----";
 
     private final static String TPL_FILE = "addCRL.template";
+
+    private final static String CRL_ISSUING_POINT_ATTRS[] = {
+            "objectclass",
+            ICRLIssuingPointRecord.ATTR_ID,
+            ICRLIssuingPointRecord.ATTR_CRL_NUMBER,
+            ICRLIssuingPointRecord.ATTR_DELTA_NUMBER,
+            ICRLIssuingPointRecord.ATTR_THIS_UPDATE,
+            ICRLIssuingPointRecord.ATTR_NEXT_UPDATE,
+            ICRLIssuingPointRecord.ATTR_CA_CERT
+    };
     private String mFormPath = null;
     private IOCSPAuthority mOCSPAuthority = null;
 
@@ -315,8 +325,9 @@ public class AddCRLServlet extends CMSServlet {
             ICRLIssuingPointRecord pt = null;
 
             try {
+                // don't load the CRL cache of the current CRL
                 pt = defStore.readCRLIssuingPoint(
-                            crl.getIssuerDN().getName());
+                            crl.getIssuerDN().getName(), CRL_ISSUING_POINT_ATTRS);
             } catch (Exception e) {
                 logger.error(CMS.getLogMessage("CMSGW_NO_CRL_ISSUING_POINT_FOUND", crl.getIssuerDN().getName()), e);
 
@@ -402,94 +413,105 @@ public class AddCRLServlet extends CMSServlet {
                 }
             }
 
-            if ((pt.getThisUpdate() != null) &&
-                    (pt.getThisUpdate().getTime() >=
-                    crl.getThisUpdate().getTime())) {
+            if (crl.isDeltaCRL()) {
 
-                logger.warn("AddCRLServlet: no update, received CRL is older than current CRL");
+                // Delta CRLs are merged into the current CRL. A delta CRL
+                // that is not based on the current CRL is rejected with
+                // status=2 so that the publisher sends the full CRL.
 
-                if (noUI) {
-                    try {
-                        resp.setContentType("application/text");
-                        resp.getOutputStream().write("status=1\n".getBytes());
-                        resp.getOutputStream().write(
-                                "error=Sent CRL is older than the current CRL\n".getBytes());
-                        resp.getOutputStream().flush();
-                        cmsReq.setStatus(ICMSRequest.SUCCESS);
+                logger.info("AddCRLServlet: Start Committing delta CRL");
 
-                        // NOTE:  The signed audit events
-                        //        LOGGING_SIGNED_AUDIT_CRL_RETRIEVAL and
-                        //        LOGGING_SIGNED_AUDIT_CRL_VALIDATION have
-                        //        already been logged at this point!
+                if (!defStore.updateDeltaCRL(crl)) {
 
-                        return;
-                    } catch (Exception e) {
-                    }
-                } else {
-                    logger.error("AddCRLServlet: CRL is older");
+                    logger.warn("AddCRLServlet: no update, delta CRL is not based on current CRL");
 
-                    // NOTE:  The signed audit events
-                    //        LOGGING_SIGNED_AUDIT_CRL_RETRIEVAL and
-                    //        LOGGING_SIGNED_AUDIT_CRL_VALIDATION have
-                    //        already been logged at this point!
+                    if (noUI) {
+                        try {
+                            resp.setContentType("application/text");
+                            resp.getOutputStream().write("status=2\n".getBytes());
+                            resp.getOutputStream().write(
+                                    "error=Delta CRL is not based on the current CRL\n".getBytes());
+                            resp.getOutputStream().flush();
+                            cmsReq.setStatus(ICMSRequest.SUCCESS);
 
-                    throw new ECMSGWException(CMS.getUserMessage(
-                            "CMS_GW_OLD_CRL_ERROR"));
+                            return;
+                        } catch (Exception e) {
+                        }
+                    } else {
+                        throw new ECMSGWException(CMS.getUserMessage("CMS_GW_DELTA_CRL_NOT_SUPPORTED"));
+                    }
                 }
-            }
 
-            if (crl.isDeltaCRL()) {
+            } else {
 
-                logger.warn("AddCRLServlet: no update, " + CMS.getUserMessage("CMS_GW_DELTA_CRL_NOT_SUPPORTED"));
+                if ((pt.getThisUpdate() != null) &&
+                        (pt.getThisUpdate().getTime() >=
+                        crl.getThisUpdate().getTime())) {
+
+                    logger.warn("AddCRLServlet: no update, received CRL is older than current CRL");
+
+                    if (noUI) {
+                        try {
+                            resp.setContentType("application/text");
+                            resp.getOutputStream().write("status=1\n".getBytes());
+                            resp.getOutputStream().write(
+                                    "error=Sent CRL is older than the current CRL\n".getBytes());
+                            resp.getOutputStream().flush();
+                            cmsReq.setStatus(ICMSRequest.SUCCESS);
+
+                            // NOTE:  The signed audit events
+                            //        LOGGING_SIGNED_AUDIT_CRL_RETRIEVAL and
+                            //        LOGGING_SIGNED_AUDIT_CRL_VALIDATION have
+                            //        already been logged at this point!
+
+                            return;
+                        } catch (Exception e) {
+                        }
+                    } else {
+                        logger.error("AddCRLServlet: CRL is older");
 
-                if (noUI) {
-                    try {
-                        resp.setContentType("application/text");
-                        resp.getOutputStream().write("status=1\n".getBytes());
-                        resp.getOutputStream().write(
-                                "error=Delta CRLs are not supported.\n".getBytes());
-                        resp.getOutputStream().flush();
-                        cmsReq.setStatus(ICMSRequest.SUCCESS);
+                        // NOTE:  The signed audit events
+                        //        LOGGING_SIGNED_AUDIT_CRL_RETRIEVAL and
+                        //        LOGGING_SIGNED_AUDIT_CRL_VALIDATION have
+                        //        already been logged at this point!
 
-                        return;
-                    } catch (Exception e) {
+                        throw new ECMSGWException(CMS.getUserMessage(
+                                "CMS_GW_OLD_CRL_ERROR"));
                     }
-                } else {
-                    throw new ECMSGWException(CMS.getUserMessage("CMS_GW_DELTA_CRL_NOT_SUPPORTED"));
                 }
-            }
 
-            logger.info("AddCRLServlet: Start Committing CRL");
+                logger.info("AddCRLServlet: Start Committing CRL");
 
-            // *****************************************************
-            // The commit transaction may take long time and
-            // there may have a system crash during the transaction
-            // *****************************************************
+                // *****************************************************
+                // The commit transaction may take long time and
+                // there may have a system crash during the transaction
+                // *****************************************************
 
-            IRepositoryRecord repRec = defStore.createRepositoryRecord();
+                IRepositoryRecord repRec = defStore.createRepositoryRecord();
 
-            repRec.set(IRepositoryRecord.ATTR_SERIALNO,
-                    new BigInteger(Long.toString(crl.getThisUpdate().getTime())));
-            try {
-                defStore.addRepository(
-                        crl.getIssuerDN().getName(),
-                        Long.toString(crl.getThisUpdate().getTime()),
-                        repRec);
-                logger.info("AddCRLServlet: Added CRL Updated " + Long.toString(crl.getThisUpdate().getTime()));
-            } catch (Exception e) {
-                logger.warn("AddCRLServlet: add repository: " + e.getMessage(), e);
-            }
+                repRec.set(IRepositoryRecord.ATTR_SERIALNO,
+                        new BigInteger(Long.toString(crl.getThisUpdate().getTime())));
+                try {
+                    defStore.addRepository(
+                            crl.getIssuerDN().getName(),
+                            Long.toString(crl.getThisUpdate().getTime()),
+                            repRec);
+                    logger.info("AddCRLServlet: Added CRL Updated " + Long.toString(crl.getThisUpdate().getTime()));
+                } catch (Exception e) {
+                    logger.warn("AddCRLServlet: add repository: " + e.getMessage(), e);
+                }
 
-            logger.info("AddCRLServlet: Created CRL Repository " + Long.toString(crl.getThisUpdate().getTime()));
+                logger.info("AddCRLServlet: Created CRL Repository " + Long.toString(crl.getThisUpdate().getTime()));
 
-            if (defStore.waitOnCRLUpdate()) {
-                defStore.updateCRL(crl);
-            } else {
-                // when the CRL large, the thread is terminiated by the
-                // servlet framework before it can finish its work
-                UpdateCRLThread uct = new UpdateCRLThread(defStore, crl);
+                if (defStore.waitOnCRLUpdate()) {
+                    defStore.updateCRL(crl);
+                } else {
+                    // when the CRL large, the thread is terminiated by the
+                    // servlet framework before it can finish its work
+                    UpdateCRLThread uct = new UpdateCRLThread(defStore, crl);
 
-                uct.start();
+                    uct.start();
+                }
             }
 
             try {
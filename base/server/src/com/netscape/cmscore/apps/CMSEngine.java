@@ -30,10 +30,17 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
@@ -140,7 +147,7 @@ public class CMSEngine implements ServletContextListener {
     private ISecurityDomainSessionTable mSecurityDomainSessionTable = null;
     private Timer mSDTimer = null;
     private String mServerCertNickname = null;
-    private boolean ready;
+    private volatile boolean ready;
 
     private Debug debug = new Debug();
     private PluginRegistry pluginRegistry = new PluginRegistry();
@@ -580,7 +587,9 @@ public class CMSEngine implements ServletContextListener {
         String checkInterval = config.getString("securitydomain.checkinterval", "5000");
 
         if (source.equals("ldap")) {
-            mSecurityDomainSessionTable = new LDAPSecurityDomainSessionTable(Long.parseLong(flushInterval));
+            LDAPSecurityDomainSessionTable table = new LDAPSecurityDomainSessionTable(Long.parseLong(flushInterval));
+            table.start();
+            mSecurityDomainSessionTable = table;
         } else {
             mSecurityDomainSessionTable = new SecurityDomainSessionTable(Long.parseLong(flushInterval));
         }
@@ -773,6 +782,25 @@ public class CMSEngine implements ServletContextListener {
             subsystemInfo.setEnabled(enabled);
             subsystemInfo.setUpdateIdOnInit(true);
 
+            List<String> dependencies = subsystemConfig.getDependencies();
+
+            if (dependencies == null) {
+                // without explicit dependencies depend on all previous subsystems
+                dependencies = new ArrayList<>(subsystemInfos.keySet());
+
+            } else {
+                for (Iterator<String> i = dependencies.iterator(); i.hasNext(); ) {
+                    String dependency = i.next();
+                    if (!subsystemInfos.containsKey(dependency)) {
+                        logger.warn("CMSEngine: " + id + " subsystem depends on unknown or later subsystem: " + dependency);
+                        i.remove();
+                    }
+                }
+            }
+
+            logger.debug("CMSEngine: - dependencies: " + dependencies);
+            subsystemInfo.setDependencies(dependencies);
+
             subsystems.put(id, subsystem);
             subsystemInfos.put(id, subsystemInfo);
         }
@@ -780,7 +808,7 @@ public class CMSEngine implements ServletContextListener {
 
     protected void initSubsystems() throws Exception {
 
-        for (SubsystemInfo subsystemInfo : subsystemInfos.values()) {
+        runSubsystems("SubsystemInit", subsystemInfo -> {
 
             String id = subsystemInfo.id;
             logger.info("CMSEngine: Initializing " + id + " subsystem");
@@ -793,11 +821,95 @@ public class CMSEngine implements ServletContextListener {
 
             if (!subsystemInfo.enabled) {
                 logger.info("CMSEngine: " + id + " subsystem is disabled");
-                continue;
+                return;
             }
 
+            long startTime = System.currentTimeMillis();
+
             IConfigStore subsystemConfig = mConfig.getSubStore(id);
             subsystem.init(subsystemConfig);
+
+            logger.info("CMSEngine: Initialized " + id + " subsystem in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        });
+    }
+
+    interface SubsystemTask {
+        void run(SubsystemInfo subsystemInfo) throws Exception;
+    }
+
+    /**
+     * Runs a task for each subsystem on a bounded pool of threads
+     * (subsystem.threads). The task for a subsystem runs once the
+     * tasks for all of its dependencies have completed, so independent
+     * subsystems are processed concurrently. If a task fails the tasks
+     * of the subsystems depending on it are skipped, and once all tasks
+     * have finished the first failure in configuration order is thrown.
+     */
+    protected void runSubsystems(String threadName, SubsystemTask task) throws Exception {
+
+        SubsystemsConfig subsystemsConfig = mConfig.getSubsystemsConfig();
+        int threads = Math.max(1, subsystemsConfig.getThreads());
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    int count;
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, threadName + "-" + count++);
+                        thread.setDaemon(true);
+                        thread.setContextClassLoader(classLoader);
+                        return thread;
+                    }
+                });
+
+        try {
+            Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+
+            for (SubsystemInfo subsystemInfo : subsystemInfos.values()) {
+
+                List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+                for (String dependency : subsystemInfo.dependencies) {
+                    dependencies.add(futures.get(dependency));
+                }
+
+                CompletableFuture<Void> future = CompletableFuture
+                        .allOf(dependencies.toArray(new CompletableFuture<?>[dependencies.size()]))
+                        .thenRunAsync(() -> {
+                            try {
+                                task.run(subsystemInfo);
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        }, executor);
+
+                futures.put(subsystemInfo.id, future);
+            }
+
+            // wait for all tasks to finish before reporting failures
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()]))
+                    .handle((result, e) -> null)
+                    .join();
+
+            for (Map.Entry<String, CompletableFuture<Void>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().join();
+
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause();
+                    logger.error("CMSEngine: " + entry.getKey() + " subsystem failed: " + cause.getMessage(), cause);
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+
+        } finally {
+            executor.shutdownNow();
         }
     }
 
@@ -997,9 +1109,25 @@ public class CMSEngine implements ServletContextListener {
 
     protected void startupSubsystems() throws EBaseException {
 
-        for (ISubsystem subsystem : subsystems.values()) {
-            logger.info("CMSEngine: Starting " + subsystem.getId() + " subsystem");
-            subsystem.startup();
+        try {
+            runSubsystems("SubsystemStartup", subsystemInfo -> {
+
+                ISubsystem subsystem = subsystems.get(subsystemInfo.id);
+                logger.info("CMSEngine: Starting " + subsystem.getId() + " subsystem");
+
+                long startTime = System.currentTimeMillis();
+
+                subsystem.startup();
+
+                logger.info("CMSEngine: Started " + subsystem.getId() + " subsystem in "
+                        + (System.currentTimeMillis() - startTime) + " ms");
+            });
+
+        } catch (EBaseException e) {
+            throw e;
+
+        } catch (Exception e) {
+            throw new EBaseException("Unable to start subsystems: " + e.getMessage(), e);
         }
 
         // global admin servlet. (anywhere else more fit for this ?)
@@ -17,6 +17,9 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.apps;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.PropConfigStore;
@@ -47,4 +50,26 @@ public class SubsystemConfig extends PropConfigStore {
     public void setEnabled(boolean enabled) throws EBaseException {
         putBoolean("enabled", enabled);
     }
+
+    /**
+     * Returns the IDs of the subsystems listed in the dependsOn
+     * property, or null if the property is not specified.
+     */
+    public List<String> getDependencies() throws EBaseException {
+
+        String value = getString("dependsOn", null);
+        if (value == null) {
+            return null;
+        }
+
+        List<String> dependencies = new ArrayList<>();
+        for (String id : value.split(",")) {
+            id = id.trim();
+            if (!id.isEmpty()) {
+                dependencies.add(id);
+            }
+        }
+
+        return dependencies;
+    }
 }
@@ -22,12 +22,15 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import com.netscape.certsrv.base.EBaseException;
 import com.netscape.cmscore.base.ConfigStorage;
 import com.netscape.cmscore.base.PropConfigStore;
 import com.netscape.cmscore.base.SimpleProperties;
 
 public class SubsystemsConfig extends PropConfigStore {
 
+    public static final int DEFAULT_THREADS = 4;
+
     public SubsystemsConfig(ConfigStorage storage) {
         super(storage);
     }
@@ -57,4 +60,12 @@ public class SubsystemsConfig extends PropConfigStore {
     public SubsystemConfig getSubsystemConfig(String name) {
         return getSubStore(name, SubsystemConfig.class);
     }
+
+    /**
+     * Returns the number of threads used to initialize and start
+     * independent subsystems.
+     */
+    public int getThreads() throws EBaseException {
+        return getInteger("threads", DEFAULT_THREADS);
+    }
 }
@@ -0,0 +1,299 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.base;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.cmscore.apps.CMS;
+
+/**
+ * An immutable snapshot of a configuration store.
+ *
+ * The properties are stored in a tree with one node per substore,
+ * so properties and substores can be looked up without building
+ * full property names or scanning all properties. Typed values are
+ * parsed once and cached in the node.
+ *
+ * Substore references (e.g. cms.ldap=kms.ldap) are resolved the same
+ * way as in PropConfigStore.
+ */
+public class ConfigSnapshot {
+
+    private ConfigSnapshot root;
+    private String name;
+
+    private Map<String, String> properties = new TreeMap<String, String>();
+    private Map<String, ConfigSnapshot> subStores = new TreeMap<String, ConfigSnapshot>();
+
+    private Map<String, Boolean> booleans = new ConcurrentHashMap<String, Boolean>();
+    private Map<String, Integer> integers = new ConcurrentHashMap<String, Integer>();
+
+    private ConfigSnapshot(ConfigSnapshot root, String name) {
+        this.root = root == null ? this : root;
+        this.name = name;
+    }
+
+    /**
+     * Creates a snapshot of the given properties.
+     *
+     * @param source properties with full names
+     * @return root of the snapshot
+     */
+    public static ConfigSnapshot create(Map<String, String> source) {
+
+        ConfigSnapshot root = new ConfigSnapshot(null, null);
+
+        for (Map.Entry<String, String> entry : source.entrySet()) {
+            String key = entry.getKey();
+            ConfigSnapshot node = root;
+
+            int start = 0;
+            int i;
+            while ((i = key.indexOf('.', start)) >= 0) {
+                node = node.makeSubStore(key.substring(start, i));
+                start = i + 1;
+            }
+
+            node.properties.put(key.substring(start), entry.getValue());
+        }
+
+        root.freeze();
+        return root;
+    }
+
+    private ConfigSnapshot makeSubStore(String n) {
+        ConfigSnapshot subStore = subStores.get(n);
+        if (subStore == null) {
+            subStore = new ConfigSnapshot(root, name == null ? n : name + "." + n);
+            subStores.put(n, subStore);
+        }
+        return subStore;
+    }
+
+    private void freeze() {
+        properties = Collections.unmodifiableMap(properties);
+        for (ConfigSnapshot subStore : subStores.values()) {
+            subStore.freeze();
+        }
+        subStores = Collections.unmodifiableMap(subStores);
+    }
+
+    /**
+     * Returns the full name of this substore, or null for the root.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns a property value without parsing.
+     *
+     * @param n property name, may contain dots
+     * @return property value, or null if it does not exist
+     */
+    public String get(String n) {
+
+        int i = n.lastIndexOf('.');
+        if (i < 0) {
+            return properties.get(n);
+        }
+
+        ConfigSnapshot node = findSubStore(n.substring(0, i));
+        return node == null ? null : node.properties.get(n.substring(i + 1));
+    }
+
+    private ConfigSnapshot findSubStore(String n) {
+
+        ConfigSnapshot node = this;
+
+        int start = 0;
+        int i;
+        while (node != null && (i = n.indexOf('.', start)) >= 0) {
+            node = node.subStores.get(n.substring(start, i));
+            start = i + 1;
+        }
+
+        return node == null ? null : node.subStores.get(n.substring(start));
+    }
+
+    /**
+     * Returns a substore. If the substore name itself is set, the
+     * value is used as the full name of the substore.
+     *
+     * @param n substore name, may contain dots
+     * @return substore, empty if it does not exist
+     */
+    public ConfigSnapshot getSubStore(String n) {
+
+        String reference = get(n);
+        if (reference != null) {
+            return root.getSubStoreByFullName(reference);
+        }
+
+        ConfigSnapshot subStore = findSubStore(n);
+        if (subStore == null) {
+            return new ConfigSnapshot(root, name == null ? n : name + "." + n).frozen();
+        }
+
+        return subStore;
+    }
+
+    /**
+     * Returns a substore by its full name without resolving references.
+     */
+    ConfigSnapshot getSubStoreByFullName(String fullName) {
+
+        if (fullName == null) {
+            return root;
+        }
+
+        ConfigSnapshot subStore = root.findSubStore(fullName);
+        if (subStore == null) {
+            return new ConfigSnapshot(root, fullName).frozen();
+        }
+
+        return subStore;
+    }
+
+    private ConfigSnapshot frozen() {
+        freeze();
+        return this;
+    }
+
+    /**
+     * Returns the names of the properties in this substore in
+     * lexicographic order.
+     */
+    public Collection<String> getPropertyNames() {
+        return properties.keySet();
+    }
+
+    /**
+     * Returns the names of the substores of this substore in
+     * lexicographic order.
+     */
+    public Collection<String> getSubStoreNames() {
+        return subStores.keySet();
+    }
+
+    /**
+     * Retrieves a trimmed string value.
+     *
+     * @param n property name
+     * @param defval default value
+     * @return property value, or defval if it does not exist
+     */
+    public String getString(String n, String defval) {
+        String value = get(n);
+        return value == null ? defval : value.trim();
+    }
+
+    /**
+     * Retrieves a boolean value. The parsed value is cached.
+     *
+     * @param n property name
+     * @param defval default value
+     * @return property value, or defval if it does not exist or is empty
+     * @exception EBaseException invalid boolean value
+     */
+    public boolean getBoolean(String n, boolean defval) throws EBaseException {
+
+        Boolean cached = booleans.get(n);
+        if (cached != null) {
+            return cached;
+        }
+
+        String value = get(n);
+        if (value == null || value.length() == 0) {
+            return defval;
+        }
+
+        boolean result;
+        if (value.equalsIgnoreCase("true")) {
+            result = true;
+        } else if (value.equalsIgnoreCase("false")) {
+            result = false;
+        } else {
+            throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_PROPERTY_1", getFullName(n),
+                    "boolean", "\"true\" or \"false\""));
+        }
+
+        booleans.put(n, result);
+        return result;
+    }
+
+    /**
+     * Retrieves an integer value. The parsed value is cached.
+     *
+     * @param n property name
+     * @param defval default value
+     * @return property value, or defval if it does not exist or is empty
+     * @exception EBaseException invalid integer value
+     */
+    public int getInteger(String n, int defval) throws EBaseException {
+
+        Integer cached = integers.get(n);
+        if (cached != null) {
+            return cached;
+        }
+
+        String value = get(n);
+        if (value == null || value.length() == 0) {
+            return defval;
+        }
+
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_PROPERTY_1", getFullName(n),
+                    "int", "number"));
+        }
+
+        integers.put(n, result);
+        return result;
+    }
+
+    /**
+     * Returns all properties of this substore with names relative
+     * to this substore in lexicographic order.
+     */
+    public Map<String, String> getProperties() {
+        Map<String, String> map = new TreeMap<String, String>();
+        collect("", map);
+        return map;
+    }
+
+    private void collect(String prefix, Map<String, String> map) {
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            map.put(prefix + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, ConfigSnapshot> entry : subStores.entrySet()) {
+            entry.getValue().collect(prefix + entry.getKey() + ".", map);
+        }
+    }
+
+    private String getFullName(String n) {
+        return name == null ? n : name + "." + n;
+    }
+}
@@ -30,7 +30,6 @@ import java.math.BigInteger;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.Vector;
 
 import org.mozilla.jss.netscape.security.util.Utils;
@@ -61,6 +60,12 @@ import com.netscape.cmscore.apps.CMS;
  * The chain ends when the store name is reduced down to it's original
  * value.
  * <P>
+ * Enumerating properties and substores uses an immutable snapshot
+ * of the source (see ConfigSnapshot) which is rebuilt after the
+ * properties are modified. A new snapshot is published on commit()
+ * and the registered ConfigListeners are notified, so code on hot
+ * paths can keep its own copy of the configuration values it uses.
+ * <P>
  *
  * @version $Revision$, $Date$
  */
@@ -203,9 +208,31 @@ public class PropConfigStore implements IConfigStore, Cloneable {
      * @return map
      */
     public Map<String, String> getProperties() {
-        Map<String, String> map = new TreeMap<String, String>();
-        enumerate(map);
-        return map;
+        return getSnapshot().getProperties();
+    }
+
+    /**
+     * Returns an immutable snapshot of this store reflecting the
+     * current properties.
+     *
+     * @return snapshot
+     */
+    public ConfigSnapshot getSnapshot() {
+        return mSource.getSnapshot().getSubStoreByFullName(mStoreName);
+    }
+
+    /**
+     * Registers a listener notified with a new snapshot of this
+     * store whenever changes to the configuration are committed.
+     *
+     * @param listener config listener
+     */
+    public void addConfigListener(ConfigListener listener) {
+        mSource.addConfigListener(mStoreName, listener);
+    }
+
+    public void removeConfigListener(ConfigListener listener) {
+        mSource.removeConfigListener(listener);
     }
 
     /**
@@ -255,6 +282,8 @@ public class PropConfigStore implements IConfigStore, Cloneable {
         if (storage != null) {
             storage.commit(this, createBackup);
         }
+
+        mSource.publishSnapshot();
     }
 
     /**
@@ -323,10 +352,11 @@ public class PropConfigStore implements IConfigStore, Cloneable {
     public String getString(String name, String defval) throws EBaseException {
         String val;
 
-        try {
-            val = getString(name);
-        } catch (EPropertyNotFound e) {
+        // avoid the cost of EPropertyNotFound for missing properties
+        if (get(name) == null) {
             val = defval;
+        } else {
+            val = getString(name);
         }
 
         logger.trace("Getting {}={}", getFullName(name), val);
@@ -447,13 +477,12 @@ public class PropConfigStore implements IConfigStore, Cloneable {
     public boolean getBoolean(String name, boolean defval)
             throws EBaseException {
         boolean val;
+        String value = get(name);
 
-        try {
-            val = getBoolean(name);
-        } catch (EPropertyNotFound e) {
-            val = defval;
-        } catch (EPropertyNotDefined e) {
+        if (value == null || value.length() == 0) {
             val = defval;
+        } else {
+            val = getBoolean(name);
         }
 
         logger.trace("Getting {}={}", getFullName(name), val);
@@ -510,13 +539,12 @@ public class PropConfigStore implements IConfigStore, Cloneable {
      */
     public int getInteger(String name, int defval) throws EBaseException {
         int val;
+        String value = get(name);
 
-        try {
-            val = getInteger(name);
-        } catch (EPropertyNotFound e) {
-            val = defval;
-        } catch (EPropertyNotDefined e) {
+        if (value == null || value.length() == 0) {
             val = defval;
+        } else {
+            val = getInteger(name);
         }
         logger.trace("Getting {}={}", getFullName(name), val);
         return val;
@@ -695,19 +723,7 @@ public class PropConfigStore implements IConfigStore, Cloneable {
      * @return a list of string-based property names
      */
     public Enumeration<String> getPropertyNames() {
-        // XXX - this operation is expensive!!!
-        Map<String, String> map = getProperties();
-
-        Vector<String> v = new Vector<String>();
-        for (String name : map.keySet()) {
-            int i = name.indexOf('.'); // substores have "."
-            if (i >= 0) continue;
-            if (v.contains(name)) continue;
-
-            v.addElement(name);
-        }
-
-        return v.elements();
+        return new Vector<String>(getSnapshot().getPropertyNames()).elements();
     }
 
     /**
@@ -717,21 +733,7 @@ public class PropConfigStore implements IConfigStore, Cloneable {
      * @return list of substore names
      */
     public Enumeration<String> getSubStoreNames() {
-        // XXX - this operation is expensive!!!
-        Map<String, String> map = getProperties();
-
-        Vector<String> v = new Vector<String>();
-        for (String name : map.keySet()) {
-            int i = name.indexOf('.'); // substores have "."
-            if (i < 0) continue;
-
-            name = name.substring(0, i);
-            if (v.contains(name)) continue;
-
-            v.addElement(name);
-        }
-
-        return v.elements();
+        return new Vector<String>(getSnapshot().getSubStoreNames()).elements();
     }
 
     /**
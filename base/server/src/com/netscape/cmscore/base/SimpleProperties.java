@@ -29,6 +29,9 @@ import java.io.PrintWriter;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The <code>Properties</code> class represents a persistent set of
@@ -61,6 +64,25 @@ public class SimpleProperties extends Hashtable<String, String> {
      */
     protected SimpleProperties defaults;
 
+    /**
+     * Snapshot of the current properties, discarded when the
+     * properties are modified and rebuilt on demand.
+     */
+    private transient volatile ConfigSnapshot snapshot;
+
+    private transient List<Registration> listeners = new CopyOnWriteArrayList<Registration>();
+
+    static class Registration {
+
+        String storeName;
+        ConfigListener listener;
+
+        Registration(String storeName, ConfigListener listener) {
+            this.storeName = storeName;
+            this.listener = listener;
+        }
+    }
+
     /**
      * Creates an empty property list with no default values.
      */
@@ -88,6 +110,75 @@ public class SimpleProperties extends Hashtable<String, String> {
         return put(key, value);
     }
 
+    @Override
+    public synchronized String put(String key, String value) {
+        snapshot = null;
+        return super.put(key, value);
+    }
+
+    @Override
+    public synchronized String remove(Object key) {
+        snapshot = null;
+        return super.remove(key);
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends String, ? extends String> map) {
+        snapshot = null;
+        super.putAll(map);
+    }
+
+    @Override
+    public synchronized void clear() {
+        snapshot = null;
+        super.clear();
+    }
+
+    /**
+     * Returns an immutable snapshot of the current properties.
+     *
+     * @return snapshot
+     */
+    public ConfigSnapshot getSnapshot() {
+
+        ConfigSnapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = ConfigSnapshot.create(this);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Publishes a new snapshot of the current properties and notifies
+     * the listeners.
+     */
+    public void publishSnapshot() {
+
+        ConfigSnapshot s;
+        synchronized (this) {
+            s = ConfigSnapshot.create(this);
+            snapshot = s;
+        }
+
+        for (Registration registration : listeners) {
+            registration.listener.configChanged(s.getSubStoreByFullName(registration.storeName));
+        }
+    }
+
+    public void addConfigListener(String storeName, ConfigListener listener) {
+        listeners.add(new Registration(storeName, listener));
+    }
+
+    public void removeConfigListener(ConfigListener listener) {
+        listeners.removeIf(registration -> registration.listener == listener);
+    }
+
     private static final String keyValueSeparators = "=: \t\r\n\f";
 
     private static final String strictKeyValueSeparators = "=:";
@@ -61,12 +61,14 @@ import org.mozilla.jss.netscape.security.util.DerOutputStream;
 import org.mozilla.jss.netscape.security.util.ObjectIdentifier;
 import org.mozilla.jss.netscape.security.util.Utils;
 import org.mozilla.jss.netscape.security.x509.AlgorithmId;
+import org.mozilla.jss.netscape.security.x509.CRLExtensions;
 import org.mozilla.jss.netscape.security.x509.CertificateAlgorithmId;
 import org.mozilla.jss.netscape.security.x509.CertificateExtensions;
 import org.mozilla.jss.netscape.security.x509.CertificateIssuerName;
 import org.mozilla.jss.netscape.security.x509.CertificateSerialNumber;
 import org.mozilla.jss.netscape.security.x509.CertificateValidity;
 import org.mozilla.jss.netscape.security.x509.CertificateVersion;
+import org.mozilla.jss.netscape.security.x509.DeltaCRLIndicatorExtension;
 import org.mozilla.jss.netscape.security.x509.Extension;
 import org.mozilla.jss.netscape.security.x509.X500Name;
 import org.mozilla.jss.netscape.security.x509.X509CRLImpl;
@@ -735,6 +737,32 @@ public class CertUtils {
         return crl;
     }
 
+    /**
+     * Returns the base CRL number of a delta CRL, or null if the
+     * CRL does not have a delta CRL indicator extension.
+     */
+    public static BigInteger getDeltaBaseCRLNumber(X509CRLImpl crl) {
+
+        CRLExtensions exts = crl.getExtensions();
+        if (exts == null) {
+            return null;
+        }
+
+        Enumeration<Extension> e = exts.getElements();
+        while (e.hasMoreElements()) {
+            Extension ext = e.nextElement();
+            if (ext instanceof DeltaCRLIndicatorExtension) {
+                try {
+                    return (BigInteger) ((DeltaCRLIndicatorExtension) ext).get(DeltaCRLIndicatorExtension.NUMBER);
+                } catch (IOException ex) {
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
     public static String normalizeCertStr(String s) {
         StringBuffer val = new StringBuffer();
 
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -70,6 +71,10 @@ public class HttpConnection implements IHttpConnection {
         mReqEncoder = new HttpRequestEncoder();
         mHttpClient = new HttpClient(factory);
 
+        // keep the connection open between requests so that pooled
+        // connections from HttpConnFactory don't need a new handshake
+        mHttpClient.setKeepAlive(true);
+
         this.timeout = timeout;
 
         targets = parseTarget(dest.getHost(), dest.getPort());
@@ -261,9 +266,10 @@ public class HttpConnection implements IHttpConnection {
             throw new EBaseException(CMS.getUserMessage("CMS_BASE_INVALID_ATTRIBUTE", "URI not set in HttpRequest"));
         }
 
-        mHttpreq.setHeader("Content-Length",
-                Integer.toString(content.length()));
-        logger.debug("HttpConnection.doSend: with String content length: " + Integer.toString(content.length()));
+        // the content is sent in UTF-8 and Content-Length counts bytes
+        int contentLength = content.getBytes(StandardCharsets.UTF_8).length;
+        mHttpreq.setHeader("Content-Length", Integer.toString(contentLength));
+        logger.debug("HttpConnection.doSend: with String content length: " + contentLength);
         mHttpreq.setContent(content);
 
         try {
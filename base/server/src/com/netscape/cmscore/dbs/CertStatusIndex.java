@@ -0,0 +1,371 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.dbs;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netscape.certsrv.dbs.certdb.ICertRecord;
+import com.netscape.certsrv.dbs.certdb.ICertRecordList;
+
+/**
+ * In-memory index of certificate statuses.
+ *
+ * The index is only used while the persistent search of the
+ * certificate repository is running, since that is what keeps it
+ * consistent with the database (including changes made by clones).
+ * It is cleared whenever the persistent search stops, so changes
+ * missed while disconnected cannot be served from memory.
+ *
+ * Once the persistent search is established the index is loaded
+ * in the background with a virtual list scan of the certificate records.
+ * Records read from the database are only added if the persistent
+ * search has not already provided a newer version of the record.
+ *
+ * Certificates modified by this server are invalidated synchronously
+ * by the certificate repository, so the persistent search is only
+ * needed for changes made by clones. Records read before such a
+ * modification are not added afterwards.
+ *
+ * The persistent search only reports modified records, so records
+ * added after the scan (e.g. by clones) are read from the database
+ * on first use.
+ *
+ * Each entry is stored as a single long containing the status and
+ * the revocation date.
+ *
+ * Configuration (ca.certStatusIndex):
+ * <pre>
+ * enable=false
+ * pageSize=1000
+ * maxSize=1000000
+ * </pre>
+ */
+public class CertStatusIndex {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CertStatusIndex.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    public static final int DEFAULT_MAX_SIZE = 1000000;
+
+    private static final String[] STATUSES = {
+            ICertRecord.STATUS_VALID,
+            ICertRecord.STATUS_INVALID,
+            ICertRecord.STATUS_REVOKED,
+            ICertRecord.STATUS_EXPIRED,
+            ICertRecord.STATUS_REVOKED_EXPIRED
+    };
+
+    private static final int STATUS_BITS = 3;
+    private static final long STATUS_MASK = (1 << STATUS_BITS) - 1;
+
+    public static class Entry {
+
+        private String status;
+        private Date revokedOn;
+
+        Entry(String status, Date revokedOn) {
+            this.status = status;
+            this.revokedOn = revokedOn;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Date getRevokedOn() {
+            return revokedOn;
+        }
+    }
+
+    private boolean enabled;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private Map<BigInteger, Long> entries = new ConcurrentHashMap<>();
+    private volatile boolean active;
+    private volatile boolean complete;
+
+    // incremented whenever the index is cleared to stop an ongoing scan
+    private AtomicInteger generation = new AtomicInteger();
+
+    // incremented whenever a certificate is invalidated so records
+    // read from the database before that are not added afterwards
+    private AtomicLong modifications = new AtomicLong();
+
+    private ExecutorService executorService;
+
+    /**
+     * Enables loading the whole index when the persistent search
+     * is established.
+     */
+    public void init(boolean enabled, int pageSize, int maxSize) {
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.maxSize = maxSize;
+
+        logger.info("CertStatusIndex: enabled: " + enabled);
+        logger.info("CertStatusIndex: page size: " + pageSize);
+        logger.info("CertStatusIndex: max size: " + maxSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Returns true if the initial scan has loaded all certificate
+     * records that existed when the persistent search was established.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Starts serving lookups and starts loading the index if enabled.
+     * Called once the persistent search has been established.
+     */
+    synchronized void activate(CertificateRepository repository) {
+
+        logger.info("CertStatusIndex: activated");
+
+        int gen = generation.incrementAndGet();
+        entries.clear();
+        complete = false;
+        active = true;
+
+        if (!enabled) {
+            return;
+        }
+
+        if (executorService == null) {
+            executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "CertStatusIndexLoader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        executorService.execute(() -> load(repository, gen));
+    }
+
+    /**
+     * Stops serving lookups and drops all entries.
+     */
+    synchronized void deactivate() {
+
+        if (active) {
+            logger.info("CertStatusIndex: deactivated");
+        }
+
+        generation.incrementAndGet();
+        active = false;
+        complete = false;
+        entries.clear();
+    }
+
+    public synchronized void shutdown() {
+
+        deactivate();
+
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+    }
+
+    /**
+     * Loads the index with a single scan of the certificate records
+     * through a virtual list sorted by serial number.
+     */
+    void load(CertificateRepository repository, int gen) {
+
+        logger.info("CertStatusIndex: loading certificate statuses");
+        long startTime = System.currentTimeMillis();
+
+        int count = 0;
+
+        try {
+            long previousStamp = getStamp();
+
+            ICertRecordList list = repository.findCertRecordsInList(
+                    "(" + ICertRecord.ATTR_CERT_STATUS + "=*)", null, "serialno", pageSize);
+            int size = list.getSize();
+            long stamp = previousStamp;
+
+            for (int i = 0; i < size; i++) {
+
+                if (generation.get() != gen) {
+                    return;
+                }
+
+                if (i % pageSize == 0) {
+
+                    if (entries.size() >= maxSize) {
+                        logger.warn("CertStatusIndex: index is full, other statuses will be read from the database");
+                        return;
+                    }
+
+                    // the virtual list may have read the first records
+                    // of this page together with the previous page
+                    stamp = previousStamp;
+                    previousStamp = getStamp();
+                }
+
+                if (add(list.getCertRecord(i), stamp) != null) {
+                    count++;
+                }
+            }
+
+            if (generation.get() != gen) {
+                return;
+            }
+
+            complete = true;
+            logger.info("CertStatusIndex: loaded " + count + " certificate statuses in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+
+        } catch (Exception e) {
+            logger.warn("CertStatusIndex: unable to load certificate statuses: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the indexed status of a certificate.
+     *
+     * @param serialNumber certificate serial number
+     * @return the entry, or null if the certificate is not indexed
+     */
+    public Entry get(BigInteger serialNumber) {
+
+        if (!active) {
+            return null;
+        }
+
+        Long value = entries.get(serialNumber);
+        if (value == null) {
+            return null;
+        }
+
+        String status = STATUSES[(int) (value & STATUS_MASK)];
+        long time = value >>> STATUS_BITS;
+
+        return new Entry(status, time == 0 ? null : new Date(time - 1));
+    }
+
+    /**
+     * Returns the stamp to pass to add() for a record that is about
+     * to be read from the database.
+     */
+    public long getStamp() {
+        return modifications.get();
+    }
+
+    /**
+     * Adds a record read from the database unless a newer version
+     * was already provided by the persistent search, or a certificate
+     * was invalidated since the stamp was taken.
+     *
+     * @param record certificate record
+     * @param stamp value of getStamp() before the record was read
+     * @return the status of the record
+     */
+    public Entry add(ICertRecord record, long stamp) {
+
+        if (record == null) {
+            return null;
+        }
+
+        Entry entry = new Entry(record.getStatus(), record.getRevokedOn());
+
+        if (active && entries.size() < maxSize) {
+            Long value = encode(entry);
+            if (value != null) {
+                BigInteger serialNumber = record.getSerialNumber();
+                entries.putIfAbsent(serialNumber, value);
+
+                // the record may have been modified after it was read
+                if (modifications.get() != stamp) {
+                    entries.remove(serialNumber, value);
+                }
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Removes a certificate that has been modified or deleted by this
+     * server. Called after the database has been updated.
+     */
+    public void invalidate(BigInteger serialNumber) {
+        modifications.incrementAndGet();
+        entries.remove(serialNumber);
+    }
+
+    /**
+     * Updates a record provided by the persistent search.
+     */
+    public void update(ICertRecord record) {
+
+        if (!active || record == null) {
+            return;
+        }
+
+        Long value = encode(new Entry(record.getStatus(), record.getRevokedOn()));
+        if (value == null) {
+            entries.remove(record.getSerialNumber());
+        } else {
+            entries.put(record.getSerialNumber(), value);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static Long encode(Entry entry) {
+
+        if (entry.status == null) {
+            return null;
+        }
+
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(entry.status)) {
+                long time = entry.revokedOn == null ? 0 : entry.revokedOn.getTime() + 1;
+                return (time << STATUS_BITS) | i;
+            }
+        }
+
+        // unknown status
+        return null;
+    }
+}
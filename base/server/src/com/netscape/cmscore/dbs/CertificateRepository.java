@@ -21,10 +21,15 @@ import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -95,6 +100,9 @@ public class CertificateRepository extends Repository
     private static final String PROP_MINIMUM_RANDOM_BITS = "minimumRandomBits";
     private static final BigInteger BI_MINUS_ONE = (BigInteger.ZERO).subtract(BigInteger.ONE);
 
+    // number of serial numbers in each search of readCertificateRecords()
+    private static final int READ_SEARCH_SIZE = 100;
+
     private DBSubsystem dbSubsystem;
     private String mBaseDN;
     private String mRequestBaseDN;
@@ -118,6 +126,9 @@ public class CertificateRepository extends Repository
 
     public CertStatusUpdateTask certStatusUpdateTask;
     public RetrieveModificationsTask retrieveModificationsTask;
+
+    private CertStatusIndex certStatusIndex = new CertStatusIndex();
+    private boolean mListenToCloneModifications;
     public SerialNumberUpdateTask serialNumberUpdateTask;
 
     /**
@@ -625,8 +636,10 @@ public class CertificateRepository extends Repository
         }
 
         logger.debug("In setCertStatusUpdateInterval listenToCloneModifications=" + listenToCloneModifications);
+        mListenToCloneModifications = listenToCloneModifications;
 
-        if (listenToCloneModifications) {
+        // the persistent search also keeps the cert status index consistent
+        if (listenToCloneModifications || certStatusIndex.isEnabled()) {
             logger.debug("In setCertStatusUpdateInterval listening to modifications");
             retrieveModificationsTask = new RetrieveModificationsTask(this);
             retrieveModificationsTask.start();
@@ -1027,6 +1040,7 @@ public class CertificateRepository extends Repository
         } finally {
             if (s != null)
                 s.close();
+            certStatusIndex.invalidate(serialNo);
         }
     }
 
@@ -1094,6 +1108,38 @@ public class CertificateRepository extends Repository
         }
     }
 
+    /**
+     * Reads certificate records with one search per READ_SEARCH_SIZE
+     * serial numbers.
+     */
+    public Map<BigInteger, ICertRecord> readCertificateRecords(Collection<BigInteger> serialNos)
+            throws EBaseException {
+
+        Map<BigInteger, ICertRecord> records = new LinkedHashMap<BigInteger, ICertRecord>();
+        List<BigInteger> list = new ArrayList<BigInteger>(serialNos);
+
+        try (IDBSSession s = dbSubsystem.createSession()) {
+            for (int i = 0; i < list.size(); i += READ_SEARCH_SIZE) {
+                List<BigInteger> group = list.subList(i, Math.min(i + READ_SEARCH_SIZE, list.size()));
+
+                StringBuilder filter = new StringBuilder("(|");
+                for (BigInteger serialNo : group) {
+                    filter.append("(" + ICertRecord.ATTR_ID + "=" + serialNo + ")");
+                }
+                filter.append(")");
+
+                IDBSearchResults sr = s.search(getDN(), filter.toString(), group.size());
+                while (sr.hasMoreElements()) {
+                    ICertRecord record = (ICertRecord) sr.nextElement();
+                    if (record == null) continue;
+                    records.put(record.getSerialNumber(), record);
+                }
+            }
+        }
+
+        return records;
+    }
+
     public synchronized void modifyCertificateRecord(BigInteger serialNo,
             ModificationSet mods) throws EBaseException {
         IDBSSession s = dbSubsystem.createSession();
@@ -1108,6 +1154,7 @@ public class CertificateRepository extends Repository
         } finally {
             if (s != null)
                 s.close();
+            certStatusIndex.invalidate(serialNo);
         }
     }
 
@@ -1141,6 +1188,47 @@ public class CertificateRepository extends Repository
 
     public void markAsRevoked(BigInteger id, IRevocationInfo info, boolean isAlreadyRevoked)
             throws EBaseException {
+        modifyCertificateRecord(id, createRevocationModifications(info, isAlreadyRevoked));
+    }
+
+    /**
+     * Marks multiple certificates as revoked using pipelined
+     * modifications in a single session.
+     */
+    public Map<BigInteger, EBaseException> markAsRevoked(Map<BigInteger, IRevocationInfo> infos)
+            throws EBaseException {
+
+        Map<String, BigInteger> serialNumbers = new LinkedHashMap<String, BigInteger>();
+        Map<String, ModificationSet> mods = new LinkedHashMap<String, ModificationSet>();
+        Date modifyTime = new Date();
+
+        for (Map.Entry<BigInteger, IRevocationInfo> entry : infos.entrySet()) {
+            BigInteger serialNo = entry.getKey();
+            String name = "cn" + "=" + serialNo.toString() + "," + getDN();
+
+            ModificationSet recordMods = createRevocationModifications(entry.getValue(), false);
+            recordMods.add(CertRecord.ATTR_MODIFY_TIME, Modification.MOD_REPLACE, modifyTime);
+
+            serialNumbers.put(name, serialNo);
+            mods.put(name, recordMods);
+        }
+
+        Map<BigInteger, EBaseException> errors = new LinkedHashMap<BigInteger, EBaseException>();
+
+        try (IDBSSession s = dbSubsystem.createSession()) {
+            for (Map.Entry<String, EBaseException> error : s.modify(mods).entrySet()) {
+                errors.put(serialNumbers.get(error.getKey()), error.getValue());
+            }
+        } finally {
+            for (BigInteger serialNo : infos.keySet()) {
+                certStatusIndex.invalidate(serialNo);
+            }
+        }
+
+        return errors;
+    }
+
+    private ModificationSet createRevocationModifications(IRevocationInfo info, boolean isAlreadyRevoked) {
         ModificationSet mods = new ModificationSet();
         if (isAlreadyRevoked) {
             mods.add(CertRecord.ATTR_REVO_INFO, Modification.MOD_REPLACE, info);
@@ -1178,7 +1266,7 @@ public class CertificateRepository extends Repository
                     CertRecord.STATUS_REVOKED);
         }
 
-        modifyCertificateRecord(id, mods);
+        return mods;
     }
 
     /**
@@ -2267,6 +2355,33 @@ public class CertificateRepository extends Repository
         return session.persistentSearch(getDN(), filter, null);
     }
 
+    /**
+     * Returns the in-memory certificate status index. The index is
+     * only active while the persistent search is running.
+     */
+    public CertStatusIndex getCertStatusIndex() {
+        return certStatusIndex;
+    }
+
+    /**
+     * Returns the status of a certificate from the status index, or
+     * from the database if the certificate is not indexed.
+     *
+     * @param serialNo certificate serial number
+     * @return certificate status
+     * @exception EBaseException certificate not found or database error
+     */
+    public CertStatusIndex.Entry readCertificateStatus(BigInteger serialNo) throws EBaseException {
+
+        CertStatusIndex.Entry entry = certStatusIndex.get(serialNo);
+        if (entry != null) {
+            return entry;
+        }
+
+        long stamp = certStatusIndex.getStamp();
+        return certStatusIndex.add(readCertificateRecord(serialNo), stamp);
+    }
+
     public void getModifications(LDAPEntry entry) {
         if (entry != null) {
             logger.debug("getModifications  entry DN=" + entry.getDN());
@@ -2278,6 +2393,12 @@ public class CertificateRepository extends Repository
             } catch (Exception e) {
             }
             if (certRec != null) {
+                certStatusIndex.update(certRec);
+
+                if (!mListenToCloneModifications) {
+                    return;
+                }
+
                 String status = certRec.getStatus();
                 logger.debug("getModifications  serialNumber=" + certRec.getSerialNumber() +
                           "  status=" + status);
@@ -2326,9 +2447,18 @@ public class CertificateRepository extends Repository
         if (cert == null)
             return null;
 
+        // only revoked certs need to be read from the database
+        CertStatusIndex.Entry entry = certStatusIndex.get(cert.getSerialNumber());
+        if (entry != null && !ICertRecord.STATUS_REVOKED.equals(entry.getStatus())) {
+            return null;
+        }
+
+        long stamp = certStatusIndex.getStamp();
         ICertRecord rec = readCertificateRecord(cert.getSerialNumber());
 
         if (rec != null) {
+            certStatusIndex.add(rec, stamp);
+
             if (rec.getStatus().equals(ICertRecord.STATUS_REVOKED)) {
                 X500Name name = (X500Name) cert.getSubjectDN();
                 X500Name repCertName = (X500Name) rec.getCertificate().getSubjectDN();
@@ -2375,6 +2505,8 @@ public class CertificateRepository extends Repository
         if (serialNumberUpdateTask != null) {
             serialNumberUpdateTask.stop();
         }
+
+        certStatusIndex.shutdown();
     }
 }
 
@@ -2517,6 +2649,9 @@ class RetrieveModificationsTask implements Runnable {
             session = repository.getDBSubsystem().createSession();
             results = repository.searchForModifiedCertificateRecords(session);
 
+            // the persistent search now reports all status changes
+            repository.getCertStatusIndex().activate(repository);
+
         } catch (EBaseException e) {
             close(); // avoid leaks
             throw e;
@@ -2525,6 +2660,9 @@ class RetrieveModificationsTask implements Runnable {
 
     public void close() {
 
+        // changes may be missed until the search is reestablished
+        repository.getCertStatusIndex().deactivate();
+
         if (session == null) return;
 
         // make sure the search is abandoned
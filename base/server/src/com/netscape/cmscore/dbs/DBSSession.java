@@ -17,7 +17,11 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.dbs;
 
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.ISubsystem;
@@ -39,6 +43,8 @@ import netscape.ldap.LDAPEntry;
 import netscape.ldap.LDAPException;
 import netscape.ldap.LDAPModification;
 import netscape.ldap.LDAPModificationSet;
+import netscape.ldap.LDAPResponse;
+import netscape.ldap.LDAPResponseListener;
 import netscape.ldap.LDAPSearchConstraints;
 import netscape.ldap.LDAPSearchResults;
 import netscape.ldap.LDAPSortKey;
@@ -63,6 +69,11 @@ public class DBSSession implements IDBSSession {
     private DBSubsystem dbSubsystem;
     private LDAPConnection mConn = null;
 
+    /**
+     * Maximum number of outstanding requests in pipelined operations.
+     */
+    public final static int PIPELINE_SIZE = 100;
+
     /**
      * Constructs a database session.
      *
@@ -226,23 +237,7 @@ public class DBSSession implements IDBSSession {
         logger.debug("DBSSession: modify(" + name + ")");
 
         try {
-            LDAPModificationSet ldapMods = new
-                    LDAPModificationSet();
-            Enumeration<?> e = mods.getModifications();
-
-            while (e.hasMoreElements()) {
-                Modification mod = (Modification)
-                        e.nextElement();
-                LDAPAttributeSet attrs = new LDAPAttributeSet();
-
-                dbSubsystem.getRegistry().mapObject(null,
-                        mod.getName(), mod.getValue(), attrs);
-                Enumeration<LDAPAttribute> e0 = attrs.getAttributes();
-
-                while (e0.hasMoreElements()) {
-                    ldapMods.add(toLdapModOp(mod.getOp()), e0.nextElement());
-                }
-            }
+            LDAPModificationSet ldapMods = createLDAPModificationSet(mods);
 
             /*LogDoc
              *
@@ -251,16 +246,102 @@ public class DBSSession implements IDBSSession {
              */
             mConn.modify(name, ldapMods);
         } catch (LDAPException e) {
-            if (e.getLDAPResultCode() == LDAPException.UNAVAILABLE)
-                throw new EDBNotAvailException(
-                        CMS.getUserMessage("CMS_DBS_INTERNAL_DIR_UNAVAILABLE"));
-            if (e.getLDAPResultCode() == LDAPException.NO_SUCH_OBJECT)
-                throw new EDBRecordNotFoundException(
-                        CMS.getUserMessage("CMS_DBS_RECORD_NOT_FOUND"));
-            throw new EDBException("Unable to modify LDAP record: " + e.getMessage(), e);
+            throw createModifyException(e);
         }
     }
 
+    /**
+     * Modifies multiple objects. The LDAP modify operations are sent
+     * without waiting for the previous responses, up to PIPELINE_SIZE
+     * outstanding operations at a time.
+     */
+    public Map<String, EBaseException> modify(Map<String, ModificationSet> mods)
+            throws EBaseException {
+
+        logger.debug("DBSSession: modify(" + mods.size() + " entries)");
+
+        Map<String, EBaseException> errors = new LinkedHashMap<String, EBaseException>();
+        List<String> names = new ArrayList<String>();
+        List<LDAPResponseListener> listeners = new ArrayList<LDAPResponseListener>();
+
+        try {
+            for (Map.Entry<String, ModificationSet> entry : mods.entrySet()) {
+
+                String name = entry.getKey();
+                LDAPModificationSet ldapMods = createLDAPModificationSet(entry.getValue());
+
+                names.add(name);
+                listeners.add(mConn.modify(name, ldapMods, null, null));
+
+                if (listeners.size() >= PIPELINE_SIZE) {
+                    readModifyResponses(names, listeners, errors);
+                }
+            }
+
+            readModifyResponses(names, listeners, errors);
+
+        } catch (LDAPException e) {
+            throw createModifyException(e);
+        }
+
+        return errors;
+    }
+
+    private void readModifyResponses(
+            List<String> names,
+            List<LDAPResponseListener> listeners,
+            Map<String, EBaseException> errors) throws LDAPException {
+
+        for (int i = 0; i < listeners.size(); i++) {
+
+            LDAPResponse response = listeners.get(i).getResponse();
+            int resultCode = response.getResultCode();
+
+            if (resultCode != LDAPException.SUCCESS) {
+                String name = names.get(i);
+                LDAPException e = new LDAPException(response.getErrorMessage(), resultCode);
+                logger.warn("DBSSession: Unable to modify " + name + ": " + e.getMessage());
+                errors.put(name, createModifyException(e));
+            }
+        }
+
+        names.clear();
+        listeners.clear();
+    }
+
+    private LDAPModificationSet createLDAPModificationSet(ModificationSet mods) throws EBaseException {
+
+        LDAPModificationSet ldapMods = new
+                LDAPModificationSet();
+        Enumeration<?> e = mods.getModifications();
+
+        while (e.hasMoreElements()) {
+            Modification mod = (Modification)
+                    e.nextElement();
+            LDAPAttributeSet attrs = new LDAPAttributeSet();
+
+            dbSubsystem.getRegistry().mapObject(null,
+                    mod.getName(), mod.getValue(), attrs);
+            Enumeration<LDAPAttribute> e0 = attrs.getAttributes();
+
+            while (e0.hasMoreElements()) {
+                ldapMods.add(toLdapModOp(mod.getOp()), e0.nextElement());
+            }
+        }
+
+        return ldapMods;
+    }
+
+    private EBaseException createModifyException(LDAPException e) {
+        if (e.getLDAPResultCode() == LDAPException.UNAVAILABLE)
+            return new EDBNotAvailException(
+                    CMS.getUserMessage("CMS_DBS_INTERNAL_DIR_UNAVAILABLE"));
+        if (e.getLDAPResultCode() == LDAPException.NO_SUCH_OBJECT)
+            return new EDBRecordNotFoundException(
+                    CMS.getUserMessage("CMS_DBS_RECORD_NOT_FOUND"));
+        return new EDBException("Unable to modify LDAP record: " + e.getMessage(), e);
+    }
+
     private int toLdapModOp(int modOp) throws EBaseException {
         switch (modOp) {
         case Modification.MOD_ADD:
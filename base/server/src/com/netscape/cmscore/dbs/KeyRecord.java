@@ -18,12 +18,14 @@
 package com.netscape.cmscore.dbs;
 
 import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Vector;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.mozilla.jss.asn1.OBJECT_IDENTIFIER;
 import org.mozilla.jss.crypto.EncryptionAlgorithm;
 import org.mozilla.jss.crypto.IVParameterSpec;
@@ -54,6 +56,7 @@ public class KeyRecord implements IKeyRecord {
     private String mAlgorithm = null;
     private byte mPrivateKey[] = null;
     private byte mPublicKey[] = null;
+    private String mPublicKeyFingerprint = null;
     private Integer mSize = null;
     private String mOwnerName = null;
     private Date mDatesOfRecovery[] = null;
@@ -75,6 +78,7 @@ public class KeyRecord implements IKeyRecord {
         mNames.addElement(ATTR_ALGORITHM);
         mNames.addElement(ATTR_PRIVATE_KEY_DATA);
         mNames.addElement(ATTR_PUBLIC_KEY_DATA);
+        mNames.addElement(ATTR_PUBLIC_KEY_FINGERPRINT);
         mNames.addElement(ATTR_DATE_OF_RECOVERY);
         mNames.addElement(ATTR_META_INFO);
         mNames.addElement(ATTR_CREATE_TIME);
@@ -131,6 +135,8 @@ public class KeyRecord implements IKeyRecord {
             mPrivateKey = (byte[]) object;
         } else if (name.equalsIgnoreCase(ATTR_PUBLIC_KEY_DATA)) {
             mPublicKey = (byte[]) object;
+        } else if (name.equalsIgnoreCase(ATTR_PUBLIC_KEY_FINGERPRINT)) {
+            mPublicKeyFingerprint = (String) object;
         } else if (name.equalsIgnoreCase(ATTR_DATE_OF_RECOVERY)) {
             mDatesOfRecovery = (Date[]) object;
         } else if (name.equalsIgnoreCase(ATTR_META_INFO)) {
@@ -173,6 +179,8 @@ public class KeyRecord implements IKeyRecord {
             return mPrivateKey;
         } else if (name.equalsIgnoreCase(ATTR_PUBLIC_KEY_DATA)) {
             return mPublicKey;
+        } else if (name.equalsIgnoreCase(ATTR_PUBLIC_KEY_FINGERPRINT)) {
+            return getPublicKeyFingerprint();
         } else if (name.equalsIgnoreCase(ATTR_DATE_OF_RECOVERY)) {
             return mDatesOfRecovery;
         } else if (name.equalsIgnoreCase(ATTR_CREATE_TIME)) {
@@ -338,6 +346,35 @@ public class KeyRecord implements IKeyRecord {
      */
     public void setPublicKeyData(byte key[]) throws EBaseException {
         mPublicKey = key;
+        mPublicKeyFingerprint = null;
+    }
+
+    /**
+     * Retrieves the SHA-256 fingerprint of the public key.
+     * <P>
+     *
+     * @return fingerprint, or null if there is no public key
+     */
+    public String getPublicKeyFingerprint() throws EBaseException {
+        if (mPublicKeyFingerprint == null && mPublicKey != null) {
+            mPublicKeyFingerprint = createPublicKeyFingerprint(mPublicKey);
+        }
+        return mPublicKeyFingerprint;
+    }
+
+    /**
+     * Creates the fingerprint (lowercase hex-encoded SHA-256 hash) of
+     * an encoded public key. The fingerprint is stored and indexed in
+     * the key record to look up keys by public key.
+     */
+    public static String createPublicKeyFingerprint(byte publicKeyData[]) throws EBaseException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Hex.encodeHexString(md.digest(publicKeyData));
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new EBaseException("Unable to create public key fingerprint: " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -17,11 +17,14 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.dbs;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.security.PublicKey;
+import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -40,6 +43,7 @@ import com.netscape.certsrv.dbs.keydb.IKeyRecord;
 import com.netscape.certsrv.dbs.keydb.IKeyRecordList;
 import com.netscape.certsrv.dbs.keydb.IKeyRepository;
 import com.netscape.certsrv.dbs.repository.IRepository;
+import com.netscape.cmscore.cert.CertUtils;
 
 /**
  * A class represents a Key repository. This is the container of
@@ -54,6 +58,19 @@ public class KeyRepository extends Repository implements IKeyRepository {
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(KeyRepository.class);
 
     public KeyStatusUpdateTask mKeyStatusUpdateTask;
+    public KeyFingerprintBackfillTask mKeyFingerprintBackfillTask;
+
+    /**
+     * Number of key records updated per backfill search.
+     */
+    public static final int FINGERPRINT_BACKFILL_BATCH_SIZE = 1000;
+
+    /**
+     * Whether all key records with public key have a public key
+     * fingerprint, i.e. public key lookups can use the fingerprint
+     * index only.
+     */
+    private volatile boolean mFingerprintsComplete = false;
     protected DBSubsystem dbSubsystem;
 
     IRepository requestRepository;
@@ -116,6 +133,10 @@ public class KeyRepository extends Repository implements IKeyRepository {
             reg.registerAttribute(KeyRecord.ATTR_PUBLIC_KEY_DATA, new
                     PublicKeyMapper(KeyDBSchema.LDAP_ATTR_PUBLIC_KEY_DATA));
         }
+        if (!reg.isAttributeRegistered(KeyRecord.ATTR_PUBLIC_KEY_FINGERPRINT)) {
+            reg.registerAttribute(KeyRecord.ATTR_PUBLIC_KEY_FINGERPRINT, new
+                    StringMapper(KeyDBSchema.LDAP_ATTR_PUBLIC_KEY_FINGERPRINT));
+        }
         if (!reg.isAttributeRegistered(KeyRecord.ATTR_DATE_OF_RECOVERY)) {
             reg.registerAttribute(KeyRecord.ATTR_DATE_OF_RECOVERY, new
                     DateArrayMapper(KeyDBSchema.LDAP_ATTR_DATE_OF_RECOVERY));
@@ -308,10 +329,14 @@ public class KeyRepository extends Repository implements IKeyRepository {
 
     /**
      * Recovers archived key using public key.
+     *
+     * The key record is looked up using the indexed public key
+     * fingerprint. Until all existing key records have been backfilled
+     * with fingerprints, lookups that do not find a match fall back to
+     * searching by public key data.
      */
     public IKeyRecord readKeyRecord(PublicKey publicKey)
             throws EBaseException {
-        // XXX - setup binary search attributes
         byte data[] = publicKey.getEncoded();
 
         if (data == null)
@@ -320,12 +345,20 @@ public class KeyRepository extends Repository implements IKeyRepository {
         KeyRecord rec = null;
 
         try {
-            String filter = "(" + KeyRecord.ATTR_PUBLIC_KEY_DATA + "=" +
-                    escapeBinaryData(data) + ")";
+            String filter = "(" + KeyRecord.ATTR_PUBLIC_KEY_FINGERPRINT + "=" +
+                    KeyRecord.createPublicKeyFingerprint(data) + ")";
             if (s != null) {
                 IDBSearchResults res = s.search(getDN(), filter);
 
                 rec = (KeyRecord) res.nextElement();
+
+                if (rec == null && !mFingerprintsComplete) {
+                    filter = "(" + KeyRecord.ATTR_PUBLIC_KEY_DATA + "=" +
+                            PublicKeyMapper.escapeBinaryData(data) + ")";
+                    res = s.search(getDN(), filter);
+
+                    rec = (KeyRecord) res.nextElement();
+                }
             }
         } finally {
             if (s != null)
@@ -340,23 +373,90 @@ public class KeyRepository extends Repository implements IKeyRepository {
     public IKeyRecord readKeyRecord(String cert)
             throws EBaseException {
 
-        IDBSSession s = dbSubsystem.createSession();
-        KeyRecord rec = null;
-
+        X509Certificate x509cert;
         try {
-            String filter = "(publicKey=x509cert#\"" + cert + "\")";
-            logger.debug("filter= " + filter);
+            x509cert = CertUtils.mapCert(cert);
+        } catch (IOException e) {
+            throw new EBaseException("Invalid certificate: " + e.getMessage(), e);
+        }
 
-            if (s != null) {
-                IDBSearchResults res = s.search(getDN(), filter);
+        if (x509cert == null) {
+            throw new EBaseException("Invalid certificate");
+        }
 
-                rec = (KeyRecord) res.nextElement();
-            }
-        } finally {
-            if (s != null)
+        return readKeyRecord(x509cert.getPublicKey());
+    }
+
+    /**
+     * Starts a background task that stores public key fingerprints
+     * in existing key records that do not have one.
+     */
+    public void startKeyFingerprintBackfill(Runnable onComplete) {
+        if (mKeyFingerprintBackfillTask != null) {
+            return;
+        }
+
+        mKeyFingerprintBackfillTask = new KeyFingerprintBackfillTask(this, onComplete);
+        mKeyFingerprintBackfillTask.start();
+    }
+
+    public void setKeyFingerprintsComplete(boolean complete) {
+        mFingerprintsComplete = complete;
+    }
+
+    public boolean isKeyFingerprintsComplete() {
+        return mFingerprintsComplete;
+    }
+
+    /**
+     * Stores public key fingerprints in key records without one,
+     * in batches until there are no records left.
+     *
+     * @return number of updated key records
+     */
+    public long backfillKeyFingerprints() throws EBaseException {
+
+        String filter = "(&(" + KeyRecord.ATTR_PUBLIC_KEY_DATA + "=*)(!(" +
+                KeyRecord.ATTR_PUBLIC_KEY_FINGERPRINT + "=*)))";
+        long count = 0;
+
+        while (true) {
+            Vector<KeyRecord> records = new Vector<KeyRecord>();
+
+            IDBSSession s = dbSubsystem.createSession();
+            try {
+                IDBSearchResults res = s.search(getDN(), filter, FINGERPRINT_BACKFILL_BATCH_SIZE);
+                while (res.hasMoreElements()) {
+                    records.add((KeyRecord) res.nextElement());
+                }
+
+                for (KeyRecord rec : records) {
+                    String fingerprint = rec.getPublicKeyFingerprint();
+                    if (fingerprint == null) {
+                        continue;
+                    }
+
+                    ModificationSet mods = new ModificationSet();
+                    mods.add(KeyRecord.ATTR_PUBLIC_KEY_FINGERPRINT, Modification.MOD_REPLACE, fingerprint);
+
+                    // do not update dateOfModify since the key record itself is unchanged
+                    s.modify("cn=" + rec.getSerialNumber() + "," + getDN(), mods);
+                    count++;
+                }
+
+            } finally {
                 s.close();
+            }
+
+            if (records.size() < FINGERPRINT_BACKFILL_BATCH_SIZE) {
+                break;
+            }
+
+            logger.info("KeyRepository: stored " + count + " public key fingerprints");
         }
-        return rec;
+
+        mFingerprintsComplete = true;
+        return count;
     }
 
     /**
@@ -575,6 +675,9 @@ public class KeyRepository extends Repository implements IKeyRepository {
         if (mKeyStatusUpdateTask != null) {
             mKeyStatusUpdateTask.stop();
         }
+        if (mKeyFingerprintBackfillTask != null) {
+            mKeyFingerprintBackfillTask.stop();
+        }
     }
 
 }
@@ -609,3 +712,46 @@ class KeyStatusUpdateTask implements Runnable {
         if (executorService != null) executorService.shutdown();
     }
 }
+
+class KeyFingerprintBackfillTask implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(KeyFingerprintBackfillTask.class);
+
+    KeyRepository repository;
+    Runnable onComplete;
+
+    ExecutorService executorService;
+
+    public KeyFingerprintBackfillTask(KeyRepository repository, Runnable onComplete) {
+        this.repository = repository;
+        this.onComplete = onComplete;
+    }
+
+    public void start() {
+        executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "KeyFingerprintBackfillTask");
+            }
+        });
+        executorService.execute(this);
+    }
+
+    public void run() {
+        try {
+            logger.info("KeyFingerprintBackfillTask: storing public key fingerprints");
+            long count = repository.backfillKeyFingerprints();
+            logger.info("KeyFingerprintBackfillTask: stored " + count + " public key fingerprints");
+
+            if (onComplete != null) {
+                onComplete.run();
+            }
+
+        } catch (Exception e) {
+            logger.warn("Unable to store public key fingerprints: " + e.getMessage(), e);
+        }
+    }
+
+    public void stop() {
+        if (executorService != null) executorService.shutdownNow();
+    }
+}
@@ -20,7 +20,18 @@ package com.netscape.cmscore.jobs;
 import java.util.Calendar;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Map;
+import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IConfigStore;
@@ -32,11 +43,11 @@ import com.netscape.certsrv.jobs.JobPlugin;
 import com.netscape.cmscore.apps.CMS;
 
 /**
- * This is a daemon thread that handles scheduled jobs like cron would
+ * This is a daemon that handles scheduled jobs like cron would
  * do with different jobs. This daemon wakes up at a pre-configured
  * interval to see
- * if there is any job to be done, if so, a thread is created to execute
- * the job(s).
+ * if there is any job to be done, if so, the job(s) are executed
+ * on a bounded pool of job threads.
  * <p>
  * The interval <b>jobsScheduler.interval</b> in the configuration is specified as number of minutes. If not set, the
  * default is 1 minute. Note that the cron specification for each job CAN NOT be finer than the granularity of the
@@ -44,6 +55,16 @@ import com.netscape.cmscore.apps.CMS;
  * on each Tuesday (e.g. * 7 * * 2) will result in the execution of the job thread only once every 5 minutes during that
  * hour. <b>The inteval value is recommended at 1 minute, setting it otherwise has the potential of forever missing the
  * beat</b>. Use with caution.
+ * <p>
+ * The number of jobs running at the same time is limited by <b>jobsScheduler.threads</b> (default 4).
+ * <p>
+ * Each job may configure the following parameters:
+ * <ul>
+ * <li><b>overlap</b>: what to do when the job is due while its previous run has not finished.
+ * <b>skip</b> (default) skips the run, <b>queue</b> runs the job once more after the previous run.
+ * <li><b>jitter</b>: maximum random delay in seconds before the job starts, so jobs scheduled at the
+ * same minute do not all hit the database at once. The default is <b>jobsScheduler.jitter</b> (0).
+ * </ul>
  *
  * @author cfu
  * @see JobCron
@@ -102,6 +123,32 @@ public class JobsScheduler implements Runnable, ISubsystem {
      */
     public static final String PROP_PLUGIN = "pluginName";
 
+    /**
+     * constant that represents the configuration parameter
+     * "threads" for this component in CMS.cfg. The value of which
+     * is the maximum number of jobs running at the same time
+     */
+    public static final String PROP_THREADS = "threads";
+
+    /**
+     * constant that represents the configuration parameter
+     * "jitter" for this component or a job in CMS.cfg. The value of
+     * which is the maximum random delay in seconds before a job starts
+     */
+    public static final String PROP_JITTER = "jitter";
+
+    /**
+     * constant that represents the configuration parameter
+     * "overlap" for a job in CMS.cfg. The value of which tells
+     * what to do when a job is due while it is still running
+     */
+    public static final String PROP_OVERLAP = "overlap";
+
+    public static final String OVERLAP_SKIP = "skip";
+    public static final String OVERLAP_QUEUE = "queue";
+
+    public static final int DEFAULT_THREADS = 4;
+
     protected static final long MINUTE_MILLI = 60000;
     protected static final String DELIM = ",";
 
@@ -109,17 +156,81 @@ public class JobsScheduler implements Runnable, ISubsystem {
      * Scheduler thread doing job scheduling
      */
     protected String mId = ID;
-    protected Thread mScheduleThread = null;
 
     public Hashtable<String, JobPlugin> mJobPlugins = new Hashtable<String, JobPlugin>();
     public Hashtable<String, IJob> mJobs = new Hashtable<String, IJob>();
-    private Hashtable<String, Thread> mJobThreads = new Hashtable<String, Thread>();
+    private Map<String, JobStats> mJobStats = new ConcurrentHashMap<String, JobStats>();
 
     private IConfigStore mConfig = null;
 
     // in milliseconds. daemon wakeup interval, default 1 minute.
     private long mInterval = 0;
 
+    private int mThreads = DEFAULT_THREADS;
+    private int mJitter = 0;
+    private Random mRandom = new Random();
+
+    // wakes up the daemon and delays jittered jobs
+    private ScheduledExecutorService mScheduler;
+    private ScheduledFuture<?> mWakeup;
+
+    // runs the jobs
+    private ThreadPoolExecutor mJobExecutor;
+
+    /**
+     * Run state and statistics of a job.
+     */
+    public static class JobStats {
+
+        private boolean scheduled; // waiting for jitter delay or a job thread
+        private boolean running;
+        private boolean pending; // run again when the current run finishes
+
+        private long runs;
+        private long failures;
+        private long skipped;
+        private long lastStartTime;
+        private long lastDuration;
+        private long maxDuration;
+        private long totalDuration;
+
+        public synchronized boolean isRunning() {
+            return running;
+        }
+
+        public synchronized long getRuns() {
+            return runs;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Returns the start time of the last run in milliseconds
+         * since the epoch, or 0 if the job has not run.
+         */
+        public synchronized long getLastStartTime() {
+            return lastStartTime;
+        }
+
+        public synchronized long getLastDuration() {
+            return lastDuration;
+        }
+
+        public synchronized long getMaxDuration() {
+            return maxDuration;
+        }
+
+        public synchronized long getAverageDuration() {
+            return runs == 0 ? 0 : totalDuration / runs;
+        }
+    }
+
     // singleton enforcement
 
     private static JobsScheduler mInstance = new JobsScheduler();
@@ -158,6 +269,13 @@ public class JobsScheduler implements Runnable, ISubsystem {
         }
         setInterval(i);
 
+        mThreads = mConfig.getInteger(PROP_THREADS, DEFAULT_THREADS);
+        if (mThreads < 1) {
+            throw new EBaseException("Invalid " + ID + "." + PROP_THREADS + ": " + mThreads);
+        }
+
+        mJitter = mConfig.getInteger(PROP_JITTER, 0);
+
         IConfigStore c = mConfig.getSubStore(PROP_IMPL);
         Enumeration<String> mImpls = c.getSubStoreNames();
 
@@ -240,113 +358,186 @@ public class JobsScheduler implements Runnable, ISubsystem {
         return mJobs;
     }
 
+    /**
+     * Retrieves the run statistics of a job.
+     *
+     * @param id job instance name
+     * @return the statistics, or null if the job has not been scheduled
+     */
+    public JobStats getJobStats(String id) {
+        return mJobStats.get(id);
+    }
+
     /**
      * when wake up:
-     * . execute the scheduled job(s)
-     * * if job still running from previous interval, skip it
-     * . figure out when is the next wakeup time (every interval). If
-     * current wakup time runs over the interval, skip the missed interval(s)
-     * . sleep till the next wakeup time
+     * . start the scheduled job(s) on the job threads
+     * * if job still running from previous interval, skip or queue it
+     * depending on the job's overlap policy
+     * . the next wakeup time is scheduled at a fixed rate (every interval),
+     * so missed intervals are skipped
      */
     public void run() {
-        long wokeupTime = 0;
-
-        while (true) {
-            // get time now
-            Calendar cal = Calendar.getInstance();
-            long rightNow = cal.getTime().getTime();
-            long duration;
-            long second = cal.get(Calendar.SECOND);
-
-            if (second != 1) { // scheduler needs adjustment
-                // adjust to wake up at 1st second
-                long milliSec = cal.get(Calendar.MILLISECOND);
-
-                // possible to be at exactly second 1, millisecond 0,
-                // just let it skip to next second, fine.
-                duration = (60 - second) * 1000 + 1000 - milliSec;
-                logger.info("JobsScheduler: adjustment for cron behavior: sleep for " + duration + " milliseconds");
-            } else {
 
-                // when is the next wakeup time for the JobsScheduler?
-                // reset next wakeup time - wake up every preset interval
+        try {
+            if (mConfig.getBoolean(PROP_ENABLED, false) == false) {
+                stopDaemon();
+                return;
+            }
+        } catch (Exception e) {
+            stopDaemon();
+            return;
+        }
+
+        /**
+         * Get the current time outside the jobs while loop
+         * to make sure that the rightful jobs are run
+         */
+        Calendar cal = Calendar.getInstance();
 
-                duration = mInterval - rightNow + wokeupTime;
+        for (Enumeration<IJob> e = mJobs.elements(); e.hasMoreElements(); ) {
+            IJob job = e.nextElement();
 
-            }
+            // is it enabled?
+            IConfigStore cs = job.getConfigStore();
 
-            while (duration < 0) {
-                duration += mInterval;
+            try {
+                if (cs.getBoolean(PROP_ENABLED, false) == false)
+                    continue;
+            } catch (Exception ex) {
+                continue; // ignore this job
             }
 
-            if (duration != 0) {
-                try {
-                    Thread.sleep(duration);
-                } catch (InterruptedException e) {
-                    System.out.println(e);
+            // start the job if necessary
+            // (an exception here would stop the daemon)
+            try {
+                if (isShowTime(job, cal) == true) {
+                    schedule(job);
                 }
+            } catch (Exception ex) {
+                logger.warn("JobsScheduler: Unable to schedule job " + job.getId() + ": " + ex.getMessage(), ex);
             }
+        }
+    }
 
-            // if (duration == 0), it's time
+    /**
+     * Starts a job after its jitter delay, unless the previous run
+     * of the job has not finished.
+     */
+    void schedule(IJob job) {
 
-            // woke up...
-            try {
-                if (mConfig.getBoolean(PROP_ENABLED, false) == false) {
-                    return;
+        String id = job.getId();
+        JobStats stats = mJobStats.computeIfAbsent(id, k -> new JobStats());
+        IConfigStore cs = job.getConfigStore();
+
+        synchronized (stats) {
+            if (stats.scheduled || stats.running) {
+
+                String overlap = OVERLAP_SKIP;
+                try {
+                    overlap = cs.getString(PROP_OVERLAP, OVERLAP_SKIP);
+                } catch (EBaseException e) {
+                    logger.warn("JobsScheduler: Invalid overlap policy for job " + id + ": " + e.getMessage());
+                }
+
+                if (OVERLAP_QUEUE.equalsIgnoreCase(overlap) && !stats.pending) {
+                    logger.info("JobsScheduler: Job " + id + " still running...queuing this round");
+                    stats.pending = true;
+                } else {
+                    logger.info("JobsScheduler: Job " + id + " still running...skipping this round");
+                    stats.skipped++;
                 }
-            } catch (Exception e) {
                 return;
             }
 
-            // check to see if new jobs are registered
-            // ... later
+            stats.scheduled = true;
+        }
 
-            // get time now
-            cal = Calendar.getInstance();
+        int jitter = mJitter;
+        try {
+            jitter = cs.getInteger(PROP_JITTER, mJitter);
+        } catch (EBaseException e) {
+            logger.warn("JobsScheduler: Invalid jitter for job " + id + ": " + e.getMessage());
+        }
 
-            /**
-             * Get the current time outside the jobs while loop
-             * to make sure that the rightful jobs are run
-             * -- milliseconds from the epoch
-             */
-            wokeupTime = cal.getTime().getTime();
+        long delay = jitter > 0 ? mRandom.nextInt(jitter * 1000) : 0;
 
-            for (Enumeration<IJob> e = mJobs.elements(); e.hasMoreElements(); ) {
-                IJob job = e.nextElement();
+        try {
+            if (delay > 0) {
+                logger.info("JobsScheduler: Starting job " + id + " in " + delay + " ms");
+                mScheduler.schedule(() -> execute(job, stats), delay, TimeUnit.MILLISECONDS);
+            } else {
+                execute(job, stats);
+            }
 
-                // is it enabled?
-                IConfigStore cs = job.getConfigStore();
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            synchronized (stats) {
+                stats.scheduled = false;
+            }
+        }
+    }
 
-                try {
-                    if (cs.getBoolean(PROP_ENABLED, false) == false)
-                        continue;
-                } catch (Exception ex) {
-                    continue; // ignore this job
-                }
+    private void execute(IJob job, JobStats stats) {
+        try {
+            mJobExecutor.execute(() -> runJob(job, stats));
 
-                // first, check to see if thread already running
-                // ...
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            synchronized (stats) {
+                stats.scheduled = false;
+            }
+        }
+    }
 
-                // start the job thread if necessary
-                if (isShowTime(job, cal) == true) {
-                    //	logger.info("JobsScheduler: show time for: "+job.getId());
+    private void runJob(IJob job, JobStats stats) {
 
-                    // if previous thread still alive, skip
-                    Thread jthread = mJobThreads.get(job.getId());
+        String id = job.getId();
 
-                    if ((jthread == null) || (!jthread.isAlive())) {
-                        Thread jobThread = new Thread((Runnable) job, job.getId());
+        long startTime = System.currentTimeMillis();
+        synchronized (stats) {
+            stats.running = true;
+            stats.lastStartTime = startTime;
+        }
 
-                        jobThread.start();
-                        // put into job thread control
-                        mJobThreads.put(job.getId(), jobThread);
-                    } else {
-                        // previous thread still alive, log it
-                        logger.info("JobsScheduler: Job " + job.getId() + " still running...skipping this round");
-                    }
-                }
-            } // for
+        String name = Thread.currentThread().getName();
+        Thread.currentThread().setName(name + "-" + id);
+
+        boolean failed = false;
+        try {
+            logger.info("JobsScheduler: Running job " + id);
+            ((Runnable) job).run();
+
+        } catch (Throwable e) {
+            logger.warn("JobsScheduler: Job " + id + " failed: " + e.getMessage(), e);
+            failed = true;
+
+        } finally {
+            Thread.currentThread().setName(name);
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        logger.info("JobsScheduler: Job " + id + " finished in " + duration + " ms");
+
+        boolean pending;
+        synchronized (stats) {
+            stats.runs++;
+            if (failed) {
+                stats.failures++;
+            }
+            stats.lastDuration = duration;
+            stats.maxDuration = Math.max(stats.maxDuration, duration);
+            stats.totalDuration += duration;
+
+            stats.running = false;
+            stats.scheduled = false;
+
+            pending = stats.pending;
+            stats.pending = false;
+        }
 
+        if (pending && !job.isStopped()) {
+            logger.info("JobsScheduler: Running queued round of job " + id);
+            schedule(job);
         }
     }
 
@@ -457,11 +648,77 @@ public class JobsScheduler implements Runnable, ISubsystem {
      * Starts up the JobsScheduler daemon. Usually called from the
      * initialization method when it's successfully initialized.
      */
-    public void startDaemon() {
-        mScheduleThread = new Thread(this, "JobScheduler");
-        logger.info("JobsScheduler: started Jobs Scheduler daemon thread");
-        mScheduleThread.setDaemon(true);
-        mScheduleThread.start();
+    public synchronized void startDaemon() {
+
+        if (mScheduler == null) {
+            mScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "JobScheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        if (mJobExecutor == null) {
+            // one queued run per job at most, see schedule()
+            mJobExecutor = new ThreadPoolExecutor(
+                    mThreads, mThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        int count;
+                        public synchronized Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "Job-" + count++);
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            mJobExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        scheduleWakeup();
+        logger.info("JobsScheduler: started Jobs Scheduler daemon");
+    }
+
+    /**
+     * Schedules the daemon to wake up every interval at the 1st second
+     * of a minute.
+     */
+    private synchronized void scheduleWakeup() {
+
+        if (mScheduler == null) {
+            return;
+        }
+
+        if (mWakeup != null) {
+            mWakeup.cancel(false);
+        }
+
+        Calendar cal = Calendar.getInstance();
+        long second = cal.get(Calendar.SECOND);
+        long milliSec = cal.get(Calendar.MILLISECOND);
+
+        long delay = (61 - second) * 1000 - milliSec;
+        if (delay >= 60000) {
+            delay -= 60000;
+        }
+        logger.info("JobsScheduler: adjustment for cron behavior: first wakeup in " + delay + " milliseconds");
+
+        long interval = Math.max(mInterval, MINUTE_MILLI);
+        mWakeup = mScheduler.scheduleAtFixedRate(this, delay, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops waking up the daemon. Jobs that are running are not
+     * interrupted.
+     */
+    private synchronized void stopDaemon() {
+
+        if (mWakeup != null) {
+            logger.info("JobsScheduler: stopped Jobs Scheduler daemon");
+            mWakeup.cancel(false);
+            mWakeup = null;
+        }
     }
 
     /**
@@ -481,6 +738,20 @@ public class JobsScheduler implements Runnable, ISubsystem {
         for (IJob job : mJobs.values()) {
             job.stop();
         }
+
+        synchronized (this) {
+            stopDaemon();
+
+            if (mScheduler != null) {
+                mScheduler.shutdownNow();
+                mScheduler = null;
+            }
+
+            if (mJobExecutor != null) {
+                mJobExecutor.shutdownNow();
+                mJobExecutor = null;
+            }
+        }
     }
 
     /**
@@ -557,6 +828,12 @@ public class JobsScheduler implements Runnable, ISubsystem {
      */
     public void setInterval(int minutes) {
         mInterval = minutes * MINUTE_MILLI;
+
+        synchronized (this) {
+            if (mWakeup != null) {
+                scheduleWakeup();
+            }
+        }
     }
 
     /**
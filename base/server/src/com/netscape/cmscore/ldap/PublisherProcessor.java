@@ -20,9 +20,20 @@ package com.netscape.cmscore.ldap;
 import java.math.BigInteger;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dogtagpki.server.ca.ICertificateAuthority;
 import org.mozilla.jss.netscape.security.x509.X500Name;
@@ -52,8 +63,10 @@ import com.netscape.certsrv.publish.PublisherProxy;
 import com.netscape.certsrv.publish.RulePlugin;
 import com.netscape.certsrv.request.IRequest;
 import com.netscape.certsrv.request.IRequestNotifier;
+import com.netscape.cms.publish.publishers.OCSPPublisher;
 import com.netscape.cmscore.apps.CMS;
 import com.netscape.cmscore.dbs.CertRecord;
+import com.netscape.cmscore.request.ARequestNotifier;
 
 import netscape.ldap.LDAPConnection;
 
@@ -83,6 +96,12 @@ public class PublisherProcessor implements
     private boolean mCreateOwnDNEntry = false;
     private boolean mInited = false;
 
+    // pushes CRLs to multiple OCSP responders in parallel
+    private ExecutorService mCRLPublishingExecutor = null;
+
+    // per-publisher queues used by the publishing queue
+    private PublisherQueue mPublisherQueue = null;
+
     public PublisherProcessor(String id) {
         mId = id;
     }
@@ -415,6 +434,13 @@ public class PublisherProcessor implements
                           "  Maximum Number of Threads: " + maxNumberOfPublishingThreads +
                           "  Page Size: " + publishingQueuePageSize);
                 IRequestNotifier reqNotifier = ((ICertificateAuthority) mAuthority).getRequestNotifier();
+
+                if (isPublishingQueueEnabled && reqNotifier instanceof ARequestNotifier) {
+                    mPublisherQueue = new PublisherQueue();
+                    mPublisherQueue.init(queueConfig);
+                    ((ARequestNotifier) reqNotifier).setPublisherQueue(mPublisherQueue);
+                }
+
                 reqNotifier.setPublishingQueue(isPublishingQueueEnabled,
                                                 publishingQueuePriorityLevel,
                                                 maxNumberOfPublishingThreads,
@@ -424,10 +450,36 @@ public class PublisherProcessor implements
         }
 
         mLdapRequestListener = listener;
+
+        int ocspPublishingThreads = mConfig.getInteger(PROP_OCSP_PUBLISHING_THREADS, 4);
+        logger.debug("PublisherProcessor: startup: OCSP publishing threads: " + ocspPublishingThreads);
+        if (ocspPublishingThreads > 0) {
+            mCRLPublishingExecutor = Executors.newFixedThreadPool(ocspPublishingThreads, new ThreadFactory() {
+                int count;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "OCSPPublishingThread-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
     }
 
     public void shutdown() {
         logger.debug("Shuting down publishing.");
+        if (mPublisherQueue != null) {
+            // save the publishing status before stopping the publishers
+            IRequestNotifier reqNotifier = ((ICertificateAuthority) mAuthority).getRequestNotifier();
+            if (reqNotifier instanceof ARequestNotifier) {
+                ((ARequestNotifier) reqNotifier).shutdown();
+            }
+            mPublisherQueue.shutdown();
+            mPublisherQueue = null;
+        }
+        if (mCRLPublishingExecutor != null) {
+            mCRLPublishingExecutor.shutdown();
+            mCRLPublishingExecutor = null;
+        }
         try {
             if (mLdapConnModule != null) {
                 mLdapConnModule.getLdapConnFactory().reset();
@@ -442,6 +494,14 @@ public class PublisherProcessor implements
         }
     }
 
+    /**
+     * Returns the per-publisher queues, or null if the publishing
+     * queue is disabled.
+     */
+    public PublisherQueue getPublisherQueue() {
+        return mPublisherQueue;
+    }
+
     public Hashtable<String, RulePlugin> getRulePlugins() {
         return mRulePlugins;
     }
@@ -1002,7 +1062,8 @@ public class PublisherProcessor implements
 
     /**
      * Publishs regular user certificate based on the criteria
-     * set in the request.
+     * set in the request. When called from the publishing queue
+     * the certificate is queued to each publisher instead.
      */
     public void publishCert(X509Certificate cert, IRequest req)
             throws ELdapException {
@@ -1022,6 +1083,10 @@ public class PublisherProcessor implements
 
             error = true;
             errorRule.append("No rules enabled");
+
+        } else if (mPublisherQueue != null && mPublisherQueue.isBatchOpen()) {
+            queueCert(cert, req, rules, true);
+            return;
         }
 
         while (rules != null && rules.hasMoreElements()) {
@@ -1059,6 +1124,59 @@ public class PublisherProcessor implements
         }
     }
 
+    /**
+     * Queues publication or unpublication of a certificate to the
+     * publisher of each rule. The publishers are processed independently
+     * and the published flag is updated once all of them have succeeded.
+     */
+    private void queueCert(X509Certificate cert, IRequest req, Enumeration<ILdapRule> rules, boolean publish) {
+
+        List<ILdapRule> ruleList = Collections.list(rules);
+        AtomicInteger remaining = new AtomicInteger(ruleList.size());
+        AtomicBoolean error = new AtomicBoolean();
+
+        for (ILdapRule r : ruleList) {
+            LdapRule rule = (LdapRule) r;
+            String ruleName = rule.getInstanceName();
+            String publisherName = rule.getPublisher();
+            String mapperName = rule.getMapper();
+
+            logger.info("PublisherProcessor: queue certificate " + (publish ? "publishing" : "unpublishing") +
+                    " rule=" + ruleName + " publisher=" + publisherName);
+
+            mPublisherQueue.submit(ruleName, publisherName, () -> {
+
+                ILdapPublisher publisher = getActivePublisherInstance(publisherName);
+                if (publisher == null) {
+                    throw new ELdapException("Publisher not active: " + publisherName);
+                }
+
+                ILdapMapper mapper = null;
+                if (mapperName != null && !mapperName.trim().equals("")) {
+                    mapper = getActiveMapperInstance(mapperName);
+                }
+
+                if (publish) {
+                    publishNow(mapper, publisher, req, cert);
+                } else {
+                    unpublishNow(mapper, publisher, req, cert);
+                }
+
+            }, success -> {
+
+                if (!success) {
+                    error.set(true);
+                    logger.error("PublisherProcessor: " + CMS.getUserMessage(
+                            publish ? "CMS_LDAP_PUBLISH_FAILED" : "CMS_LDAP_UNPUBLISH_FAILED", ruleName));
+                }
+
+                if (remaining.decrementAndGet() == 0 && !error.get()) {
+                    setPublishedFlag(cert.getSerialNumber(), publish);
+                }
+            });
+        }
+    }
+
     /**
      * Unpublish user certificate. This is used by
      * UnpublishExpiredJob.
@@ -1081,6 +1199,11 @@ public class PublisherProcessor implements
                     req.getRequestId().toString()));
         }
 
+        if (mPublisherQueue != null && mPublisherQueue.isBatchOpen()) {
+            queueCert(cert, req, rules, false);
+            return;
+        }
+
         while (rules.hasMoreElements()) {
             LdapRule rule = (LdapRule) rules.nextElement();
 
@@ -1151,6 +1274,7 @@ public class PublisherProcessor implements
 
         LDAPConnection conn = null;
         String dn = null;
+        Map<String, Future<?>> futures = new LinkedHashMap<String, Future<?>>();
 
         try {
             if (mLdapConnModule != null) {
@@ -1192,8 +1316,12 @@ public class PublisherProcessor implements
                         if (publisher instanceof com.netscape.cms.publish.publishers.FileBasedPublisher)
                             ((com.netscape.cms.publish.publishers.FileBasedPublisher) publisher)
                                     .setIssuingPointId(crlIssuingPointId);
-                        publisher.publish(conn, dn, crl);
-                        logger.info("PublisherProcessor: published crl using rule=" + rule.getInstanceName());
+                        Future<?> future = publishCRLNow(publisher, conn, dn, crl);
+                        if (future == null) {
+                            logger.info("PublisherProcessor: published crl using rule=" + rule.getInstanceName());
+                        } else {
+                            futures.put(rule.getInstanceName(), future);
+                        }
                     }
                     // continue publishing even publisher has errors
                 } catch (Exception e) {
@@ -1212,6 +1340,13 @@ public class PublisherProcessor implements
                 mLdapConnModule.returnConn(conn);
             }
         }
+
+        String failedRules = waitForCRLPublishing(futures);
+        if (failedRules.length() > 0) {
+            error = true;
+            errorRule = errorRule + failedRules;
+        }
+
         if (error)
             throw new ELdapException(CMS.getUserMessage("CMS_LDAP_PUBLISH_FAILED", errorRule));
     }
@@ -1238,6 +1373,7 @@ public class PublisherProcessor implements
 
         LDAPConnection conn = null;
         ILdapPublisher publisher = null;
+        Map<String, Future<?>> futures = new LinkedHashMap<String, Future<?>>();
 
         try {
             if (mLdapConnModule != null) {
@@ -1252,8 +1388,12 @@ public class PublisherProcessor implements
                 try {
                     publisher = getActivePublisherInstance(rule.getPublisher());
                     if (publisher != null) {
-                        publisher.publish(conn, dn, crl);
-                        logger.info("PublisherProcessor: published crl using rule=" + rule.getInstanceName());
+                        Future<?> future = publishCRLNow(publisher, conn, dn, crl);
+                        if (future == null) {
+                            logger.info("PublisherProcessor: published crl using rule=" + rule.getInstanceName());
+                        } else {
+                            futures.put(rule.getInstanceName(), future);
+                        }
                     }
                 } catch (Exception e) {
                     logger.warn("Error publishing CRL to " + dn + ": " + e.getMessage(), e);
@@ -1271,10 +1411,67 @@ public class PublisherProcessor implements
                 mLdapConnModule.returnConn(conn);
             }
         }
+
+        String failedRules = waitForCRLPublishing(futures);
+        if (failedRules.length() > 0) {
+            error = true;
+            errorRule = errorRule + failedRules;
+        }
+
         if (error)
             throw new ELdapException(CMS.getUserMessage("CMS_LDAP_PUBLISH_FAILED", errorRule));
     }
 
+    /**
+     * Publishes a CRL with the given publisher. OCSP publishers push the
+     * CRL to a remote responder and do not use the LDAP connection, so
+     * they run in parallel on the CRL publishing executor and a future
+     * is returned. Other publishers run in the calling thread and null
+     * is returned.
+     */
+    private Future<?> publishCRLNow(ILdapPublisher publisher, LDAPConnection conn, String dn, X509CRL crl)
+            throws ELdapException {
+
+        if (mCRLPublishingExecutor != null && publisher instanceof OCSPPublisher) {
+            return mCRLPublishingExecutor.submit(() -> {
+                publisher.publish(null, dn, crl);
+                return null;
+            });
+        }
+
+        publisher.publish(conn, dn, crl);
+        return null;
+    }
+
+    /**
+     * Waits for parallel CRL publishing to complete.
+     *
+     * @return names of the rules that failed, separated by spaces
+     */
+    private String waitForCRLPublishing(Map<String, Future<?>> futures) {
+
+        StringBuilder errorRules = new StringBuilder();
+
+        for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+            String ruleName = entry.getKey();
+            try {
+                entry.getValue().get();
+                logger.info("PublisherProcessor: published crl using rule=" + ruleName);
+
+            } catch (ExecutionException e) {
+                logger.warn("Error publishing CRL using rule " + ruleName + ": " + e.getCause().getMessage(), e.getCause());
+                errorRules.append(" ").append(ruleName);
+
+            } catch (InterruptedException e) {
+                logger.warn("Interrupted while publishing CRL using rule " + ruleName, e);
+                Thread.currentThread().interrupt();
+                errorRules.append(" ").append(ruleName);
+            }
+        }
+
+        return errorRules.toString();
+    }
+
     private void publishNow(ILdapMapper mapper, ILdapPublisher publisher,
             IRequest r, Object obj) throws ELdapException {
         if (!isCertPublishingEnabled())
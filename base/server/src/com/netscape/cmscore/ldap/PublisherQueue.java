@@ -0,0 +1,418 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.ldap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.netscape.certsrv.base.EBaseException;
+import com.netscape.certsrv.base.IConfigStore;
+
+/**
+ * Per-publisher work queues used by the publishing queue.
+ *
+ * Each publisher has its own worker threads and a bounded queue, so a
+ * slow or unavailable publishing target only holds back its own work.
+ * Failed tasks are retried with exponential backoff. Statistics are kept
+ * for each publishing rule.
+ *
+ * Tasks submitted while a batch is open on the current thread belong to
+ * that batch. The request notifier opens a batch for each request so it
+ * knows when all publication for the request has completed.
+ *
+ * The queues are kept in memory only. Tasks still queued or waiting for
+ * a retry are lost on shutdown; they are recovered by publishing again
+ * from the publishing status saved by the request notifier, which does
+ * not move past a request until all of its tasks have completed.
+ *
+ * The statistics can be read with the publisherQueueStats scope of the
+ * publisher admin servlet.
+ *
+ * Configuration (ca.publish.queue):
+ * <pre>
+ * publisherThreads=1
+ * publisherQueueSize=1000
+ * maxRetries=5
+ * retryDelay=1000
+ * maxRetryDelay=60000
+ * </pre>
+ */
+public class PublisherQueue {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PublisherQueue.class);
+
+    public static final String PROP_PUBLISHER_THREADS = "publisherThreads";
+    public static final String PROP_PUBLISHER_QUEUE_SIZE = "publisherQueueSize";
+    public static final String PROP_MAX_RETRIES = "maxRetries";
+    public static final String PROP_RETRY_DELAY = "retryDelay";
+    public static final String PROP_MAX_RETRY_DELAY = "maxRetryDelay";
+
+    public static final int DEFAULT_PUBLISHER_THREADS = 1;
+    public static final int DEFAULT_PUBLISHER_QUEUE_SIZE = 1000;
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    public static final int DEFAULT_RETRY_DELAY = 1000; // milliseconds
+    public static final int DEFAULT_MAX_RETRY_DELAY = 60000; // milliseconds
+
+    private static ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
+    private int publisherThreads;
+    private int publisherQueueSize;
+    private int maxRetries;
+    private long retryDelay;
+    private long maxRetryDelay;
+
+    private Map<String, Worker> workers = new ConcurrentHashMap<>();
+    private Map<String, RuleStats> stats = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * Task publishing an object to a single publisher.
+     */
+    public interface Task {
+        public void run() throws Exception;
+    }
+
+    /**
+     * Group of tasks whose completion is reported together. The batch
+     * holds one reference for the submitter until it is closed, so the
+     * completion callback runs exactly once, after the batch is closed
+     * and all of its tasks have completed.
+     */
+    public static class Batch implements AutoCloseable {
+
+        private AtomicInteger pending = new AtomicInteger(1);
+        private Runnable onComplete;
+
+        Batch(Runnable onComplete) {
+            this.onComplete = onComplete;
+        }
+
+        void add() {
+            pending.incrementAndGet();
+        }
+
+        void done() {
+            if (pending.decrementAndGet() == 0) {
+                onComplete.run();
+            }
+        }
+
+        public void close() {
+            if (currentBatch.get() == this) {
+                currentBatch.remove();
+            }
+            done();
+        }
+    }
+
+    /**
+     * Publishing statistics of a rule.
+     */
+    public static class RuleStats {
+
+        private String rule;
+
+        private AtomicLong submitted = new AtomicLong();
+        private AtomicLong published = new AtomicLong();
+        private AtomicLong retries = new AtomicLong();
+        private AtomicLong failures = new AtomicLong();
+        private AtomicInteger pending = new AtomicInteger();
+
+        private volatile long lastLag;
+        private volatile long maxLag;
+        private volatile String lastError;
+
+        RuleStats(String rule) {
+            this.rule = rule;
+        }
+
+        public String getRule() {
+            return rule;
+        }
+
+        public long getSubmitted() {
+            return submitted.get();
+        }
+
+        public long getPublished() {
+            return published.get();
+        }
+
+        public long getRetries() {
+            return retries.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public int getPending() {
+            return pending.get();
+        }
+
+        /**
+         * Returns the time in milliseconds between submission and
+         * completion of the most recently completed task.
+         */
+        public long getLastLag() {
+            return lastLag;
+        }
+
+        public long getMaxLag() {
+            return maxLag;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        synchronized void updateLag(long lag) {
+            lastLag = lag;
+            if (lag > maxLag) {
+                maxLag = lag;
+            }
+        }
+
+        public String toString() {
+            return "rule=" + rule +
+                    " submitted=" + submitted +
+                    " published=" + published +
+                    " retries=" + retries +
+                    " failures=" + failures +
+                    " pending=" + pending +
+                    " lastLag=" + lastLag + "ms" +
+                    " maxLag=" + maxLag + "ms";
+        }
+    }
+
+    class Worker {
+
+        String publisher;
+        ScheduledThreadPoolExecutor executor;
+        Semaphore capacity;
+
+        Worker(String publisher) {
+            this.publisher = publisher;
+            this.capacity = new Semaphore(publisherQueueSize);
+            this.executor = new ScheduledThreadPoolExecutor(publisherThreads, new ThreadFactory() {
+                int count;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PublisherQueue-" + Worker.this.publisher + "-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    class Entry implements Runnable {
+
+        Worker worker;
+        RuleStats ruleStats;
+        Task task;
+        Consumer<Boolean> callback;
+        Batch batch;
+
+        long submitTime = System.currentTimeMillis();
+        boolean queued;
+        int attempts;
+
+        public void run() {
+
+            try {
+                task.run();
+                complete(true);
+                return;
+
+            } catch (Throwable e) {
+                ruleStats.lastError = e.getMessage();
+
+                if (running && attempts < maxRetries) {
+                    long delay = getRetryDelay(attempts++);
+                    logger.warn("PublisherQueue: Unable to publish using rule " + ruleStats.rule +
+                            ", retrying in " + delay + " ms: " + e.getMessage());
+                    ruleStats.retries.incrementAndGet();
+
+                    try {
+                        worker.executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+                        return;
+                    } catch (RejectedExecutionException ree) {
+                        // shutting down
+                    }
+                }
+
+                logger.error("PublisherQueue: Unable to publish using rule " + ruleStats.rule +
+                        " after " + (attempts + 1) + " attempt(s): " + e.getMessage(), e);
+            }
+
+            complete(false);
+        }
+
+        void complete(boolean success) {
+
+            if (queued) {
+                worker.capacity.release();
+            }
+            ruleStats.pending.decrementAndGet();
+            ruleStats.updateLag(System.currentTimeMillis() - submitTime);
+
+            if (success) {
+                ruleStats.published.incrementAndGet();
+            } else {
+                ruleStats.failures.incrementAndGet();
+            }
+
+            try {
+                if (callback != null) {
+                    callback.accept(success);
+                }
+            } catch (Throwable e) {
+                logger.warn("PublisherQueue: " + e.getMessage(), e);
+            }
+
+            if (batch != null) {
+                batch.done();
+            }
+        }
+    }
+
+    public void init(IConfigStore config) throws EBaseException {
+
+        publisherThreads = config.getInteger(PROP_PUBLISHER_THREADS, DEFAULT_PUBLISHER_THREADS);
+        publisherQueueSize = config.getInteger(PROP_PUBLISHER_QUEUE_SIZE, DEFAULT_PUBLISHER_QUEUE_SIZE);
+        maxRetries = config.getInteger(PROP_MAX_RETRIES, DEFAULT_MAX_RETRIES);
+        retryDelay = config.getInteger(PROP_RETRY_DELAY, DEFAULT_RETRY_DELAY);
+        maxRetryDelay = config.getInteger(PROP_MAX_RETRY_DELAY, DEFAULT_MAX_RETRY_DELAY);
+
+        if (publisherThreads < 1) {
+            throw new EBaseException("Invalid " + PROP_PUBLISHER_THREADS + ": " + publisherThreads);
+        }
+
+        if (publisherQueueSize < 1) {
+            throw new EBaseException("Invalid " + PROP_PUBLISHER_QUEUE_SIZE + ": " + publisherQueueSize);
+        }
+
+        logger.debug("PublisherQueue: threads per publisher: " + publisherThreads);
+        logger.debug("PublisherQueue: queue size per publisher: " + publisherQueueSize);
+        logger.debug("PublisherQueue: max retries: " + maxRetries);
+        logger.debug("PublisherQueue: retry delay: " + retryDelay + " ms (max: " + maxRetryDelay + " ms)");
+    }
+
+    long getRetryDelay(int attempt) {
+        long delay = retryDelay << Math.min(attempt, 30);
+        return delay < 0 || delay > maxRetryDelay ? maxRetryDelay : delay;
+    }
+
+    /**
+     * Opens a batch on the current thread. Tasks submitted by this
+     * thread are added to the batch until it is closed.
+     *
+     * @param onComplete called once the batch is closed and all its tasks have completed
+     */
+    public Batch openBatch(Runnable onComplete) {
+        Batch batch = new Batch(onComplete);
+        currentBatch.set(batch);
+        return batch;
+    }
+
+    /**
+     * Returns true if a batch is open on the current thread.
+     */
+    public boolean isBatchOpen() {
+        return currentBatch.get() != null;
+    }
+
+    /**
+     * Queues a task for a publisher. If the publisher's queue is full
+     * this blocks until there is room, which only throttles the
+     * submitter while the other publishers keep draining their queues.
+     *
+     * @param rule name of the rule the task belongs to
+     * @param publisher name of the publisher used by the task
+     * @param task the task
+     * @param callback called with the final result of the task, may be null
+     */
+    public void submit(String rule, String publisher, Task task, Consumer<Boolean> callback) {
+
+        Entry entry = new Entry();
+        entry.worker = workers.computeIfAbsent(publisher, Worker::new);
+        entry.ruleStats = stats.computeIfAbsent(rule, RuleStats::new);
+        entry.task = task;
+        entry.callback = callback;
+        entry.batch = currentBatch.get();
+
+        if (entry.batch != null) {
+            entry.batch.add();
+        }
+
+        entry.ruleStats.submitted.incrementAndGet();
+        entry.ruleStats.pending.incrementAndGet();
+
+        try {
+            entry.worker.capacity.acquire();
+            entry.queued = true;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("PublisherQueue: Interrupted while queuing task for rule " + rule);
+            entry.complete(false);
+            return;
+        }
+
+        try {
+            entry.worker.executor.execute(entry);
+
+        } catch (RejectedExecutionException e) {
+            logger.warn("PublisherQueue: Unable to queue task for rule " + rule + ": " + e.getMessage());
+            entry.complete(false);
+        }
+    }
+
+    public Collection<RuleStats> getRuleStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    public RuleStats getRuleStats(String rule) {
+        return stats.get(rule);
+    }
+
+    public void shutdown() {
+
+        running = false;
+
+        for (Worker worker : workers.values()) {
+            worker.executor.shutdownNow();
+        }
+        workers.clear();
+
+        for (RuleStats ruleStats : stats.values()) {
+            logger.info("PublisherQueue: " + ruleStats);
+        }
+    }
+}
@@ -20,25 +20,35 @@ package com.netscape.cmscore.request;
 import java.math.BigInteger;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 import org.dogtagpki.server.ca.ICertificateAuthority;
 
 import com.netscape.certsrv.base.EBaseException;
-import com.netscape.certsrv.ldap.ILdapConnFactory;
-import com.netscape.certsrv.ldap.ILdapConnModule;
-import com.netscape.certsrv.publish.IPublisherProcessor;
 import com.netscape.certsrv.request.IRequest;
 import com.netscape.certsrv.request.IRequestListener;
 import com.netscape.certsrv.request.IRequestNotifier;
 import com.netscape.certsrv.request.IRequestQueue;
 import com.netscape.certsrv.request.IRequestVirtualList;
 import com.netscape.certsrv.request.RequestId;
+import com.netscape.cmscore.ldap.PublisherQueue;
 
 /**
  * The ARequestNotifier class implements the IRequestNotifier interface,
  * which notifies all registered request listeners.
  *
+ * If the publishing queue is enabled, completed requests are processed
+ * by a pool of publishing threads. The publishing status stored in the
+ * request repository is a cursor pointing to the lowest request that has
+ * not been fully published yet (including publication still pending in
+ * the per-publisher queues), so the queue can be recovered from there
+ * after a restart. Requests may be published again after a recovery.
+ *
  * @version $Revision$, $Date$
  */
 public class ARequestNotifier implements IRequestNotifier {
@@ -46,8 +56,13 @@ public class ARequestNotifier implements IRequestNotifier {
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ARequestNotifier.class);
 
     private Hashtable<String, IRequestListener> mListeners = new Hashtable<String, IRequestListener>();
-    private Vector<Thread> mNotifierThreads = new Vector<Thread>();
+    private ExecutorService mPublishingThreads;
+    private int mActivePublishingThreads = 0;
     private Vector<String> mRequests = new Vector<String>();
+    // requests taken from mRequests whose publication has not completed
+    private TreeSet<BigInteger> mInFlightRequests = new TreeSet<BigInteger>();
+    private PublisherQueue mPublisherQueue = null;
+    private boolean mShutdown = false;
     private int mMaxRequests = 100;
     private boolean mSearchForRequests = false;
     private int mMaxThreads = 1;
@@ -112,6 +127,17 @@ public class ARequestNotifier implements IRequestNotifier {
 
     }
 
+    /**
+     * Sets the per-publisher queues used to publish requests taken from
+     * the publishing queue. Must be called before setPublishingQueue()
+     * so requests recovered on startup use them too.
+     *
+     * @param publisherQueue per-publisher queues
+     */
+    public void setPublisherQueue(PublisherQueue publisherQueue) {
+        mPublisherQueue = publisherQueue;
+    }
+
     /**
      * Registers a request listener.
      *
@@ -181,22 +207,14 @@ public class ARequestNotifier implements IRequestNotifier {
         return mListeners.elements();
     }
 
-    private Object publishingCounterMonitor = new Object();
-
+    /**
+     * Marks a request from the publishing queue as published.
+     *
+     * @param id request ID
+     */
     public void updatePublishingStatus(String id) {
         if (mRequestQueue != null) {
-            synchronized (publishingCounterMonitor) {
-                if (mSavePublishingCounter == 0) {
-                    logger.debug("updatePublishingStatus  requestId: " + id);
-                    mRequestQueue.setPublishingStatus(id);
-                }
-                mSavePublishingCounter++;
-                logger.debug("updatePublishingStatus  mSavePublishingCounter: " + mSavePublishingCounter +
-                          " mSavePublishingStatus: " + mSavePublishingStatus);
-                if (mSavePublishingCounter >= mSavePublishingStatus) {
-                    mSavePublishingCounter = 0;
-                }
-            }
+            completeRequest(new RequestId(id).toBigInteger());
         } else {
             logger.warn("updatePublishingStatus  mRequestQueue == null");
         }
@@ -276,7 +294,9 @@ public class ARequestNotifier implements IRequestNotifier {
                         r = mRequestQueue.findRequest(new RequestId(id));
                         mRequests.remove(0);
                         logger.debug("getRequest  request " + id + ((r != null) ? " found" : " not found"));
-                        //updatePublishingStatus(id);
+                        if (r != null) {
+                            mInFlightRequests.add(r.getRequestId().toBigInteger());
+                        }
                     } catch (EBaseException e) {
                         logger.warn("getRequest  Exception: " + e.getMessage(), e);
                     }
@@ -312,18 +332,13 @@ public class ARequestNotifier implements IRequestNotifier {
     }
 
     /**
-     * Removes a notifier thread from the pool of publishing queue threads.
+     * Publishing threads are taken from an executor and return to it
+     * when the queue is empty, so there is nothing to remove.
      *
-     * @param notifierThread Thread
+     * @deprecated Publishing threads are managed by the request notifier.
      */
+    @Deprecated
     public void removeNotifierThread(Thread notifierThread) {
-        if (mNotifierThreads.size() > 0) {
-            mNotifierThreads.remove(notifierThread);
-            if (mNotifierThreads.size() == 0) {
-                mRequestQueue.setPublishingStatus("-1");
-            }
-        }
-        logger.debug("Number of publishing threads: " + mNotifierThreads.size());
     }
 
     /**
@@ -356,65 +371,170 @@ public class ARequestNotifier implements IRequestNotifier {
     }
 
     /**
-     * Checks for available publishing connections
-     *
-     * @return true if there are available publishing connections, false otherwise
+     * Starts another publishing thread if the pending requests
+     * can use one. Must be called while holding the lock.
      */
-    private boolean checkAvailablePublishingConnections() {
-        boolean availableConnections = false;
+    private void startPublishingThread() {
 
-        IPublisherProcessor pp = null;
-        if (mCA != null)
-            pp = mCA.getPublisherProcessor();
-        if (pp != null && (pp.isCertPublishingEnabled() || pp.isCRLPublishingEnabled())) {
-            ILdapConnModule ldapConnModule = pp.getLdapConnModule();
-            if (ldapConnModule != null) {
-                ILdapConnFactory ldapConnFactory = ldapConnModule.getLdapConnFactory();
-                if (ldapConnFactory != null) {
-                    logger.debug("checkAvailablePublishingConnections  maxConn: " + ldapConnFactory.maxConn() +
-                                                               "  totalConn: " + ldapConnFactory.totalConn());
-                    if (ldapConnFactory.maxConn() > ldapConnFactory.totalConn()) {
-                        availableConnections = true;
+        if (mShutdown) {
+            return;
+        }
+
+        if (mActivePublishingThreads >= Math.max(mMaxThreads, 1) ||
+                mActivePublishingThreads >= mRequests.size()) {
+            return;
+        }
+
+        if (mPublishingThreads == null) {
+            mPublishingThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+                int count;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PublishingQueueThread-" + count++);
+                    thread.setDaemon(true);
+                    if (mPublishingQueuePriority > 0) {
+                        thread.setPriority(mPublishingQueuePriority);
                     }
-                } else {
-                    logger.warn("checkAvailablePublishingConnections  ldapConnFactory is not accessible");
+                    return thread;
                 }
+            });
+        }
+
+        try {
+            mPublishingThreads.execute(new PublishingThread());
+            mActivePublishingThreads++;
+            logger.debug("Number of publishing threads: " + mActivePublishingThreads);
+
+        } catch (RejectedExecutionException e) {
+            logger.warn("startPublishingThread  Exception: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks whether a publishing thread should continue. The thread is
+     * removed from the pool if there are no more pending requests.
+     *
+     * @return true if the thread should continue, false otherwise
+     */
+    private synchronized boolean continuePublishing() {
+
+        if (!mShutdown && mRequests.size() > 0) {
+            return true;
+        }
+
+        mActivePublishingThreads--;
+        logger.debug("Number of publishing threads: " + mActivePublishingThreads);
+
+        return false;
+    }
+
+    /**
+     * Notifies the registered listeners about a request taken from the
+     * publishing queue. If per-publisher queues are used the request
+     * completes once all publication it queued has completed.
+     *
+     * @param r request
+     */
+    private void publishRequest(IRequest r) {
+
+        BigInteger id = r.getRequestId().toBigInteger();
+        PublisherQueue.Batch batch = null;
+
+        if (mPublisherQueue != null) {
+            batch = mPublisherQueue.openBatch(() -> completeRequest(id));
+        }
+
+        try {
+            Enumeration<IRequestListener> listeners = getListeners();
+            while (listeners.hasMoreElements()) {
+                IRequestListener l = listeners.nextElement();
+                logger.debug("publishRequest: IRequestListener = " + l.getClass().getName());
+                l.accept(r);
+            }
+
+        } catch (Throwable e) {
+            logger.warn("publishRequest  Exception: " + e.getMessage(), e);
+
+        } finally {
+            if (batch != null) {
+                batch.close();
             } else {
-                logger.warn("checkAvailablePublishingConnections  ldapConnModule is not accessible");
+                completeRequest(id);
             }
-        } else {
-            logger.warn("checkAvailablePublishingConnections  PublisherProcessor is not " +
-                      ((pp != null) ? "enabled" : "accessible"));
         }
-
-        return availableConnections;
     }
 
     /**
-     * Checks if more publishing threads can be added.
+     * Marks a request as published and checkpoints the publishing status.
      *
-     * @return true if more publishing threads can be added, false otherwise
+     * @param id request ID
      */
-    private boolean morePublishingThreads() {
-        boolean moreThreads = false;
-
-        if (mNotifierThreads.size() == 0) {
-            moreThreads = true;
-        } else if (mNotifierThreads.size() < mMaxThreads) {
-            logger.debug("morePublishingThreads  (" + mRequests.size() + ">" +
-                      ((mMaxRequests * mNotifierThreads.size()) / mMaxThreads) +
-                      " " + "(" + mMaxRequests + "*" + mNotifierThreads.size() + "):" + mMaxThreads);
-            // gradually add new publishing threads
-            if (mRequests.size() > ((mMaxRequests * mNotifierThreads.size()) / mMaxThreads)) {
-                // check for available publishing connections
-                if (checkAvailablePublishingConnections()) {
-                    moreThreads = true;
-                }
+    private synchronized void completeRequest(BigInteger id) {
+
+        mInFlightRequests.remove(id);
+
+        if (mShutdown || mRequestQueue == null) {
+            return;
+        }
+
+        if (mInFlightRequests.isEmpty() && mRequests.isEmpty()) {
+            // everything has been published
+            mSavePublishingCounter = 0;
+            mRequestQueue.setPublishingStatus("-1");
+            return;
+        }
+
+        mSavePublishingCounter++;
+        if (mSavePublishingCounter >= mSavePublishingStatus) {
+            mSavePublishingCounter = 0;
+            savePublishingStatus();
+        }
+    }
+
+    /**
+     * Stores the lowest request that has not been fully published as the
+     * publishing status. Must be called while holding the lock.
+     */
+    private void savePublishingStatus() {
+
+        BigInteger cursor = mInFlightRequests.isEmpty() ? null : mInFlightRequests.first();
+
+        if (mRequests.size() > 0) {
+            BigInteger next = new BigInteger(mRequests.elementAt(0));
+            if (cursor == null || next.compareTo(cursor) < 0) {
+                cursor = next;
             }
         }
-        logger.debug("morePublishingThreads  moreThreads: " + moreThreads);
 
-        return moreThreads;
+        String status = cursor == null ? "-1" : cursor.toString();
+        logger.debug("savePublishingStatus  requestId: " + status);
+        mRequestQueue.setPublishingStatus(status);
+    }
+
+    /**
+     * Stops the publishing threads. The publishing status is saved so
+     * requests that have not been published yet can be recovered.
+     */
+    public void shutdown() {
+
+        ExecutorService publishingThreads;
+
+        synchronized (this) {
+            if (mShutdown) {
+                return;
+            }
+            mShutdown = true;
+
+            if (mIsPublishingQueueEnabled && mRequestQueue != null) {
+                savePublishingStatus();
+            }
+
+            publishingThreads = mPublishingThreads;
+            mPublishingThreads = null;
+        }
+
+        if (publishingThreads != null) {
+            publishingThreads.shutdownNow();
+        }
     }
 
     /**
@@ -428,22 +548,9 @@ public class ARequestNotifier implements IRequestNotifier {
                 mRequests.addElement(r.getRequestId().toString());
                 logger.debug("addToNotify  extended buffer to " + mRequests.size() + "(" + mMaxRequests + ")" +
                           " requests by adding request " + r.getRequestId().toString());
-                if (morePublishingThreads()) {
-                    try {
-                        Thread notifierThread = new Thread(new RunListeners(this));
-                        if (notifierThread != null) {
-                            mNotifierThreads.addElement(notifierThread);
-                            logger.debug("Number of publishing threads: " + mNotifierThreads.size());
-                            if (mPublishingQueuePriority > 0) {
-                                notifierThread.setPriority(mPublishingQueuePriority);
-                            }
-                            notifierThread.start();
-                        }
-                    } catch (Throwable e) {
-                        logger.warn("addToNotify  Exception: " + e.getMessage(), e);
-                    }
-                }
+                startPublishingThread();
             } else {
+                // the remaining requests will be read from the request queue
                 mSearchForRequests = true;
             }
         }
@@ -454,31 +561,31 @@ public class ARequestNotifier implements IRequestNotifier {
      *
      * @param id request request
      */
-    public void recoverPublishingQueue(String id) {
+    public synchronized void recoverPublishingQueue(String id) {
         logger.debug("recoverPublishingQueue  mRequests.size()=" + mRequests.size() + "(" + mMaxRequests + ")" +
                       " requests by adding request " + id);
         if (mRequests.size() == 0) {
             mRequests.addElement(id);
             logger.debug("recoverPublishingQueue  extended buffer to " + mRequests.size() + "(" + mMaxRequests + ")" +
                       " requests by adding request " + id);
-            if (morePublishingThreads()) {
-                synchronized (this) {
-                    mSearchForRequests = true;
-                }
-                try {
-                    Thread notifierThread = new Thread(new RunListeners(this));
-                    if (notifierThread != null) {
-                        mNotifierThreads.addElement(notifierThread);
-                        logger.debug("Number of publishing threads: " + mNotifierThreads.size());
-                        if (mPublishingQueuePriority > 0) {
-                            notifierThread.setPriority(mPublishingQueuePriority);
-                        }
-                        notifierThread.start();
-                    }
-                } catch (Throwable e) {
-                    logger.warn("recoverPublishingQueue  Exception: " + e.getMessage(), e);
+            mSearchForRequests = true;
+            startPublishingThread();
+        }
+    }
+
+    /**
+     * The PublishingThread class processes requests from the publishing
+     * queue until there are no more pending requests.
+     */
+    class PublishingThread implements Runnable {
+
+        public void run() {
+            do {
+                IRequest r = getRequest();
+                if (r != null) {
+                    publishRequest(r);
                 }
-            }
+            } while (continuePublishing());
         }
     }
 }
@@ -493,7 +600,6 @@ class RunListeners implements Runnable {
 
     IRequest mRequest = null;
     Enumeration<IRequestListener> mListeners = null;
-    IRequestNotifier mRequestNotifier = null;
 
     /**
      * RunListeners class constructor.
@@ -506,48 +612,16 @@ class RunListeners implements Runnable {
         mListeners = listeners;
     }
 
-    /**
-     * RunListeners class constructor.
-     *
-     * @param r request
-     * @param listeners list of listeners
-     */
-    public RunListeners(IRequestNotifier requestNotifier) {
-        mRequestNotifier = requestNotifier;
-        mListeners = mRequestNotifier.getListeners();
-    }
-
     /**
      * RunListeners thread implementation.
      */
     public void run() {
-        logger.debug("RunListeners::"
-                + ((mRequestNotifier != null && mRequestNotifier.getNumberOfRequests() > 0) ? " Queue: "
-                        + mRequestNotifier.getNumberOfRequests() : " noQueue") +
-                  " " + ((mRequest != null) ? " SingleRequest" : " noSingleRequest"));
-        do {
-            if (mRequestNotifier != null)
-                mRequest = mRequestNotifier.getRequest();
-            if (mListeners != null && mRequest != null) {
-                while (mListeners.hasMoreElements()) {
-                    IRequestListener l = mListeners.nextElement();
-                    logger.debug("RunListeners: IRequestListener = " + l.getClass().getName());
-                    l.accept(mRequest);
-                }
-                if (mRequestNotifier != null) {
-                    logger.debug("RunListeners: mRequest = " + mRequest.getRequestId().toString());
-                    mRequestNotifier.updatePublishingStatus(mRequest.getRequestId().toString());
-                }
+        if (mListeners != null && mRequest != null) {
+            while (mListeners.hasMoreElements()) {
+                IRequestListener l = mListeners.nextElement();
+                logger.debug("RunListeners: IRequestListener = " + l.getClass().getName());
+                l.accept(mRequest);
             }
-            logger.debug("RunListeners: "
-                    + ((mRequestNotifier != null && mRequestNotifier.getNumberOfRequests() > 0) ? " Queue: "
-                            + mRequestNotifier.getNumberOfRequests() : " noQueue") +
-                      " " + ((mRequest != null) ? " SingleRequest" : " noSingleRequest"));
-            if (mRequestNotifier != null)
-                mListeners = mRequestNotifier.getListeners();
-        } while (mRequestNotifier != null && mRequestNotifier.getNumberOfRequests() > 0);
-
-        if (mRequestNotifier != null)
-            mRequestNotifier.removeNotifierThread(Thread.currentThread());
+        }
     }
 }
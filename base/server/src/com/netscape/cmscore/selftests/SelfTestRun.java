@@ -0,0 +1,171 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.selftests;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.netscape.certsrv.selftests.ESelfTestException;
+
+/**
+ * This class runs an ordered list of self tests on a pool of threads.
+ * <P>
+ * A self test starts once the self tests it depends on have passed. If
+ * one of them failed or was skipped, the self test is skipped and its
+ * result fails with an ESelfTestException.
+ * <P>
+ * Once a critical self test fails or is skipped, the run is cancelled:
+ * self tests that have not started yet do not run, and their results
+ * fail with a CancellationException. Self tests that are already
+ * running are not interrupted.
+ */
+public class SelfTestRun {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SelfTestRun.class);
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private Executor executor;
+    private Map<String, CompletableFuture<Void>> results = new LinkedHashMap<String, CompletableFuture<Void>>();
+    private volatile boolean cancelled;
+
+    public SelfTestRun(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a self test. Only dependencies submitted before the
+     * self test are honored.
+     *
+     * @param instanceName self test instance name
+     * @param dependencies instance names of the self tests it depends on
+     * @param critical whether a failure of the self test cancels the run
+     * @param task self test to run
+     */
+    public void submit(
+            String instanceName,
+            Collection<String> dependencies,
+            boolean critical,
+            Task task) {
+
+        Map<String, CompletableFuture<Void>> prerequisites = new LinkedHashMap<String, CompletableFuture<Void>>();
+        for (String dependency : dependencies) {
+            CompletableFuture<Void> prerequisite = results.get(dependency);
+            if (prerequisite == null) {
+                logger.warn("SelfTestRun: " + instanceName + " depends on "
+                        + dependency + " which does not run before it");
+                continue;
+            }
+            prerequisites.put(dependency, prerequisite);
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<Void>();
+        results.put(instanceName, result);
+
+        CompletableFuture
+                .allOf(prerequisites.values().toArray(new CompletableFuture<?>[prerequisites.size()]))
+                .whenComplete((r, e) -> {
+
+                    if (e == null) {
+                        start(instanceName, critical, task, result);
+                        return;
+                    }
+
+                    if (cancelled) {
+                        result.cancel(false);
+                        return;
+                    }
+
+                    String dependency = null;
+                    for (Map.Entry<String, CompletableFuture<Void>> entry : prerequisites.entrySet()) {
+                        if (entry.getValue().isCompletedExceptionally()) {
+                            dependency = entry.getKey();
+                            break;
+                        }
+                    }
+
+                    logger.warn("SelfTestRun: skipping " + instanceName + ", " + dependency + " did not pass");
+                    fail(critical, result, new ESelfTestException(
+                            "Selftest " + instanceName + " skipped: " + dependency + " did not pass"));
+                });
+    }
+
+    private void start(
+            String instanceName,
+            boolean critical,
+            Task task,
+            CompletableFuture<Void> result) {
+
+        try {
+            executor.execute(() -> {
+
+                if (cancelled) {
+                    logger.debug("SelfTestRun: " + instanceName + " cancelled");
+                    result.cancel(false);
+                    return;
+                }
+
+                try {
+                    task.run();
+                    result.complete(null);
+
+                } catch (Throwable t) {
+                    fail(critical, result, t);
+                }
+            });
+
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void fail(boolean critical, CompletableFuture<Void> result, Throwable t) {
+
+        // cancel the run before the dependent self tests are notified
+        if (critical) {
+            cancel();
+        }
+
+        result.completeExceptionally(t);
+    }
+
+    /**
+     * Prevents the self tests that have not started yet from running.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the results of the self tests in the submission order.
+     * The result of a cancelled self test throws a CancellationException.
+     */
+    public Map<String, CompletableFuture<Void>> getResults() {
+        return results;
+    }
+}
@@ -24,13 +24,24 @@ package com.netscape.cmscore.selftests;
 // import statements //
 ///////////////////////
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.EPropertyNotFound;
@@ -58,6 +69,26 @@ import com.netscape.cmscore.apps.CMSEngine;
 /**
  * This class implements a container for self tests.
  * <P>
+ * Self tests run concurrently on a bounded pool of threads. A self test
+ * that has to run after other self tests lists them in its dependsOn
+ * parameter; only dependencies that appear earlier in the same ordered
+ * list are honored. A self test is skipped, and counts as failed, if a
+ * self test it depends on did not pass. Once a critical self test fails,
+ * self tests that have not started yet are not run. If several critical
+ * self tests fail, the failure of the first one in the ordered list is
+ * reported.
+ * <P>
+ * Successful on-demand results can be cached for a number of seconds,
+ * so frequent health checks do not rerun the self tests every time.
+ * Failed self tests are always rerun.
+ * <P>
+ * Configuration:
+ * <pre>
+ * selftests.container.threads=4
+ * selftests.container.cacheTimeout=0
+ * selftests.plugin.&lt;instance&gt;.dependsOn=&lt;instance&gt;,...
+ * </pre>
+ * <P>
  *
  * @author mharmsen
  * @author thomask
@@ -93,6 +124,13 @@ public class SelfTestSubsystem
     public Vector<SelfTestOrderedInstance> mOnDemandOrder = new Vector<SelfTestOrderedInstance>();
     public Vector<SelfTestOrderedInstance> mStartupOrder = new Vector<SelfTestOrderedInstance>();
 
+    private int mThreads = DEFAULT_THREADS;
+    private long mCacheTimeout;
+    private ThreadPoolExecutor mExecutor;
+
+    // time of the last successful run of each self test
+    private Map<String, Long> mPassedTimes = new ConcurrentHashMap<String, Long>();
+
     ///////////////////////////
     // ISubsystem parameters //
     ///////////////////////////
@@ -102,6 +140,12 @@ public class SelfTestSubsystem
     private static final String ELEMENT_DELIMITER = ":";
     private static final String CRITICAL = "critical";
 
+    public static final String PROP_THREADS = "threads";
+    public static final String PROP_CACHE_TIMEOUT = "cacheTimeout";
+    public static final String PROP_DEPENDS_ON = "dependsOn";
+
+    public static final int DEFAULT_THREADS = 4;
+
     /////////////////////
     // default methods //
     /////////////////////
@@ -489,13 +533,65 @@ public class SelfTestSubsystem
 
         logger.debug("SelfTestSubsystem: runSelfTestsOnDemand()");
 
-        // loop through all self test plugin instances
+        // run all self test plugin instances
         // specified to be executed on demand
-        Enumeration<SelfTestOrderedInstance> instances = mOnDemandOrder.elements();
+        SelfTestRun run = submitSelfTests(mOnDemandOrder, true);
 
-        while (instances.hasMoreElements()) {
+        for (Map.Entry<String, CompletableFuture<Void>> entry : run.getResults().entrySet()) {
+
+            String instanceName = entry.getKey();
+            String instanceFullName = getFullName(mPrefix, instanceName);
+
+            try {
+                waitForSelfTest(entry.getValue());
+
+            } catch (CancellationException e) {
+                // the critical failure is reported with its own self test
+                logger.debug("SelfTestSubsystem: " + instanceName + " not run");
+
+            } catch (Exception e) {
+
+                // Check to see if the self test was critical:
+                if (isSelfTestCriticalOnDemand(instanceName)) {
+                    log(mLogger,
+                            CMS.getLogMessage(
+                                    "CMSCORE_SELFTESTS_RUN_ON_DEMAND_FAILED",
+                                    instanceFullName));
+
+                    logger.error("SelfTestSubsystem: Disabling subsystem due to selftest failure: " + e.getMessage(), e);
+
+                    run.cancel();
+
+                    CMSEngine engine = CMS.getCMSEngine();
+                    engine.disableSubsystem();
+
+                    throw new ESelfTestException("Selftest failed: " + e.getMessage(), e);
+                }
+
+                logger.warn("SelfTestSubsystem: Selftest failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Submits the self tests of an ordered list to the self test
+     * threads. Each self test starts once the self tests it depends
+     * on have passed.
+     *
+     * @param order ordered list of self tests
+     * @param useCache skip self tests that passed within the cache timeout
+     * @return self test run with the results in the list order
+     * @exception EMissingSelfTestException subsystem has missing name
+     */
+    private SelfTestRun submitSelfTests(
+            Vector<SelfTestOrderedInstance> order,
+            boolean useCache)
+            throws EMissingSelfTestException {
+
+        List<SelfTestOrderedInstance> instances = new ArrayList<SelfTestOrderedInstance>();
+
+        for (SelfTestOrderedInstance instance : new ArrayList<SelfTestOrderedInstance>(order)) {
 
-            SelfTestOrderedInstance instance = instances.nextElement();
             String instanceName = instance.getSelfTestName();
 
             if (instanceName == null) {
@@ -508,10 +604,9 @@ public class SelfTestSubsystem
 
             instanceName = instanceName.trim();
 
-            String instanceFullName = getFullName(mPrefix, instanceName);
-
             if (!mSelfTestInstances.containsKey(instanceName)) {
                 // self test plugin instance property name is not present
+                String instanceFullName = getFullName(mPrefix, instanceName);
                 log(mLogger,
                         CMS.getLogMessage(
                                 "CMSCORE_SELFTESTS_PROPERTY_MISSING_NAME",
@@ -520,31 +615,113 @@ public class SelfTestSubsystem
                 throw new EMissingSelfTestException(instanceFullName);
             }
 
-            try {
-                runSelfTest(instanceName);
+            instances.add(instance);
+        }
 
-            } catch (Exception e) {
+        SelfTestRun run = new SelfTestRun(getExecutor());
 
-                // Check to see if the self test was critical:
-                if (isSelfTestCriticalOnDemand(instanceName)) {
-                    log(mLogger,
-                            CMS.getLogMessage(
-                                    "CMSCORE_SELFTESTS_RUN_ON_DEMAND_FAILED",
-                                    instanceFullName));
+        for (SelfTestOrderedInstance instance : instances) {
 
-                    logger.error("SelfTestSubsystem: Disabling subsystem due to selftest failure: " + e.getMessage(), e);
+            String instanceName = instance.getSelfTestName().trim();
+            ISelfTest test = mSelfTestInstances.get(instanceName);
 
-                    CMSEngine engine = CMS.getCMSEngine();
-                    engine.disableSubsystem();
+            run.submit(
+                    instanceName,
+                    getDependencies(instanceName),
+                    instance.isSelfTestCritical(),
+                    () -> runSelfTest(test, useCache));
+        }
 
-                    throw new ESelfTestException("Selftest failed: " + e.getMessage(), e);
-                }
+        return run;
+    }
 
-                logger.warn("SelfTestSubsystem: Selftest failed: " + e.getMessage(), e);
+    private void runSelfTest(ISelfTest test, boolean useCache) throws Exception {
+
+        String instanceName = test.getSelfTestName();
+
+        if (useCache && mCacheTimeout > 0) {
+            Long passedTime = mPassedTimes.get(instanceName);
+            if (passedTime != null && System.currentTimeMillis() - passedTime < mCacheTimeout) {
+                logger.debug("SelfTestSubsystem: " + instanceName + " passed recently, not running");
+                return;
+            }
+        }
+
+        logger.debug("SelfTestSubsystem: running " + instanceName);
+        mPassedTimes.remove(instanceName);
+
+        test.runSelfTest(mLogger);
+
+        mPassedTimes.put(instanceName, System.currentTimeMillis());
+    }
+
+    /**
+     * Waits for a self test submitted to the self test threads.
+     *
+     * @exception Exception the exception thrown by the self test
+     */
+    private void waitForSelfTest(CompletableFuture<Void> result) throws Exception {
+
+        try {
+            result.get();
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
+            throw new ESelfTestException("Selftest failed: " + cause.getMessage(), cause);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ESelfTestException("Selftest interrupted", e);
         }
     }
 
+    private Collection<String> getDependencies(String instanceName) {
+
+        Collection<String> dependencies = new ArrayList<String>();
+
+        String name = ISelfTest.PROP_PLUGIN + "." + instanceName + "." + PROP_DEPENDS_ON;
+        String value;
+        try {
+            value = mConfig.getString(name, "");
+        } catch (EBaseException e) {
+            logger.warn("SelfTestSubsystem: Unable to read " + name + ": " + e.getMessage(), e);
+            return dependencies;
+        }
+
+        StringTokenizer tokens = new StringTokenizer(value, LIST_DELIMITER);
+        while (tokens.hasMoreTokens()) {
+            String dependency = tokens.nextToken().trim();
+            if (!dependency.isEmpty()) {
+                dependencies.add(dependency);
+            }
+        }
+
+        return dependencies;
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+
+        if (mExecutor == null) {
+            mExecutor = new ThreadPoolExecutor(
+                    mThreads, mThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        int count;
+                        public synchronized Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "SelfTest-" + count++);
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            mExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return mExecutor;
+    }
+
     public void runSelfTest(String instanceName) throws Exception {
 
         logger.debug("SelfTestSubsystem: runSelfTest(" + instanceName + ")");
@@ -811,42 +988,21 @@ public class SelfTestSubsystem
                 CMS.getLogMessage(
                         "CMSCORE_SELFTESTS_RUN_AT_STARTUP"));
 
-        // loop through all self test plugin instances
+        // run all self test plugin instances
         // specified to be executed at server startup
-        Enumeration<SelfTestOrderedInstance> instances = mStartupOrder.elements();
+        SelfTestRun run = submitSelfTests(mStartupOrder, false);
 
-        while (instances.hasMoreElements()) {
-            SelfTestOrderedInstance instance = instances.nextElement();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : run.getResults().entrySet()) {
 
-            String instanceFullName = null;
-            String instanceName = instance.getSelfTestName();
-
-            if (instanceName == null) {
-                log(mLogger,
-                        CMS.getLogMessage(
-                                "CMSCORE_SELFTESTS_PROPERTY_NAME_IS_NULL"));
-
-                throw new EMissingSelfTestException();
-            }
-
-            instanceName = instanceName.trim();
-            instanceFullName = getFullName(mPrefix, instanceName);
-
-            if (!mSelfTestInstances.containsKey(instanceName)) {
-                // self test plugin instance property name is not present
-                log(mLogger,
-                        CMS.getLogMessage(
-                                "CMSCORE_SELFTESTS_PROPERTY_MISSING_NAME",
-                                instanceFullName));
-
-                throw new EMissingSelfTestException(instanceFullName);
-            }
-
-            ISelfTest test = mSelfTestInstances.get(instanceName);
+            String instanceName = entry.getKey();
+            String instanceFullName = getFullName(mPrefix, instanceName);
 
             try {
-                logger.debug("SelfTestSubsystem: running " + test.getSelfTestName());
-                test.runSelfTest(mLogger);
+                waitForSelfTest(entry.getValue());
+
+            } catch (CancellationException e) {
+                // the critical failure is reported with its own self test
+                logger.debug("SelfTestSubsystem: " + instanceName + " not run");
 
             } catch (Exception e) {
 
@@ -858,6 +1014,8 @@ public class SelfTestSubsystem
 
                 logger.error("SelfTestSubsystem: selftest failed: " + e.getMessage(), e);
 
+                run.cancel();
+
                 log(mLogger,
                         CMS.getLogMessage(
                                 "CMSCORE_SELFTESTS_RUN_AT_STARTUP_FAILED",
@@ -1222,6 +1380,17 @@ public class SelfTestSubsystem
             mRootPrefix = mConfig.getName().trim();
         }
 
+        mThreads = mConfig.getInteger(PROP_CONTAINER + "." + PROP_THREADS, DEFAULT_THREADS);
+        if (mThreads < 1) {
+            throw new EBaseException("Invalid " + getFullName(mRootPrefix,
+                    PROP_CONTAINER + "." + PROP_THREADS) + ": " + mThreads);
+        }
+
+        mCacheTimeout = mConfig.getInteger(PROP_CONTAINER + "." + PROP_CACHE_TIMEOUT, 0) * 1000L;
+
+        logger.debug("SelfTestSubsystem: threads: " + mThreads);
+        logger.debug("SelfTestSubsystem: cache timeout: " + mCacheTimeout + " ms");
+
         int loadStatus = 0;
 
         // NOTE:  Obviously, we must load the self test logger parameters
@@ -1817,6 +1986,14 @@ public class SelfTestSubsystem
      * <P>
      */
     public void shutdown() {
+
+        synchronized (this) {
+            if (mExecutor != null) {
+                mExecutor.shutdownNow();
+                mExecutor = null;
+            }
+        }
+
         // reverse order of all self test plugin instances
         Collection<ISelfTest> collection = mSelfTestInstances.values();
         Vector<ISelfTest> list = new Vector<ISelfTest>(collection);
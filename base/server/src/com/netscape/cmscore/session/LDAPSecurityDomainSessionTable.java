@@ -17,9 +17,13 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.session;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.ISecurityDomainSessionTable;
@@ -30,26 +34,70 @@ import com.netscape.cmscore.apps.CMSEngine;
 import com.netscape.cmscore.apps.EngineConfig;
 import com.netscape.cmscore.ldapconn.LDAPConfig;
 import com.netscape.cmscore.ldapconn.LdapBoundConnFactory;
+import com.netscape.cmsutil.ldap.LDAPUtil;
 
 import netscape.ldap.LDAPAttribute;
 import netscape.ldap.LDAPAttributeSet;
 import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPDN;
 import netscape.ldap.LDAPEntry;
 import netscape.ldap.LDAPException;
+import netscape.ldap.LDAPSearchConstraints;
 import netscape.ldap.LDAPSearchResults;
-import netscape.ldap.LDAPv2;
+import netscape.ldap.controls.LDAPEntryChangeControl;
+import netscape.ldap.controls.LDAPPersistSearchControl;
 
 /**
  * This object stores the values for IP, uid and group based on the cookie id in LDAP.
  * Entries are stored under ou=Security Domain, ou=sessions, $basedn
+ *
+ * The session entries are read into memory with a normal search once a
+ * persistent search has been started, and the persistent search keeps
+ * them consistent with the sessions added or removed by clones. While
+ * the persistent search is not running, and for sessions not delivered
+ * by it yet, the session entries are read from LDAP.
+ *
+ * Sessions older than the time to live are treated as removed, and are
+ * deleted from LDAP by removeExpiredEntries().
  */
 public class LDAPSecurityDomainSessionTable
-        implements ISecurityDomainSessionTable {
+        implements ISecurityDomainSessionTable, Runnable {
 
     public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(LDAPSecurityDomainSessionTable.class);
 
+    private static final String[] SESSION_ATTRS = { "cn", "host", "uid", "cmsUserGroup", "dateOfCreate" };
+
     private long m_timeToLive;
     private LdapBoundConnFactory mLdapConnFactory;
+    private String sessionsDN;
+
+    private Map<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+
+    // true while the persistent search is running
+    private volatile boolean active;
+
+    // serializes reloading and clearing the sessions with the
+    // updates made by addEntry() and removeEntry()
+    private final Object sessionsLock = new Object();
+
+    private volatile boolean stopped;
+    private Thread monitor;
+    private volatile LDAPConnection monitorConn;
+
+    static class Session {
+
+        String ip;
+        String uid;
+        String group;
+        long beginTime;
+
+        Session(String ip, String uid, String group, long beginTime) {
+            this.ip = ip;
+            this.uid = uid;
+            this.group = group;
+            this.beginTime = beginTime;
+        }
+    }
 
     public LDAPSecurityDomainSessionTable(long timeToLive) throws ELdapException, EBaseException {
         m_timeToLive = timeToLive;
@@ -60,59 +108,106 @@ public class LDAPSecurityDomainSessionTable
         LDAPConfig internaldb = cs.getInternalDBConfig();
         mLdapConnFactory = new LdapBoundConnFactory("LDAPSecurityDomainSessionTable");
         mLdapConnFactory.init(cs, internaldb, engine.getPasswordStore());
+
+        sessionsDN = "ou=sessions,ou=Security Domain," + internaldb.getBaseDN();
+    }
+
+    /**
+     * Starts the persistent search of the session entries.
+     */
+    public synchronized void start() {
+        stopped = false;
+        monitor = new Thread(this, "securityDomainSessionMonitor");
+        monitor.setDaemon(true);
+        monitor.start();
+    }
+
+    private void ensureSessionsOU(LDAPConnection conn) throws LDAPException {
+
+        LDAPAttributeSet attrs = new LDAPAttributeSet();
+        attrs.add(new LDAPAttribute("objectclass", "top"));
+        attrs.add(new LDAPAttribute("objectclass", "organizationalUnit"));
+        attrs.add(new LDAPAttribute("ou", "sessions"));
+
+        LDAPEntry entry = new LDAPEntry(sessionsDN, attrs);
+
+        try {
+            conn.add(entry);
+
+        } catch (LDAPException e) {
+            if (e.getLDAPResultCode() != LDAPException.ENTRY_ALREADY_EXISTS) {
+                throw e;
+            }
+        }
+    }
+
+    private String getSessionDN(String sessionId) {
+        return "cn=" + LDAPUtil.escapeRDNValue(sessionId) + "," + sessionsDN;
+    }
+
+    private static Session createSession(LDAPEntry entry) throws Exception {
+
+        String[] values = new String[SESSION_ATTRS.length];
+
+        // skip cn
+        for (int i = 1; i < SESSION_ATTRS.length; i++) {
+            LDAPAttribute attribute = entry.getAttribute(SESSION_ATTRS[i]);
+            if (attribute == null) {
+                throw new Exception("No Attribute " + SESSION_ATTRS[i] + " for this session in LDAPEntry " + entry.getDN());
+            }
+            values[i] = attribute.getStringValueArray()[0];
+        }
+
+        return new Session(values[1], values[2], values[3], Long.parseLong(values[4]));
+    }
+
+    private static String getSessionID(LDAPEntry entry) {
+        return LDAPDN.explodeDN(entry.getDN(), true)[0];
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.beginTime > m_timeToLive;
     }
 
     public int addEntry(String sessionId, String ip,
             String uid, String group) throws Exception {
 
-        CMSEngine engine = CMS.getCMSEngine();
-        EngineConfig cs = engine.getConfig();
-        LDAPConfig ldapConfig = cs.getInternalDBConfig();
-
         LDAPConnection conn = null;
         int status = FAILURE;
 
-        String basedn = ldapConfig.getBaseDN();
-        String sessionsdn = "ou=sessions,ou=Security Domain," + basedn;
-
         try {
             // create session entry (if it does not exist)
             conn = mLdapConnFactory.getConn();
 
-            LDAPAttributeSet attrs = new LDAPAttributeSet();
-            attrs.add(new LDAPAttribute("objectclass", "top"));
-            attrs.add(new LDAPAttribute("objectclass", "organizationalUnit"));
-            attrs.add(new LDAPAttribute("ou", "sessions"));
-
-            LDAPEntry entry = new LDAPEntry(sessionsdn, attrs);
-
             try {
-                conn.add(entry);
+                ensureSessionsOU(conn);
 
             } catch (LDAPException e) {
-                if (e.getLDAPResultCode() == LDAPException.ENTRY_ALREADY_EXISTS) {
-                    // continue
-                } else {
-                    logger.error("SecurityDomainSessionTable: Unable to create ou=sessions: " + e.getMessage(), e);
-                    throw new PKIException("Unable to create ou=sessions", e);
-                }
+                logger.error("SecurityDomainSessionTable: Unable to create ou=sessions: " + e.getMessage(), e);
+                throw new PKIException("Unable to create ou=sessions", e);
             }
 
             // add new entry
-            String entrydn = "cn=" + sessionId + "," + sessionsdn;
-            attrs = new LDAPAttributeSet();
+            long beginTime = new Date().getTime();
+            LDAPAttributeSet attrs = new LDAPAttributeSet();
             attrs.add(new LDAPAttribute("objectclass", "top"));
             attrs.add(new LDAPAttribute("objectclass", "securityDomainSessionEntry"));
             attrs.add(new LDAPAttribute("cn", sessionId));
             attrs.add(new LDAPAttribute("host", ip));
             attrs.add(new LDAPAttribute("uid", uid));
             attrs.add(new LDAPAttribute("cmsUserGroup", group));
-            attrs.add(new LDAPAttribute("dateOfCreate", Long.toString((new Date()).getTime())));
+            attrs.add(new LDAPAttribute("dateOfCreate", Long.toString(beginTime)));
 
-            entry = new LDAPEntry(entrydn, attrs);
+            LDAPEntry entry = new LDAPEntry(getSessionDN(sessionId), attrs);
 
             conn.add(entry);
 
+            synchronized (sessionsLock) {
+                if (active) {
+                    sessions.put(sessionId, new Session(ip, uid, group, beginTime));
+                }
+            }
+
             logger.info("SecurityDomainSessionTable: added session entry " + sessionId);
             status = SUCCESS;
 
@@ -129,26 +224,84 @@ public class LDAPSecurityDomainSessionTable
 
     public int removeEntry(String sessionId) throws Exception {
 
-        CMSEngine engine = CMS.getCMSEngine();
-        EngineConfig cs = engine.getConfig();
-        LDAPConfig ldapConfig = cs.getInternalDBConfig();
-
         LDAPConnection conn = null;
         int status = FAILURE;
         try {
-            String basedn = ldapConfig.getBaseDN();
-            String dn = "cn=" + sessionId + ",ou=sessions,ou=Security Domain," + basedn;
             conn = mLdapConnFactory.getConn();
-            conn.delete(dn);
-            status = SUCCESS;
+            status = removeEntry(conn, sessionId);
+
+        } finally {
+            try {
+                mLdapConnFactory.returnConn(conn);
+            } catch (Exception e) {
+                logger.warn("Unable to return LDAP connection: " + e.getMessage(), e);
+            }
+        }
+
+        return status;
+    }
+
+    private int removeEntry(LDAPConnection conn, String sessionId) throws Exception {
+
+        synchronized (sessionsLock) {
+            sessions.remove(sessionId);
+        }
+
+        try {
+            conn.delete(getSessionDN(sessionId));
+            return SUCCESS;
 
         } catch (LDAPException e) {
             if (e.getLDAPResultCode() == LDAPException.NO_SUCH_OBJECT) {
                 // continue
+                return FAILURE;
             } else {
                 logger.error("SecurityDomainSessionTable: unable to delete session " + sessionId + ": " + e.getMessage(), e);
                 throw new PKIException("Unable to delete session " + sessionId, e);
             }
+        }
+    }
+
+    /**
+     * Removes the expired sessions using a single LDAP connection.
+     */
+    @Override
+    public Collection<String> removeExpiredEntries() throws Exception {
+
+        Collection<String> expired = new ArrayList<String>();
+        long now = new Date().getTime();
+
+        if (active) {
+            for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+                if (isExpired(entry.getValue(), now)) {
+                    expired.add(entry.getKey());
+                }
+            }
+
+        } else {
+            for (Map.Entry<String, Session> entry : readSessions().entrySet()) {
+                if (isExpired(entry.getValue(), now)) {
+                    expired.add(entry.getKey());
+                }
+            }
+        }
+
+        if (expired.isEmpty()) {
+            return expired;
+        }
+
+        Collection<String> removed = new ArrayList<String>();
+        LDAPConnection conn = null;
+
+        try {
+            conn = mLdapConnFactory.getConn();
+
+            for (String sessionId : expired) {
+                // the session may have been removed by a clone
+                if (removeEntry(conn, sessionId) == SUCCESS) {
+                    removed.add(sessionId);
+                }
+            }
 
         } finally {
             try {
@@ -158,28 +311,43 @@ public class LDAPSecurityDomainSessionTable
             }
         }
 
-        return status;
+        return removed;
     }
 
-    public boolean sessionExists(String sessionId) throws Exception {
+    /**
+     * Returns an unexpired session, reading it from LDAP if it is not
+     * in memory.
+     */
+    private Session getSession(String sessionId) throws Exception {
 
-        CMSEngine engine = CMS.getCMSEngine();
-        EngineConfig cs = engine.getConfig();
-        LDAPConfig ldapConfig = cs.getInternalDBConfig();
+        Session session = active ? sessions.get(sessionId) : null;
+
+        if (session == null) {
+            // not delivered by the persistent search yet
+            session = readSession(sessionId);
+        }
+
+        if (session == null || isExpired(session, new Date().getTime())) {
+            return null;
+        }
+
+        return session;
+    }
+
+    private Session readSession(String sessionId) throws Exception {
 
         LDAPConnection conn = null;
-        boolean ret = false;
 
         try {
-            String basedn = ldapConfig.getBaseDN();
-            String sessionsdn = "ou=sessions,ou=Security Domain," + basedn;
-            String filter = "(cn=" + sessionId + ")";
-            String[] attrs = { "cn" };
-
             conn = mLdapConnFactory.getConn();
-            LDAPSearchResults res = conn.search(sessionsdn, LDAPv2.SCOPE_SUB, filter, attrs, false);
-            if (res.getCount() > 0)
-                ret = true;
+            LDAPEntry entry = conn.read(getSessionDN(sessionId), SESSION_ATTRS);
+            return createSession(entry);
+
+        } catch (LDAPException e) {
+            if (e.getLDAPResultCode() == LDAPException.NO_SUCH_OBJECT) {
+                return null;
+            }
+            throw e;
 
         } finally {
             try {
@@ -188,39 +356,23 @@ public class LDAPSecurityDomainSessionTable
                 logger.warn("Unable to return LDAP connection: " + e.getMessage(), e);
             }
         }
-
-        return ret;
     }
 
-    public Enumeration<String> getSessionIDs() throws Exception {
+    private Map<String, Session> readSessions() throws Exception {
 
-        logger.debug("LDAPSecurityDomainSessionTable: getSessionIds() ");
-
-        CMSEngine engine = CMS.getCMSEngine();
-        EngineConfig cs = engine.getConfig();
-        LDAPConfig ldapConfig = cs.getInternalDBConfig();
+        logger.debug("LDAPSecurityDomainSessionTable: searching " + sessionsDN);
 
         LDAPConnection conn = null;
-        Vector<String> ret = new Vector<String>();
+        Map<String, Session> ret = new ConcurrentHashMap<String, Session>();
 
         try {
-            String basedn = ldapConfig.getBaseDN();
-            String sessionsdn = "ou=sessions,ou=Security Domain," + basedn;
             String filter = "(objectclass=securityDomainSessionEntry)";
-            String[] attrs = { "cn" };
-
-            logger.debug("LDAPSecurityDomainSessionTable: searching " + sessionsdn);
 
             conn = mLdapConnFactory.getConn();
-            LDAPSearchResults res = conn.search(sessionsdn, LDAPv2.SCOPE_SUB, filter, attrs, false);
+            LDAPSearchResults res = conn.search(sessionsDN, LDAPConnection.SCOPE_ONE, filter, SESSION_ATTRS, false);
             while (res.hasMoreElements()) {
                 LDAPEntry entry = res.next();
-                LDAPAttribute sid = entry.getAttribute("cn");
-                if (sid == null) {
-                    logger.error("LDAPSecurityDomainSessionTable: Missing session ID: " + entry.getDN());
-                    throw new Exception("Missing session ID: " + entry.getDN());
-                }
-                ret.add(sid.getStringValueArray()[0]);
+                ret.put(getSessionID(entry), createSession(entry));
             }
 
         } catch (LDAPException e) {
@@ -241,63 +393,51 @@ public class LDAPSecurityDomainSessionTable
             }
         }
 
-        return ret.elements();
+        return ret;
     }
 
-    private String getStringValue(String sessionId, String attr) throws Exception {
-
-        CMSEngine engine = CMS.getCMSEngine();
-        EngineConfig cs = engine.getConfig();
-        LDAPConfig ldapConfig = cs.getInternalDBConfig();
-
-        LDAPConnection conn = null;
-        String ret = null;
-        try {
-            String basedn = ldapConfig.getBaseDN();
-            String sessionsdn = "ou=sessions,ou=Security Domain," + basedn;
-            String filter = "(cn=" + sessionId + ")";
-            String[] attrs = { attr };
+    private Map<String, Session> getSessions() throws Exception {
 
-            conn = mLdapConnFactory.getConn();
-            LDAPSearchResults res = conn.search(sessionsdn, LDAPv2.SCOPE_SUB, filter, attrs, false);
-            if (res.getCount() > 0) {
-                LDAPEntry entry = res.next();
-                LDAPAttribute searchAttribute = entry.getAttribute(attr);
-                if (searchAttribute == null) {
-                    throw new Exception("No Attribute " + attr + " for this session in LDAPEntry "+entry.getDN());
-                }
-                ret = searchAttribute.getStringValueArray()[0];
-            }
+        Map<String, Session> map = active ? sessions : readSessions();
+        Map<String, Session> ret = new ConcurrentHashMap<String, Session>();
+        long now = new Date().getTime();
 
-        } finally {
-            try {
-                mLdapConnFactory.returnConn(conn);
-            } catch (Exception e) {
-                logger.warn("Unable to return LDAP connection: " + e.getMessage(), e);
+        for (Map.Entry<String, Session> entry : map.entrySet()) {
+            if (!isExpired(entry.getValue(), now)) {
+                ret.put(entry.getKey(), entry.getValue());
             }
         }
 
         return ret;
     }
 
+    public boolean sessionExists(String sessionId) throws Exception {
+        return getSession(sessionId) != null;
+    }
+
+    public Enumeration<String> getSessionIDs() throws Exception {
+        logger.debug("LDAPSecurityDomainSessionTable: getSessionIds() ");
+        return new Vector<String>(getSessions().keySet()).elements();
+    }
+
     public String getIP(String sessionId) throws Exception {
-        return getStringValue(sessionId, "host");
+        Session session = getSession(sessionId);
+        return session == null ? null : session.ip;
     }
 
     public String getUID(String sessionId) throws Exception {
-        return getStringValue(sessionId, "uid");
+        Session session = getSession(sessionId);
+        return session == null ? null : session.uid;
     }
 
     public String getGroup(String sessionId) throws Exception {
-        return getStringValue(sessionId, "cmsUserGroup");
+        Session session = getSession(sessionId);
+        return session == null ? null : session.group;
     }
 
     public long getBeginTime(String sessionId) throws Exception {
-        String beginStr = getStringValue(sessionId, "dateOfCreate");
-        if (beginStr != null) {
-            return Long.parseLong(beginStr);
-        }
-        return -1;
+        Session session = getSession(sessionId);
+        return session == null ? -1 : session.beginTime;
     }
 
     public long getTimeToLive() {
@@ -305,37 +445,143 @@ public class LDAPSecurityDomainSessionTable
     }
 
     public int getSize() throws Exception {
+        return getSessions().size();
+    }
 
-        CMSEngine engine = CMS.getCMSEngine();
-        EngineConfig cs = engine.getConfig();
-        LDAPConfig ldapConfig = cs.getInternalDBConfig();
-
-        LDAPConnection conn = null;
-        int ret = 0;
+    public void run() {
 
-        try {
-            String basedn = ldapConfig.getBaseDN();
-            String sessionsdn = "ou=sessions,ou=Security Domain," + basedn;
-            String filter = "(objectclass=securityDomainSessionEntry)";
-            String[] attrs = { "cn" };
+        int op = LDAPPersistSearchControl.ADD
+            | LDAPPersistSearchControl.MODIFY
+            | LDAPPersistSearchControl.DELETE
+            | LDAPPersistSearchControl.MODDN;
+        // only changes are returned, existing sessions are read separately
+        LDAPPersistSearchControl persistCtrl =
+            new LDAPPersistSearchControl(op, true, true, true);
 
-            conn = mLdapConnFactory.getConn();
-            LDAPSearchResults res = conn.search(sessionsdn, LDAPv2.SCOPE_SUB, filter, attrs, false);
-            ret = res.getCount();
+        logger.info("Security domain session monitor: starting");
 
-        } finally {
+        while (!stopped) {
+            LDAPConnection conn = null;
             try {
-                mLdapConnFactory.returnConn(conn);
+                conn = mLdapConnFactory.getConn();
+                monitorConn = conn;
+                ensureSessionsOU(conn);
+
+                LDAPSearchConstraints cons = conn.getSearchConstraints();
+                cons.setServerControls(persistCtrl);
+                cons.setBatchSize(1);
+                cons.setServerTimeLimit(0 /* seconds */);
+
+                LDAPSearchResults results = conn.search(
+                    sessionsDN, LDAPConnection.SCOPE_ONE,
+                    "(objectclass=securityDomainSessionEntry)", SESSION_ATTRS, false, cons);
+
+                // Sessions removed while disconnected are not reported,
+                // so reload all sessions with a normal search once the
+                // persistent search is running. Changes made after the
+                // persistent search started are applied afterwards.
+                Map<String, Session> initialSessions = readSessions();
+
+                synchronized (sessionsLock) {
+                    sessions.clear();
+                    sessions.putAll(initialSessions);
+                    active = true;
+                }
+
+                logger.info("Security domain session monitor: loaded " + initialSessions.size() + " sessions");
+
+                while (!stopped && results.hasMoreElements()) {
+                    LDAPEntry entry = results.next();
+                    String sessionId = getSessionID(entry);
+
+                    LDAPEntryChangeControl changeControl = (LDAPEntryChangeControl)
+                        LDAPUtil.getControl(
+                            LDAPEntryChangeControl.class, results.getResponseControls());
+
+                    if (changeControl == null) {
+                        logger.warn("Security domain session monitor: missing change control: " + sessionId);
+                        continue;
+                    }
+
+                    int changeType = changeControl.getChangeType();
+                    switch (changeType) {
+                    case LDAPPersistSearchControl.ADD:
+                    case LDAPPersistSearchControl.MODIFY:
+                        logger.debug("Security domain session monitor: session updated: " + sessionId);
+                        sessions.put(sessionId, createSession(entry));
+                        break;
+                    case LDAPPersistSearchControl.DELETE:
+                        logger.debug("Security domain session monitor: session removed: " + sessionId);
+                        sessions.remove(sessionId);
+                        break;
+                    case LDAPPersistSearchControl.MODDN:
+                        logger.debug("Security domain session monitor: session renamed: " + sessionId);
+                        sessions.remove(LDAPDN.explodeDN(changeControl.getPreviousDN(), true)[0]);
+                        sessions.put(sessionId, createSession(entry));
+                        break;
+                    default:
+                        logger.warn("Security domain session monitor: unknown change type: " + changeType);
+                        break;
+                    }
+                }
+
             } catch (Exception e) {
-                logger.warn("Unable to return LDAP connection: " + e.getMessage(), e);
+                if (!stopped) {
+                    logger.warn("Security domain session monitor: " + e.getMessage() + ". Retrying in 1 second.", e);
+                }
+
+            } finally {
+                synchronized (sessionsLock) {
+                    active = false;
+                    sessions.clear();
+                }
+                monitorConn = null;
+
+                if (conn != null) {
+                    try {
+                        mLdapConnFactory.returnConn(conn);
+                    } catch (Exception e) {
+                        logger.warn("Unable to return LDAP connection: " + e.getMessage(), e);
+                    }
+                }
             }
-        }
 
+            if (stopped) {
+                break;
+            }
 
-        return ret;
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        logger.info("Security domain session monitor: stopping");
     }
 
     public void shutdown() {
+
+        stopped = true;
+
+        synchronized (this) {
+            if (monitor != null) {
+                monitor.interrupt();
+                monitor = null;
+            }
+        }
+
+        // abandon the persistent search
+        LDAPConnection conn = monitorConn;
+        if (conn != null) {
+            try {
+                conn.disconnect();
+            } catch (LDAPException e) {
+                logger.warn("Unable to stop security domain session monitor: " + e.getMessage(), e);
+            }
+        }
+
         try {
             mLdapConnFactory.reset();
         } catch (ELdapException e) {
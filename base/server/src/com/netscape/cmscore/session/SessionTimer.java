@@ -17,8 +17,6 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.session;
 
-import java.util.Date;
-import java.util.Enumeration;
 import java.util.TimerTask;
 
 import com.netscape.certsrv.base.ISecurityDomainSessionTable;
@@ -51,29 +49,19 @@ public class SessionTimer extends TimerTask {
     public void runImpl() throws Exception {
 
         logger.info("SessionTimer: checking security domain sessions");
-        Enumeration<String> keys = m_sessiontable.getSessionIDs();
 
-        while (keys.hasMoreElements()) {
-            String sessionId = keys.nextElement();
-            long beginTime = m_sessiontable.getBeginTime(sessionId);
-            Date nowDate = new Date();
-            long nowTime = nowDate.getTime();
-            long timeToLive = m_sessiontable.getTimeToLive();
+        for (String sessionId : m_sessiontable.removeExpiredEntries()) {
+            logger.info("SessionTimer: removed expired security domain session: " + sessionId);
 
-            if ((nowTime - beginTime) > timeToLive) {
-                m_sessiontable.removeEntry(sessionId);
-                logger.info("SessionTimer: removed expired security domain session: " + sessionId);
+            // audit message
+            String auditParams = "operation;;expire_token+token;;" + sessionId;
+            String auditMessage = CMS.getLogMessage(
+                                     AuditEvent.SECURITY_DOMAIN_UPDATE,
+                                     "system",
+                                     ILogger.SUCCESS,
+                                     auditParams);
 
-                // audit message
-                String auditParams = "operation;;expire_token+token;;" + sessionId;
-                String auditMessage = CMS.getLogMessage(
-                                         AuditEvent.SECURITY_DOMAIN_UPDATE,
-                                         "system",
-                                         ILogger.SUCCESS,
-                                         auditParams);
-
-                signedAuditLogger.log(auditMessage);
-            }
+            signedAuditLogger.log(auditMessage);
         }
     }
 }
@@ -74,6 +74,6 @@ public class CertDNCertUserLocator implements ICertUserLocator {
         String filter = LDAP_ATTR_CERTDN + "=" +
                 certificates[0].getSubjectDN();
 
-        return mUG.findUsersByCert(filter);
+        return mUG.findUserByCert(certificates[0], filter);
     }
 }
@@ -80,6 +80,6 @@ public class ExactMatchCertUserLocator implements ICertUserLocator {
         String filter = "description=" +
                 mUG.getCertificateString(certificates[pos]);
 
-        return mUG.findUsersByCert(filter);
+        return mUG.findUserByCert(certificates[pos], filter);
     }
 }
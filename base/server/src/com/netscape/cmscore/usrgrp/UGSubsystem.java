@@ -93,6 +93,8 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
     protected String mBaseDN = null;
     protected static UGSubsystem mUG = null;
 
+    protected UserCertCache mCertCache = null;
+
     /**
      * Constructs LDAP based usr/grp management
      */
@@ -134,6 +136,15 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
             mLdapConnFactory = new LdapBoundConnFactory("UGSubsystem");
             mLdapConnFactory.init(cs, ldapConfig, engine.getPasswordStore());
 
+            IConfigStore cacheConfig = config.getSubStore("certCache");
+            if (cacheConfig.getBoolean("enable", true)) {
+                mCertCache = new UserCertCache(this, getUserBaseDN());
+                mCertCache.init(
+                        cacheConfig.getInteger("timeout", UserCertCache.DEFAULT_TIMEOUT),
+                        cacheConfig.getInteger("maxSize", UserCertCache.DEFAULT_MAX_SIZE));
+                mCertCache.start();
+            }
+
         } catch (EBaseException e) {
             logger.error("UGSubsystem: initialization failed: " + e.getMessage(), e);
             throw e;
@@ -154,6 +165,12 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
      * Disconnects usr/grp manager from the LDAP
      */
     public void shutdown() {
+
+        if (mCertCache != null) {
+            mCertCache.shutdown();
+            mCertCache = null;
+        }
+
         try {
             if (mLdapConnFactory != null) {
                 mLdapConnFactory.reset();
@@ -264,6 +281,49 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
         return null;
     }
 
+    /**
+     * Searchs for the identity that matches the certificate locater
+     * generated filter. The identity is cached by the certificate
+     * fingerprint, so it must not be modified.
+     *
+     * @param cert certificate being mapped
+     * @param filter filter generated from the certificate
+     */
+    public IUser findUserByCert(X509Certificate cert, String filter) throws EUsrGrpException {
+
+        UserCertCache cache = mCertCache;
+        if (cache == null || cert == null || filter == null) {
+            return findUsersByCert(filter);
+        }
+
+        String key;
+        try {
+            key = cache.getKey(cert, filter);
+        } catch (Exception e) {
+            logger.warn("UGSubsystem: Unable to get certificate fingerprint: " + e.getMessage(), e);
+            return findUsersByCert(filter);
+        }
+
+        IUser user = cache.get(key);
+        if (user != null) {
+            logger.debug("UGSubsystem: found cached user " + user.getUserID());
+            return user;
+        }
+
+        long gen = cache.getGeneration();
+        user = findUsersByCert(filter);
+        cache.put(key, user, gen);
+
+        return user;
+    }
+
+    private void invalidateCertCache(String userID) {
+        UserCertCache cache = mCertCache;
+        if (cache != null) {
+            cache.invalidate(userID);
+        }
+    }
+
     /**
      * Searchs for identities that matches the certificate locater
      * generated filter.
@@ -794,6 +854,8 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
             return;
         }
 
+        invalidateCertCache(user.getUserID());
+
         X509Certificate cert[] = null;
         LDAPModificationSet addCert = new LDAPModificationSet();
 
@@ -854,6 +916,8 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
             return;
         }
 
+        invalidateCertCache(user.getUserID());
+
         X509Certificate cert[] = null;
         LDAPModificationSet addCert = new LDAPModificationSet();
 
@@ -904,6 +968,8 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
             return;
         }
 
+        invalidateCertCache(user.getUserID());
+
         X509Certificate cert[] = null;
         LDAPModificationSet delAttr = new LDAPModificationSet();
 
@@ -958,6 +1024,8 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
             return;
         }
 
+        invalidateCertCache(user.getUserID());
+
         // retrieve all certs of the user, then match the cert String for
         // removal
         ldapUser = (User) getUser(user.getUserID());
@@ -1129,6 +1197,8 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
             return;
         }
 
+        invalidateCertCache(userid);
+
         LDAPConnection ldapconn = null;
 
         try {
@@ -1174,6 +1244,8 @@ public final class UGSubsystem extends BaseSubsystem implements ISubsystem, IUsr
             return;
         }
 
+        invalidateCertCache(user.getUserID());
+
         LDAPConnection ldapconn = null;
 
         try {
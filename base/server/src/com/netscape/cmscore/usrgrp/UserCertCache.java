@@ -0,0 +1,326 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.usrgrp;
+
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Hex;
+
+import com.netscape.certsrv.usrgrp.IUser;
+import com.netscape.cmsutil.ldap.LDAPUtil;
+
+import netscape.ldap.LDAPConnection;
+import netscape.ldap.LDAPDN;
+import netscape.ldap.LDAPEntry;
+import netscape.ldap.LDAPSearchConstraints;
+import netscape.ldap.LDAPSearchResults;
+import netscape.ldap.controls.LDAPEntryChangeControl;
+import netscape.ldap.controls.LDAPPersistSearchControl;
+
+/**
+ * Cache of the users mapped from certificates.
+ *
+ * The users are keyed by the certificate fingerprint and the attribute
+ * used to map the certificate, so different certificate user locators
+ * do not share entries. Only successful mappings are cached.
+ *
+ * The cache is only used while a persistent search of the user entries
+ * is running, since that is what invalidates the users modified or
+ * removed by other servers. It is cleared whenever the persistent search
+ * stops. Changes made through UGSubsystem invalidate the user directly.
+ *
+ * Cached users are shared between threads and must not be modified.
+ *
+ * Configuration (usrgrp.certCache):
+ * <pre>
+ * enable=true
+ * timeout=300
+ * maxSize=1000
+ * </pre>
+ */
+public class UserCertCache implements Runnable {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UserCertCache.class);
+
+    public static final int DEFAULT_TIMEOUT = 300; // seconds
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private UGSubsystem ugSubsystem;
+    private String userBaseDN;
+
+    private long timeout = DEFAULT_TIMEOUT * 1000L;
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+    volatile boolean active;
+
+    // incremented on every invalidation to discard lookups that were
+    // running while a user was changed
+    private AtomicLong generation = new AtomicLong();
+
+    private volatile boolean stopped;
+    private Thread monitor;
+    private volatile LDAPConnection monitorConn;
+
+    static class Entry {
+
+        IUser user;
+        long expirationTime;
+
+        Entry(IUser user, long expirationTime) {
+            this.user = user;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    public UserCertCache(UGSubsystem ugSubsystem, String userBaseDN) {
+        this.ugSubsystem = ugSubsystem;
+        this.userBaseDN = userBaseDN;
+    }
+
+    public void init(int timeout, int maxSize) {
+        this.timeout = timeout * 1000L;
+        this.maxSize = maxSize;
+
+        logger.info("UserCertCache: timeout: " + timeout + " s");
+        logger.info("UserCertCache: max size: " + maxSize);
+    }
+
+    public synchronized void start() {
+        stopped = false;
+        monitor = new Thread(this, "userCertCacheMonitor");
+        monitor.setDaemon(true);
+        monitor.start();
+    }
+
+    public void shutdown() {
+
+        stopped = true;
+
+        synchronized (this) {
+            if (monitor != null) {
+                monitor.interrupt();
+                monitor = null;
+            }
+        }
+
+        // abandon the persistent search
+        LDAPConnection conn = monitorConn;
+        if (conn != null) {
+            try {
+                conn.disconnect();
+            } catch (Exception e) {
+                logger.warn("UserCertCache: Unable to stop monitor: " + e.getMessage(), e);
+            }
+        }
+
+        active = false;
+        entries.clear();
+    }
+
+    /**
+     * Returns the cache key of a certificate.
+     *
+     * @param cert certificate
+     * @param filter filter used to map the certificate
+     */
+    public String getKey(X509Certificate cert, String filter) throws Exception {
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String fingerprint = Hex.encodeHexString(digest.digest(cert.getEncoded()));
+
+        int i = filter.indexOf('=');
+        String attribute = i < 0 ? filter : filter.substring(0, i);
+
+        return attribute.trim().toLowerCase() + ":" + fingerprint;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public IUser get(String key) {
+
+        if (!active) {
+            return null;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= entry.expirationTime) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return entry.user;
+    }
+
+    /**
+     * Stores a user found with a lookup started at the given generation.
+     */
+    public void put(String key, IUser user, long gen) {
+
+        if (!active || user == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (entries.size() >= maxSize) {
+            removeExpiredEntries(now);
+            if (entries.size() >= maxSize) {
+                return;
+            }
+        }
+
+        entries.put(key, new Entry(user, now + timeout));
+
+        // the user may have changed during the lookup
+        if (generation.get() != gen) {
+            entries.remove(key);
+        }
+    }
+
+    private void removeExpiredEntries(long now) {
+        for (Iterator<Entry> i = entries.values().iterator(); i.hasNext(); ) {
+            if (now >= i.next().expirationTime) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes the cached certificates of a user.
+     */
+    public void invalidate(String userID) {
+
+        generation.incrementAndGet();
+
+        if (userID == null) {
+            return;
+        }
+
+        for (Iterator<Entry> i = entries.values().iterator(); i.hasNext(); ) {
+            if (userID.equals(i.next().user.getUserID())) {
+                i.remove();
+            }
+        }
+    }
+
+    private void invalidateDN(String dn) {
+        String[] rdns = LDAPDN.explodeDN(dn, true);
+        invalidate(rdns == null || rdns.length == 0 ? null : rdns[0]);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void run() {
+
+        int op = LDAPPersistSearchControl.MODIFY
+            | LDAPPersistSearchControl.DELETE
+            | LDAPPersistSearchControl.MODDN;
+        LDAPPersistSearchControl persistCtrl =
+            new LDAPPersistSearchControl(op, true, true, true);
+
+        logger.info("UserCertCache: starting monitor");
+
+        while (!stopped) {
+            LDAPConnection conn = null;
+            try {
+                conn = ugSubsystem.getConn();
+                monitorConn = conn;
+
+                LDAPSearchConstraints cons = conn.getSearchConstraints();
+                cons.setServerControls(persistCtrl);
+                cons.setBatchSize(1);
+                cons.setServerTimeLimit(0 /* seconds */);
+
+                String[] attrs = { "uid" };
+                LDAPSearchResults results = conn.search(
+                    userBaseDN, LDAPConnection.SCOPE_SUB,
+                    "(objectclass=*)", attrs, false, cons);
+
+                // changes made while disconnected are not reported
+                clear();
+                active = true;
+                logger.info("UserCertCache: monitor established");
+
+                while (!stopped && results.hasMoreElements()) {
+                    LDAPEntry entry = results.next();
+
+                    LDAPEntryChangeControl changeControl = (LDAPEntryChangeControl)
+                        LDAPUtil.getControl(
+                            LDAPEntryChangeControl.class, results.getResponseControls());
+
+                    logger.debug("UserCertCache: user changed: " + entry.getDN());
+                    invalidateDN(entry.getDN());
+
+                    if (changeControl != null && changeControl.getPreviousDN() != null) {
+                        invalidateDN(changeControl.getPreviousDN());
+                    }
+                }
+
+            } catch (Exception e) {
+                if (!stopped) {
+                    logger.warn("UserCertCache: monitor failed: " + e.getMessage() + ". Retrying in 1 second.", e);
+                }
+
+            } finally {
+                active = false;
+                clear();
+                monitorConn = null;
+
+                if (conn != null) {
+                    try {
+                        ugSubsystem.returnConn(conn);
+                    } catch (Exception e) {
+                        logger.warn("UserCertCache: Unable to return LDAP connection: " + e.getMessage(), e);
+                    }
+                }
+            }
+
+            if (stopped) {
+                break;
+            }
+
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        logger.info("UserCertCache: stopping monitor");
+    }
+}
@@ -17,9 +17,8 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmscore.util;
 
+import java.util.ArrayDeque;
 import java.util.Date;
-import java.util.Hashtable;
-import java.util.Vector;
 
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.IConfigStore;
@@ -31,6 +30,10 @@ import com.netscape.certsrv.util.StatsEvent;
  * can be loaded into cert server kernel to perform
  * statistics collection.
  * <P>
+ * The operations being timed are kept in a per-thread stack, and the
+ * timings are recorded in lock-free counters, so timing does not
+ * contend between threads.
+ * <P>
  *
  * @author thomask
  * @version $Revision$, $Date$
@@ -39,7 +42,7 @@ public class StatsSubsystem implements IStatsSubsystem {
     private String mId = null;
     private StatsEvent mAllTrans = new StatsEvent(null);
     private Date mStartTime = new Date();
-    private Hashtable<String, Vector<StatsMilestone>> mHashtable = new Hashtable<String, Vector<StatsMilestone>>();
+    private ThreadLocal<ArrayDeque<StatsMilestone>> mMilestones = ThreadLocal.withInitial(ArrayDeque::new);
 
     /**
      * Constructs a certificate server.
@@ -85,23 +88,12 @@ public class StatsSubsystem implements IStatsSubsystem {
     }
 
     public void startTiming(String id, boolean mainAction) {
-        Thread t = Thread.currentThread();
-        Vector<StatsMilestone> milestones = null;
-        if (mHashtable.containsKey(t.toString())) {
-            milestones = mHashtable.get(t.toString());
-        } else {
-            milestones = new Vector<StatsMilestone>();
-            mHashtable.put(t.toString(), milestones);
-        }
-        long startTime = new Date().getTime();
+        long startTime = System.nanoTime();
+        ArrayDeque<StatsMilestone> milestones = mMilestones.get();
         StatsEvent currentST = null;
-        for (int i = 0; i < milestones.size(); i++) {
-            StatsMilestone se = milestones.elementAt(i);
-            if (currentST == null) {
-                currentST = mAllTrans.getSubEvent(se.getId());
-            } else {
-                currentST = currentST.getSubEvent(se.getId());
-            }
+        StatsMilestone current = milestones.peek();
+        if (current != null) {
+            currentST = current.getStatsEvent();
         }
         if (currentST == null) {
             if (!mainAction) {
@@ -109,32 +101,19 @@ public class StatsSubsystem implements IStatsSubsystem {
             }
             currentST = mAllTrans;
         }
-        StatsEvent newST = currentST.getSubEvent(id);
-        if (newST == null) {
-            newST = new StatsEvent(currentST);
-            newST.setName(id);
-            currentST.addSubEvent(newST);
-        }
-        milestones.addElement(new StatsMilestone(id, startTime, newST));
+        StatsEvent newST = currentST.getOrCreateSubEvent(id);
+        milestones.push(new StatsMilestone(id, startTime, newST));
     }
 
     public void endTiming(String id) {
-        long endTime = new Date().getTime();
-        Thread t = Thread.currentThread();
-        if (!mHashtable.containsKey(t.toString())) {
+        long endTime = System.nanoTime();
+        ArrayDeque<StatsMilestone> milestones = mMilestones.get();
+        StatsMilestone last = milestones.poll();
+        if (last == null) {
             return; /* error */
         }
-        Vector<StatsMilestone> milestones = mHashtable.get(t.toString());
-        if (milestones.size() == 0) {
-            return; /* error */
-        }
-        StatsMilestone last = milestones.remove(milestones.size() - 1);
         StatsEvent st = last.getStatsEvent();
-        st.incNoOfOperations(1);
-        st.incTimeTaken(endTime - last.getStartTime());
-        if (milestones.size() == 0) {
-            mHashtable.remove(t.toString());
-        }
+        st.addTiming((endTime - last.getStartTime()) / 1000);
     }
 
     public void resetCounters() {
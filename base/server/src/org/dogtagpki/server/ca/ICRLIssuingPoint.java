@@ -19,6 +19,7 @@ package org.dogtagpki.server.ca;
 
 import java.math.BigInteger;
 import java.util.Date;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
@@ -444,6 +445,15 @@ public interface ICRLIssuingPoint {
     public void addRevokedCert(BigInteger serialNumber, RevokedCertImpl revokedCert,
                                String requestId);
 
+    /**
+     * Adds multiple revoked certificates to delta-CRL cache.
+     * The CRL cache is stored once for all certificates.
+     *
+     * @param revokedCerts revocation information by serial number
+     * @param requestId revocation request id
+     */
+    public void addRevokedCerts(Map<BigInteger, RevokedCertImpl> revokedCerts, String requestId);
+
     /**
      * Adds unrevoked certificate to delta-CRL cache.
      *
@@ -0,0 +1,78 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package org.dogtagpki.server.rest;
+
+import java.util.Enumeration;
+
+import javax.ws.rs.core.Response;
+
+import com.netscape.certsrv.base.ResourceNotFoundException;
+import com.netscape.certsrv.util.IStatsSubsystem;
+import com.netscape.certsrv.util.StatsData;
+import com.netscape.certsrv.util.StatsEvent;
+import com.netscape.certsrv.util.StatsResource;
+import com.netscape.cms.servlet.base.PKIService;
+import com.netscape.cmscore.apps.CMS;
+import com.netscape.cmscore.apps.CMSEngine;
+
+/**
+ * Provides the operation timings collected by the statistics
+ * subsystem, including the latency percentiles.
+ */
+public class StatsService extends PKIService implements StatsResource {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(StatsService.class);
+
+    @Override
+    public Response getStats() {
+
+        CMSEngine engine = CMS.getCMSEngine();
+        IStatsSubsystem statsSub = (IStatsSubsystem) engine.getSubsystem(IStatsSubsystem.ID);
+
+        if (statsSub == null) {
+            throw new ResourceNotFoundException("Statistics not available");
+        }
+
+        StatsData data = createStatsData(statsSub.getMainStatsEvent());
+        data.setStartTime(statsSub.getStartTime());
+
+        return createOKResponse(data);
+    }
+
+    StatsData createStatsData(StatsEvent st) {
+
+        StatsData data = new StatsData();
+        data.setName(st.getName());
+        data.setOperations(st.getNoOfOperations());
+        data.setTotalTime(st.getTimeTakenMicros());
+        data.setMinTime(st.getMinMicros());
+        data.setMaxTime(st.getMaxMicros());
+        data.setAvgTime(st.getAvgMicros());
+        data.setP50(st.getPercentile(50));
+        data.setP99(st.getPercentile(99));
+        data.setP999(st.getPercentile(99.9));
+
+        Enumeration<String> names = st.getSubEventNames();
+        while (names.hasMoreElements()) {
+            StatsEvent subSt = st.getSubEvent(names.nextElement());
+            data.addEvent(createStatsData(subSt));
+        }
+
+        return data;
+    }
+}
@@ -0,0 +1,127 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.certsrv.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    static final long MAX_VALUE = (1L << 36) - 1;
+
+    @Test
+    public void testBucketBoundaries() {
+
+        // values below 64 have their own bucket
+        Assert.assertEquals(31, LatencyHistogram.getIndex(31));
+        Assert.assertEquals(32, LatencyHistogram.getIndex(32));
+        Assert.assertEquals(63, LatencyHistogram.getIndex(63));
+
+        Assert.assertEquals(31, LatencyHistogram.getValue(31));
+        Assert.assertEquals(32, LatencyHistogram.getValue(32));
+        Assert.assertEquals(63, LatencyHistogram.getValue(63));
+
+        // 64 and 65 share the first bucket with a width of 2
+        Assert.assertEquals(64, LatencyHistogram.getIndex(64));
+        Assert.assertEquals(64, LatencyHistogram.getIndex(65));
+        Assert.assertEquals(65, LatencyHistogram.getIndex(66));
+        Assert.assertEquals(65, LatencyHistogram.getValue(64));
+    }
+
+    @Test
+    public void testBucketAccuracy() {
+
+        for (long value = 0; value < MAX_VALUE; value = value * 3 / 2 + 1) {
+            long bucketValue = LatencyHistogram.getValue(LatencyHistogram.getIndex(value));
+
+            Assert.assertTrue("value: " + value, bucketValue >= value);
+            Assert.assertTrue("value: " + value, bucketValue - value <= value / 32);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals(-1, histogram.getPercentile(50));
+        Assert.assertEquals(-1, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testClamping() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        Assert.assertEquals(0, histogram.getPercentile(100));
+
+        histogram.record(MAX_VALUE + 1);
+        histogram.record(Long.MAX_VALUE);
+
+        Assert.assertEquals(MAX_VALUE, histogram.getPercentile(100));
+        Assert.assertEquals(LatencyHistogram.getIndex(MAX_VALUE),
+                LatencyHistogram.getIndex(MAX_VALUE - 1));
+    }
+
+    @Test
+    public void testPercentiles() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(1, histogram.getPercentile(0));
+        Assert.assertEquals(50, histogram.getPercentile(50));
+        Assert.assertEquals(99, histogram.getPercentile(99));
+
+        long max = histogram.getPercentile(100);
+        Assert.assertTrue("max: " + max, max >= 100 && max <= 103);
+    }
+
+    @Test
+    public void testSkewedPercentiles() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 990; i++) {
+            histogram.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+
+        Assert.assertEquals(10, histogram.getPercentile(50));
+        Assert.assertEquals(10, histogram.getPercentile(99));
+
+        long p995 = histogram.getPercentile(99.5);
+        Assert.assertTrue("p99.5: " + p995, p995 >= 1000 && p995 <= 1000 + 1000 / 32);
+    }
+
+    @Test
+    public void testReset() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.reset();
+
+        Assert.assertEquals(-1, histogram.getPercentile(50));
+    }
+}
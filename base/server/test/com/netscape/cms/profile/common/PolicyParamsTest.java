@@ -0,0 +1,89 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cms.profile.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.netscape.certsrv.base.IConfigStore;
+import com.netscape.cmscore.base.PropConfigStore;
+
+public class PolicyParamsTest {
+
+    @Test
+    public void testNullStore() throws Exception {
+        Assert.assertSame(PolicyParams.EMPTY, PolicyParams.create(null));
+        Assert.assertEquals("default", PolicyParams.EMPTY.getString("name", "default"));
+    }
+
+    @Test
+    public void testValuesAreTrimmed() throws Exception {
+
+        PropConfigStore config = new PropConfigStore();
+        config.putString("params.name", "  value \t");
+        config.putString("params.empty", "   ");
+        config.putString("params.integer", " 365 ");
+        config.putString("params.boolean", " true ");
+
+        IConfigStore store = config.getSubStore("params");
+        PolicyParams params = PolicyParams.create(store);
+
+        // same values as IConfigStore.getString()
+        Assert.assertEquals(store.getString("name"), params.getString("name", null));
+        Assert.assertEquals("value", params.getString("name", null));
+        Assert.assertEquals("", params.getString("empty", null));
+
+        Assert.assertEquals(365, params.getInteger("integer"));
+        Assert.assertTrue(params.getBoolean("boolean"));
+    }
+
+    @Test
+    public void testMissingValue() throws Exception {
+
+        PropConfigStore config = new PropConfigStore();
+        config.putString("params.name", "value");
+
+        PolicyParams params = PolicyParams.create(config.getSubStore("params"));
+
+        Assert.assertEquals("default", params.getString("missing", "default"));
+        Assert.assertNull(params.getString("missing", null));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidInteger() throws Exception {
+
+        PropConfigStore config = new PropConfigStore();
+        config.putString("params.integer", "abc");
+
+        PolicyParams params = PolicyParams.create(config.getSubStore("params"));
+        params.getInteger("integer");
+    }
+
+    @Test
+    public void testPatternsAreParsedInAdvance() throws Exception {
+
+        PropConfigStore config = new PropConfigStore();
+        config.putString("params.pattern", " CN=$request.req_subject_name.cn$ ");
+
+        PolicyParams params = PolicyParams.create(config.getSubStore("params"));
+        String pattern = params.getString("pattern", null);
+
+        Assert.assertEquals("CN=$request.req_subject_name.cn$", pattern);
+        Assert.assertSame(params.getPattern(pattern), params.getPattern(pattern));
+    }
+}
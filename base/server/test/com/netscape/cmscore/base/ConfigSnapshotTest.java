@@ -0,0 +1,211 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netscape.certsrv.base.IConfigStore;
+
+public class ConfigSnapshotTest {
+
+    PropConfigStore config;
+    List<ConfigSnapshot> published = new ArrayList<ConfigSnapshot>();
+
+    @Before
+    public void setUp() throws Exception {
+        config = new PropConfigStore();
+        config.putString("ca.ocspUseCache", "true");
+        config.putString("ca.ocspUseCacheIssuingPointId", "MasterCRL");
+        config.putString("ca.crl.MasterCRL.enable", "true");
+        config.putString("kra.enable", "false");
+        config.putString("name", "pki");
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+
+        ConfigSnapshot snapshot = config.getSnapshot();
+
+        Assert.assertNull(snapshot.getName());
+        Assert.assertEquals("pki", snapshot.get("name"));
+        Assert.assertEquals("MasterCRL", snapshot.get("ca.ocspUseCacheIssuingPointId"));
+        Assert.assertEquals("true", snapshot.get("ca.crl.MasterCRL.enable"));
+        Assert.assertNull(snapshot.get("ca.crl.MasterCRL.missing"));
+        Assert.assertNull(snapshot.get("missing.name"));
+
+        Assert.assertEquals(Arrays.asList("name"), new ArrayList<String>(snapshot.getPropertyNames()));
+        Assert.assertEquals(Arrays.asList("ca", "kra"), new ArrayList<String>(snapshot.getSubStoreNames()));
+    }
+
+    @Test
+    public void testTypedValues() throws Exception {
+
+        config.putString("ca.number", " 10");
+        config.putString("ca.empty", "");
+
+        ConfigSnapshot snapshot = config.getSnapshot().getSubStore("ca");
+
+        Assert.assertTrue(snapshot.getBoolean("ocspUseCache", false));
+        Assert.assertTrue(snapshot.getBoolean("missing", true));
+        Assert.assertEquals(5, snapshot.getInteger("empty", 5));
+        Assert.assertEquals("10", snapshot.getString("number", null));
+        Assert.assertEquals("default", snapshot.getString("missing", "default"));
+    }
+
+    @Test
+    public void testUncommittedPut() throws Exception {
+
+        config.addConfigListener(snapshot -> published.add(snapshot));
+        ConfigSnapshot snapshot = config.getSnapshot();
+
+        config.putString("ca.ocspUseCache", "false");
+        config.putString("ca.newProperty", "value");
+
+        // existing snapshots and listeners are not affected
+        Assert.assertEquals("true", snapshot.get("ca.ocspUseCache"));
+        Assert.assertNull(snapshot.get("ca.newProperty"));
+        Assert.assertTrue(published.isEmpty());
+
+        // the store returns the uncommitted values
+        Assert.assertEquals("false", config.get("ca.ocspUseCache"));
+        Assert.assertEquals("value", config.getSubStore("ca").getString("newProperty"));
+    }
+
+    @Test
+    public void testCommit() throws Exception {
+
+        config.addConfigListener(snapshot -> published.add(snapshot));
+
+        config.putString("ca.ocspUseCache", "false");
+        config.commit(false);
+
+        Assert.assertEquals(1, published.size());
+        Assert.assertEquals("false", published.get(0).get("ca.ocspUseCache"));
+        Assert.assertSame(published.get(0), config.getSnapshot());
+
+        // the same snapshot is reused until the next change
+        Assert.assertSame(config.getSnapshot(), config.getSnapshot());
+    }
+
+    @Test
+    public void testRemoveListener() throws Exception {
+
+        ConfigListener listener = snapshot -> published.add(snapshot);
+        config.addConfigListener(listener);
+        config.removeConfigListener(listener);
+
+        config.commit(false);
+
+        Assert.assertTrue(published.isEmpty());
+    }
+
+    @Test
+    public void testPutInvalidatesSnapshot() throws Exception {
+
+        ConfigSnapshot snapshot = config.getSnapshot();
+        config.putString("ca.newProperty", "value");
+
+        ConfigSnapshot newSnapshot = config.getSnapshot();
+        Assert.assertNotSame(snapshot, newSnapshot);
+        Assert.assertEquals("value", newSnapshot.get("ca.newProperty"));
+    }
+
+    @Test
+    public void testRemoveInvalidatesSnapshot() throws Exception {
+
+        ConfigSnapshot snapshot = config.getSnapshot();
+        config.remove("kra.enable");
+
+        Assert.assertEquals("false", snapshot.get("kra.enable"));
+        Assert.assertNull(config.getSnapshot().get("kra.enable"));
+        Assert.assertEquals(Arrays.asList("ca"), new ArrayList<String>(config.getSnapshot().getSubStoreNames()));
+    }
+
+    @Test
+    public void testClearInvalidatesSnapshot() throws Exception {
+
+        ConfigSnapshot snapshot = config.getSnapshot();
+        config.clear();
+
+        Assert.assertEquals("pki", snapshot.get("name"));
+        Assert.assertNull(config.getSnapshot().get("name"));
+        Assert.assertTrue(config.getSnapshot().getProperties().isEmpty());
+    }
+
+    @Test
+    public void testSubStore() throws Exception {
+
+        IConfigStore caConfig = config.getSubStore("ca");
+        ConfigSnapshot snapshot = ((PropConfigStore) caConfig).getSnapshot();
+
+        Assert.assertEquals("ca", snapshot.getName());
+        Assert.assertEquals("MasterCRL", snapshot.get("ocspUseCacheIssuingPointId"));
+        Assert.assertNull(snapshot.get("name"));
+        Assert.assertNull(snapshot.get("kra.enable"));
+
+        Assert.assertEquals(Arrays.asList("ocspUseCache", "ocspUseCacheIssuingPointId"),
+                new ArrayList<String>(snapshot.getPropertyNames()));
+        Assert.assertEquals(Arrays.asList("crl"), new ArrayList<String>(snapshot.getSubStoreNames()));
+
+        Assert.assertEquals(3, snapshot.getProperties().size());
+        Assert.assertEquals("true", snapshot.getProperties().get("crl.MasterCRL.enable"));
+    }
+
+    @Test
+    public void testSubStoreListener() throws Exception {
+
+        ((PropConfigStore) config.getSubStore("ca")).addConfigListener(snapshot -> published.add(snapshot));
+
+        config.putString("kra.enable", "true");
+        config.commit(false);
+
+        ConfigSnapshot snapshot = published.get(0);
+        Assert.assertEquals("ca", snapshot.getName());
+        Assert.assertEquals("true", snapshot.get("ocspUseCache"));
+        Assert.assertNull(snapshot.get("kra.enable"));
+        Assert.assertNull(snapshot.get("enable"));
+    }
+
+    @Test
+    public void testMissingSubStore() throws Exception {
+
+        ConfigSnapshot snapshot = config.getSnapshot().getSubStore("ca.missing");
+
+        Assert.assertEquals("ca.missing", snapshot.getName());
+        Assert.assertTrue(snapshot.getPropertyNames().isEmpty());
+        Assert.assertTrue(snapshot.getSubStoreNames().isEmpty());
+        Assert.assertNull(snapshot.get("enable"));
+    }
+
+    @Test
+    public void testSubStoreReference() throws Exception {
+
+        config.putString("ocsp.crl", "ca.crl");
+
+        ConfigSnapshot snapshot = config.getSnapshot().getSubStore("ocsp").getSubStore("crl");
+
+        Assert.assertEquals("ca.crl", snapshot.getName());
+        Assert.assertEquals("true", snapshot.get("MasterCRL.enable"));
+    }
+}
@@ -0,0 +1,167 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.dbs;
+
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netscape.certsrv.dbs.certdb.ICertRecord;
+
+public class CertStatusIndexTest {
+
+    CertStatusIndex index;
+
+    @Before
+    public void setUp() {
+        index = new CertStatusIndex();
+        index.init(false, 10, 3);
+    }
+
+    @After
+    public void tearDown() {
+        index.shutdown();
+    }
+
+    CertRecord createRecord(long serialNumber, String status, Date revokedOn) throws Exception {
+        CertRecord record = new CertRecord();
+        record.set(ICertRecord.ATTR_ID, BigInteger.valueOf(serialNumber));
+        record.set(ICertRecord.ATTR_CERT_STATUS, status);
+        record.set(ICertRecord.ATTR_REVOKED_ON, revokedOn);
+        return record;
+    }
+
+    @Test
+    public void testInactive() throws Exception {
+
+        CertStatusIndex.Entry entry = index.add(
+                createRecord(1, ICertRecord.STATUS_VALID, null), index.getStamp());
+
+        Assert.assertEquals(ICertRecord.STATUS_VALID, entry.getStatus());
+        Assert.assertNull(index.get(BigInteger.ONE));
+        Assert.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+
+        index.activate(null);
+
+        Date revokedOn = new Date(1234567890000L);
+        index.add(createRecord(1, ICertRecord.STATUS_VALID, null), index.getStamp());
+        index.add(createRecord(2, ICertRecord.STATUS_REVOKED, revokedOn), index.getStamp());
+
+        CertStatusIndex.Entry entry = index.get(BigInteger.valueOf(1));
+        Assert.assertEquals(ICertRecord.STATUS_VALID, entry.getStatus());
+        Assert.assertNull(entry.getRevokedOn());
+
+        entry = index.get(BigInteger.valueOf(2));
+        Assert.assertEquals(ICertRecord.STATUS_REVOKED, entry.getStatus());
+        Assert.assertEquals(revokedOn, entry.getRevokedOn());
+
+        Assert.assertNull(index.get(BigInteger.valueOf(3)));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        index.activate(null);
+        index.add(createRecord(1, ICertRecord.STATUS_VALID, null), index.getStamp());
+
+        index.invalidate(BigInteger.ONE);
+
+        Assert.assertNull(index.get(BigInteger.ONE));
+    }
+
+    @Test
+    public void testRecordReadBeforeInvalidation() throws Exception {
+
+        index.activate(null);
+
+        // record read before the certificate is revoked locally
+        long stamp = index.getStamp();
+        CertRecord record = createRecord(1, ICertRecord.STATUS_VALID, null);
+
+        index.invalidate(BigInteger.ONE);
+
+        CertStatusIndex.Entry entry = index.add(record, stamp);
+        Assert.assertEquals(ICertRecord.STATUS_VALID, entry.getStatus());
+        Assert.assertNull(index.get(BigInteger.ONE));
+
+        // records read afterwards are added again
+        index.add(createRecord(1, ICertRecord.STATUS_REVOKED, new Date()), index.getStamp());
+        Assert.assertEquals(ICertRecord.STATUS_REVOKED, index.get(BigInteger.ONE).getStatus());
+    }
+
+    @Test
+    public void testUpdateIsNotOverwritten() throws Exception {
+
+        index.activate(null);
+
+        long stamp = index.getStamp();
+        index.update(createRecord(1, ICertRecord.STATUS_REVOKED, new Date()));
+        index.add(createRecord(1, ICertRecord.STATUS_VALID, null), stamp);
+
+        Assert.assertEquals(ICertRecord.STATUS_REVOKED, index.get(BigInteger.ONE).getStatus());
+
+        index.update(createRecord(1, ICertRecord.STATUS_VALID, null));
+        Assert.assertEquals(ICertRecord.STATUS_VALID, index.get(BigInteger.ONE).getStatus());
+    }
+
+    @Test
+    public void testUnknownStatus() throws Exception {
+
+        index.activate(null);
+        index.add(createRecord(1, ICertRecord.STATUS_VALID, null), index.getStamp());
+
+        index.update(createRecord(1, "UNKNOWN", null));
+        Assert.assertNull(index.get(BigInteger.ONE));
+
+        index.add(createRecord(1, "UNKNOWN", null), index.getStamp());
+        Assert.assertNull(index.get(BigInteger.ONE));
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+
+        index.activate(null);
+
+        for (int i = 1; i <= 5; i++) {
+            index.add(createRecord(i, ICertRecord.STATUS_VALID, null), index.getStamp());
+        }
+
+        Assert.assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testDeactivate() throws Exception {
+
+        index.activate(null);
+        index.add(createRecord(1, ICertRecord.STATUS_VALID, null), index.getStamp());
+
+        index.deactivate();
+
+        Assert.assertFalse(index.isActive());
+        Assert.assertNull(index.get(BigInteger.ONE));
+        Assert.assertEquals(0, index.size());
+    }
+}
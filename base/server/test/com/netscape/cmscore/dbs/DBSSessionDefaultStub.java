@@ -1,5 +1,7 @@
 package com.netscape.cmscore.dbs;
 
+import java.util.Map;
+
 import com.netscape.certsrv.base.EBaseException;
 import com.netscape.certsrv.base.ISubsystem;
 import com.netscape.certsrv.dbs.EDBException;
@@ -40,6 +42,10 @@ public class DBSSessionDefaultStub implements IDBSSession {
     public void modify(String name, ModificationSet mods) throws EBaseException {
     }
 
+    public Map<String, EBaseException> modify(Map<String, ModificationSet> mods) throws EBaseException {
+        return null;
+    }
+
     public IDBSearchResults search(String base, String filter) throws EBaseException {
         return null;
     }
@@ -0,0 +1,189 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.ldap;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.netscape.cmscore.base.PropConfigStore;
+
+public class PublisherQueueTest {
+
+    PublisherQueue queue;
+
+    PublisherQueue createQueue(int maxRetries, int retryDelay, int maxRetryDelay) throws Exception {
+
+        PropConfigStore config = new PropConfigStore();
+        config.putInteger(PublisherQueue.PROP_MAX_RETRIES, maxRetries);
+        config.putInteger(PublisherQueue.PROP_RETRY_DELAY, retryDelay);
+        config.putInteger(PublisherQueue.PROP_MAX_RETRY_DELAY, maxRetryDelay);
+
+        queue = new PublisherQueue();
+        queue.init(config);
+        return queue;
+    }
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    public void testRetryDelay() throws Exception {
+
+        createQueue(5, 1000, 60000);
+
+        Assert.assertEquals(1000, queue.getRetryDelay(0));
+        Assert.assertEquals(2000, queue.getRetryDelay(1));
+        Assert.assertEquals(32000, queue.getRetryDelay(5));
+
+        // capped at the maximum delay
+        Assert.assertEquals(60000, queue.getRetryDelay(6));
+        Assert.assertEquals(60000, queue.getRetryDelay(100));
+    }
+
+    @Test
+    public void testEmptyBatch() throws Exception {
+
+        createQueue(0, 1, 1);
+        AtomicInteger completions = new AtomicInteger();
+
+        PublisherQueue.Batch batch = queue.openBatch(completions::incrementAndGet);
+        Assert.assertTrue(queue.isBatchOpen());
+
+        batch.close();
+        Assert.assertFalse(queue.isBatchOpen());
+        Assert.assertEquals(1, completions.get());
+    }
+
+    @Test
+    public void testBatchCompletesAfterAllTasks() throws Exception {
+
+        createQueue(0, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicInteger completions = new AtomicInteger();
+
+        PublisherQueue.Batch batch = queue.openBatch(() -> {
+            completions.incrementAndGet();
+            completed.countDown();
+        });
+
+        PublisherQueue.Task task = () -> release.await();
+        queue.submit("rule1", "publisher1", task, null);
+        queue.submit("rule2", "publisher2", task, null);
+        queue.submit("rule3", "publisher2", task, null);
+
+        batch.close();
+
+        // tasks are still running
+        Assert.assertFalse(completed.await(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, completions.get());
+    }
+
+    @Test
+    public void testTasksOutsideBatch() throws Exception {
+
+        createQueue(0, 1, 1);
+        AtomicInteger completions = new AtomicInteger();
+
+        PublisherQueue.Batch batch = queue.openBatch(completions::incrementAndGet);
+        batch.close();
+
+        LinkedBlockingQueue<Boolean> results = new LinkedBlockingQueue<>();
+        queue.submit("rule1", "publisher1", () -> {}, results::add);
+
+        Assert.assertEquals(Boolean.TRUE, results.poll(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, completions.get());
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+
+        createQueue(5, 1, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        LinkedBlockingQueue<Boolean> results = new LinkedBlockingQueue<>();
+
+        queue.submit("rule1", "publisher1", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new Exception("Unavailable");
+            }
+        }, results::add);
+
+        Assert.assertEquals(Boolean.TRUE, results.poll(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+
+        PublisherQueue.RuleStats stats = queue.getRuleStats("rule1");
+        Assert.assertEquals(1, stats.getSubmitted());
+        Assert.assertEquals(1, stats.getPublished());
+        Assert.assertEquals(2, stats.getRetries());
+        Assert.assertEquals(0, stats.getFailures());
+        Assert.assertEquals(0, stats.getPending());
+    }
+
+    @Test
+    public void testFailureAfterMaxRetries() throws Exception {
+
+        createQueue(2, 1, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        LinkedBlockingQueue<Boolean> results = new LinkedBlockingQueue<>();
+
+        queue.submit("rule1", "publisher1", () -> {
+            attempts.incrementAndGet();
+            throw new Exception("Unavailable");
+        }, results::add);
+
+        Assert.assertEquals(Boolean.FALSE, results.poll(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+
+        PublisherQueue.RuleStats stats = queue.getRuleStats("rule1");
+        Assert.assertEquals(0, stats.getPublished());
+        Assert.assertEquals(2, stats.getRetries());
+        Assert.assertEquals(1, stats.getFailures());
+        Assert.assertEquals(0, stats.getPending());
+        Assert.assertEquals("Unavailable", stats.getLastError());
+    }
+
+    @Test
+    public void testFailedTaskCompletesBatch() throws Exception {
+
+        createQueue(0, 1, 1);
+        CountDownLatch completed = new CountDownLatch(1);
+
+        try (PublisherQueue.Batch batch = queue.openBatch(completed::countDown)) {
+            queue.submit("rule1", "publisher1", () -> {
+                throw new Exception("Unavailable");
+            }, null);
+        }
+
+        Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, queue.getRuleStats("rule1").getFailures());
+    }
+}
@@ -0,0 +1,216 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.selftests;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netscape.certsrv.selftests.ESelfTestException;
+
+public class SelfTestRunTest {
+
+    ExecutorService executor;
+    SelfTestRun run;
+    List<String> started = new CopyOnWriteArrayList<String>();
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        run = new SelfTestRun(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    SelfTestRun.Task pass(String name) {
+        return () -> started.add(name);
+    }
+
+    SelfTestRun.Task fail(String name) {
+        return () -> {
+            started.add(name);
+            throw new Exception(name + " failed");
+        };
+    }
+
+    Throwable getError(String name) throws Exception {
+        CompletableFuture<Void> result = run.getResults().get(name);
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (CancellationException e) {
+            return e;
+        }
+    }
+
+    @Test
+    public void testResultsInOrder() throws Exception {
+
+        run.submit("test1", Collections.<String>emptyList(), false, pass("test1"));
+        run.submit("test2", Collections.<String>emptyList(), false, pass("test2"));
+        run.submit("test3", Collections.<String>emptyList(), false, pass("test3"));
+
+        Assert.assertEquals(Arrays.asList("test1", "test2", "test3"),
+                Arrays.asList(run.getResults().keySet().toArray()));
+
+        Assert.assertNull(getError("test1"));
+        Assert.assertNull(getError("test2"));
+        Assert.assertNull(getError("test3"));
+    }
+
+    @Test
+    public void testDependencyOrder() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+
+        run.submit("presence", Collections.<String>emptyList(), true, () -> {
+            release.await();
+            started.add("presence");
+        });
+        run.submit("validity", Arrays.asList("presence"), true, pass("validity"));
+
+        // the dependent self test waits for its dependency
+        Thread.sleep(100);
+        Assert.assertTrue(started.isEmpty());
+
+        release.countDown();
+
+        Assert.assertNull(getError("validity"));
+        Assert.assertEquals(Arrays.asList("presence", "validity"), started);
+    }
+
+    @Test
+    public void testDependencyFailed() throws Exception {
+
+        run.submit("presence", Collections.<String>emptyList(), false, fail("presence"));
+        run.submit("validity", Arrays.asList("presence"), false, pass("validity"));
+        run.submit("other", Collections.<String>emptyList(), false, pass("other"));
+
+        Assert.assertEquals("presence failed", getError("presence").getMessage());
+        Assert.assertTrue(getError("validity") instanceof ESelfTestException);
+        Assert.assertNull(getError("other"));
+
+        Assert.assertFalse(started.contains("validity"));
+        Assert.assertFalse(run.isCancelled());
+    }
+
+    @Test
+    public void testSkippedDependency() throws Exception {
+
+        run.submit("test1", Collections.<String>emptyList(), false, fail("test1"));
+        run.submit("test2", Arrays.asList("test1"), false, pass("test2"));
+        run.submit("test3", Arrays.asList("test2"), false, pass("test3"));
+
+        Assert.assertTrue(getError("test2") instanceof ESelfTestException);
+        Assert.assertTrue(getError("test3") instanceof ESelfTestException);
+        Assert.assertEquals(Arrays.asList("test1"), started);
+    }
+
+    @Test
+    public void testUnknownDependency() throws Exception {
+
+        // dependencies that are not submitted before are ignored
+        run.submit("test1", Arrays.asList("test2"), false, pass("test1"));
+        run.submit("test2", Collections.<String>emptyList(), false, pass("test2"));
+
+        Assert.assertNull(getError("test1"));
+        Assert.assertNull(getError("test2"));
+    }
+
+    @Test
+    public void testCriticalFailure() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+
+        run.submit("presence", Collections.<String>emptyList(), true, () -> {
+            release.await();
+            started.add("presence");
+            throw new Exception("presence failed");
+        });
+        run.submit("validity", Arrays.asList("presence"), false, pass("validity"));
+        run.submit("other", Arrays.asList("presence"), true, pass("other"));
+
+        release.countDown();
+
+        Assert.assertEquals("presence failed", getError("presence").getMessage());
+        Assert.assertTrue(getError("validity") instanceof CancellationException);
+        Assert.assertTrue(getError("other") instanceof CancellationException);
+
+        Assert.assertTrue(run.isCancelled());
+        Assert.assertEquals(Arrays.asList("presence"), started);
+    }
+
+    @Test
+    public void testCriticalFailureStopsQueuedTests() throws Exception {
+
+        // single thread, so the other self tests are queued
+        executor.shutdownNow();
+        executor = Executors.newSingleThreadExecutor();
+        run = new SelfTestRun(executor);
+
+        run.submit("test1", Collections.<String>emptyList(), true, fail("test1"));
+        run.submit("test2", Collections.<String>emptyList(), false, pass("test2"));
+        run.submit("test3", Collections.<String>emptyList(), true, pass("test3"));
+
+        Assert.assertEquals("test1 failed", getError("test1").getMessage());
+        Assert.assertTrue(getError("test2") instanceof CancellationException);
+        Assert.assertTrue(getError("test3") instanceof CancellationException);
+        Assert.assertEquals(Arrays.asList("test1"), started);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        run.submit("test1", Collections.<String>emptyList(), false, () -> {
+            running.countDown();
+            release.await();
+            started.add("test1");
+        });
+        run.submit("test2", Arrays.asList("test1"), false, pass("test2"));
+
+        Assert.assertTrue(running.await(10, TimeUnit.SECONDS));
+        run.cancel();
+        release.countDown();
+
+        // running self tests complete, pending ones do not start
+        Assert.assertNull(getError("test1"));
+        Assert.assertTrue(getError("test2") instanceof CancellationException);
+        Assert.assertEquals(Arrays.asList("test1"), started);
+    }
+}
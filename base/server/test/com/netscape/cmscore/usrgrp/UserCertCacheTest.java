@@ -0,0 +1,136 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmscore.usrgrp;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netscape.certsrv.usrgrp.IUser;
+
+public class UserCertCacheTest {
+
+    UserCertCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new UserCertCache(null, "ou=people,dc=example,dc=com");
+        cache.init(300, 3);
+        cache.active = true;
+    }
+
+    @Test
+    public void testInactive() throws Exception {
+
+        cache.active = false;
+        cache.put("uid:1", new User(null, "user1"), cache.getGeneration());
+
+        Assert.assertNull(cache.get("uid:1"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPut() throws Exception {
+
+        IUser user = new User(null, "user1");
+        cache.put("uid:1", user, cache.getGeneration());
+
+        Assert.assertSame(user, cache.get("uid:1"));
+        Assert.assertNull(cache.get("uid:2"));
+    }
+
+    @Test
+    public void testStaleGeneration() throws Exception {
+
+        // lookup started before the user was changed
+        long generation = cache.getGeneration();
+        cache.invalidate("user1");
+
+        cache.put("uid:1", new User(null, "user1"), generation);
+        Assert.assertNull(cache.get("uid:1"));
+        Assert.assertEquals(0, cache.size());
+
+        // lookups started afterwards are cached
+        IUser user = new User(null, "user1");
+        cache.put("uid:1", user, cache.getGeneration());
+        Assert.assertSame(user, cache.get("uid:1"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        cache.put("uid:1", new User(null, "user1"), cache.getGeneration());
+        cache.put("description:1", new User(null, "user1"), cache.getGeneration());
+        cache.put("uid:2", new User(null, "user2"), cache.getGeneration());
+
+        long generation = cache.getGeneration();
+        cache.invalidate("user1");
+
+        Assert.assertTrue(cache.getGeneration() > generation);
+        Assert.assertNull(cache.get("uid:1"));
+        Assert.assertNull(cache.get("description:1"));
+        Assert.assertNotNull(cache.get("uid:2"));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+
+        cache.put("uid:1", new User(null, "user1"), cache.getGeneration());
+
+        long generation = cache.getGeneration();
+        cache.clear();
+
+        Assert.assertTrue(cache.getGeneration() > generation);
+        Assert.assertEquals(0, cache.size());
+
+        cache.put("uid:1", new User(null, "user1"), generation);
+        Assert.assertNull(cache.get("uid:1"));
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+
+        cache.init(0, 3);
+        cache.put("uid:1", new User(null, "user1"), cache.getGeneration());
+
+        Assert.assertNull(cache.get("uid:1"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+
+        for (int i = 1; i <= 5; i++) {
+            cache.put("uid:" + i, new User(null, "user" + i), cache.getGeneration());
+        }
+
+        Assert.assertEquals(3, cache.size());
+        Assert.assertNotNull(cache.get("uid:1"));
+        Assert.assertNull(cache.get("uid:5"));
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+
+        cache.put("uid:1", new User(null, "user1"), cache.getGeneration());
+        cache.shutdown();
+
+        Assert.assertNull(cache.get("uid:1"));
+        Assert.assertEquals(0, cache.size());
+    }
+}
@@ -14,6 +14,7 @@ import org.dogtagpki.server.rest.MessageFormatInterceptor;
 import org.dogtagpki.server.rest.PKIExceptionMapper;
 import org.dogtagpki.server.rest.SelfTestService;
 import org.dogtagpki.server.rest.SessionContextInterceptor;
+import org.dogtagpki.server.rest.StatsService;
 import org.dogtagpki.server.rest.UserService;
 
 public class TKSApplication extends Application {
@@ -35,6 +36,9 @@ public class TKSApplication extends Application {
         // selftests
         classes.add(SelfTestService.class);
 
+        // statistics
+        classes.add(StatsService.class);
+
         // user and group management
         classes.add(GroupService.class);
         classes.add(UserService.class);
@@ -30,6 +30,7 @@ import org.dogtagpki.server.rest.MessageFormatInterceptor;
 import org.dogtagpki.server.rest.PKIExceptionMapper;
 import org.dogtagpki.server.rest.SelfTestService;
 import org.dogtagpki.server.rest.SessionContextInterceptor;
+import org.dogtagpki.server.rest.StatsService;
 import org.dogtagpki.server.rest.UserService;
 import org.dogtagpki.server.tps.TPSAccountService;
 import org.dogtagpki.server.tps.config.ConfigService;
@@ -79,6 +80,9 @@ public class TPSApplication extends Application {
         // selftests
         classes.add(SelfTestService.class);
 
+        // statistics
+        classes.add(StatsService.class);
+
         // tokens
         classes.add(TokenService.class);
 
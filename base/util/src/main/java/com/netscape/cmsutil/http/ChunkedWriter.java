@@ -0,0 +1,110 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2007 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmsutil.http;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes content using HTTP chunked transfer encoding.
+ * Content is buffered and sent in chunks of at most
+ * CHUNK_SIZE characters.
+ */
+public class ChunkedWriter extends Writer {
+
+    public static final int CHUNK_SIZE = 8192;
+
+    protected OutputStreamWriter mWriter;
+    protected Charset mCharset;
+    protected char[] mBuffer = new char[CHUNK_SIZE];
+    protected int mCount = 0;
+    protected boolean mFinished = false;
+
+    public ChunkedWriter(OutputStreamWriter writer) {
+        mWriter = writer;
+        mCharset = Charset.forName(writer.getEncoding());
+    }
+
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (mFinished) {
+            throw new IOException("Chunked content already finished");
+        }
+        while (len > 0) {
+            int n = Math.min(len, mBuffer.length - mCount);
+            System.arraycopy(cbuf, off, mBuffer, mCount, n);
+            mCount += n;
+            off += n;
+            len -= n;
+            if (mCount == mBuffer.length) {
+                writeChunk();
+            }
+        }
+    }
+
+    /**
+     * Sends the buffered characters as one chunk.
+     * The chunk size is the encoded length in bytes.
+     */
+    protected void writeChunk() throws IOException {
+        int len = mCount;
+
+        // don't split a surrogate pair across chunks
+        if (len > 0 && len == mBuffer.length && Character.isHighSurrogate(mBuffer[len - 1])) {
+            len--;
+        }
+
+        if (len == 0) {
+            return;
+        }
+
+        String chunk = new String(mBuffer, 0, len);
+        int size = chunk.getBytes(mCharset).length;
+
+        mWriter.write(Integer.toHexString(size) + Http.CRLF);
+        mWriter.write(chunk);
+        mWriter.write(Http.CRLF);
+
+        System.arraycopy(mBuffer, len, mBuffer, 0, mCount - len);
+        mCount -= len;
+    }
+
+    public void flush() throws IOException {
+        writeChunk();
+        mWriter.flush();
+    }
+
+    /**
+     * Sends the remaining content and the last chunk.
+     * The underlying writer is not closed.
+     */
+    public void finish() throws IOException {
+        if (mFinished) {
+            return;
+        }
+        writeChunk();
+        mWriter.write("0" + Http.CRLF + Http.CRLF);
+        mWriter.flush();
+        mFinished = true;
+    }
+
+    public void close() throws IOException {
+        finish();
+    }
+}
@@ -17,6 +17,7 @@
 // --- END COPYRIGHT BLOCK ---
 package com.netscape.cmsutil.http;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,11 +42,18 @@ public class HttpClient {
     protected InputStream mInputStream = null;
     protected OutputStream mOutputStream = null;
 
+    // responses are parsed in bytes from this stream; it stays
+    // with the connection so buffered bytes are not lost between
+    // requests on a kept-alive connection
+    protected BufferedInputStream mBufferedInputStream = null;
+
     protected InputStreamReader mInputStreamReader = null;
     protected OutputStreamWriter mOutputStreamWriter = null;
     protected BufferedReader mBufferedReader = null;
     protected SSLCertificateApprovalCallback mCertApprovalCallback = null;
     protected boolean mConnected = false;
+    protected boolean mKeepAlive = false;
+    protected long mLastUsed = 0;
     // for auditing purposes
     protected String mHost;
     protected String mPort;
@@ -87,10 +95,12 @@ public class HttpClient {
 
         mInputStream = mSocket.getInputStream();
         mOutputStream = mSocket.getOutputStream();
+        mBufferedInputStream = new BufferedInputStream(mInputStream);
         mInputStreamReader = new InputStreamReader(mInputStream, "UTF8");
         mBufferedReader = new BufferedReader(mInputStreamReader);
         mOutputStreamWriter = new OutputStreamWriter(mOutputStream, "UTF8");
         mConnected = true;
+        mLastUsed = System.currentTimeMillis();
     }
 
     public void connect(String host, int port) throws IOException {
@@ -101,6 +111,26 @@ public class HttpClient {
         return mConnected;
     }
 
+    /**
+     * If enabled, the connection is kept open after a response
+     * that allows it so that it can be reused for the next request.
+     * Otherwise the connection is closed after each response.
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        mKeepAlive = keepAlive;
+    }
+
+    public boolean isKeepAlive() {
+        return mKeepAlive;
+    }
+
+    /**
+     * Returns the time (in milliseconds) the connection was last used.
+     */
+    public long getLastUsed() {
+        return mLastUsed;
+    }
+
     /**
      * Sends a request to http server.
      * Returns a http response.
@@ -109,24 +139,37 @@ public class HttpClient {
             throws IOException {
         HttpResponse resp = new HttpResponse();
 
-        if (mOutputStream == null)
+        if (mOutputStream == null || mBufferedInputStream == null)
             throw new IOException("Output stream not initialized");
-        request.write(mOutputStreamWriter);
         try {
-            resp.parse(mBufferedReader);
+            request.write(mOutputStreamWriter);
+        } catch (IOException e) {
+            // the server may have closed a kept-alive connection
+            disconnect();
+            throw e;
+        }
+        try {
+            resp.parse(mBufferedInputStream);
         } catch (IOException e) {
             // XXX should we disconnect in all cases ?
             disconnect();
             throw e;
         }
-        disconnect();
+        mLastUsed = System.currentTimeMillis();
+        if (!mKeepAlive || !resp.isPersistent()) {
+            disconnect();
+        }
         return resp;
     }
 
     public void disconnect()
             throws IOException {
+        mConnected = false;
+        if (mSocket == null)
+            return;
         mSocket.close();
         mInputStream = null;
+        mBufferedInputStream = null;
         mOutputStream = null;
         mConnected = false;
     }
@@ -0,0 +1,174 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2007 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmsutil.http;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Supplier;
+
+import com.netscape.cmsutil.net.ISocketFactory;
+
+/**
+ * Pool of persistent (keep-alive) HTTP client connections.
+ *
+ * Idle connections are kept per host and port and reused by
+ * subsequent requests, so a new TCP connection and TLS handshake
+ * is only needed when no idle connection is available. NSS caches
+ * the TLS session of each server, so new connections to the same
+ * server resume the previous session instead of doing a full
+ * handshake.
+ *
+ * The pool is thread-safe. Each client is used by a single thread
+ * between getClient() and returnClient().
+ */
+public class HttpClientPool {
+
+    public static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HttpClientPool.class);
+
+    public static final int DEFAULT_MAX_IDLE = 4;
+    public static final long DEFAULT_IDLE_TIMEOUT = 15000; // milliseconds
+
+    protected Supplier<ISocketFactory> mFactorySupplier;
+    protected int mMaxIdle = DEFAULT_MAX_IDLE;
+    protected long mIdleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    protected Map<String, ConcurrentLinkedDeque<HttpClient>> mIdleClients =
+            new ConcurrentHashMap<String, ConcurrentLinkedDeque<HttpClient>>();
+
+    /**
+     * @param factorySupplier creates a socket factory for each new
+     *            connection (null for plain sockets)
+     */
+    public HttpClientPool(Supplier<ISocketFactory> factorySupplier) {
+        mFactorySupplier = factorySupplier;
+    }
+
+    /**
+     * @param factorySupplier creates a socket factory for each new
+     *            connection (null for plain sockets)
+     * @param maxIdle maximum number of idle connections per server
+     * @param idleTimeout idle connections older than this (in milliseconds)
+     *            are closed instead of reused, since the server has most
+     *            likely closed them already
+     */
+    public HttpClientPool(Supplier<ISocketFactory> factorySupplier, int maxIdle, long idleTimeout) {
+        mFactorySupplier = factorySupplier;
+        mMaxIdle = maxIdle;
+        mIdleTimeout = idleTimeout;
+    }
+
+    protected String getKey(String host, int port) {
+        return host + ":" + port;
+    }
+
+    protected ConcurrentLinkedDeque<HttpClient> getIdleClients(String key) {
+        return mIdleClients.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<HttpClient>());
+    }
+
+    /**
+     * Returns a connected client for the given server, reusing an idle
+     * connection if available. The client must be given back with
+     * returnClient() when the request is complete.
+     *
+     * @param host server hostname
+     * @param port server port
+     * @param timeout connect and read timeout (in milliseconds)
+     */
+    public HttpClient getClient(String host, int port, int timeout) throws IOException {
+
+        ConcurrentLinkedDeque<HttpClient> idleClients = getIdleClients(getKey(host, port));
+        long now = System.currentTimeMillis();
+
+        HttpClient client;
+        while ((client = idleClients.pollFirst()) != null) {
+            if (client.connected() && now - client.getLastUsed() < mIdleTimeout) {
+                logger.debug("HttpClientPool: reusing connection to " + host + ":" + port);
+                return client;
+            }
+            close(client);
+        }
+
+        logger.debug("HttpClientPool: creating connection to " + host + ":" + port);
+
+        ISocketFactory factory = mFactorySupplier == null ? null : mFactorySupplier.get();
+        client = new HttpClient(factory);
+        client.setKeepAlive(true);
+        client.connect(host, port, timeout);
+
+        return client;
+    }
+
+    /**
+     * Gives a client back to the pool. The connection is kept for reuse
+     * if it is still open, otherwise it is discarded.
+     */
+    public void returnClient(HttpClient client) {
+
+        if (client == null) {
+            return;
+        }
+
+        if (!client.connected()) {
+            return;
+        }
+
+        ConcurrentLinkedDeque<HttpClient> idleClients =
+                getIdleClients(getKey(client.getHost(), Integer.parseInt(client.getPort())));
+
+        if (idleClients.size() >= mMaxIdle) {
+            close(client);
+            return;
+        }
+
+        idleClients.offerFirst(client);
+    }
+
+    /**
+     * Discards a client whose connection is in an unknown state,
+     * e.g. after a failed request.
+     */
+    public void invalidateClient(HttpClient client) {
+        if (client != null) {
+            close(client);
+        }
+    }
+
+    protected void close(HttpClient client) {
+        try {
+            client.disconnect();
+        } catch (IOException e) {
+            logger.debug("HttpClientPool: unable to close connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    public void shutdown() {
+        for (ConcurrentLinkedDeque<HttpClient> idleClients : mIdleClients.values()) {
+            Iterator<HttpClient> i = idleClients.iterator();
+            while (i.hasNext()) {
+                close(i.next());
+                i.remove();
+            }
+        }
+    }
+}
@@ -18,9 +18,13 @@
 package com.netscape.cmsutil.http;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
@@ -30,9 +34,13 @@ import java.util.Hashtable;
  * Set fields or parse from input.
  */
 public class HttpMessage {
+
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+
     protected String mLine = null; // request or response line.
     protected Hashtable<String, String> mHeaders = null;
     protected String mContent = null; // arbitrary content chars assumed.
+    protected HttpContentWriter mContentWriter = null; // streamed content.
 
     /**
      * Instantiate a HttpResponse for write to http client.
@@ -110,12 +118,25 @@ public class HttpMessage {
         writer.write(mLine + Http.CRLF);
         writeHeaders(writer);
         writer.flush();
-        if (mContent != null) {
+        if (mContentWriter != null) {
+            // content is sent with chunked transfer encoding
+            ChunkedWriter chunkedWriter = new ChunkedWriter(writer);
+            mContentWriter.write(chunkedWriter);
+            chunkedWriter.finish();
+        } else if (mContent != null) {
             writer.write(mContent);
         }
         writer.flush();
     }
 
+    /**
+     * Parses a message from a character stream.
+     *
+     * @deprecated Content-Length and chunk sizes count bytes, so the
+     * body of a non-ASCII message cannot be delimited on a character
+     * stream. Use {@link #parse(InputStream)} instead.
+     */
+    @Deprecated
     public void parse(BufferedReader reader)
             throws IOException {
         String line = reader.readLine();
@@ -132,7 +153,10 @@ public class HttpMessage {
         // won't work if content length is not set.
         String lenstr = mHeaders.get("content-length");
 
-        if (lenstr != null) {
+        if (isChunked()) {
+            throw new HttpProtocolException("Chunked content is not supported on a character stream");
+
+        } else if (lenstr != null) {
             int len = Integer.parseInt(lenstr);
             char[] cbuf = new char[len];
             int done = reader.read(cbuf, 0, cbuf.length);
@@ -155,10 +179,222 @@ public class HttpMessage {
         }
     }
 
+    /**
+     * read http headers from a byte stream.
+     * does not support values of more than one line or multivalue headers.
+     */
+    public void readHeaders(InputStream in)
+            throws IOException {
+        mHeaders = new Hashtable<String, String>();
+
+        int colon;
+        String line, key, value;
+
+        while (true) {
+            line = readLine(in);
+            if (line == null || line.equals(""))
+                break;
+            colon = line.indexOf(':');
+            if (colon == -1) {
+                mHeaders = null;
+                throw new HttpProtocolException("Bad Http header format");
+            }
+            key = line.substring(0, colon);
+            value = line.substring(colon + 1);
+            mHeaders.put(key.toLowerCase(), value.trim());
+        }
+    }
+
+    /**
+     * Parses a message from a byte stream.
+     *
+     * The message framing (Content-Length and chunk sizes) counts
+     * bytes, so the body is read in bytes and decoded once it is
+     * complete. Nothing past the end of the message is consumed, so
+     * the stream can be used for the next message on a persistent
+     * connection. The stream should be buffered.
+     */
+    public void parse(InputStream in)
+            throws IOException {
+        String line = readLine(in);
+
+        if (line == null) {
+            throw new HttpEofException("End of stream reached");
+        }
+        if (line.equals("")) {
+            throw new HttpProtocolException("Bad Http req/resp line " + line);
+        }
+        mLine = line;
+        readHeaders(in);
+
+        String lenstr = mHeaders.get("content-length");
+
+        if (isChunked()) {
+            mContent = new String(readChunkedContent(in), CHARSET);
+
+        } else if (lenstr != null) {
+            int len;
+            try {
+                len = Integer.parseInt(lenstr.trim());
+            } catch (NumberFormatException e) {
+                throw new HttpProtocolException("Bad content length " + lenstr);
+            }
+            if (len < 0) {
+                throw new HttpProtocolException("Bad content length " + lenstr);
+            }
+
+            mContent = new String(readFully(in, len), CHARSET);
+
+        } else {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = in.read(buf)) != -1) {
+                out.write(buf, 0, bytesRead);
+            }
+            if (out.size() > 0) mContent = new String(out.toByteArray(), CHARSET);
+        }
+    }
+
+    /**
+     * read a message body sent with chunked transfer encoding.
+     * chunk extensions and trailers are ignored.
+     */
+    protected byte[] readChunkedContent(InputStream in)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        while (true) {
+            String line = readLine(in);
+            if (line == null) {
+                throw new HttpEofException("End of stream reached in chunked content");
+            }
+
+            int ext = line.indexOf(';');
+            if (ext != -1) {
+                line = line.substring(0, ext);
+            }
+
+            int len;
+            try {
+                len = Integer.parseInt(line.trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new HttpProtocolException("Bad chunk size " + line);
+            }
+            if (len < 0) {
+                throw new HttpProtocolException("Bad chunk size " + line);
+            }
+
+            if (len == 0) {
+                // skip trailers up to the terminating empty line
+                while (true) {
+                    line = readLine(in);
+                    if (line == null) {
+                        throw new HttpEofException("End of stream reached in chunked content");
+                    }
+                    if (line.equals("")) {
+                        break;
+                    }
+                }
+                break;
+            }
+
+            out.write(readFully(in, len));
+
+            // CRLF after chunk data
+            line = readLine(in);
+            if (line == null) {
+                throw new HttpEofException("End of stream reached in chunked content");
+            }
+            if (!line.equals("")) {
+                throw new HttpProtocolException("Missing CRLF after chunk data");
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads a line terminated by LF (optionally preceded by CR).
+     *
+     * @return the line without the terminator, or null if the end of
+     * the stream is reached before any byte is read
+     */
+    protected static String readLine(InputStream in)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                if (out.size() == 0) {
+                    return null;
+                }
+                break;
+            }
+            if (b == '\n') {
+                break;
+            }
+            out.write(b);
+        }
+
+        byte[] bytes = out.toByteArray();
+        int len = bytes.length;
+        if (len > 0 && bytes[len - 1] == '\r') {
+            len--;
+        }
+
+        return new String(bytes, 0, len, CHARSET);
+    }
+
+    /**
+     * Reads exactly len bytes.
+     */
+    protected static byte[] readFully(InputStream in, int len)
+            throws IOException {
+        byte[] buf = new byte[len];
+        int total = 0;
+
+        while (total < len) {
+            int done = in.read(buf, total, len - total);
+            if (done < 0) {
+                throw new HttpEofException("End of stream reached in message body");
+            }
+            total += done;
+        }
+
+        return buf;
+    }
+
+    /**
+     * Returns true if the message body uses chunked transfer encoding.
+     */
+    public boolean isChunked() {
+        if (mHeaders == null)
+            return false;
+        String encoding = mHeaders.get("transfer-encoding");
+        return encoding != null && encoding.toLowerCase().contains("chunked");
+    }
+
+    /**
+     * Returns true if the connection can be reused after this message,
+     * i.e. the body is delimited by Content-Length or chunked encoding
+     * and the peer did not ask to close the connection.
+     */
+    public boolean isPersistent() {
+        if (mHeaders == null)
+            return false;
+        String connection = mHeaders.get("connection");
+        if (connection != null && connection.equalsIgnoreCase("close"))
+            return false;
+        return isChunked() || mHeaders.get("content-length") != null;
+    }
+
     public void reset() {
         mLine = null;
         mHeaders = null;
         mContent = null;
+        mContentWriter = null;
     }
 
     public void setContent(String content) {
@@ -169,4 +405,20 @@ public class HttpMessage {
         return mContent;
     }
 
+    /**
+     * Set a writer that streams the content when the message is
+     * written. The message is then sent with chunked transfer encoding,
+     * so no Content-Length header is needed.
+     */
+    public void setContentWriter(HttpContentWriter contentWriter) {
+        mContentWriter = contentWriter;
+        if (contentWriter != null) {
+            setHeader("Transfer-Encoding", "chunked");
+        }
+    }
+
+    public HttpContentWriter getContentWriter() {
+        return mContentWriter;
+    }
+
 }
@@ -19,6 +19,7 @@ package com.netscape.cmsutil.http;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 
 /**
@@ -60,6 +61,18 @@ public class HttpRequest extends HttpMessage {
         mURI = uri;
     }
 
+    /**
+     * set http version of the request line.
+     * Defaults to Http.HttpVers if not set.
+     */
+    public void setHttpVers(String httpVers)
+            throws HttpProtocolException {
+        if (!httpVers.equals(Http.Vers1_0) &&
+                !httpVers.equals(Http.Vers1_1))
+            throw new HttpProtocolException("Bad Http version " + httpVers);
+        mHttpVers = httpVers;
+    }
+
     /**
      * write request to the http client
      */
@@ -73,16 +86,34 @@ public class HttpRequest extends HttpMessage {
             throw e;
         }
 
-        mLine = mMethod + " " + mURI + " " + Http.HttpVers;
+        String httpVers = mHttpVers == null ? Http.HttpVers : mHttpVers;
+        mLine = mMethod + " " + mURI + " " + httpVers;
         super.write(writer);
     }
 
     /**
      * parse a http request from a http client
+     *
+     * @deprecated Use {@link #parse(InputStream)} instead.
      */
+    @Deprecated
     public void parse(BufferedReader reader)
             throws IOException {
         super.parse(reader);
+        parseRequestLine();
+    }
+
+    /**
+     * parse a http request from a http client
+     */
+    public void parse(InputStream in)
+            throws IOException {
+        super.parse(in);
+        parseRequestLine();
+    }
+
+    protected void parseRequestLine()
+            throws IOException {
 
         int method = mLine.indexOf(Http.SP);
 
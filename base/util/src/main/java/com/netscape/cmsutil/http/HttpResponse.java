@@ -19,6 +19,7 @@ package com.netscape.cmsutil.http;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 
 /**
@@ -84,7 +85,10 @@ public class HttpResponse extends HttpMessage {
 
     /**
      * parse a http response from a http server
+     *
+     * @deprecated Use {@link #parse(InputStream)} instead.
      */
+    @Deprecated
     public void parse(BufferedReader reader)
             throws IOException {
         mHttpVers = null;
@@ -92,6 +96,24 @@ public class HttpResponse extends HttpMessage {
         mReasonPhrase = null;
 
         super.parse(reader);
+        parseStatusLine();
+    }
+
+    /**
+     * parse a http response from a http server
+     */
+    public void parse(InputStream in)
+            throws IOException {
+        mHttpVers = null;
+        mStatusCode = null;
+        mReasonPhrase = null;
+
+        super.parse(in);
+        parseStatusLine();
+    }
+
+    protected void parseStatusLine()
+            throws IOException {
 
         int httpvers = mLine.indexOf(' ');
 
@@ -0,0 +1,113 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmsutil.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkedWriterTest {
+
+    byte[] encode(String content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        ChunkedWriter chunkedWriter = new ChunkedWriter(writer);
+        chunkedWriter.write(content);
+        chunkedWriter.finish();
+        return out.toByteArray();
+    }
+
+    String decode(byte[] bytes) throws Exception {
+        HttpMessage message = new HttpMessage();
+        byte[] content = message.readChunkedContent(new ByteArrayInputStream(bytes));
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void testASCII() throws Exception {
+        byte[] bytes = encode("hello");
+        Assert.assertEquals("5\r\nhello\r\n0\r\n\r\n", new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        byte[] bytes = encode("");
+        Assert.assertEquals("0\r\n\r\n", new String(bytes, StandardCharsets.UTF_8));
+        Assert.assertEquals("", decode(bytes));
+    }
+
+    @Test
+    public void testChunkSizeCountsBytes() throws Exception {
+        // 5 characters, 7 bytes in UTF-8
+        String content = "M\u00fcll\u00e9";
+        byte[] bytes = encode(content);
+        Assert.assertEquals("7\r\n" + content + "\r\n0\r\n\r\n", new String(bytes, StandardCharsets.UTF_8));
+        Assert.assertEquals(content, decode(bytes));
+    }
+
+    @Test
+    public void testMultipleChunks() throws Exception {
+        String content = repeat('a', ChunkedWriter.CHUNK_SIZE * 2 + 10);
+        byte[] bytes = encode(content);
+
+        String prefix = Integer.toHexString(ChunkedWriter.CHUNK_SIZE) + "\r\n";
+        Assert.assertTrue(new String(bytes, StandardCharsets.UTF_8).startsWith(prefix));
+        Assert.assertEquals(content, decode(bytes));
+    }
+
+    @Test
+    public void testMultibyteAcrossChunks() throws Exception {
+        String content = repeat('\u00e9', ChunkedWriter.CHUNK_SIZE + 1);
+        byte[] bytes = encode(content);
+
+        String prefix = Integer.toHexString(ChunkedWriter.CHUNK_SIZE * 2) + "\r\n";
+        Assert.assertTrue(new String(bytes, StandardCharsets.UTF_8).startsWith(prefix));
+        Assert.assertEquals(content, decode(bytes));
+    }
+
+    @Test
+    public void testSurrogatePairNotSplit() throws Exception {
+        // the surrogate pair starts at the last position of the buffer
+        String content = repeat('a', ChunkedWriter.CHUNK_SIZE - 1) + "\ud83d\ude00" + "b";
+        byte[] bytes = encode(content);
+
+        // first chunk only contains the ASCII characters
+        String prefix = Integer.toHexString(ChunkedWriter.CHUNK_SIZE - 1) + "\r\n";
+        Assert.assertTrue(new String(bytes, StandardCharsets.UTF_8).startsWith(prefix));
+        Assert.assertEquals(content, decode(bytes));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testWriteAfterFinish() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedWriter chunkedWriter = new ChunkedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        chunkedWriter.finish();
+        chunkedWriter.write("hello");
+    }
+}
@@ -0,0 +1,192 @@
+// --- BEGIN COPYRIGHT BLOCK ---
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; version 2 of the License.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, write to the Free Software Foundation, Inc.,
+// 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+//
+// (C) 2026 Red Hat, Inc.
+// All rights reserved.
+// --- END COPYRIGHT BLOCK ---
+package com.netscape.cmsutil.http;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Parsing of HTTP responses from a byte stream, including
+ * several responses on the same (persistent) connection.
+ */
+public class HttpMessageTest {
+
+    static final String SUBJECT = "CN=J\u00fcrgen M\u00fcller,O=\u00c9xample";
+
+    InputStream stream(byte[]... parts) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part);
+        }
+        return new BufferedInputStream(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testContentLengthCountsBytes() throws Exception {
+        byte[] body = bytes(SUBJECT);
+        InputStream in = stream(
+                bytes("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n"),
+                body,
+                bytes("HTTP/1.1 404 Not Found\r\nContent-Length: 4\r\n\r\nnone"));
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertEquals("200", resp.getStatusCode());
+        Assert.assertEquals(SUBJECT, resp.getContent());
+        Assert.assertTrue(resp.isPersistent());
+
+        // the next response on the same connection is intact
+        resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertEquals("404", resp.getStatusCode());
+        Assert.assertEquals("Not Found", resp.getReasonPhrase());
+        Assert.assertEquals("none", resp.getContent());
+    }
+
+    @Test
+    public void testChunked() throws Exception {
+        byte[] body = bytes(SUBJECT);
+        InputStream in = stream(
+                bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"),
+                bytes(Integer.toHexString(body.length) + "\r\n"),
+                body,
+                bytes("\r\n0\r\n\r\n"),
+                bytes("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok"));
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertTrue(resp.isChunked());
+        Assert.assertTrue(resp.isPersistent());
+        Assert.assertEquals(SUBJECT, resp.getContent());
+
+        resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertEquals("ok", resp.getContent());
+    }
+
+    @Test
+    public void testMultibyteCharacterSplitAcrossChunks() throws Exception {
+        // U+00FC is encoded as 0xc3 0xbc, split between two chunks
+        byte[] body = bytes("M\u00fcller");
+        InputStream in = stream(
+                bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n2\r\n"),
+                new byte[] { body[0], body[1] },
+                bytes("\r\n" + Integer.toHexString(body.length - 2) + "\r\n"),
+                Arrays.copyOfRange(body, 2, body.length),
+                bytes("\r\n0\r\n\r\n"));
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertEquals("M\u00fcller", resp.getContent());
+    }
+
+    @Test
+    public void testChunkExtensionsAndTrailers() throws Exception {
+        InputStream in = stream(bytes(
+                "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;name=value\r\nhello\r\n"
+                + "6 ; other\r\n world\r\n"
+                + "0;last\r\n"
+                + "X-Checksum: abc\r\nX-Other: def\r\n\r\n"
+                + "HTTP/1.1 204 No Content\r\nContent-Length: 0\r\n\r\n"));
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertEquals("hello world", resp.getContent());
+
+        resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertEquals("204", resp.getStatusCode());
+        Assert.assertEquals("", resp.getContent());
+    }
+
+    @Test
+    public void testBodyUntilEndOfStream() throws Exception {
+        InputStream in = stream(bytes("HTTP/1.0 200 OK\r\n\r\n" + SUBJECT));
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertFalse(resp.isPersistent());
+        Assert.assertEquals(SUBJECT, resp.getContent());
+    }
+
+    @Test
+    public void testConnectionClose() throws Exception {
+        InputStream in = stream(bytes("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\nok"));
+
+        HttpResponse resp = new HttpResponse();
+        resp.parse(in);
+        Assert.assertFalse(resp.isPersistent());
+    }
+
+    @Test(expected = HttpProtocolException.class)
+    public void testBadChunkSize() throws Exception {
+        InputStream in = stream(bytes(
+                "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nxyz\r\nhello\r\n0\r\n\r\n"));
+        new HttpResponse().parse(in);
+    }
+
+    @Test(expected = HttpProtocolException.class)
+    public void testChunkLongerThanSize() throws Exception {
+        InputStream in = stream(bytes(
+                "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nhello\r\n0\r\n\r\n"));
+        new HttpResponse().parse(in);
+    }
+
+    @Test(expected = HttpEofException.class)
+    public void testTruncatedBody() throws Exception {
+        InputStream in = stream(bytes("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort"));
+        new HttpResponse().parse(in);
+    }
+
+    @Test(expected = HttpEofException.class)
+    public void testTruncatedChunkedBody() throws Exception {
+        InputStream in = stream(bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n"));
+        new HttpResponse().parse(in);
+    }
+
+    @Test(expected = HttpEofException.class)
+    public void testEndOfStream() throws Exception {
+        new HttpResponse().parse(stream());
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        byte[] body = bytes(SUBJECT);
+        InputStream in = stream(
+                bytes("POST /ca/ee/ca/profileSubmit HTTP/1.1\r\nContent-Length: " + body.length + "\r\n\r\n"),
+                body);
+
+        HttpRequest req = new HttpRequest();
+        req.parse(in);
+        Assert.assertEquals("POST", req.getMethod());
+        Assert.assertEquals("/ca/ee/ca/profileSubmit", req.getURI());
+        Assert.assertEquals(SUBJECT, req.getContent());
+    }
+}